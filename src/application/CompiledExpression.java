@@ -0,0 +1,187 @@
+package application;
+
+import compiler.CompiledFunction;
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+import datastructures.Stack;
+
+import java.util.Arrays;
+
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class that holds a parsed mathematical expression in an immutable form, which can be shared between any number of
+ * threads without copying or synchronizing.
+ * Unlike the binary tree representation, whose nodes can be modified and whose visitors are bound to a single tree, a
+ * CompiledExpression only holds final arrays that are never exposed, the compiled program of the expression, the names
+ * of its variables and its text. Every evaluation runs on its own stack, so evaluate is reentrant and never waits for
+ * another thread.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class CompiledExpression implements CompiledFunction {
+
+	/**
+	 * The compiled program of the mathematical expression.
+	 */
+	private final PostfixProgram program;
+
+	/**
+	 * The names of the variables used in the mathematical expression, indexed by slot, with null for the slots it does
+	 * not use.
+	 */
+	private final String[] variableNames;
+
+	/**
+	 * The text of the mathematical expression, as printed by ExpressionParser.toString.
+	 */
+	private final String text;
+
+	/**
+	 * Constructor for a CompiledExpression. The binary tree is only read, so it can be modified or discarded afterwards
+	 * without affecting the CompiledExpression.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression
+	 */
+	public CompiledExpression(BinaryTreeNode<Token> expressionTree) {
+		this.program = ExpressionEvaluator.compile(expressionTree);
+		this.variableNames = collectVariableNames(expressionTree);
+		this.text = ExpressionParser.toString(expressionTree);
+	}
+
+	/**
+	 * Collects the names of the variables used in a binary tree, indexed by slot.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression
+	 * 
+	 * @return                 the names of the variables, with null for the slots that are not used
+	 */
+	private static String[] collectVariableNames(BinaryTreeNode<Token> expressionTree) {
+		String[] names = new String[0];
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		nodes.push(expressionTree);
+
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			if (node == null)
+				continue;
+
+			if (node.getData() instanceof VariableToken) {
+				VariableToken variable = (VariableToken) node.getData();
+				if (variable.getSlot() >= names.length)
+					names = Arrays.copyOf(names, variable.getSlot() + 1);
+
+				names[variable.getSlot()] = variable.getName();
+			}
+
+			nodes.push(node.getRightChild());
+			nodes.push(node.getLeftChild());
+		}
+
+		return names;
+	}
+
+	/**
+	 * Evaluates the mathematical expression for the given values of its variables. Any number of threads can evaluate
+	 * the same CompiledExpression at the same time.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	@Override
+	public double evaluate(double[] variables) {
+		return program.evaluate(variables, program.newStack());
+	}
+
+	/**
+	 * Evaluates the mathematical expression for the given values of its variables on the given stack, so a thread that
+	 * evaluates it many times can avoid allocating a stack every time.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * @param  stack              a stack allocated by newStack(), owned by the calling thread
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public double evaluate(double[] variables, double[] stack) {
+		return program.evaluate(variables, stack);
+	}
+
+	/**
+	 * Allocates a stack large enough to evaluate the mathematical expression.
+	 * 
+	 * @return  a new stack that can be reused for any number of evaluations by the same thread
+	 */
+	public double[] newStack() {
+		return program.newStack();
+	}
+
+	/**
+	 * Allocates an array that can hold the values of the variables used in the mathematical expression, indexed by slot.
+	 * 
+	 * @return  a new array of variable values, all set to 0
+	 */
+	public double[] newBindings() {
+		return new double[variableNames.length];
+	}
+
+	/**
+	 * Gets the number of variable slots used by the mathematical expression.
+	 * 
+	 * @return  the length of the arrays of variable values given to evaluate
+	 */
+	public int getNrOfSlots() {
+		return variableNames.length;
+	}
+
+	/**
+	 * Gets the slot of a variable.
+	 * 
+	 * @param  name  the name of the variable
+	 * 
+	 * @return       the slot of the variable or -1 if the mathematical expression does not use it
+	 */
+	public int slotOf(String name) {
+		for (int slot = 0; slot < variableNames.length; slot++) {
+			if (name.equals(variableNames[slot]))
+				return slot;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the name of the variable that was given a slot.
+	 * 
+	 * @param  slot  the slot of the variable
+	 * 
+	 * @return       the name of the variable or null if the mathematical expression does not use the slot
+	 */
+	public String nameOf(int slot) {
+		return variableNames[slot];
+	}
+
+	/**
+	 * Gets the compiled program of the mathematical expression, which is immutable as well.
+	 * 
+	 * @return  the compiled program
+	 */
+	public PostfixProgram getProgram() {
+		return program;
+	}
+
+	/**
+	 * Gets the text of the mathematical expression, as printed by ExpressionParser.toString.
+	 * 
+	 * @return  the text of the mathematical expression
+	 */
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
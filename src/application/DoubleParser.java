@@ -0,0 +1,261 @@
+package application;
+
+import java.math.BigInteger;
+
+/**
+ * Class used for converting decimal numbers to double values straight from their characters, with the same result as
+ * Double.parseDouble.
+ * Numbers whose significant digits and power of ten are exactly representable as double values are converted with a
+ * single correctly rounded operation. The others are converted with the algorithm of Eisel and Lemire, which multiplies
+ * the significant digits by a 128-bit approximation of the power of ten and can tell from the bits of the product
+ * whether the truncation of the approximation could change the rounding. In the rare cases where it could, as well as
+ * for subnormal and overflowing values and for the hexadecimal and special forms, the conversion falls back to
+ * Double.parseDouble.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class DoubleParser {
+
+	/**
+	 * The smallest and the largest powers of ten with a 128-bit approximation.
+	 */
+	private static final int MIN_EXPONENT = -348;
+	private static final int MAX_EXPONENT = 347;
+
+	/**
+	 * The largest number of significant decimal digits that always fits in an unsigned long.
+	 */
+	private static final int MAX_NR_OF_DIGITS = 19;
+
+	/**
+	 * The powers of ten that are exactly representable as double values.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * The 128-bit approximations of the powers of ten, rounded down and shifted so their most significant bit is set,
+	 * split into their high and low 64 bits.
+	 */
+	private static final long[] POWERS_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+	private static final long[] POWERS_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+	static {
+		for (int exponent = MIN_EXPONENT; exponent <= MAX_EXPONENT; exponent++) {
+			BigInteger power;
+
+			if (exponent >= 0) {
+				power = BigInteger.TEN.pow(exponent);
+				int bitLength = power.bitLength();
+				power = bitLength > 128 ? power.shiftRight(bitLength - 128) : power.shiftLeft(128 - bitLength);
+			}
+			else {
+				BigInteger divisor = BigInteger.TEN.pow(-exponent);
+				power = BigInteger.ONE.shiftLeft(divisor.bitLength() + 127).divide(divisor);
+			}
+
+			POWERS_HIGH[exponent - MIN_EXPONENT] = power.shiftRight(64).longValue();
+			POWERS_LOW[exponent - MIN_EXPONENT] = power.longValue();
+		}
+	}
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private DoubleParser() {
+	}
+
+	/**
+	 * Checks if a character is a decimal digit.
+	 * 
+	 * @param  character  the character to analyze
+	 * 
+	 * @return            true if the character is a digit between 0 and 9, false otherwise
+	 */
+	private static boolean isDigit(char character) {
+		return character >= '0' && character <= '9';
+	}
+
+	/**
+	 * Converts a range of characters to a double value, exactly like Double.parseDouble converts a String that holds
+	 * the same characters.
+	 * 
+	 * @param  characters              the characters
+	 * @param  start                   the index of the first character of the number
+	 * @param  end                     the index after the last character of the number
+	 * 
+	 * @return                         the double value closest to the number
+	 * @throws  NumberFormatException  when the characters are not a valid number
+	 */
+	public static double parse(CharSequence characters, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (characters.charAt(i) == '+' || characters.charAt(i) == '-')) {
+			negative = characters.charAt(i) == '-';
+			i++;
+		}
+
+		// the significant digits, as an unsigned long, and the power of ten they are multiplied by
+		long mantissa = 0;
+		int nrOfDigits = 0, exponent = 0;
+		boolean hasDigits = false, isTruncated = false;
+
+		for (; i < end && isDigit(characters.charAt(i)); i++) {
+			int digit = characters.charAt(i) - '0';
+			hasDigits = true;
+
+			if (nrOfDigits < MAX_NR_OF_DIGITS) {
+				mantissa = 10 * mantissa + digit;
+				if (mantissa != 0)
+					nrOfDigits++;
+			}
+			else {
+				exponent++;
+				isTruncated |= digit != 0;
+			}
+		}
+
+		if (i < end && characters.charAt(i) == '.') {
+			for (i++; i < end && isDigit(characters.charAt(i)); i++) {
+				int digit = characters.charAt(i) - '0';
+				hasDigits = true;
+
+				if (nrOfDigits < MAX_NR_OF_DIGITS) {
+					mantissa = 10 * mantissa + digit;
+					exponent--;
+					if (mantissa != 0)
+						nrOfDigits++;
+				}
+				else
+					isTruncated |= digit != 0;
+			}
+		}
+
+		if (hasDigits && i < end && (characters.charAt(i) == 'e' || characters.charAt(i) == 'E')) {
+			boolean negativeExponent = false;
+			int explicitExponent = 0;
+
+			if (++i < end && (characters.charAt(i) == '+' || characters.charAt(i) == '-'))
+				negativeExponent = characters.charAt(i++) == '-';
+
+			if (i == end || !isDigit(characters.charAt(i)))
+				hasDigits = false;
+
+			// the exponent saturates far beyond the range of double values
+			for (; i < end && isDigit(characters.charAt(i)); i++)
+				explicitExponent = Math.min(10 * explicitExponent + characters.charAt(i) - '0', 100000);
+
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if (i < end && "fFdD".indexOf(characters.charAt(i)) >= 0)
+			i++;
+
+		if (!hasDigits || i != end)
+			return parseSlowly(characters, start, end);
+
+		double value;
+		if (mantissa == 0)
+			value = 0.0;
+		else if (!isTruncated && mantissa >= 0 && mantissa <= 1L << 53 && exponent >= -22 && exponent <= 22)
+			value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+		else {
+			value = eiselLemire(mantissa, exponent);
+
+			// the dropped digits lie between the truncated mantissa and the next one, which must round the same way
+			if (isTruncated && !Double.isNaN(value) && value != eiselLemire(mantissa + 1, exponent))
+				value = Double.NaN;
+
+			if (Double.isNaN(value))
+				return parseSlowly(characters, start, end);
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Converts a positive decimal number to the closest double value with the algorithm of Eisel and Lemire.
+	 * 
+	 * @param  mantissa  the significant digits, a non-zero unsigned long
+	 * @param  exponent  the power of ten the significant digits are multiplied by
+	 * 
+	 * @return           the closest double value or NaN if it cannot be determined with certainty or is not normal
+	 */
+	static double eiselLemire(long mantissa, int exponent) {
+		if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT)
+			return Double.NaN;
+
+		int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+		mantissa <<= leadingZeros;
+		long binaryExponent = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+		long powerHigh = POWERS_HIGH[exponent - MIN_EXPONENT], powerLow = POWERS_LOW[exponent - MIN_EXPONENT];
+		long high = unsignedMultiplyHigh(mantissa, powerHigh), low = mantissa * powerHigh;
+
+		// when the low bits of the product are all ones, the truncated low half of the power may carry into them
+		if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+			long carryHigh = unsignedMultiplyHigh(mantissa, powerLow), carryLow = mantissa * powerLow;
+			long mergedHigh = high, mergedLow = low + carryHigh;
+			if (Long.compareUnsigned(mergedLow, low) < 0)
+				mergedHigh++;
+
+			if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 && Long.compareUnsigned(carryLow + mantissa, mantissa) < 0)
+				return Double.NaN;
+
+			high = mergedHigh;
+			low = mergedLow;
+		}
+
+		// keep 54 bits, one more than the mantissa of a double for rounding
+		long msb = high >>> 63;
+		long result = high >>> (msb + 9);
+		binaryExponent -= 1 ^ msb;
+
+		// a product exactly halfway between two double values cannot be rounded without the exact digits
+		if (low == 0 && (high & 0x1FF) == 0 && (result & 3) == 1)
+			return Double.NaN;
+
+		result += result & 1;
+		result >>>= 1;
+		if ((result >>> 53) != 0) {
+			result >>>= 1;
+			binaryExponent++;
+		}
+
+		// subnormal, infinite and NaN values are left to the slow path
+		if (binaryExponent <= 0 || binaryExponent >= 0x7FF)
+			return Double.NaN;
+
+		return Double.longBitsToDouble(binaryExponent << 52 | result & 0x000FFFFFFFFFFFFFL);
+	}
+
+	/**
+	 * Computes the high 64 bits of the 128-bit product of two unsigned longs.
+	 * 
+	 * @param  x  the first factor
+	 * @param  y  the second factor
+	 * 
+	 * @return    the high 64 bits of the product
+	 */
+	private static long unsignedMultiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+	}
+
+	/**
+	 * Converts a range of characters to a double value through Double.parseDouble.
+	 * 
+	 * @param  characters              the characters
+	 * @param  start                   the index of the first character of the number
+	 * @param  end                     the index after the last character of the number
+	 * 
+	 * @return                         the double value closest to the number
+	 * @throws  NumberFormatException  when the characters are not a valid number
+	 */
+	private static double parseSlowly(CharSequence characters, int start, int end) {
+		return Double.parseDouble(characters.subSequence(start, end).toString());
+	}
+
+}
@@ -0,0 +1,447 @@
+package application;
+
+import compiler.ExpressionStorage;
+import compiler.Opcodes;
+
+import datastructures.BinaryTreeNode;
+import datastructures.Stack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class that gives access to the mathematical expressions of an archive written by an ExpressionArchiveWriter.
+ * The archive is mapped in memory instead of being read, and opening it only checks its header. Every expression is
+ * decoded from the mapped file when it is requested, so a service can evaluate some expressions right after starting,
+ * without parsing or even decoding the others.
+ * An archive starts with a header made of a magic number, the version of the format, the number of expressions and
+ * the number of variable names. It is followed by the offsets of the expressions and of the names, by the names and
+ * by the expressions. Every expression is a sequence of tokens in postfix order, each one made of a tag followed by
+ * the value of a number or a mathematical constant, or by the slot and the index of the name of a variable. The tag of
+ * a token is its opcode, except for the mathematical constants and the parenthesized groups, which have tags of their
+ * own. All values are big-endian.
+ * The names of the variables are stored by slot, with an empty name for the slots that no expression uses, so the
+ * archive also tells which slot every variable has to be bound to.
+ * An archive can be read by any number of threads at the same time.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class ExpressionArchive {
+
+	/**
+	 * The magic number an archive starts with, the characters "EXPR".
+	 */
+	static final int MAGIC = 0x45585052;
+
+	/**
+	 * The version of the format written by an ExpressionArchiveWriter, which is the newest version that can be read.
+	 */
+	static final short VERSION = 1;
+
+	/**
+	 * The number of bytes of the header, before the offsets.
+	 */
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * The tag of a mathematical constant, which is printed differently than a number of the same value.
+	 */
+	static final byte CONSTANT = Opcodes.LOAD_VARIABLE + 1;
+
+	/**
+	 * The tag of a pair of parentheses enclosing the subexpression before it.
+	 */
+	static final byte GROUP = Opcodes.LOAD_VARIABLE + 2;
+
+	/**
+	 * The tokens of the binary operators and of the mathematical functions, indexed by opcode.
+	 */
+	private static final Token[] OPERATOR_TOKENS = {
+		null,
+		PlusToken.INSTANCE,
+		MinusToken.INSTANCE,
+		MultiplyToken.INSTANCE,
+		DivideToken.INSTANCE,
+		ModuloToken.INSTANCE,
+		PowerToken.INSTANCE,
+		AbsoluteValueToken.INSTANCE,
+		ArccosineToken.INSTANCE,
+		ArcsineToken.INSTANCE,
+		ArctangentToken.INSTANCE,
+		CeilingToken.INSTANCE,
+		CosineToken.INSTANCE,
+		FloorToken.INSTANCE,
+		LogarithmToken.INSTANCE,
+		LogarithmBaseTenToken.INSTANCE,
+		LogarithmBaseTwoToken.INSTANCE,
+		RoundToken.INSTANCE,
+		SineToken.INSTANCE,
+		SquareRootToken.INSTANCE,
+		TangentToken.INSTANCE
+	};
+
+	/**
+	 * The mapped bytes of the archive.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The version of the format of the archive.
+	 */
+	private final int version;
+
+	/**
+	 * The number of mathematical expressions held by the archive.
+	 */
+	private final int nrOfExpressions;
+
+	/**
+	 * The names of the variables indexed by slot, each one decoded the first time it is needed.
+	 */
+	private final String[] names;
+
+	/**
+	 * Constructor for an ExpressionArchive, which checks the header of the archive.
+	 * 
+	 * @param  buffer        the bytes of the archive
+	 * 
+	 * @throws  IOException  when the bytes are not an archive of a supported version
+	 */
+	ExpressionArchive(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("not an expression archive");
+
+		this.buffer = buffer;
+		this.version = buffer.getShort(4);
+		if (version < 1 || version > VERSION)
+			throw new IOException("unsupported expression archive version " + version);
+
+		this.nrOfExpressions = buffer.getInt(8);
+		int nrOfNames = buffer.getInt(12);
+		if (nrOfExpressions < 0 || nrOfNames < 0 ||
+			HEADER_SIZE + 4L * (nrOfExpressions + 1L + nrOfNames) > buffer.capacity() ||
+			buffer.getInt(HEADER_SIZE + 4 * nrOfExpressions) != buffer.capacity())
+			throw new IOException("truncated expression archive");
+
+		this.names = new String[nrOfNames];
+	}
+
+	/**
+	 * Opens an archive by mapping its file in memory, without decoding any of its expressions.
+	 * 
+	 * @param  file          the path of the archive
+	 * 
+	 * @return               the opened archive
+	 * @throws  IOException  when the file cannot be mapped or is not an archive of a supported version
+	 */
+	public static ExpressionArchive open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("expression archive is too large");
+
+			return new ExpressionArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Gets the version of the format of this ExpressionArchive.
+	 * 
+	 * @return  the version of the format
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the number of mathematical expressions held by this ExpressionArchive.
+	 * 
+	 * @return  the number of mathematical expressions
+	 */
+	public int getNrOfExpressions() {
+		return nrOfExpressions;
+	}
+
+	/**
+	 * Gets the number of variable slots used by the mathematical expressions of this ExpressionArchive.
+	 * 
+	 * @return  the length of the arrays of variable values given to the evaluation of the expressions
+	 */
+	public int getNrOfSlots() {
+		return names.length;
+	}
+
+	/**
+	 * Allocates an array that can hold the values of all the variables used by the mathematical expressions of this
+	 * ExpressionArchive, indexed by slot.
+	 * 
+	 * @return  a new array of variable values, all set to 0
+	 */
+	public double[] newBindings() {
+		return new double[names.length];
+	}
+
+	/**
+	 * Gets the slot of a variable.
+	 * 
+	 * @param  name                    the name of the variable
+	 * 
+	 * @return                         the slot of the variable or -1 if no mathematical expression of the archive
+	 *                                 uses it
+	 * @throws  IllegalStateException  when the names of the variables are corrupt
+	 */
+	public int slotOf(String name) {
+		for (int slot = 0; slot < names.length; slot++) {
+			if (name.equals(nameOf(slot)))
+				return slot;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the name of the variable that was given a slot.
+	 * 
+	 * @param  slot                    the slot of the variable
+	 * 
+	 * @return                         the name of the variable or null if no mathematical expression of the archive
+	 *                                 uses the slot
+	 * @throws  IllegalStateException  when the name of the variable is corrupt
+	 */
+	public String nameOf(int slot) {
+		String name = names[slot];
+
+		if (name == null) {
+			int offset = buffer.getInt(HEADER_SIZE + 4 * (nrOfExpressions + 1 + slot));
+			if (offset < HEADER_SIZE || offset > buffer.capacity() - 2)
+				throw new IllegalStateException("variable name " + slot + " of the archive is corrupt");
+
+			byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+			if (bytes.length > buffer.capacity() - 2 - offset)
+				throw new IllegalStateException("variable name " + slot + " of the archive is corrupt");
+
+			if (bytes.length == 0)
+				return null;
+
+			buffer.get(offset + 2, bytes);
+			name = new String(bytes, StandardCharsets.UTF_8);
+			names[slot] = name;
+		}
+
+		return name;
+	}
+
+	/**
+	 * Gets the offset of the first token of a mathematical expression.
+	 * 
+	 * @param  index                       the index of the mathematical expression
+	 * 
+	 * @return                             the offset of the mathematical expression
+	 * @throws  IndexOutOfBoundsException  when there is no mathematical expression with the given index
+	 */
+	private int start(int index) {
+		if (index < 0 || index >= nrOfExpressions)
+			throw new IndexOutOfBoundsException("no expression " + index + " in the archive");
+
+		return buffer.getInt(HEADER_SIZE + 4 * index);
+	}
+
+	/**
+	 * Gets the offset right after the last token of a mathematical expression.
+	 * 
+	 * @param  index  the index of the mathematical expression
+	 * 
+	 * @return        the end offset of the mathematical expression
+	 */
+	private int end(int index) {
+		return buffer.getInt(HEADER_SIZE + 4 * (index + 1));
+	}
+
+	/**
+	 * Creates the exception raised when the tokens of a mathematical expression do not form a valid expression.
+	 * 
+	 * @param  index  the index of the mathematical expression
+	 * 
+	 * @return        the exception to raise
+	 */
+	private static IllegalStateException corrupt(int index) {
+		return new IllegalStateException("expression " + index + " of the archive is corrupt");
+	}
+
+	/**
+	 * Checks if a token is followed by an 8-byte payload, the value of a number or a mathematical constant or the slot
+	 * and the index of the name of a variable.
+	 * 
+	 * @param  tag  the tag of the token
+	 * 
+	 * @return      true if the tag is followed by a payload, false otherwise
+	 */
+	private static boolean hasPayload(byte tag) {
+		return tag == Opcodes.PUSH_CONSTANT || tag == CONSTANT || tag == Opcodes.LOAD_VARIABLE;
+	}
+
+	/**
+	 * Decodes a mathematical expression into its binary tree representation, the same one ExpressionParser.parse gives
+	 * for its text.
+	 * 
+	 * @param  index                       the index of the mathematical expression
+	 * 
+	 * @return                             a binary tree representation of the mathematical expression
+	 * @throws  IndexOutOfBoundsException  when there is no mathematical expression with the given index
+	 * @throws  IllegalStateException      when the mathematical expression is corrupt
+	 */
+	public BinaryTreeNode<Token> getExpressionTree(int index) {
+		Stack<BinaryTreeNode<Token>> operands = new Stack<BinaryTreeNode<Token>>();
+		int position = start(index), end = end(index);
+		if (position < HEADER_SIZE || position >= end || end > buffer.capacity())
+			throw corrupt(index);
+
+		while (position < end) {
+			byte tag = buffer.get(position++);
+			if (hasPayload(tag) && end - position < 8)
+				throw corrupt(index);
+
+			if (tag == Opcodes.PUSH_CONSTANT) {
+				operands.push(new BinaryTreeNode<Token>(new NumberToken(buffer.getDouble(position))));
+				position += 8;
+			}
+			else if (tag == CONSTANT) {
+				operands.push(new BinaryTreeNode<Token>(new ConstantToken(buffer.getDouble(position))));
+				position += 8;
+			}
+			else if (tag == Opcodes.LOAD_VARIABLE) {
+				int slot = buffer.getInt(position), nameIndex = buffer.getInt(position + 4);
+				String name = slot >= 0 && nameIndex >= 0 && nameIndex < names.length ? nameOf(nameIndex) : null;
+				if (name == null)
+					throw corrupt(index);
+
+				operands.push(new BinaryTreeNode<Token>(new VariableToken(name, slot)));
+				position += 8;
+			}
+			else if (tag == GROUP && !operands.isEmpty()) {
+				BinaryTreeNode<Token> rhs = new BinaryTreeNode<Token>(RightParenthesisToken.INSTANCE, operands.pop(), null);
+				operands.push(new BinaryTreeNode<Token>(LeftParenthesisToken.INSTANCE, null, rhs));
+			}
+			else if (Opcodes.isBinaryOperator(tag) && operands.size() >= 2) {
+				BinaryTreeNode<Token> rhs = operands.pop();
+				BinaryTreeNode<Token> lhs = operands.pop();
+				operands.push(new BinaryTreeNode<Token>(OPERATOR_TOKENS[tag], lhs, rhs));
+			}
+			else if (Opcodes.isMathematicalFunction(tag) && !operands.isEmpty())
+				operands.push(new BinaryTreeNode<Token>(OPERATOR_TOKENS[tag], operands.pop(), null));
+			else
+				throw corrupt(index);
+		}
+
+		if (operands.size() != 1 || position != end)
+			throw corrupt(index);
+
+		return operands.pop();
+	}
+
+	/**
+	 * Decodes a mathematical expression straight into the compact encoding of an ExpressionStorage, without building
+	 * its binary tree representation. When the mathematical expression is corrupt, the storage is left unchanged.
+	 * 
+	 * @param  index                       the index of the mathematical expression
+	 * @param  storage                     the storage in which the nodes of the mathematical expression are appended
+	 * 
+	 * @return                             the index of the root node of the mathematical expression in the storage
+	 * @throws  IndexOutOfBoundsException  when there is no mathematical expression with the given index
+	 * @throws  IllegalStateException      when the mathematical expression is corrupt
+	 */
+	public int load(int index, ExpressionStorage storage) {
+		int nrOfNodes = storage.getNrOfNodes(), position = start(index), end = end(index);
+		if (position < HEADER_SIZE || position >= end || end > buffer.capacity())
+			throw corrupt(index);
+
+		int[] roots = new int[16];
+		int top = -1;
+
+		try {
+			while (position < end) {
+				byte tag = buffer.get(position++);
+
+				if (hasPayload(tag)) {
+					if (end - position < 8 || (tag == Opcodes.LOAD_VARIABLE && buffer.getInt(position) < 0))
+						throw corrupt(index);
+
+					if (++top == roots.length)
+						roots = Arrays.copyOf(roots, 2 * top);
+
+					if (tag == Opcodes.LOAD_VARIABLE)
+						roots[top] = storage.addVariable(buffer.getInt(position));
+					else
+						roots[top] = storage.addConstant(buffer.getDouble(position));
+
+					position += 8;
+				}
+				else if (tag == GROUP && top >= 0)
+					continue;
+				else if (Opcodes.isBinaryOperator(tag) && top >= 1) {
+					top--;
+					roots[top] = storage.addBinaryOperator(tag, roots[top]);
+				}
+				else if (Opcodes.isMathematicalFunction(tag) && top >= 0)
+					roots[top] = storage.addFunction(tag);
+				else
+					throw corrupt(index);
+			}
+
+			if (top != 0 || position != end)
+				throw corrupt(index);
+		}
+		catch (RuntimeException e) {
+			storage.truncate(nrOfNodes);
+			throw e;
+		}
+
+		return roots[0];
+	}
+
+	/**
+	 * Decodes a mathematical expression into an immutable CompiledExpression, which can be cached and evaluated by any
+	 * number of threads at the same time.
+	 * 
+	 * @param  index                       the index of the mathematical expression
+	 * 
+	 * @return                             the compiled form of the mathematical expression
+	 * @throws  IndexOutOfBoundsException  when there is no mathematical expression with the given index
+	 * @throws  IllegalStateException      when the mathematical expression is corrupt
+	 */
+	public CompiledExpression compile(int index) {
+		return new CompiledExpression(getExpressionTree(index));
+	}
+
+}
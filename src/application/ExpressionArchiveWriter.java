@@ -0,0 +1,235 @@
+package application;
+
+import compiler.Opcodes;
+
+import datastructures.BinaryTreeNode;
+import datastructures.Stack;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tokens.ConstantToken;
+import tokens.NumberToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+import visitors.OpcodeVisitor;
+
+/**
+ * Class that writes any number of parsed mathematical expressions into an archive, in the binary format described for
+ * ExpressionArchive. The expressions are encoded as they are added and the whole archive is written at once, so storing
+ * them in bulk is a single sequential write.
+ * The names of the variables are stored by slot, so all the expressions of an archive have to give the same slot to a
+ * variable, as they do when they are parsed with the same VariableTable.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class ExpressionArchiveWriter {
+
+	/**
+	 * Visitor that gives the opcode of every operator and mathematical function.
+	 */
+	private static final OpcodeVisitor OPCODE_VISITOR = new OpcodeVisitor();
+
+	/**
+	 * The encoded tokens of the added expressions, one after the other.
+	 */
+	private final ByteArrayOutputStream recordBytes;
+
+	/**
+	 * The stream through which the tokens are encoded into the record bytes.
+	 */
+	private final DataOutputStream records;
+
+	/**
+	 * The offset in the record bytes right after every added expression.
+	 */
+	private int[] recordEnds;
+
+	/**
+	 * The number of expressions added so far.
+	 */
+	private int nrOfExpressions;
+
+	/**
+	 * The names of the variables indexed by slot, with null for the slots that no added expression uses.
+	 */
+	private final List<String> names;
+
+	/**
+	 * Constructor for an empty ExpressionArchiveWriter.
+	 */
+	public ExpressionArchiveWriter() {
+		this.recordBytes = new ByteArrayOutputStream();
+		this.records = new DataOutputStream(recordBytes);
+		this.recordEnds = new int[16];
+		this.nrOfExpressions = 0;
+		this.names = new ArrayList<String>();
+	}
+
+	/**
+	 * Stores the names of the variables of a mathematical expression by slot. All the names are checked before any of
+	 * them is stored, so a rejected mathematical expression leaves the names unchanged.
+	 * 
+	 * @param  variables                  the variables of the mathematical expression
+	 * 
+	 * @throws  IllegalArgumentException  when a slot already has another name or a name is longer than 65535 bytes
+	 */
+	private void declare(List<VariableToken> variables) {
+		Map<Integer, String> newNames = new HashMap<Integer, String>();
+
+		for (VariableToken variable : variables) {
+			int slot = variable.getSlot();
+			String name = slot < names.size() && names.get(slot) != null ? names.get(slot) : newNames.get(slot);
+
+			if (name == null) {
+				if (variable.getName().getBytes(StandardCharsets.UTF_8).length > 0xFFFF)
+					throw new IllegalArgumentException("variable name is too long");
+
+				newNames.put(slot, variable.getName());
+			}
+			else if (!name.equals(variable.getName()))
+				throw new IllegalArgumentException("variable slot " + slot + " is already named " + name);
+		}
+
+		for (Map.Entry<Integer, String> newName : newNames.entrySet()) {
+			while (names.size() <= newName.getKey())
+				names.add(null);
+
+			names.set(newName.getKey(), newName.getValue());
+		}
+	}
+
+	/**
+	 * Adds a mathematical expression, encoding its tokens in postfix order. The binary tree is walked with explicit
+	 * stacks, so expressions of any nesting depth can be added.
+	 * 
+	 * @param  expressionTree             the binary tree representation of the mathematical expression
+	 * 
+	 * @return                            the index of the mathematical expression in the archive
+	 * @throws  IllegalArgumentException  when a variable has another slot than in the expressions added before, or a
+	 *                                    name longer than 65535 bytes
+	 */
+	public int add(BinaryTreeNode<Token> expressionTree) {
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		Stack<BinaryTreeNode<Token>> postfixNodes = new Stack<BinaryTreeNode<Token>>();
+		List<VariableToken> variables = new ArrayList<VariableToken>();
+		nodes.push(expressionTree);
+
+		// the nodes are popped parent first and right child before left child, so they end up reversed in postfix order
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			postfixNodes.push(node);
+
+			if (node.getData() instanceof VariableToken)
+				variables.add((VariableToken) node.getData());
+			if (node.getLeftChild() != null)
+				nodes.push(node.getLeftChild());
+			if (node.getRightChild() != null)
+				nodes.push(node.getRightChild());
+		}
+
+		declare(variables);
+
+		try {
+			while (!postfixNodes.isEmpty()) {
+				Token token = postfixNodes.pop().getData();
+
+				if (token instanceof VariableToken) {
+					// the names are stored by slot, so the index of the name is the slot
+					records.writeByte(Opcodes.LOAD_VARIABLE);
+					records.writeInt(((VariableToken) token).getSlot());
+					records.writeInt(((VariableToken) token).getSlot());
+				}
+				else if (token instanceof ConstantToken) {
+					records.writeByte(ExpressionArchive.CONSTANT);
+					records.writeDouble(((ConstantToken) token).getValue());
+				}
+				else if (token instanceof NumberToken) {
+					records.writeByte(Opcodes.PUSH_CONSTANT);
+					records.writeDouble(((NumberToken) token).getValue());
+				}
+				else if (token.isLeftParenthesis())
+					records.writeByte(ExpressionArchive.GROUP);
+				else if (!token.isRightParenthesis())
+					records.writeByte(token.accept(OPCODE_VISITOR));
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		if (nrOfExpressions == recordEnds.length)
+			recordEnds = Arrays.copyOf(recordEnds, 2 * nrOfExpressions);
+
+		recordEnds[nrOfExpressions] = records.size();
+		return nrOfExpressions++;
+	}
+
+	/**
+	 * Gets the number of mathematical expressions added so far.
+	 * 
+	 * @return  the number of mathematical expressions
+	 */
+	public int getNrOfExpressions() {
+		return nrOfExpressions;
+	}
+
+	/**
+	 * Writes the archive of all the added mathematical expressions, replacing the file if it already exists.
+	 * 
+	 * @param  file          the path of the archive
+	 * 
+	 * @throws  IOException  when the archive is larger than 2 GB or the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		// the slots that no expression uses get an empty name, which no variable can have
+		List<byte[]> nameBytes = new ArrayList<byte[]>();
+		for (String name : names)
+			nameBytes.add(name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8));
+
+		long namesStart = ExpressionArchive.HEADER_SIZE + 4L * (nrOfExpressions + 1 + names.size());
+		long recordsStart = namesStart;
+		for (byte[] name : nameBytes)
+			recordsStart += 2 + name.length;
+
+		if (recordsStart + recordBytes.size() > Integer.MAX_VALUE)
+			throw new IOException("expression archive is too large");
+
+		try (DataOutputStream archive = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			archive.writeInt(ExpressionArchive.MAGIC);
+			archive.writeShort(ExpressionArchive.VERSION);
+			archive.writeShort(0);
+			archive.writeInt(nrOfExpressions);
+			archive.writeInt(names.size());
+
+			archive.writeInt((int) recordsStart);
+			for (int i = 0; i < nrOfExpressions; i++)
+				archive.writeInt((int) recordsStart + recordEnds[i]);
+
+			int nameOffset = (int) namesStart;
+			for (byte[] name : nameBytes) {
+				archive.writeInt(nameOffset);
+				nameOffset += 2 + name.length;
+			}
+
+			for (byte[] name : nameBytes) {
+				archive.writeShort(name.length);
+				archive.write(name);
+			}
+
+			recordBytes.writeTo(archive);
+		}
+	}
+
+}
@@ -0,0 +1,509 @@
+package application;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.SyntaxException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import tokens.Token;
+
+/**
+ * Class used for caching the parsed or compiled form of mathematical expressions, keyed by their text, so expressions
+ * that are requested over and over are parsed only once.
+ * The cache is split into segments, each one guarded by its own lock and holding its entries in least recently used
+ * order, so threads requesting expressions of different segments never wait for each other. When the total weight of
+ * the entries of a segment exceeds its share of the maximum weight, its least recently used entries are evicted. By
+ * default every entry weighs 1, so the maximum weight is the maximum number of entries. Entries can also expire a
+ * fixed time after they were loaded.
+ * An expression missing from the cache is parsed and compiled outside of the lock of its segment, by the first thread
+ * that requests it. The other threads requesting it in the meantime wait for that result instead of parsing it again.
+ * Expressions with syntax errors are not cached, so the error is reported again on the next request.
+ * The cached values are shared between all the threads that request the same expression, so they must not be modified.
+ * CompiledExpression is an immutable form meant for such sharing.
+ * 
+ * @param  <V>  the type of the cached form of the mathematical expressions
+ * 
+ * @author      Valentin Gabriel Mitrea
+ */
+public final class ExpressionCache<V> {
+
+	/**
+	 * The largest number of segments of a cache.
+	 */
+	private static final int MAX_NR_OF_SEGMENTS = 16;
+
+	/**
+	 * Interface for the conversion of a parsed mathematical expression into its cached form.
+	 * 
+	 * @param  <V>  the type of the cached form of the mathematical expressions
+	 */
+	public interface Compiler<V> {
+
+		/**
+		 * Converts a parsed mathematical expression into its cached form.
+		 * 
+		 * @param  expressionTree  the binary tree representation of the mathematical expression
+		 * 
+		 * @return                 the cached form of the mathematical expression
+		 */
+		V compile(BinaryTreeNode<Token> expressionTree);
+
+	}
+
+	/**
+	 * Interface for the computation of the weight of a cached entry.
+	 * 
+	 * @param  <V>  the type of the cached form of the mathematical expressions
+	 */
+	public interface Weigher<V> {
+
+		/**
+		 * Computes the weight of a cached entry.
+		 * 
+		 * @param  expression  the text of the mathematical expression
+		 * @param  value       the cached form of the mathematical expression
+		 * 
+		 * @return             the weight of the entry, a non-negative number
+		 */
+		long weigh(String expression, V value);
+
+	}
+
+	/**
+	 * Interface for the source of the current time, in nanoseconds.
+	 */
+	interface Clock {
+
+		/**
+		 * Gets the current time.
+		 * 
+		 * @return  the current time in nanoseconds, only meaningful compared to other times of the same clock
+		 */
+		long nanoTime();
+
+	}
+
+	/**
+	 * The conversion of a parsed mathematical expression into its cached form.
+	 */
+	private final Compiler<V> compiler;
+
+	/**
+	 * The computation of the weight of a cached entry.
+	 */
+	private final Weigher<? super V> weigher;
+
+	/**
+	 * The source of the current time, read when an entry is loaded and when it is requested.
+	 */
+	private final Clock clock;
+
+	/**
+	 * The time after which a loaded entry expires, in nanoseconds, or 0 if entries never expire.
+	 */
+	private final long timeToLive;
+
+	/**
+	 * The segments of the cache, a power of two of them, each one holding the entries of the expressions whose hash
+	 * selects it.
+	 */
+	private final Segment<V>[] segments;
+
+	/**
+	 * The number of bits of the hash of an expression that are not used for choosing its segment.
+	 */
+	private final int segmentShift;
+
+	/**
+	 * The number of requests answered with an entry already cached or being loaded by another thread. Like the other
+	 * counters, it is updated by many threads without contention.
+	 */
+	private final LongAdder nrOfHits = new LongAdder();
+
+	/**
+	 * The number of requests that loaded their entry themselves.
+	 */
+	private final LongAdder nrOfMisses = new LongAdder();
+
+	/**
+	 * The number of entries removed because their segment was too heavy or because they expired.
+	 */
+	private final LongAdder nrOfEvictions = new LongAdder();
+
+	/**
+	 * Constructor for an ExpressionCache that holds at most a given number of entries, which never expire.
+	 * 
+	 * @param  maxSize   the largest number of entries held by the cache
+	 * @param  compiler  the conversion of a parsed mathematical expression into its cached form
+	 */
+	public ExpressionCache(long maxSize, Compiler<V> compiler) {
+		this(maxSize, (expression, value) -> 1, 0, TimeUnit.NANOSECONDS, compiler);
+	}
+
+	/**
+	 * Constructor for an ExpressionCache.
+	 * 
+	 * @param  maxWeight   the largest total weight of the entries held by the cache
+	 * @param  weigher     the computation of the weight of an entry
+	 * @param  timeToLive  the time after which a loaded entry expires or 0 if entries never expire
+	 * @param  unit        the unit of the time to live
+	 * @param  compiler    the conversion of a parsed mathematical expression into its cached form
+	 */
+	public ExpressionCache(long maxWeight, Weigher<? super V> weigher, long timeToLive, TimeUnit unit,
+						   Compiler<V> compiler) {
+		this(maxWeight, weigher, unit.toNanos(timeToLive), compiler, System::nanoTime);
+	}
+
+	/**
+	 * Constructor for an ExpressionCache that reads the time from a given clock.
+	 * 
+	 * @param  maxWeight   the largest total weight of the entries held by the cache
+	 * @param  weigher     the computation of the weight of an entry
+	 * @param  timeToLive  the time after which a loaded entry expires, in nanoseconds, or 0 if entries never expire
+	 * @param  compiler    the conversion of a parsed mathematical expression into its cached form
+	 * @param  clock       the source of the current time
+	 */
+	ExpressionCache(long maxWeight, Weigher<? super V> weigher, long timeToLive, Compiler<V> compiler, Clock clock) {
+		if (maxWeight <= 0 || timeToLive < 0)
+			throw new IllegalArgumentException();
+
+		this.compiler = compiler;
+		this.weigher = weigher;
+		this.clock = clock;
+		this.timeToLive = timeToLive;
+
+		// every segment gets a share of the maximum weight of at least 1
+		int nrOfSegments = (int) Long.highestOneBit(Math.min(maxWeight, MAX_NR_OF_SEGMENTS));
+		this.segments = newSegmentArray(nrOfSegments);
+		this.segmentShift = 32 - Integer.numberOfTrailingZeros(nrOfSegments);
+
+		for (int i = 0; i < nrOfSegments; i++)
+			segments[i] = new Segment<V>(maxWeight / nrOfSegments + (i < maxWeight % nrOfSegments ? 1 : 0));
+	}
+
+	/**
+	 * Allocates an array of segments, which cannot be created directly with the type of its elements.
+	 * 
+	 * @param  <V>     the type of the cached form of the mathematical expressions
+	 * @param  length  the length of the array
+	 * 
+	 * @return         a new array of segments, all null
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> Segment<V>[] newSegmentArray(int length) {
+		return (Segment<V>[]) new Segment<?>[length];
+	}
+
+	/**
+	 * Gets the segment that holds the entry of a mathematical expression.
+	 * 
+	 * @param  expression  the text of the mathematical expression
+	 * 
+	 * @return             the segment of the expression
+	 */
+	private Segment<V> segmentFor(String expression) {
+		if (segments.length == 1)
+			return segments[0];
+
+		// the high bits of the scrambled hash are independent of the buckets of the segment
+		return segments[(expression.hashCode() * 0x9E3779B9) >>> segmentShift];
+	}
+
+	/**
+	 * Gets the cached form of a mathematical expression, parsing and compiling it if it is not cached yet.
+	 * 
+	 * @param  expression        the mathematical expression
+	 * 
+	 * @return                   the cached form of the mathematical expression
+	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
+	 */
+	public V get(String expression) throws SyntaxException {
+		Segment<V> segment = segmentFor(expression);
+		Entry<V> entry;
+		boolean isLoader = false;
+
+		segment.lock.lock();
+		try {
+			entry = segment.entries.get(expression);
+
+			if (entry != null && timeToLive != 0 && entry.isExpired(clock.nanoTime())) {
+				segment.remove(expression);
+				nrOfEvictions.increment();
+				entry = null;
+			}
+
+			if (entry == null) {
+				entry = new Entry<V>();
+				segment.entries.put(expression, entry);
+				isLoader = true;
+			}
+		}
+		finally {
+			segment.lock.unlock();
+		}
+
+		if (isLoader) {
+			nrOfMisses.increment();
+			return load(segment, expression, entry);
+		}
+
+		nrOfHits.increment();
+		try {
+			return entry.value.join();
+		}
+		catch (CompletionException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+
+	/**
+	 * Parses and compiles a mathematical expression, fills its entry and evicts the least recently used entries of its
+	 * segment if the segment became too heavy.
+	 * 
+	 * @param  segment           the segment of the expression
+	 * @param  expression        the mathematical expression
+	 * @param  entry             the entry of the expression, still loading
+	 * 
+	 * @return                   the cached form of the mathematical expression
+	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
+	 */
+	private V load(Segment<V> segment, String expression, Entry<V> entry) throws SyntaxException {
+		V value;
+		long weight;
+
+		try {
+			value = compiler.compile(ExpressionParser.parse(expression));
+			weight = weigher.weigh(expression, value);
+		}
+		catch (SyntaxException | RuntimeException | Error e) {
+			segment.lock.lock();
+			try {
+				if (segment.entries.get(expression) == entry)
+					segment.entries.remove(expression);
+			}
+			finally {
+				segment.lock.unlock();
+			}
+
+			entry.value.completeExceptionally(e);
+			throw e;
+		}
+
+		segment.lock.lock();
+		try {
+			entry.weight = weight;
+			entry.expirationTime = clock.nanoTime() + timeToLive;
+			entry.value.complete(value);
+
+			// the entry may have been replaced by another one while it was loading
+			if (segment.entries.get(expression) == entry) {
+				segment.weight += weight;
+				nrOfEvictions.add(segment.evict());
+			}
+		}
+		finally {
+			segment.lock.unlock();
+		}
+
+		return value;
+	}
+
+	/**
+	 * Gets the error that has to be thrown again for a failed load.
+	 * 
+	 * @param  error             the error thrown by the load
+	 * 
+	 * @return                   the error, if it is a RuntimeException
+	 * @throws  SyntaxException  when the error is a SyntaxException
+	 */
+	private static RuntimeException rethrow(Throwable error) throws SyntaxException {
+		if (error instanceof SyntaxException)
+			throw (SyntaxException) error;
+		else if (error instanceof Error)
+			throw (Error) error;
+
+		return (RuntimeException) error;
+	}
+
+	/**
+	 * Removes every entry from the cache. The expressions that are loading stay loading, but are not cached.
+	 */
+	public void clear() {
+		for (Segment<V> segment : segments) {
+			segment.lock.lock();
+			try {
+				segment.entries.clear();
+				segment.weight = 0;
+			}
+			finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of entries held by the cache, including the expired ones not removed yet and the ones loading.
+	 * 
+	 * @return  the number of entries
+	 */
+	public long size() {
+		long size = 0;
+		for (Segment<V> segment : segments) {
+			segment.lock.lock();
+			try {
+				size += segment.entries.size();
+			}
+			finally {
+				segment.lock.unlock();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Gets the total weight of the loaded entries held by the cache.
+	 * 
+	 * @return  the total weight of the entries
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (Segment<V> segment : segments) {
+			segment.lock.lock();
+			try {
+				weight += segment.weight;
+			}
+			finally {
+				segment.lock.unlock();
+			}
+		}
+
+		return weight;
+	}
+
+	/**
+	 * Gets the number of requests served from the cache, including the ones that waited for another thread to load
+	 * the expression.
+	 * 
+	 * @return  the number of hits
+	 */
+	public long getNrOfHits() {
+		return nrOfHits.sum();
+	}
+
+	/**
+	 * Gets the number of requests that had to parse the expression.
+	 * 
+	 * @return  the number of misses
+	 */
+	public long getNrOfMisses() {
+		return nrOfMisses.sum();
+	}
+
+	/**
+	 * Gets the number of entries removed because their segment was too heavy or because they expired.
+	 * 
+	 * @return  the number of evictions
+	 */
+	public long getNrOfEvictions() {
+		return nrOfEvictions.sum();
+	}
+
+	/**
+	 * Class for a cached mathematical expression, which starts loading when it is created.
+	 * The weight and the expiration time are only meaningful once the value is complete, and are guarded by the lock of
+	 * the segment.
+	 * 
+	 * @param  <V>  the type of the cached form of the mathematical expressions
+	 */
+	private static final class Entry<V> {
+
+		final CompletableFuture<V> value = new CompletableFuture<V>();
+		long weight;
+		long expirationTime;
+
+		/**
+		 * Checks if the entry expired.
+		 * 
+		 * @param  now  the current time in nanoseconds
+		 * 
+		 * @return      true if the entry is loaded and expired, false otherwise
+		 */
+		boolean isExpired(long now) {
+			return value.isDone() && expirationTime - now <= 0;
+		}
+
+	}
+
+	/**
+	 * Class for a segment of the cache, which holds its entries in least recently used order.
+	 * 
+	 * @param  <V>  the type of the cached form of the mathematical expressions
+	 */
+	private static final class Segment<V> {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * The entries of the segment, from the least to the most recently used.
+		 */
+		final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true);
+
+		/**
+		 * The largest and the current total weight of the loaded entries of the segment.
+		 */
+		final long maxWeight;
+		long weight;
+
+		/**
+		 * Constructor for a Segment.
+		 * 
+		 * @param  maxWeight  the largest total weight of the loaded entries of the segment
+		 */
+		Segment(long maxWeight) {
+			this.maxWeight = maxWeight;
+			this.weight = 0;
+		}
+
+		/**
+		 * Removes the entry of a mathematical expression, which has to be loaded.
+		 * 
+		 * @param  expression  the mathematical expression
+		 */
+		void remove(String expression) {
+			weight -= entries.remove(expression).weight;
+		}
+
+		/**
+		 * Removes the least recently used loaded entries while the segment is too heavy.
+		 * 
+		 * @return  the number of removed entries
+		 */
+		int evict() {
+			int nrOfEvictions = 0;
+			Iterator<Map.Entry<String, Entry<V>>> iterator = entries.entrySet().iterator();
+
+			while (weight > maxWeight && iterator.hasNext()) {
+				Entry<V> entry = iterator.next().getValue();
+				if (!entry.value.isDone())
+					continue;
+
+				iterator.remove();
+				weight -= entry.weight;
+				nrOfEvictions++;
+			}
+
+			return nrOfEvictions;
+		}
+
+	}
+
+}
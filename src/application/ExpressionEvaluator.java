@@ -1,12 +1,28 @@
 package application;
 
+import compiler.BatchProgram;
+import compiler.BytecodeCompiler;
+import compiler.CompiledFunction;
+import compiler.DagCompiler;
+import compiler.DagProgram;
+import compiler.ExpressionStorage;
+import compiler.ParallelBatchProgram;
+import compiler.ParallelCompiler;
+import compiler.ParallelProgram;
+import compiler.PostfixProgram;
+
 import datastructures.BinaryTreeNode;
+import datastructures.Stack;
 
 import exceptions.EvaluationException;
 
+import java.util.concurrent.ForkJoinPool;
+
 import tokens.Token;
 
-import visitors.EvaluatorVisitor;
+import visitors.ClosureCompilerVisitor;
+import visitors.CompilerVisitor;
+import visitors.DoubleEvaluatorVisitor;
 
 /**
  * Class used for evaluating a mathematical expression previously parsed into a binary tree representation.
@@ -24,9 +40,239 @@ public class ExpressionEvaluator {
 	 * @throws  EvaluationException  when an error occurs during the evaluation process
 	 */
 	public static Double evaluate(BinaryTreeNode<Token> expressionTree) throws EvaluationException {
+		return evaluate(expressionTree, CompiledFunction.NO_VARIABLES);
+	}
+
+	/**
+	 * Evaluates the mathematical expression given as a binary tree representation for the given variable values.
+	 * 
+	 * @param  expressionTree        a binary tree representation of the mathematical expression that has to be evaluated
+	 * @param  variables             the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                       the value resulted from the evaluation of the mathematical expression
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	public static Double evaluate(BinaryTreeNode<Token> expressionTree, double[] variables) throws EvaluationException {
+		try {
+			DoubleEvaluatorVisitor visitor = new DoubleEvaluatorVisitor(expressionTree);
+			return visitor.evaluate(variables);
+		}
+		catch (RuntimeException e) {
+			throw new EvaluationException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into a PostfixProgram.
+	 * The program can be cached and evaluated any number of times, much faster than walking the binary tree.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * 
+	 * @return                 the compiled program of the mathematical expression
+	 */
+	public static PostfixProgram compile(BinaryTreeNode<Token> expressionTree) {
+		return new CompilerVisitor(expressionTree).compile();
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into a DagProgram, in which every
+	 * distinct subexpression is evaluated only once. It pays off for mathematical expressions that repeat the same
+	 * subexpressions many times.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * 
+	 * @return                 the compiled program of the mathematical expression
+	 */
+	public static DagProgram compileToDag(BinaryTreeNode<Token> expressionTree) {
+		return DagCompiler.compile(compile(expressionTree));
+	}
+
+	/**
+	 * Checks if a binary tree is deeper than the given depth, walking it with an explicit stack.
+	 * 
+	 * @param  expressionTree  the root node of the binary tree
+	 * @param  maxDepth        the depth to compare with
+	 * 
+	 * @return                 true if the binary tree has more than maxDepth levels, false otherwise
+	 */
+	private static boolean isDeeperThan(BinaryTreeNode<Token> expressionTree, int maxDepth) {
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		Stack<Integer> depths = new Stack<Integer>();
+		nodes.push(expressionTree);
+		depths.push(1);
+
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			int depth = depths.pop();
+			if (depth > maxDepth)
+				return true;
+
+			if (node.getLeftChild() != null) {
+				nodes.push(node.getLeftChild());
+				depths.push(depth + 1);
+			}
+			if (node.getRightChild() != null) {
+				nodes.push(node.getRightChild());
+				depths.push(depth + 1);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into a tree of closures.
+	 * It is cheaper to build than JVM bytecode and faster to evaluate than the binary tree representation. Mathematical
+	 * expressions nested deeper than ClosureCompilerVisitor.MAX_DEPTH are compiled into a PostfixProgram instead, since
+	 * closures are compiled and evaluated recursively.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * 
+	 * @return                 the compiled function of the mathematical expression
+	 */
+	public static CompiledFunction compileToClosures(BinaryTreeNode<Token> expressionTree) {
+		if (isDeeperThan(expressionTree, ClosureCompilerVisitor.MAX_DEPTH))
+			return compile(expressionTree);
+
+		ClosureCompilerVisitor visitor = new ClosureCompilerVisitor(expressionTree);
+		return expressionTree.getData().accept(visitor);
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into JVM bytecode.
+	 * This takes much longer than compiling into a PostfixProgram, so it only pays off for mathematical expressions that
+	 * are evaluated a huge number of times. Mathematical expressions too large to be compiled into a single method are
+	 * compiled into a PostfixProgram instead.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * 
+	 * @return                 the compiled function of the mathematical expression
+	 */
+	public static CompiledFunction compileToBytecode(BinaryTreeNode<Token> expressionTree) {
+		return BytecodeCompiler.compile(compile(expressionTree));
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into a ParallelProgram, which evaluates
+	 * the large independent subexpressions in parallel on the common pool. It only pays off for mathematical expressions
+	 * so large that a single evaluation takes much longer than forking a task.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * 
+	 * @return                 the compiled program of the mathematical expression
+	 */
+	public static ParallelProgram compileToParallel(BinaryTreeNode<Token> expressionTree) {
+		return ParallelCompiler.compile(compile(expressionTree));
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into a ParallelProgram, which evaluates
+	 * the subexpressions whose estimated cost exceeds the given threshold in parallel on the given pool.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * @param  pool            the pool whose workers evaluate the parallel tasks
+	 * @param  threshold       the estimated cost above which the operands of a subexpression are evaluated in parallel
+	 * 
+	 * @return                 the compiled program of the mathematical expression
+	 */
+	public static ParallelProgram compileToParallel(BinaryTreeNode<Token> expressionTree, ForkJoinPool pool, long threshold) {
+		return ParallelCompiler.compile(compile(expressionTree), pool, threshold);
+	}
+
+	/**
+	 * Compiles the mathematical expression given as a binary tree representation into a BatchProgram, which evaluates it
+	 * over whole columns of variable values instead of one row at a time.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be compiled
+	 * 
+	 * @return                 the compiled program of the mathematical expression
+	 */
+	public static BatchProgram compileToBatch(BinaryTreeNode<Token> expressionTree) {
+		return new BatchProgram(compile(expressionTree));
+	}
+
+	/**
+	 * Evaluates the mathematical expression given as a compiled function.
+	 * 
+	 * @param  function              the compiled function of the mathematical expression that has to be evaluated
+	 * 
+	 * @return                       the value resulted from the evaluation of the mathematical expression
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	public static Double evaluate(CompiledFunction function) throws EvaluationException {
+		return evaluate(function, CompiledFunction.NO_VARIABLES);
+	}
+
+	/**
+	 * Evaluates the mathematical expression given as a compiled function for the given variable values.
+	 * 
+	 * @param  function              the compiled function of the mathematical expression that has to be evaluated
+	 * @param  variables             the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                       the value resulted from the evaluation of the mathematical expression
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	public static Double evaluate(CompiledFunction function, double[] variables) throws EvaluationException {
+		try {
+			return function.evaluate(variables);
+		}
+		catch (RuntimeException e) {
+			throw new EvaluationException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Evaluates the mathematical expression held by an ExpressionStorage for the given variable values, with the same
+	 * errors as its binary tree representation.
+	 * 
+	 * @param  storage               the storage that holds the mathematical expression
+	 * @param  root                  the index of the root node of the mathematical expression in the storage
+	 * @param  variables             the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                       the value resulted from the evaluation of the mathematical expression
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	public static Double evaluate(ExpressionStorage storage, int root, double[] variables) throws EvaluationException {
+		try {
+			return storage.evaluate(root, variables);
+		}
+		catch (RuntimeException e) {
+			throw new EvaluationException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Evaluates the mathematical expression given as a BatchProgram for every row of the given variable columns.
+	 * When an error occurs, the content of the output array is undefined.
+	 * 
+	 * @param  program               the compiled program of the mathematical expression that has to be evaluated
+	 * @param  columns               the values of the variables, one column per slot with at least output.length rows
+	 * @param  output                the array in which the value of every row is written
+	 * 
+	 * @throws  EvaluationException  when an error occurs during the evaluation of any row
+	 */
+	public static void evaluate(BatchProgram program, double[][] columns, double[] output) throws EvaluationException {
+		try {
+			program.evaluate(columns, output);
+		}
+		catch (RuntimeException e) {
+			throw new EvaluationException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Evaluates the mathematical expression given as a ParallelBatchProgram for every row of the given variable
+	 * columns, on all the workers of its pool. When an error occurs, the content of the output array is undefined.
+	 * 
+	 * @param  program               the compiled program of the mathematical expression that has to be evaluated
+	 * @param  columns               the values of the variables, one column per slot with at least output.length rows
+	 * @param  output                the array in which the value of every row is written
+	 * 
+	 * @throws  EvaluationException  when an error occurs during the evaluation of any row
+	 */
+	public static void evaluate(ParallelBatchProgram program, double[][] columns, double[] output) throws EvaluationException {
 		try {
-			EvaluatorVisitor visitor = new EvaluatorVisitor(expressionTree);
-			return expressionTree.getData().accept(visitor);
+			program.evaluate(columns, output);
 		}
 		catch (RuntimeException e) {
 			throw new EvaluationException(e.getMessage());
@@ -0,0 +1,493 @@
+package application;
+
+import datastructures.VariableTable;
+
+import exceptions.SyntaxException;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class used for splitting a mathematical expression into tokens in a single pass, working directly on its characters.
+ * The tokens may be separated by whitespace or written next to each other, like in "2*(3+4)": every token is as long
+ * as possible, and a plus or minus sign belongs to the number or signed constant that follows it only where an operand
+ * is expected, so "2-3" is a subtraction while "2*-3" multiplies by a negative number. Keywords and operators are
+ * recognized through a perfect hash of their characters, numbers are converted to double values in place by a
+ * DoubleParser and variables are looked up in the variable table by their characters, so no intermediate String is
+ * allocated for any token, except for the name of a new variable and for the rare numbers that DoubleParser leaves to
+ * Double.parseDouble.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+final class ExpressionLexer {
+
+	/**
+	 * The keywords and operators of the mathematical expressions. Besides the mathematical functions, the constants and
+	 * the operators, they hold the special values accepted by Double.parseDouble, which are numbers and not variables.
+	 */
+	private static final String[] KEYWORDS = {
+		"abs", "acos", "asin", "atan", "ceil", "cos", "floor", "log", "log10", "log2", "round", "sin", "sqrt", "tan",
+		"PI", "-PI", "e", "-e", "NaN", "+NaN", "-NaN", "Infinity", "+Infinity", "-Infinity",
+		"+", "-", "*", "/", "%", "^", "(", ")"
+	};
+
+	/**
+	 * Number of buckets of the perfect hash table of keywords, a power of two.
+	 */
+	private static final int NR_OF_BUCKETS = 128;
+
+	/**
+	 * Perfect hash table of keywords, indexed by the hash of their characters, and the tokens of the keywords in the
+	 * same buckets. The tokens are immutable, so every occurrence of a keyword shares the same token.
+	 */
+	private static final String[] KEYWORD_TABLE = new String[NR_OF_BUCKETS];
+	private static final Token[] KEYWORD_TOKENS = new Token[NR_OF_BUCKETS];
+
+	static {
+		for (String keyword : KEYWORDS) {
+			int bucket = hash(keyword, 0, keyword.length());
+			if (KEYWORD_TABLE[bucket] != null)
+				throw new IllegalStateException("keywords " + KEYWORD_TABLE[bucket] + " and " + keyword + " collide");
+
+			KEYWORD_TABLE[bucket] = keyword;
+			KEYWORD_TOKENS[bucket] = keywordToken(keyword);
+		}
+	}
+
+	/**
+	 * The mathematical expression that is split into tokens.
+	 */
+	private final CharSequence expression;
+
+	/**
+	 * The table in which the variables found in the mathematical expression are declared.
+	 */
+	private final VariableTable variables;
+
+	/**
+	 * The index of the first character that was not consumed yet.
+	 */
+	private int position;
+
+	/**
+	 * The last token that was consumed or null at the start of the mathematical expression.
+	 */
+	private Token previousToken;
+
+	/**
+	 * Constructor for an ExpressionLexer.
+	 * 
+	 * @param  expression  the mathematical expression that has to be split into tokens
+	 * @param  variables   the table in which the variables found in the mathematical expression are declared
+	 */
+	ExpressionLexer(CharSequence expression, VariableTable variables) {
+		this.expression = expression;
+		this.variables = variables;
+		this.position = 0;
+		this.previousToken = null;
+	}
+
+	/**
+	 * Computes the hash of a range of characters, which gives a different bucket for every keyword.
+	 * 
+	 * @param  characters  the characters
+	 * @param  start       the index of the first character
+	 * @param  end         the index after the last character
+	 * 
+	 * @return             the bucket of the characters in the perfect hash table of keywords
+	 */
+	private static int hash(CharSequence characters, int start, int end) {
+		int length = end - start;
+		return (2 * characters.charAt(start) + 2 * characters.charAt(start + length / 2) + characters.charAt(end - 1) + length) &
+			   (NR_OF_BUCKETS - 1);
+	}
+
+	/**
+	 * Checks if a character separates tokens, like the default delimiters of a StringTokenizer.
+	 * 
+	 * @param  character  the character to analyze
+	 * 
+	 * @return            true if the character is whitespace, false otherwise
+	 */
+	private static boolean isWhitespace(char character) {
+		return character == ' ' || character == '\t' || character == '\n' || character == '\r' || character == '\f';
+	}
+
+	/**
+	 * Checks if a character is a decimal digit.
+	 * 
+	 * @param  character  the character to analyze
+	 * 
+	 * @return            true if the character is a digit between 0 and 9, false otherwise
+	 */
+	private static boolean isDigit(char character) {
+		return character >= '0' && character <= '9';
+	}
+
+	/**
+	 * Checks if a character can start a variable name or a keyword made of letters.
+	 * 
+	 * @param  character  the character to analyze
+	 * 
+	 * @return            true if the character is a letter or an underscore, false otherwise
+	 */
+	private static boolean isNameStart(char character) {
+		return Character.isLetter(character) || character == '_';
+	}
+
+	/**
+	 * Checks if a character can continue a variable name or a keyword made of letters.
+	 * 
+	 * @param  character  the character to analyze
+	 * 
+	 * @return            true if the character is a letter, a digit or an underscore, false otherwise
+	 */
+	private static boolean isNamePart(char character) {
+		return Character.isLetterOrDigit(character) || character == '_';
+	}
+
+	/**
+	 * Checks if the character at the given index exists and is a decimal digit.
+	 * 
+	 * @param  index  the index of the character
+	 * 
+	 * @return        true if the character exists and is a digit, false otherwise
+	 */
+	private boolean isDigitAt(int index) {
+		return index < expression.length() && isDigit(expression.charAt(index));
+	}
+
+	/**
+	 * Finds the end of the name that starts at the given index.
+	 * 
+	 * @param  start  the index of the first character of the name
+	 * 
+	 * @return        the index after the last character of the name
+	 */
+	private int scanName(int start) {
+		int end = start + 1;
+		while (end < expression.length() && isNamePart(expression.charAt(end)))
+			end++;
+
+		return end;
+	}
+
+	/**
+	 * Finds the end of the number that starts at the given index, after its optional sign. The number takes as many
+	 * characters as can belong to it, and its exponent and type suffix only when they are complete, so the characters
+	 * of a following name are left to it.
+	 * 
+	 * @param  start  the index of the first character of the number
+	 * 
+	 * @return        the index after the last character of the number
+	 */
+	private int scanNumber(int start) {
+		int length = expression.length(), end = start;
+
+		if (end + 1 < length && expression.charAt(end) == '0' &&
+			(expression.charAt(end + 1) == 'x' || expression.charAt(end + 1) == 'X')) {
+			// hexadecimal numbers, with their binary exponent
+			end += 2;
+			while (end < length && (Character.digit(expression.charAt(end), 16) >= 0 || expression.charAt(end) == '.'))
+				end++;
+
+			if (end < length && (expression.charAt(end) == 'p' || expression.charAt(end) == 'P')) {
+				int exponentEnd = end + 1;
+				if (exponentEnd < length && (expression.charAt(exponentEnd) == '+' || expression.charAt(exponentEnd) == '-'))
+					exponentEnd++;
+
+				if (isDigitAt(exponentEnd)) {
+					end = exponentEnd;
+					while (isDigitAt(end))
+						end++;
+				}
+			}
+		}
+		else {
+			while (isDigitAt(end))
+				end++;
+
+			if (end < length && expression.charAt(end) == '.') {
+				end++;
+				while (isDigitAt(end))
+					end++;
+			}
+
+			if (end < length && (expression.charAt(end) == 'e' || expression.charAt(end) == 'E')) {
+				int exponentEnd = end + 1;
+				if (exponentEnd < length && (expression.charAt(exponentEnd) == '+' || expression.charAt(exponentEnd) == '-'))
+					exponentEnd++;
+
+				if (isDigitAt(exponentEnd)) {
+					end = exponentEnd;
+					while (isDigitAt(end))
+						end++;
+				}
+			}
+		}
+
+		if (end < length && "fFdD".indexOf(expression.charAt(end)) >= 0 &&
+			(end + 1 == length || !isNamePart(expression.charAt(end + 1))))
+			end++;
+
+		return end;
+	}
+
+	/**
+	 * Checks if the next token has to be an operand, so a plus or minus sign belongs to it instead of being a binary
+	 * operator.
+	 * 
+	 * @return  true if an operand is expected, false otherwise
+	 */
+	private boolean expectsOperand() {
+		return previousToken == null || previousToken.isBinaryOperator() || previousToken.isLeftParenthesis() ||
+			   previousToken.isMathematicalFunction();
+	}
+
+	/**
+	 * Checks if there are more tokens in the mathematical expression, skipping the whitespace before the next one.
+	 * 
+	 * @return  true if there is at least one more token, false otherwise
+	 */
+	boolean hasMoreTokens() {
+		while (position < expression.length() && isWhitespace(expression.charAt(position)))
+			position++;
+
+		return position < expression.length();
+	}
+
+	/**
+	 * Consumes the next token of the mathematical expression.
+	 * 
+	 * @return                   the next token
+	 * @throws  SyntaxException  when the next token is unknown
+	 */
+	Token nextToken() throws SyntaxException {
+		hasMoreTokens();
+
+		int start = position, end;
+		char first = expression.charAt(start);
+		boolean isSigned = (first == '+' || first == '-') && expectsOperand() && start + 1 < expression.length();
+		char unsigned = isSigned ? expression.charAt(start + 1) : first;
+
+		if (isSigned && (isDigit(unsigned) || unsigned == '.'))
+			end = scanNumber(start + 1);
+		else if (isSigned && isNameStart(unsigned)) {
+			// only the signed constants and special values keep their sign, before any other name it is an operator
+			end = scanName(start + 1);
+			if (!isKeyword(start, end))
+				end = start + 1;
+		}
+		else if (isNameStart(first))
+			end = scanName(start);
+		else if (isDigit(first) || first == '.')
+			end = scanNumber(start);
+		else
+			end = start + 1;
+
+		Token token = parseToken(start, end);
+		if (token == null)
+			throw new SyntaxException();
+
+		position = end;
+		previousToken = token;
+		return token;
+	}
+
+	/**
+	 * Converts a range of characters of the mathematical expression to a suitable token class.
+	 * 
+	 * @param  start  the index of the first character of the token
+	 * @param  end    the index after the last character of the token
+	 * 
+	 * @return        the suitable token class found when analyzing the characters or null if unknown token
+	 */
+	private Token parseToken(int start, int end) {
+		if (isKeyword(start, end))
+			return KEYWORD_TOKENS[hash(expression, start, end)];
+
+		if (isNameStart(expression.charAt(start)))
+			return parseVariable(start, end);
+
+		return parseNumber(start, end);
+	}
+
+	/**
+	 * Checks if a range of characters of the mathematical expression is a keyword.
+	 * 
+	 * @param  start  the index of the first character
+	 * @param  end    the index after the last character
+	 * 
+	 * @return        true if the characters are those of a keyword, false otherwise
+	 */
+	private boolean isKeyword(int start, int end) {
+		String keyword = KEYWORD_TABLE[hash(expression, start, end)];
+		if (keyword == null || keyword.length() != end - start)
+			return false;
+
+		for (int i = 0; i < keyword.length(); i++) {
+			if (expression.charAt(start + i) != keyword.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Creates the suitable token class of a keyword, when the table of keywords is filled.
+	 * 
+	 * @param  keyword  the keyword, one of KEYWORDS
+	 * 
+	 * @return          the suitable token class
+	 */
+	private static Token keywordToken(String keyword) {
+		switch (keyword) {
+			case "abs":
+				return AbsoluteValueToken.INSTANCE;
+
+			case "acos":
+				return ArccosineToken.INSTANCE;
+
+			case "asin":
+				return ArcsineToken.INSTANCE;
+
+			case "atan":
+				return ArctangentToken.INSTANCE;
+
+			case "ceil":
+				return CeilingToken.INSTANCE;
+
+			case "PI":
+				return new ConstantToken(ConstantToken.PI);
+
+			case "-PI":
+				return new ConstantToken(-ConstantToken.PI);
+
+			case "e":
+				return new ConstantToken(ConstantToken.e);
+
+			case "-e":
+				return new ConstantToken(-ConstantToken.e);
+
+			case "cos":
+				return CosineToken.INSTANCE;
+
+			case "/":
+				return DivideToken.INSTANCE;
+
+			case "floor":
+				return FloorToken.INSTANCE;
+
+			case "(":
+				return LeftParenthesisToken.INSTANCE;
+
+			case "log10":
+				return LogarithmBaseTenToken.INSTANCE;
+
+			case "log2":
+				return LogarithmBaseTwoToken.INSTANCE;
+
+			case "log":
+				return LogarithmToken.INSTANCE;
+
+			case "-":
+				return MinusToken.INSTANCE;
+
+			case "%":
+				return ModuloToken.INSTANCE;
+
+			case "*":
+				return MultiplyToken.INSTANCE;
+
+			case "+":
+				return PlusToken.INSTANCE;
+
+			case "^":
+				return PowerToken.INSTANCE;
+
+			case ")":
+				return RightParenthesisToken.INSTANCE;
+
+			case "round":
+				return RoundToken.INSTANCE;
+
+			case "sin":
+				return SineToken.INSTANCE;
+
+			case "sqrt":
+				return SquareRootToken.INSTANCE;
+
+			case "tan":
+				return TangentToken.INSTANCE;
+
+			default:
+				return new NumberToken(Double.parseDouble(keyword));
+		}
+	}
+
+	/**
+	 * Converts a range of characters that holds a valid variable name to a variable token: a letter or an underscore
+	 * followed by letters, digits or underscores.
+	 * 
+	 * @param  start  the index of the first character of the token
+	 * @param  end    the index after the last character of the token
+	 * 
+	 * @return        the variable token
+	 */
+	private Token parseVariable(int start, int end) {
+		int slot = variables.declare(expression, start, end);
+		return new VariableToken(variables.nameOf(slot), slot);
+	}
+
+	/**
+	 * Converts a range of characters to a number token, accepting the same numbers as Double.parseDouble.
+	 * The characters are converted in place by a DoubleParser, after checking that a decimal number starts with a digit
+	 * or a decimal point followed by a digit, which the scanned characters of any other decimal number do not.
+	 * 
+	 * @param  start  the index of the first character of the token
+	 * @param  end    the index after the last character of the token
+	 * 
+	 * @return        the number token or null if the characters are not a valid number
+	 */
+	private Token parseNumber(int start, int end) {
+		int i = start;
+		if (expression.charAt(i) == '+' || expression.charAt(i) == '-')
+			i++;
+
+		if (!isDigitAt(i) && !(i < end && expression.charAt(i) == '.' && isDigitAt(i + 1)))
+			return null;
+
+		try {
+			return new NumberToken(DoubleParser.parse(expression, start, end));
+		}
+		catch (NumberFormatException e) {
+			// only malformed hexadecimal numbers get here
+			return null;
+		}
+	}
+
+}
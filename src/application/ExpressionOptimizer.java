@@ -0,0 +1,132 @@
+package application;
+
+import datastructures.BinaryTreeNode;
+import datastructures.Stack;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import tokens.Token;
+
+import visitors.ConstantFoldingVisitor;
+import visitors.SimplificationVisitor;
+
+/**
+ * Class used for optimizing a mathematical expression previously parsed into a binary tree representation, before it is
+ * evaluated or compiled. Unless inexact rewrites are allowed, the optimized binary tree evaluates to exactly the same
+ * value as the original one and raises the same evaluation errors. The original binary tree is never modified.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ExpressionOptimizer {
+
+	/**
+	 * Whether or not the algebraic rewrites that do not keep the result bit-identical are applied.
+	 */
+	private final boolean allowInexactRewrites;
+
+	/**
+	 * The total number of nodes removed from the binary trees optimized so far, updated safely when the same
+	 * ExpressionOptimizer is used by several threads.
+	 */
+	private final LongAdder nrOfRemovedNodes;
+
+	/**
+	 * Constructor for an ExpressionOptimizer that only applies optimizations that keep the result bit-identical.
+	 */
+	public ExpressionOptimizer() {
+		this(false);
+	}
+
+	/**
+	 * Constructor for an ExpressionOptimizer.
+	 * 
+	 * @param  allowInexactRewrites  true to also apply the algebraic rewrites that may change the last bit of the result
+	 *                               or the sign of a zero result, such as replacing x ^ 2 with x * x
+	 */
+	public ExpressionOptimizer(boolean allowInexactRewrites) {
+		this.allowInexactRewrites = allowInexactRewrites;
+		this.nrOfRemovedNodes = new LongAdder();
+	}
+
+	/**
+	 * Counts the nodes of a binary tree. The binary tree is walked with an explicit stack, so binary trees of any depth
+	 * can be counted.
+	 * 
+	 * @param  expressionTree  the root node of the binary tree
+	 * 
+	 * @return                 the number of nodes in the binary tree
+	 */
+	static int countNodes(BinaryTreeNode<Token> expressionTree) {
+		if (expressionTree == null)
+			return 0;
+
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		nodes.push(expressionTree);
+		int nrOfNodes = 0;
+
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			nrOfNodes++;
+
+			if (node.getLeftChild() != null)
+				nodes.push(node.getLeftChild());
+			if (node.getRightChild() != null)
+				nodes.push(node.getRightChild());
+		}
+
+		return nrOfNodes;
+	}
+
+	/**
+	 * Folds the constant subexpressions of the mathematical expression given as a binary tree representation.
+	 * Every subexpression that only involves numbers and mathematical constants is replaced by its value, unless its
+	 * evaluation fails, in which case the error is left to be raised when the mathematical expression is evaluated.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be optimized
+	 * 
+	 * @return                 a new binary tree representation of the optimized mathematical expression
+	 */
+	public BinaryTreeNode<Token> foldConstants(BinaryTreeNode<Token> expressionTree) {
+		BinaryTreeNode<Token> optimizedTree = new ConstantFoldingVisitor(expressionTree).foldConstants();
+
+		nrOfRemovedNodes.add(countNodes(expressionTree) - countNodes(optimizedTree));
+		return optimizedTree;
+	}
+
+	/**
+	 * Simplifies the mathematical expression given as a binary tree representation through algebraic rewrite rules,
+	 * such as replacing x * 1 with x or a division by 4 with a multiplication by 0.25.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be optimized
+	 * 
+	 * @return                 a new binary tree representation of the optimized mathematical expression
+	 */
+	public BinaryTreeNode<Token> simplify(BinaryTreeNode<Token> expressionTree) {
+		BinaryTreeNode<Token> optimizedTree = new SimplificationVisitor(expressionTree, allowInexactRewrites).simplify();
+
+		nrOfRemovedNodes.add(countNodes(expressionTree) - countNodes(optimizedTree));
+		return optimizedTree;
+	}
+
+	/**
+	 * Optimizes the mathematical expression given as a binary tree representation, by folding its constant
+	 * subexpressions and then simplifying it.
+	 * 
+	 * @param  expressionTree  a binary tree representation of the mathematical expression that has to be optimized
+	 * 
+	 * @return                 a new binary tree representation of the optimized mathematical expression
+	 */
+	public BinaryTreeNode<Token> optimize(BinaryTreeNode<Token> expressionTree) {
+		return simplify(foldConstants(expressionTree));
+	}
+
+	/**
+	 * Gets the total number of nodes removed from the binary trees optimized so far by this ExpressionOptimizer.
+	 * 
+	 * @return  the number of removed nodes
+	 */
+	public long getNrOfRemovedNodes() {
+		return nrOfRemovedNodes.sum();
+	}
+
+}
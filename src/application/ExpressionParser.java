@@ -1,38 +1,21 @@
 package application;
 
+import compiler.ExpressionStorage;
+
 import datastructures.BinaryTreeNode;
-import datastructures.Queue;
+import datastructures.Stack;
+import datastructures.VariableTable;
 
 import exceptions.SyntaxException;
 
-import java.util.StringTokenizer;
+import java.util.Arrays;
 
-import tokens.AbsoluteValueToken;
-import tokens.ArccosineToken;
-import tokens.ArcsineToken;
-import tokens.ArctangentToken;
-import tokens.CeilingToken;
 import tokens.ConstantToken;
-import tokens.CosineToken;
-import tokens.DivideToken;
-import tokens.FloorToken;
-import tokens.LeftParenthesisToken;
-import tokens.LogarithmBaseTenToken;
-import tokens.LogarithmBaseTwoToken;
-import tokens.LogarithmToken;
-import tokens.MinusToken;
-import tokens.ModuloToken;
-import tokens.MultiplyToken;
 import tokens.NumberToken;
-import tokens.PlusToken;
-import tokens.PowerToken;
-import tokens.RightParenthesisToken;
-import tokens.RoundToken;
-import tokens.SineToken;
-import tokens.SquareRootToken;
-import tokens.TangentToken;
 import tokens.Token;
+import tokens.VariableToken;
 
+import visitors.OpcodeVisitor;
 import visitors.PrintVisitor;
 
 /**
@@ -43,211 +26,179 @@ import visitors.PrintVisitor;
 public class ExpressionParser {
 
 	/**
-	 * Parses the token and converts it from String representation to a suitable token class.
+	 * Reads the mathematical tokens of an expression and connects them together to form an expression tree.
+	 * Token priority is taken into consideration when forming the expression tree using the Shunting Yard algorithm,
+	 * with explicit stacks instead of recursion. Every token is parsed and consumed exactly once, as it is read, so
+	 * expressions of any length and nesting depth are parsed in linear time. The subexpressions are handed to the
+	 * builder in postfix order, every operator right after its operands.
 	 * 
-	 * @param  token  the String to analyze
+	 * @param  lexer             the lexer that splits the mathematical expression into tokens
+	 * @param  builder           the builder of the representation of the mathematical expression
 	 * 
-	 * @return        the suitable token class found when analyzing the String or null if unknown token
+	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
 	 */
-	private static Token parseToken(String token) {
-		switch (token) {
-			case "abs":
-				return new AbsoluteValueToken();
-
-			case "acos":
-				return new ArccosineToken();
-
-			case "asin":
-				return new ArcsineToken();
-
-			case "atan":
-				return new ArctangentToken();
-
-			case "ceil":
-				return new CeilingToken();
-
-			case "PI":
-				return new ConstantToken(ConstantToken.PI);
-
-			case "-PI":
-				return new ConstantToken(-ConstantToken.PI);
-
-			case "e":
-				return new ConstantToken(ConstantToken.e);
-
-			case "-e":
-				return new ConstantToken(-ConstantToken.e);
-
-			case "cos":
-				return new CosineToken();
-
-			case "/":
-				return new DivideToken();
-
-			case "floor":
-				return new FloorToken();
-
-			case "(":
-				return new LeftParenthesisToken();
-
-			case "log10":
-				return new LogarithmBaseTenToken();
+	private static void buildExpression(ExpressionLexer lexer, ExpressionBuilder builder) throws SyntaxException {
+		Stack<Token> operators = new Stack<Token>();
+		boolean expectsOperand = true, expectsArgument = false;
 
-			case "log2":
-				return new LogarithmBaseTwoToken();
+		while (lexer.hasMoreTokens()) {
+			Token token = lexer.nextToken();
 
-			case "log":
-				return new LogarithmToken();
+			if (expectsArgument) {
+				// a mathematical function must be followed by its parenthesized argument
+				if (!token.isLeftParenthesis())
+					throw new SyntaxException();
 
-			case "-":
-				return new MinusToken();
-
-			case "%":
-				return new ModuloToken();
-
-			case "*":
-				return new MultiplyToken();
-
-			case "+":
-				return new PlusToken();
+				operators.push(token);
+				expectsArgument = false;
+			}
+			else if (expectsOperand) {
+				if (token.isBinaryOperator() || token.isRightParenthesis())
+					throw new SyntaxException();
+				else if (token.isMathematicalFunction()) {
+					operators.push(token);
+					expectsArgument = true;
+				}
+				else if (token.isLeftParenthesis())
+					operators.push(token);
+				else {
+					builder.addOperand(token);
+					expectsOperand = false;
+				}
+			}
+			else if (token.isBinaryOperator()) {
+				// exponentiation is right associative while the other binary operators are left associative
+				while (operators.peek() != null && operators.peek().isBinaryOperator() &&
+					   (operators.peek().priority() > token.priority() ||
+						operators.peek().priority() == token.priority() && token.priority() != 4))
+					builder.addBinaryOperator(operators.pop());
+
+				operators.push(token);
+				expectsOperand = true;
+			}
+			else if (token.isRightParenthesis()) {
+				while (operators.peek() != null && operators.peek().isBinaryOperator())
+					builder.addBinaryOperator(operators.pop());
 
-			case "^":
-				return new PowerToken();
+				if (operators.peek() == null)
+					throw new SyntaxException();
 
-			case ")":
-				return new RightParenthesisToken();
+				builder.addGroup(operators.pop(), token);
 
-			case "round":
-				return new RoundToken();
+				if (operators.peek() != null && operators.peek().isMathematicalFunction())
+					builder.addFunction(operators.pop());
+			}
+			else
+				throw new SyntaxException();
+		}
 
-			case "sin":
-				return new SineToken();
+		if (expectsOperand)
+			throw new SyntaxException();
 
-			case "sqrt":
-				return new SquareRootToken();
+		while (operators.peek() != null && operators.peek().isBinaryOperator())
+			builder.addBinaryOperator(operators.pop());
 
-			case "tan":
-				return new TangentToken();
+		// a left parenthesis left on the stack was never closed
+		if (!operators.isEmpty())
+			throw new SyntaxException();
+	}
 
-			default:
-				try {
-					return new NumberToken(Double.parseDouble(token));
-				}
-				catch (NumberFormatException e) {
-					return null;
-				}
-		}
+	/**
+	 * Parses the given mathematical expression and converts it from String format to a binary tree representation.
+	 * The variables found in the mathematical expression are given slots in the order of their first appearance.
+	 * 
+	 * @param  expression        the mathematical expression to parse
+	 * 
+	 * @return                   a binary tree representation of the given mathematical expression
+	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
+	 */
+	public static BinaryTreeNode<Token> parse(String expression) throws SyntaxException {
+		return parse(expression, new VariableTable());
 	}
 
 	/**
-	 * Utility function that tries to build a subexpression tree from the mathematical tokens found between the given
-	 * left parenthesis token and its corresponding right parenthesis token.
+	 * Parses the given mathematical expression and converts it from String format to a binary tree representation.
+	 * The variables found in the mathematical expression are looked up in the given table and declared in it when
+	 * missing, so several mathematical expressions parsed with the same table can be evaluated with the same bindings.
+	 * When a syntax error is discovered, the variables declared by the mathematical expression are removed again.
 	 * 
-	 * @param  leftParenthesisToken  the LeftParenthesisToken that marks the start of the subexpression
-	 * @param  tokens                a queue of tokens used to build the subexpression tree
+	 * @param  expression        the mathematical expression to parse
+	 * @param  variables         the table in which the variables found in the mathematical expression are declared
 	 * 
-	 * @return                       the subexpression tree built from the given tokens
-	 * @throws  SyntaxException      when a syntax error was discovered in the mathematical expression
+	 * @return                   a binary tree representation of the given mathematical expression
+	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
 	 */
-	private static BinaryTreeNode<Token> buildSubExpressionTree(Token leftParenthesisToken, Queue<Token> tokens) throws SyntaxException {
-		Queue<Token> subTokens = new Queue<Token>();
-		int nrOfParentheses = 1;
-
-		while (tokens.size() > 0) {
-			Token token = tokens.pop();
-
-			if (token.toString().equals("("))
-				nrOfParentheses++;
-			else if (token.toString().equals(")")) {
-				// check to see if this is the corresponding right parenthesis we are looking for
-				if (nrOfParentheses == 1) {
-					BinaryTreeNode<Token> rhs = new BinaryTreeNode<Token>(token, buildExpressionTree(subTokens, 0), null);
-					return new BinaryTreeNode<Token>(leftParenthesisToken, null, rhs);
-				}
-				else
-					nrOfParentheses--;
-			}
+	public static BinaryTreeNode<Token> parse(String expression, VariableTable variables) throws SyntaxException {
+		int nrOfVariables = variables.size();
+		TreeBuilder builder = new TreeBuilder();
 
-			subTokens.push(token);
+		try {
+			buildExpression(new ExpressionLexer(expression, variables), builder);
+		}
+		catch (SyntaxException e) {
+			variables.truncate(nrOfVariables);
+			throw e;
 		}
 
-		return null;
+		return builder.getExpressionTree();
 	}
 
 	/**
-	 * Takes a queue of mathematical tokens and connects them together to form an expression tree.
-	 * Token priority is taken into consideration when forming the expression tree using the Precedence Climbing algorithm.
+	 * Parses the given mathematical expression straight into the compact encoding of an ExpressionStorage, such as an
+	 * ExpressionArena, without building its binary tree representation. The variables found in the mathematical
+	 * expression are looked up in the given table and declared in it when missing. When a syntax error is discovered,
+	 * the storage and the table of variables are left unchanged.
 	 * 
-	 * @param  tokens            a queue of tokens used to build the expression tree
-	 * @param  minPriority       current lowest acceptable token priority
+	 * @param  expression        the mathematical expression to parse
+	 * @param  variables         the table in which the variables found in the mathematical expression are declared
+	 * @param  storage           the storage in which the nodes of the mathematical expression are appended
 	 * 
-	 * @return                   the expression tree built from the given tokens
+	 * @return                   the index of the root node of the mathematical expression in the storage
 	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
 	 */
-	private static BinaryTreeNode<Token> buildExpressionTree(Queue<Token> tokens, int minPriority) throws SyntaxException {
-		BinaryTreeNode<Token> lhs = null;
-		Token token = tokens.peek() != null ? tokens.pop() : null;
+	public static int parse(String expression, VariableTable variables, ExpressionStorage storage) throws SyntaxException {
+		int nrOfNodes = storage.getNrOfNodes(), nrOfVariables = variables.size();
+		StorageBuilder builder = new StorageBuilder(storage);
 
-		if (token == null || token.isBinaryOperator() || token.toString().equals(")"))
-			throw new SyntaxException();
-		else if (token.toString().equals("(")) {
-			lhs = buildSubExpressionTree(token, tokens);
-			if (lhs == null)
-				throw new SyntaxException();
-		}
-		else if (token.isMathematicalFunction()) {
-			Token functionToken = token;
-			token = tokens.peek() != null ? tokens.pop() : null;
-			if (token == null || !token.toString().equals("("))
-				throw new SyntaxException();
-
-			lhs = buildSubExpressionTree(token, tokens);
-			if (lhs == null)
-				throw new SyntaxException();
-			else
-				lhs = new BinaryTreeNode<Token>(functionToken, lhs, null);
+		try {
+			buildExpression(new ExpressionLexer(expression, variables), builder);
 		}
-		else
-			lhs = new BinaryTreeNode<Token>(token);
-
-		while (tokens.size() > 0) {
-			token = tokens.peek();
-			if (!token.isBinaryOperator())
-				throw new SyntaxException();
-			else if (token.priority() < minPriority)
-				break;
-
-			tokens.pop();
-			// exponentiation is right associative while the other binary operators are left associative
-			int nextMinPriority = token.priority() == 4 ? token.priority() : token.priority() + 1;
-			BinaryTreeNode<Token> rhs = buildExpressionTree(tokens, nextMinPriority);
-			lhs = new BinaryTreeNode<Token>(token, lhs, rhs);
+		catch (SyntaxException e) {
+			storage.truncate(nrOfNodes);
+			variables.truncate(nrOfVariables);
+			throw e;
 		}
 
-		return lhs;
+		return builder.getRoot();
 	}
 
 	/**
-	 * Parses the given mathematical expression and converts it from String format to a binary tree representation.
+	 * Parses the given mathematical expression into an immutable CompiledExpression, which can be cached and evaluated
+	 * by any number of threads at the same time. The variables found in the mathematical expression are given slots in
+	 * the order of their first appearance.
 	 * 
 	 * @param  expression        the mathematical expression to parse
 	 * 
-	 * @return                   a binary tree representation of the given mathematical expression
+	 * @return                   the compiled form of the given mathematical expression
 	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
 	 */
-	public static BinaryTreeNode<Token> parse(String expression) throws SyntaxException {
-		StringTokenizer tokenizer = new StringTokenizer(expression);
-		Queue<Token> tokens = new Queue<Token>();
-
-		while (tokenizer.hasMoreTokens()) {
-			Token token = parseToken(tokenizer.nextToken());
-			if (token == null)
-				throw new SyntaxException();
-
-			tokens.push(token);
-		}
+	public static CompiledExpression compile(String expression) throws SyntaxException {
+		return new CompiledExpression(parse(expression));
+	}
 
-		return buildExpressionTree(tokens, 0);
+	/**
+	 * Parses the given mathematical expression into an immutable CompiledExpression, which can be cached and evaluated
+	 * by any number of threads at the same time. The variables found in the mathematical expression are looked up in
+	 * the given table and declared in it when missing.
+	 * 
+	 * @param  expression        the mathematical expression to parse
+	 * @param  variables         the table in which the variables found in the mathematical expression are declared
+	 * 
+	 * @return                   the compiled form of the given mathematical expression
+	 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
+	 */
+	public static CompiledExpression compile(String expression, VariableTable variables) throws SyntaxException {
+		return new CompiledExpression(parse(expression, variables));
 	}
 
 	/**
@@ -259,7 +210,173 @@ public class ExpressionParser {
 	 */
 	public static String toString(BinaryTreeNode<Token> expressionTree) {
 		PrintVisitor visitor = new PrintVisitor(expressionTree);
-		return expressionTree.getData().accept(visitor);
+		return visitor.print();
+	}
+
+	/**
+	 * Interface for the builder of the representation of a mathematical expression, which receives its subexpressions
+	 * in postfix order and keeps the ones not connected yet on a stack.
+	 */
+	private interface ExpressionBuilder {
+
+		/**
+		 * Adds a number, a constant or a variable.
+		 * 
+		 * @param  token  the token of the operand
+		 */
+		void addOperand(Token token);
+
+		/**
+		 * Connects the two subexpressions on top of the stack with a binary operator.
+		 * 
+		 * @param  token  the token of the binary operator
+		 */
+		void addBinaryOperator(Token token);
+
+		/**
+		 * Encloses the subexpression on top of the stack in parentheses.
+		 * 
+		 * @param  leftParenthesis   the token of the left parenthesis
+		 * @param  rightParenthesis  the token of the right parenthesis
+		 */
+		void addGroup(Token leftParenthesis, Token rightParenthesis);
+
+		/**
+		 * Applies a mathematical function on the parenthesized subexpression on top of the stack.
+		 * 
+		 * @param  token  the token of the mathematical function
+		 */
+		void addFunction(Token token);
+
+	}
+
+	/**
+	 * Class for the builder of the binary tree representation of a mathematical expression. Every parenthesized group
+	 * becomes a LeftParenthesisToken node whose right child is a RightParenthesisToken node holding the group, and every
+	 * mathematical function takes such a group as its left child.
+	 */
+	private static final class TreeBuilder implements ExpressionBuilder {
+
+		/**
+		 * The subexpressions not connected to their parent yet, the last added one on top.
+		 */
+		private final Stack<BinaryTreeNode<Token>> operands = new Stack<BinaryTreeNode<Token>>();
+
+		@Override
+		public void addOperand(Token token) {
+			operands.push(new BinaryTreeNode<Token>(token));
+		}
+
+		@Override
+		public void addBinaryOperator(Token token) {
+			BinaryTreeNode<Token> rhs = operands.pop();
+			BinaryTreeNode<Token> lhs = operands.pop();
+			operands.push(new BinaryTreeNode<Token>(token, lhs, rhs));
+		}
+
+		@Override
+		public void addGroup(Token leftParenthesis, Token rightParenthesis) {
+			BinaryTreeNode<Token> rhs = new BinaryTreeNode<Token>(rightParenthesis, operands.pop(), null);
+			operands.push(new BinaryTreeNode<Token>(leftParenthesis, null, rhs));
+		}
+
+		@Override
+		public void addFunction(Token token) {
+			operands.push(new BinaryTreeNode<Token>(token, operands.pop(), null));
+		}
+
+		/**
+		 * Gets the binary tree of the whole mathematical expression, once all its tokens were added.
+		 * 
+		 * @return  the root node of the binary tree
+		 */
+		BinaryTreeNode<Token> getExpressionTree() {
+			return operands.pop();
+		}
+
+	}
+
+	/**
+	 * Class for the builder of the compact encoding of a mathematical expression in an ExpressionStorage. Parentheses
+	 * take no node, and the stack only holds the indices of the root nodes of the subexpressions.
+	 */
+	private static final class StorageBuilder implements ExpressionBuilder {
+
+		/**
+		 * Visitor that gives the opcode of every operator and mathematical function.
+		 */
+		private static final OpcodeVisitor OPCODE_VISITOR = new OpcodeVisitor();
+
+		/**
+		 * The storage in which the nodes are appended.
+		 */
+		private final ExpressionStorage storage;
+
+		/**
+		 * The stack of the indices of the root nodes of the subexpressions not connected to their parent yet.
+		 */
+		private int[] roots = new int[16];
+
+		/**
+		 * The index of the top of the stack of root nodes, or -1 when the stack is empty.
+		 */
+		private int top = -1;
+
+		/**
+		 * Constructor for a StorageBuilder.
+		 * 
+		 * @param  storage  the storage in which the nodes are appended
+		 */
+		StorageBuilder(ExpressionStorage storage) {
+			this.storage = storage;
+		}
+
+		/**
+		 * Pushes the index of the root node of a subexpression on the stack.
+		 * 
+		 * @param  root  the index of the root node
+		 */
+		private void push(int root) {
+			if (++top == roots.length)
+				roots = Arrays.copyOf(roots, 2 * top);
+
+			roots[top] = root;
+		}
+
+		@Override
+		public void addOperand(Token token) {
+			if (token instanceof VariableToken)
+				push(storage.addVariable(((VariableToken) token).getSlot()));
+			else if (token instanceof ConstantToken)
+				push(storage.addConstant(((ConstantToken) token).getValue()));
+			else
+				push(storage.addConstant(((NumberToken) token).getValue()));
+		}
+
+		@Override
+		public void addBinaryOperator(Token token) {
+			top--;
+			roots[top] = storage.addBinaryOperator(token.accept(OPCODE_VISITOR), roots[top]);
+		}
+
+		@Override
+		public void addGroup(Token leftParenthesis, Token rightParenthesis) {
+		}
+
+		@Override
+		public void addFunction(Token token) {
+			roots[top] = storage.addFunction(token.accept(OPCODE_VISITOR));
+		}
+
+		/**
+		 * Gets the index of the root node of the whole mathematical expression, once all its tokens were added.
+		 * 
+		 * @return  the index of the root node
+		 */
+		int getRoot() {
+			return roots[top];
+		}
+
 	}
 
 }
@@ -0,0 +1,481 @@
+package compiler;
+
+import exceptions.EvaluationException;
+
+/**
+ * Class that evaluates a mathematical expression over many rows of variable values at once.
+ * The variable values are given as columns, one double array per variable slot, and the instructions of a
+ * PostfixProgram are run one at a time over whole chunks of rows instead of one row at a time. Every instruction thus
+ * becomes a tight loop over primitive arrays, which the JIT compiler can unroll and vectorize. The chunks are small
+ * enough for the stack of intermediate columns to stay in the processor cache. A BatchProgram is immutable and can be
+ * shared between threads, as long as every thread evaluates it on its own scratch columns.
+ * When the jdk.incubator.vector module is present, the arithmetic operators and the absolute value and square root
+ * functions are computed with the Vector API instead of relying on the JIT compiler to vectorize the scalar loops.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class BatchProgram {
+
+	/**
+	 * Number of rows evaluated together by every instruction.
+	 */
+	public static final int CHUNK_SIZE = 1024;
+
+	/**
+	 * Whether the jdk.incubator.vector module was resolved when the virtual machine started.
+	 */
+	private static final boolean VECTOR_API_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	/**
+	 * The program whose instructions are run over the chunks of rows.
+	 */
+	private final PostfixProgram program;
+
+	/**
+	 * The number of variable columns needed by the evaluation, which is one more than the largest slot used.
+	 */
+	private final int nrOfColumns;
+
+	/**
+	 * Whether the column operations are computed with the Vector API.
+	 */
+	private final boolean vectorized;
+
+	/**
+	 * Constructor for a BatchProgram, which uses the Vector API whenever it is available.
+	 * 
+	 * @param  program  the program that has to be evaluated over many rows
+	 */
+	public BatchProgram(PostfixProgram program) {
+		this(program, VECTOR_API_AVAILABLE);
+	}
+
+	/**
+	 * Constructor for a BatchProgram.
+	 * 
+	 * @param  program                 the program that has to be evaluated over many rows
+	 * @param  vectorized              whether the column operations have to be computed with the Vector API
+	 * 
+	 * @throws  IllegalStateException  when the Vector API is requested but not available
+	 */
+	public BatchProgram(PostfixProgram program, boolean vectorized) {
+		if (vectorized && !VECTOR_API_AVAILABLE)
+			throw new IllegalStateException("the jdk.incubator.vector module is not present");
+
+		int nrOfColumns = 0;
+		for (int slot : program.slots)
+			nrOfColumns = Math.max(nrOfColumns, slot + 1);
+
+		this.program = program;
+		this.nrOfColumns = nrOfColumns;
+		this.vectorized = vectorized;
+	}
+
+	/**
+	 * Checks if the Vector API can be used, which requires the virtual machine to be started with the
+	 * jdk.incubator.vector module added, for example through the --add-modules jdk.incubator.vector option.
+	 * 
+	 * @return  true if the jdk.incubator.vector module is present, false otherwise
+	 */
+	public static boolean isVectorApiAvailable() {
+		return VECTOR_API_AVAILABLE;
+	}
+
+	/**
+	 * Checks if this BatchProgram computes its column operations with the Vector API.
+	 * 
+	 * @return  true if the column operations are vectorized, false otherwise
+	 */
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	/**
+	 * Gets the number of variable columns needed by the evaluation.
+	 * 
+	 * @return  one more than the largest variable slot used by the mathematical expression
+	 */
+	public int getNrOfColumns() {
+		return nrOfColumns;
+	}
+
+	/**
+	 * Allocates the scratch columns needed to evaluate this BatchProgram.
+	 * 
+	 * @return  new scratch columns that can be reused for any number of evaluations
+	 */
+	public double[][] newScratch() {
+		return new double[program.maxStackDepth][CHUNK_SIZE];
+	}
+
+	/**
+	 * Evaluates this BatchProgram for every row of the given columns, using newly allocated scratch columns.
+	 * 
+	 * @param  columns            the values of the variables, one column per slot with at least output.length rows
+	 * @param  output             the array in which the value of every row is written
+	 * 
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public void evaluate(double[][] columns, double[] output) {
+		evaluate(columns, output, 0, output.length, newScratch());
+	}
+
+	/**
+	 * Evaluates this BatchProgram for the rows from the given range of the given columns.
+	 * When an error is raised, the rows are evaluated again one at a time, so the reported error is the one the binary
+	 * tree representation of the first failing row reports.
+	 * 
+	 * @param  columns            the values of the variables, one column per slot
+	 * @param  output             the array in which the value of every row is written
+	 * @param  from               the first row that has to be evaluated
+	 * @param  to                 the row after the last one that has to be evaluated
+	 * @param  scratch            scratch columns allocated by newScratch(), owned by the calling thread
+	 * 
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public void evaluate(double[][] columns, double[] output, int from, int to, double[][] scratch) {
+		// a missing column or a column too short for the evaluated rows leaves some variables without values
+		if (columns.length < nrOfColumns)
+			throw new RuntimeException(EvaluationException.UNBOUND_VARIABLE_MESSAGE);
+
+		for (int slot : program.slots) {
+			if (columns[slot] == null || columns[slot].length < to)
+				throw new RuntimeException(EvaluationException.UNBOUND_VARIABLE_MESSAGE);
+		}
+
+		try {
+			for (int start = from; start < to; start += CHUNK_SIZE) {
+				int length = Math.min(CHUNK_SIZE, to - start);
+				evaluateChunk(columns, start, length, scratch);
+				System.arraycopy(scratch[0], 0, output, start, length);
+			}
+		}
+		catch (RuntimeException e) {
+			// the rows are evaluated again one at a time in the order of the binary tree representation, so the reported
+			// error is the one the binary tree representation of the first failing row reports
+			double[] row = new double[columns.length];
+			for (int i = from; i < to; i++) {
+				for (int slot : program.slots)
+					row[slot] = columns[slot][i];
+
+				output[i] = program.evaluateInTreeOrder(row);
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs the instructions of the program over one chunk of rows, leaving the result in the first scratch column.
+	 * 
+	 * @param  columns  the values of the variables, one column per slot
+	 * @param  start    the first row of the chunk
+	 * @param  length   the number of rows in the chunk
+	 * @param  stack    the scratch columns, used as a stack of intermediate columns
+	 */
+	private void evaluateChunk(double[][] columns, int start, int length, double[][] stack) {
+		if (vectorized) {
+			evaluateVectorizedChunk(columns, start, length, stack);
+			return;
+		}
+
+		byte[] opcodes = program.opcodes;
+		double[] constants = program.constants;
+		int[] slots = program.slots;
+		int top = -1, constant = 0, slot = 0;
+
+		for (byte opcode : opcodes) {
+			switch (opcode) {
+				case Opcodes.PUSH_CONSTANT:
+					fill(stack[++top], length, constants[constant++]);
+					break;
+
+				case Opcodes.LOAD_VARIABLE:
+					System.arraycopy(columns[slots[slot++]], start, stack[++top], 0, length);
+					break;
+
+				case Opcodes.PLUS:
+					plus(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.MINUS:
+					minus(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.MULTIPLY:
+					multiply(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.DIVIDE:
+					divide(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.MODULO:
+					modulo(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.POWER:
+					power(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.ABSOLUTE_VALUE:
+					absoluteValue(stack[top], length);
+					break;
+
+				case Opcodes.CEILING:
+					ceiling(stack[top], length);
+					break;
+
+				case Opcodes.FLOOR:
+					floor(stack[top], length);
+					break;
+
+				case Opcodes.SQUARE_ROOT:
+					squareRoot(stack[top], length);
+					break;
+
+				default:
+					apply(opcode, stack[top], length);
+			}
+		}
+	}
+
+	/**
+	 * Runs the instructions of the program over one chunk of rows with the Vector API, leaving the result in the first
+	 * scratch column. The operations that have no exact lane-wise counterpart keep their scalar loops.
+	 * 
+	 * @param  columns  the values of the variables, one column per slot
+	 * @param  start    the first row of the chunk
+	 * @param  length   the number of rows in the chunk
+	 * @param  stack    the scratch columns, used as a stack of intermediate columns
+	 */
+	private void evaluateVectorizedChunk(double[][] columns, int start, int length, double[][] stack) {
+		byte[] opcodes = program.opcodes;
+		double[] constants = program.constants;
+		int[] slots = program.slots;
+		int top = -1, constant = 0, slot = 0;
+
+		for (byte opcode : opcodes) {
+			switch (opcode) {
+				case Opcodes.PUSH_CONSTANT:
+					VectorKernels.fill(stack[++top], length, constants[constant++]);
+					break;
+
+				case Opcodes.LOAD_VARIABLE:
+					System.arraycopy(columns[slots[slot++]], start, stack[++top], 0, length);
+					break;
+
+				case Opcodes.PLUS:
+					VectorKernels.plus(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.MINUS:
+					VectorKernels.minus(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.MULTIPLY:
+					VectorKernels.multiply(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.DIVIDE:
+					VectorKernels.divide(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.MODULO:
+					// the remainder has no lane-wise operator, only its divisor check is vectorized
+					VectorKernels.checkNonZero(stack[top], length, EvaluationException.ZERO_MOD_MESSAGE);
+					modulo(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.POWER:
+					power(stack[top - 1], stack[top--], length);
+					break;
+
+				case Opcodes.ABSOLUTE_VALUE:
+					VectorKernels.absoluteValue(stack[top], length);
+					break;
+
+				case Opcodes.CEILING:
+					ceiling(stack[top], length);
+					break;
+
+				case Opcodes.FLOOR:
+					floor(stack[top], length);
+					break;
+
+				case Opcodes.SQUARE_ROOT:
+					VectorKernels.squareRoot(stack[top], length);
+					break;
+
+				default:
+					apply(opcode, stack[top], length);
+			}
+		}
+	}
+
+	/**
+	 * Fills a column with a constant value.
+	 * 
+	 * @param  column  the column
+	 * @param  length  the number of rows
+	 * @param  value   the constant value
+	 */
+	private static void fill(double[] column, int length, double value) {
+		for (int i = 0; i < length; i++)
+			column[i] = value;
+	}
+
+	/**
+	 * Adds the right column to the left column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	private static void plus(double[] left, double[] right, int length) {
+		for (int i = 0; i < length; i++)
+			left[i] += right[i];
+	}
+
+	/**
+	 * Subtracts the right column from the left column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	private static void minus(double[] left, double[] right, int length) {
+		for (int i = 0; i < length; i++)
+			left[i] -= right[i];
+	}
+
+	/**
+	 * Multiplies the left column by the right column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	private static void multiply(double[] left, double[] right, int length) {
+		for (int i = 0; i < length; i++)
+			left[i] *= right[i];
+	}
+
+	/**
+	 * Divides the left column by the right column.
+	 * The divisors are checked in a separate loop, so the division loop has no branches.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	private static void divide(double[] left, double[] right, int length) {
+		checkNonZero(right, length, EvaluationException.ZERO_DIV_MESSAGE);
+
+		for (int i = 0; i < length; i++)
+			left[i] /= right[i];
+	}
+
+	/**
+	 * Computes the remainders of the division of the left column by the right column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	private static void modulo(double[] left, double[] right, int length) {
+		checkNonZero(right, length, EvaluationException.ZERO_MOD_MESSAGE);
+
+		for (int i = 0; i < length; i++)
+			left[i] %= right[i];
+	}
+
+	/**
+	 * Raises the left column to the power of the right column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	private static void power(double[] left, double[] right, int length) {
+		for (int i = 0; i < length; i++)
+			left[i] = Operations.power(left[i], right[i]);
+	}
+
+	/**
+	 * Replaces a column by its absolute values.
+	 * 
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	private static void absoluteValue(double[] column, int length) {
+		for (int i = 0; i < length; i++)
+			column[i] = Math.abs(column[i]);
+	}
+
+	/**
+	 * Rounds a column towards positive infinity.
+	 * 
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	private static void ceiling(double[] column, int length) {
+		for (int i = 0; i < length; i++)
+			column[i] = Math.ceil(column[i]);
+	}
+
+	/**
+	 * Rounds a column towards negative infinity.
+	 * 
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	private static void floor(double[] column, int length) {
+		for (int i = 0; i < length; i++)
+			column[i] = Math.floor(column[i]);
+	}
+
+	/**
+	 * Replaces a column by its square roots.
+	 * The operands are checked in a separate loop, so the square root loop has no branches.
+	 * 
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	private static void squareRoot(double[] column, int length) {
+		for (int i = 0; i < length; i++) {
+			if (column[i] < 0.0)
+				throw new RuntimeException(EvaluationException.NEGATIVE_SQRT_MESSAGE);
+		}
+
+		for (int i = 0; i < length; i++)
+			column[i] = Math.sqrt(column[i]);
+	}
+
+	/**
+	 * Applies any other mathematical function on a column, one value at a time.
+	 * 
+	 * @param  opcode  the opcode of the mathematical function
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	private static void apply(byte opcode, double[] column, int length) {
+		for (int i = 0; i < length; i++)
+			column[i] = Operations.apply(opcode, column[i]);
+	}
+
+	/**
+	 * Checks that a column holds no divisor that is zero according to Operations.isZero.
+	 * 
+	 * @param  column   the divisors
+	 * @param  length   the number of rows
+	 * @param  message  the message of the error raised for a zero divisor
+	 */
+	private static void checkNonZero(double[] column, int length, String message) {
+		for (int i = 0; i < length; i++) {
+			if (Operations.isZero(column[i]))
+				throw new RuntimeException(message);
+		}
+	}
+
+}
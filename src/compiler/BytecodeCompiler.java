@@ -0,0 +1,287 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Class used for compiling a PostfixProgram into JVM bytecode.
+ * Every program becomes a hidden class whose evaluate method computes the value of the mathematical expression with
+ * straight-line primitive double arithmetic and direct calls to the Math and Operations methods, so the JIT compiler
+ * can inline and register-allocate the whole mathematical expression.
+ * The code runs in postfix order, so when it raises an error, an exception handler of the same evaluate method
+ * evaluates the program again in the order of the binary tree representation, which reports the error of the binary
+ * tree. The program is reached through a static field of the hidden class, set once when the class is defined.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class BytecodeCompiler {
+
+	/**
+	 * Largest bytecode size of a generated evaluate method. HotSpot does not JIT compile methods larger than 8000 bytes,
+	 * so bigger programs are left to the PostfixProgram interpreter.
+	 */
+	public static final int MAX_CODE_SIZE = 8000;
+
+	/**
+	 * Internal name of the generated hidden classes, which have to be in the same package as this class.
+	 */
+	private static final String CLASS_NAME = "compiler/GeneratedFunction";
+
+	/**
+	 * Name of the static field of the generated hidden classes that holds their program.
+	 */
+	private static final String PROGRAM_FIELD = "program";
+
+	/**
+	 * JVM instructions used by the generated code.
+	 */
+	private static final int ALOAD_0 = 0x2A, ALOAD_1 = 0x2B, ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11,
+							 LDC_W = 0x13, LDC2_W = 0x14, DALOAD = 0x31, POP = 0x57, DADD = 0x63, DSUB = 0x67,
+							 DMUL = 0x6B, DRETURN = 0xAF, RETURN = 0xB1, GETSTATIC = 0xB2, INVOKEVIRTUAL = 0xB6,
+							 INVOKESPECIAL = 0xB7, INVOKESTATIC = 0xB8;
+
+	/**
+	 * Bytecode size of the exception handler of a generated evaluate method, which discards the exception, loads the
+	 * program and the variables and returns the result of evaluateInTreeOrder.
+	 */
+	private static final int HANDLER_SIZE = 9;
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private BytecodeCompiler() {
+	}
+
+	/**
+	 * Compiles the given PostfixProgram into a hidden class and returns an instance of it.
+	 * Every program gets its own hidden class, so a call site that evaluates the compiled function of a single
+	 * mathematical expression can inline its evaluate method. Programs too large for a single JIT compiled method are
+	 * returned as they are, to be run by the interpreter.
+	 * 
+	 * @param  program  the program that has to be compiled
+	 * 
+	 * @return          the compiled function or the program itself when it is too large
+	 */
+	public static CompiledFunction compile(PostfixProgram program) {
+		if (codeSize(program) > MAX_CODE_SIZE)
+			return program;
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(generate(program), true);
+			lookup.findStaticSetter(lookup.lookupClass(), PROGRAM_FIELD, PostfixProgram.class).invoke(program);
+			return (CompiledFunction) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		}
+		catch (Throwable e) {
+			throw new IllegalStateException("failed to define the generated class", e);
+		}
+	}
+
+	/**
+	 * Computes the bytecode size of the evaluate method generated for the given program.
+	 * 
+	 * @param  program  the program that has to be compiled
+	 * 
+	 * @return          the size of the generated code in bytes
+	 */
+	static int codeSize(PostfixProgram program) {
+		int size = 1 + HANDLER_SIZE, slot = 0;
+
+		for (byte opcode : program.opcodes) {
+			if (opcode == Opcodes.PLUS || opcode == Opcodes.MINUS || opcode == Opcodes.MULTIPLY)
+				size += 1;
+			else if (opcode == Opcodes.LOAD_VARIABLE)
+				size += 2 + intPushSize(program.slots[slot++]);
+			else
+				size += 3;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Generates the class file of a hidden class that implements CompiledFunction for the given program, with a static
+	 * field that has to be set to the program before its evaluate method is called.
+	 * 
+	 * @param  program  the program that has to be compiled
+	 * 
+	 * @return          the generated class file
+	 */
+	static byte[] generate(PostfixProgram program) {
+		ClassFileWriter classFile = new ClassFileWriter(CLASS_NAME, "java/lang/Object", "compiler/CompiledFunction");
+		classFile.addField(PROGRAM_FIELD, "Lcompiler/PostfixProgram;");
+
+		ByteArrayOutputStream constructor = new ByteArrayOutputStream();
+		constructor.write(ALOAD_0);
+		writeInstruction(constructor, INVOKESPECIAL, classFile.methodConstant("java/lang/Object", "<init>", "()V"));
+		constructor.write(RETURN);
+		classFile.addMethod("<init>", "()V", 1, 1, constructor.toByteArray());
+
+		ByteArrayOutputStream code = new ByteArrayOutputStream();
+		int constant = 0, slot = 0;
+
+		for (byte opcode : program.opcodes) {
+			switch (opcode) {
+				case Opcodes.PUSH_CONSTANT:
+					writeInstruction(code, LDC2_W, classFile.doubleConstant(program.constants[constant++]));
+					break;
+
+				case Opcodes.LOAD_VARIABLE:
+					code.write(ALOAD_1);
+					writeIntPush(code, classFile, program.slots[slot++]);
+					code.write(DALOAD);
+					break;
+
+				case Opcodes.PLUS:
+					code.write(DADD);
+					break;
+
+				case Opcodes.MINUS:
+					code.write(DSUB);
+					break;
+
+				case Opcodes.MULTIPLY:
+					code.write(DMUL);
+					break;
+
+				default:
+					writeInstruction(code, INVOKESTATIC, methodConstant(classFile, opcode));
+			}
+		}
+
+		code.write(DRETURN);
+
+		// the generated code runs in postfix order, so the handler evaluates the program again to report the error of
+		// the binary tree
+		int handlerStart = code.size();
+		int programField = classFile.fieldConstant(CLASS_NAME, PROGRAM_FIELD, "Lcompiler/PostfixProgram;");
+		int treeOrderMethod = classFile.methodConstant("compiler/PostfixProgram", "evaluateInTreeOrder", "([D)D");
+
+		code.write(POP);
+		writeInstruction(code, GETSTATIC, programField);
+		code.write(ALOAD_1);
+		writeInstruction(code, INVOKEVIRTUAL, treeOrderMethod);
+		code.write(DRETURN);
+
+		classFile.addMethod("evaluate", "([D)D", 2 * program.maxStackDepth + 2, 2, code.toByteArray(), handlerStart,
+							classFile.classConstant("java/lang/RuntimeException"));
+
+		return classFile.toByteArray();
+	}
+
+	/**
+	 * Adds to the constant pool the static method called for an opcode that has no matching JVM instruction.
+	 * 
+	 * @param  classFile  the class file being generated
+	 * @param  opcode     the opcode of the operation
+	 * 
+	 * @return            the index of the method in the constant pool
+	 */
+	private static int methodConstant(ClassFileWriter classFile, byte opcode) {
+		switch (opcode) {
+			case Opcodes.DIVIDE:
+				return classFile.methodConstant("compiler/Operations", "divide", "(DD)D");
+
+			case Opcodes.MODULO:
+				return classFile.methodConstant("compiler/Operations", "modulo", "(DD)D");
+
+			case Opcodes.POWER:
+				return classFile.methodConstant("compiler/Operations", "power", "(DD)D");
+
+			case Opcodes.ABSOLUTE_VALUE:
+				return classFile.methodConstant("java/lang/Math", "abs", "(D)D");
+
+			case Opcodes.ARCCOSINE:
+				return classFile.methodConstant("java/lang/Math", "acos", "(D)D");
+
+			case Opcodes.ARCSINE:
+				return classFile.methodConstant("java/lang/Math", "asin", "(D)D");
+
+			case Opcodes.ARCTANGENT:
+				return classFile.methodConstant("java/lang/Math", "atan", "(D)D");
+
+			case Opcodes.CEILING:
+				return classFile.methodConstant("java/lang/Math", "ceil", "(D)D");
+
+			case Opcodes.COSINE:
+				return classFile.methodConstant("java/lang/Math", "cos", "(D)D");
+
+			case Opcodes.FLOOR:
+				return classFile.methodConstant("java/lang/Math", "floor", "(D)D");
+
+			case Opcodes.LOGARITHM:
+				return classFile.methodConstant("compiler/Operations", "logarithm", "(D)D");
+
+			case Opcodes.LOGARITHM_BASE_TEN:
+				return classFile.methodConstant("compiler/Operations", "logarithmBaseTen", "(D)D");
+
+			case Opcodes.LOGARITHM_BASE_TWO:
+				return classFile.methodConstant("compiler/Operations", "logarithmBaseTwo", "(D)D");
+
+			case Opcodes.ROUND:
+				return classFile.methodConstant("compiler/Operations", "round", "(D)D");
+
+			case Opcodes.SINE:
+				return classFile.methodConstant("java/lang/Math", "sin", "(D)D");
+
+			case Opcodes.SQUARE_ROOT:
+				return classFile.methodConstant("compiler/Operations", "squareRoot", "(D)D");
+
+			case Opcodes.TANGENT:
+				return classFile.methodConstant("java/lang/Math", "tan", "(D)D");
+
+			default:
+				throw new IllegalArgumentException("unknown opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Computes the size of the shortest JVM instruction that pushes the given int value.
+	 * 
+	 * @param  value  the int value
+	 * 
+	 * @return        the size of the instruction in bytes
+	 */
+	private static int intPushSize(int value) {
+		if (value <= 5)
+			return 1;
+		else if (value <= Byte.MAX_VALUE)
+			return 2;
+		else
+			return 3;
+	}
+
+	/**
+	 * Writes the shortest JVM instruction that pushes the given non-negative int value.
+	 * 
+	 * @param  code       the code being generated
+	 * @param  classFile  the class file being generated
+	 * @param  value      the int value
+	 */
+	private static void writeIntPush(ByteArrayOutputStream code, ClassFileWriter classFile, int value) {
+		if (value <= 5)
+			code.write(ICONST_0 + value);
+		else if (value <= Byte.MAX_VALUE) {
+			code.write(BIPUSH);
+			code.write(value);
+		}
+		else if (value <= Short.MAX_VALUE)
+			writeInstruction(code, SIPUSH, value);
+		else
+			writeInstruction(code, LDC_W, classFile.intConstant(value));
+	}
+
+	/**
+	 * Writes a JVM instruction that takes a two byte constant pool index as operand.
+	 * 
+	 * @param  code         the code being generated
+	 * @param  instruction  the JVM instruction
+	 * @param  index        the constant pool index
+	 */
+	private static void writeInstruction(ByteArrayOutputStream code, int instruction, int index) {
+		code.write(instruction);
+		code.write(index >>> 8);
+		code.write(index);
+	}
+
+}
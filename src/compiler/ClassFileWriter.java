@@ -0,0 +1,437 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class that writes a minimal Java class file, with just enough features for the classes generated by the
+ * BytecodeCompiler: one super class, one interface, private static fields and methods whose code contains no branches
+ * besides at most one exception handler.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+class ClassFileWriter {
+
+	/**
+	 * Major version of the written class files, corresponding to Java 8.
+	 * Methods without branches do not need a StackMapTable attribute in this version, while a method with an exception
+	 * handler needs a single frame, at the start of the handler.
+	 */
+	private static final int MAJOR_VERSION = 52;
+
+	/**
+	 * Maximum number of entries the constant pool of a class file can hold.
+	 */
+	static final int MAX_CONSTANT_POOL_SIZE = 65535;
+
+	/**
+	 * Access flag of the written class and of its methods, which can be accessed from outside of their package.
+	 */
+	private static final int ACC_PUBLIC = 0x0001;
+
+	/**
+	 * Access flag of the written fields, which can only be accessed from the written class.
+	 */
+	private static final int ACC_PRIVATE = 0x0002;
+
+	/**
+	 * Access flag of the written fields, which belong to the written class instead of its instances.
+	 */
+	private static final int ACC_STATIC = 0x0008;
+
+	/**
+	 * Access flag of the written class and of its methods, which cannot be extended or overridden.
+	 */
+	private static final int ACC_FINAL = 0x0010;
+
+	/**
+	 * Tag of a StackMapTable frame with the same locals as the initial frame and one value on the operand stack, whose
+	 * offset is given explicitly.
+	 */
+	private static final int SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED = 247;
+
+	/**
+	 * Tag of the verification type of an instance of a class, in a StackMapTable frame.
+	 */
+	private static final int ITEM_OBJECT = 7;
+
+	/**
+	 * Access flag of the written class, which invokes the methods of its super class with the modern semantics.
+	 */
+	private static final int ACC_SUPER = 0x0020;
+
+	/**
+	 * The bytes of the entries of the constant pool written so far.
+	 */
+	private final ByteArrayOutputStream constantPool;
+
+	/**
+	 * The index of every constant written so far, by the String that uniquely identifies it.
+	 */
+	private final Map<String, Integer> constantIndexes;
+
+	/**
+	 * The number of entries of the constant pool written so far, plus one, as the entries are indexed from 1.
+	 */
+	private int constantPoolSize;
+
+	/**
+	 * The bytes of the fields written so far.
+	 */
+	private final ByteArrayOutputStream fieldsBytes;
+
+	/**
+	 * The stream through which the fields are written into fieldsBytes.
+	 */
+	private final DataOutputStream fields;
+
+	/**
+	 * The number of fields written so far.
+	 */
+	private int nrOfFields;
+
+	/**
+	 * The bytes of the methods written so far.
+	 */
+	private final ByteArrayOutputStream methodsBytes;
+
+	/**
+	 * The stream through which the methods are written into methodsBytes.
+	 */
+	private final DataOutputStream methods;
+
+	/**
+	 * The number of methods written so far.
+	 */
+	private int nrOfMethods;
+
+	/**
+	 * The constant pool index of the written class.
+	 */
+	private final int thisClass;
+
+	/**
+	 * The constant pool index of the super class of the written class.
+	 */
+	private final int superClass;
+
+	/**
+	 * The constant pool index of the interface implemented by the written class.
+	 */
+	private final int interfaceClass;
+
+	/**
+	 * The constant pool index of the name of the Code attribute of the methods.
+	 */
+	private final int codeAttributeName;
+
+	/**
+	 * The constant pool index of the name of the StackMapTable attribute of the methods with an exception handler, or 0
+	 * if no such method was written yet.
+	 */
+	private int stackMapTableAttributeName;
+
+	/**
+	 * Constructor for a ClassFileWriter.
+	 * 
+	 * @param  className       the internal name of the written class
+	 * @param  superClassName  the internal name of the super class
+	 * @param  interfaceName   the internal name of the interface implemented by the written class
+	 */
+	ClassFileWriter(String className, String superClassName, String interfaceName) {
+		this.constantPool = new ByteArrayOutputStream();
+		this.constantIndexes = new HashMap<String, Integer>();
+		this.constantPoolSize = 1;
+
+		this.fieldsBytes = new ByteArrayOutputStream();
+		this.fields = new DataOutputStream(fieldsBytes);
+		this.nrOfFields = 0;
+
+		this.methodsBytes = new ByteArrayOutputStream();
+		this.methods = new DataOutputStream(methodsBytes);
+		this.nrOfMethods = 0;
+
+		this.thisClass = classConstant(className);
+		this.superClass = classConstant(superClassName);
+		this.interfaceClass = classConstant(interfaceName);
+		this.codeAttributeName = utf8Constant("Code");
+		this.stackMapTableAttributeName = 0;
+	}
+
+	/**
+	 * Adds a constant to the constant pool, unless an equal constant was already added.
+	 * 
+	 * @param  key    a String that uniquely identifies the constant
+	 * @param  tag    the tag of the constant
+	 * @param  size   the number of constant pool entries taken by the constant
+	 * @param  value  the bytes of the constant that follow its tag
+	 * 
+	 * @return        the index of the constant in the constant pool
+	 */
+	private int constant(String key, int tag, int size, byte[] value) {
+		Integer index = constantIndexes.get(key);
+		if (index != null)
+			return index;
+
+		if (constantPoolSize + size > MAX_CONSTANT_POOL_SIZE)
+			throw new IllegalStateException("constant pool overflow");
+
+		index = constantPoolSize;
+		constantPool.write(tag);
+		constantPool.write(value, 0, value.length);
+		constantIndexes.put(key, index);
+		constantPoolSize += size;
+
+		return index;
+	}
+
+	/**
+	 * Adds a CONSTANT_Utf8 entry to the constant pool.
+	 * 
+	 * @param  value  the String held by the entry
+	 * 
+	 * @return        the index of the entry in the constant pool
+	 */
+	private int utf8Constant(String value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			new DataOutputStream(bytes).writeUTF(value);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return constant("Utf8 " + value, 1, 1, bytes.toByteArray());
+	}
+
+	/**
+	 * Adds a CONSTANT_Class entry to the constant pool.
+	 * 
+	 * @param  name  the internal name of the class
+	 * 
+	 * @return       the index of the entry in the constant pool
+	 */
+	int classConstant(String name) {
+		return constant("Class " + name, 7, 1, u2(utf8Constant(name)));
+	}
+
+	/**
+	 * Adds a CONSTANT_Integer entry to the constant pool.
+	 * 
+	 * @param  value  the int value held by the entry
+	 * 
+	 * @return        the index of the entry in the constant pool
+	 */
+	int intConstant(int value) {
+		byte[] bytes = new byte[4];
+		for (int i = 0; i < 4; i++)
+			bytes[i] = (byte) (value >>> (24 - 8 * i));
+
+		return constant("Integer " + value, 3, 1, bytes);
+	}
+
+	/**
+	 * Adds a CONSTANT_Double entry to the constant pool.
+	 * 
+	 * @param  value  the double value held by the entry
+	 * 
+	 * @return        the index of the entry in the constant pool
+	 */
+	int doubleConstant(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		byte[] bytes = new byte[8];
+		for (int i = 0; i < 8; i++)
+			bytes[i] = (byte) (bits >>> (56 - 8 * i));
+
+		return constant("Double " + bits, 6, 2, bytes);
+	}
+
+	/**
+	 * Adds a CONSTANT_Methodref entry to the constant pool.
+	 * 
+	 * @param  owner       the internal name of the class that declares the method
+	 * @param  name        the name of the method
+	 * @param  descriptor  the descriptor of the method
+	 * 
+	 * @return             the index of the entry in the constant pool
+	 */
+	int methodConstant(String owner, String name, String descriptor) {
+		int classIndex = classConstant(owner);
+		int nameAndTypeIndex = constant("NameAndType " + name + descriptor, 12, 1, u2u2(utf8Constant(name), utf8Constant(descriptor)));
+
+		return constant("Methodref " + owner + "." + name + descriptor, 10, 1, u2u2(classIndex, nameAndTypeIndex));
+	}
+
+	/**
+	 * Adds a CONSTANT_Fieldref entry to the constant pool.
+	 * 
+	 * @param  owner       the internal name of the class that declares the field
+	 * @param  name        the name of the field
+	 * @param  descriptor  the descriptor of the field
+	 * 
+	 * @return             the index of the entry in the constant pool
+	 */
+	int fieldConstant(String owner, String name, String descriptor) {
+		int classIndex = classConstant(owner);
+		int nameAndTypeIndex = constant("NameAndType " + name + descriptor, 12, 1, u2u2(utf8Constant(name), utf8Constant(descriptor)));
+
+		return constant("Fieldref " + owner + "." + name + descriptor, 9, 1, u2u2(classIndex, nameAndTypeIndex));
+	}
+
+	/**
+	 * Adds a private static field to the written class.
+	 * 
+	 * @param  name        the name of the field
+	 * @param  descriptor  the descriptor of the field
+	 */
+	void addField(String name, String descriptor) {
+		try {
+			fields.writeShort(ACC_PRIVATE | ACC_STATIC);
+			fields.writeShort(utf8Constant(name));
+			fields.writeShort(utf8Constant(descriptor));
+			fields.writeShort(0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		nrOfFields++;
+	}
+
+	/**
+	 * Adds a public method with the given code to the written class.
+	 * 
+	 * @param  name        the name of the method
+	 * @param  descriptor  the descriptor of the method
+	 * @param  maxStack    the maximum depth of the operand stack of the method
+	 * @param  maxLocals   the number of local variable slots of the method
+	 * @param  code        the bytecode of the method
+	 */
+	void addMethod(String name, String descriptor, int maxStack, int maxLocals, byte[] code) {
+		addMethod(name, descriptor, maxStack, maxLocals, code, code.length, 0);
+	}
+
+	/**
+	 * Adds a public method with the given code to the written class, whose code is guarded by an exception handler.
+	 * The handler starts with the caught exception as the only value on the operand stack, and must not store any local
+	 * variable before it.
+	 * 
+	 * @param  name            the name of the method
+	 * @param  descriptor      the descriptor of the method
+	 * @param  maxStack        the maximum depth of the operand stack of the method
+	 * @param  maxLocals       the number of local variable slots of the method
+	 * @param  code            the bytecode of the method, followed by the bytecode of the handler
+	 * @param  handlerStart    the offset of the handler in the code, which also ends the guarded code
+	 * @param  exceptionClass  the constant pool index of the class of the caught exceptions
+	 */
+	void addMethod(String name, String descriptor, int maxStack, int maxLocals, byte[] code, int handlerStart,
+				   int exceptionClass) {
+		boolean hasHandler = handlerStart < code.length;
+		if (hasHandler && stackMapTableAttributeName == 0)
+			stackMapTableAttributeName = utf8Constant("StackMapTable");
+
+		try {
+			methods.writeShort(ACC_PUBLIC);
+			methods.writeShort(utf8Constant(name));
+			methods.writeShort(utf8Constant(descriptor));
+			methods.writeShort(1);
+
+			methods.writeShort(codeAttributeName);
+			methods.writeInt(hasHandler ? 12 + code.length + 8 + 14 : 12 + code.length);
+			methods.writeShort(maxStack);
+			methods.writeShort(maxLocals);
+			methods.writeInt(code.length);
+			methods.write(code);
+
+			if (hasHandler) {
+				methods.writeShort(1);
+				methods.writeShort(0);
+				methods.writeShort(handlerStart);
+				methods.writeShort(handlerStart);
+				methods.writeShort(exceptionClass);
+
+				// the only frame is the start of the handler, with the locals of the method and the caught exception
+				methods.writeShort(1);
+				methods.writeShort(stackMapTableAttributeName);
+				methods.writeInt(8);
+				methods.writeShort(1);
+				methods.writeByte(SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED);
+				methods.writeShort(handlerStart);
+				methods.writeByte(ITEM_OBJECT);
+				methods.writeShort(exceptionClass);
+			}
+			else {
+				methods.writeShort(0);
+				methods.writeShort(0);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		nrOfMethods++;
+	}
+
+	/**
+	 * Gets the bytes of the written class file.
+	 * 
+	 * @return  the class file
+	 */
+	byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream classFile = new DataOutputStream(bytes);
+
+		try {
+			classFile.writeInt(0xCAFEBABE);
+			classFile.writeShort(0);
+			classFile.writeShort(MAJOR_VERSION);
+			classFile.writeShort(constantPoolSize);
+			constantPool.writeTo(classFile);
+
+			classFile.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			classFile.writeShort(thisClass);
+			classFile.writeShort(superClass);
+			classFile.writeShort(1);
+			classFile.writeShort(interfaceClass);
+
+			classFile.writeShort(nrOfFields);
+			fieldsBytes.writeTo(classFile);
+
+			classFile.writeShort(nrOfMethods);
+			methodsBytes.writeTo(classFile);
+			classFile.writeShort(0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Encodes an unsigned two byte value in big-endian order.
+	 * 
+	 * @param  value  the value to encode
+	 * 
+	 * @return        the encoded value
+	 */
+	private static byte[] u2(int value) {
+		return new byte[] { (byte) (value >>> 8), (byte) value };
+	}
+
+	/**
+	 * Encodes two unsigned two byte values in big-endian order.
+	 * 
+	 * @param  first   the first value to encode
+	 * @param  second  the second value to encode
+	 * 
+	 * @return         the encoded values
+	 */
+	private static byte[] u2u2(int first, int second) {
+		return new byte[] { (byte) (first >>> 8), (byte) first, (byte) (second >>> 8), (byte) second };
+	}
+
+}
@@ -0,0 +1,37 @@
+package compiler;
+
+/**
+ * Interface for a mathematical expression compiled into a form that can be evaluated directly, without walking its
+ * binary tree representation.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+@FunctionalInterface
+public interface CompiledFunction {
+
+	/**
+	 * Variable values given to the evaluation of mathematical expressions that use no variables.
+	 */
+	double[] NO_VARIABLES = new double[0];
+
+	/**
+	 * Evaluates the compiled mathematical expression for the given values of its variables.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	double evaluate(double[] variables);
+
+	/**
+	 * Evaluates the compiled mathematical expression, which must not use any variables.
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	default double evaluate() {
+		return evaluate(NO_VARIABLES);
+	}
+
+}
@@ -0,0 +1,103 @@
+package compiler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class used for compiling a PostfixProgram into a DagProgram, eliminating its common subexpressions.
+ * Every instruction of the PostfixProgram becomes a node identified by its opcode and by the nodes of its operands, by
+ * its value in the case of constants or by its slot in the case of variables. Instructions that would produce an already
+ * existing node reuse that node, so structurally identical subexpressions end up shared.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class DagCompiler {
+
+	/**
+	 * Largest number of nodes a DagProgram can have, given the number of bits used for operands in a node key.
+	 */
+	private static final int MAX_NR_OF_NODES = (1 << 29) - 1;
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private DagCompiler() {
+	}
+
+	/**
+	 * Builds a key that uniquely identifies an operation node by its opcode and by the nodes of its operands.
+	 * 
+	 * @param  opcode        the opcode of the node
+	 * @param  leftOperand   the index of the left operand
+	 * @param  rightOperand  the index of the right operand or -1 if the node has no right operand
+	 * 
+	 * @return               the key of the node
+	 */
+	private static long key(byte opcode, int leftOperand, int rightOperand) {
+		return ((long) opcode << 58) | ((long) leftOperand << 29) | (rightOperand + 1);
+	}
+
+	/**
+	 * Compiles the given PostfixProgram into a DagProgram.
+	 * 
+	 * @param  program  the program that has to be compiled
+	 * 
+	 * @return          the compiled program, without common subexpressions
+	 */
+	public static DagProgram compile(PostfixProgram program) {
+		int length = program.opcodes.length;
+		byte[] opcodes = new byte[length];
+		int[] leftOperands = new int[length];
+		int[] rightOperands = new int[length];
+		double[] constants = new double[length];
+
+		Map<Long, Integer> constantNodes = new HashMap<Long, Integer>();
+		Map<Long, Integer> operationNodes = new HashMap<Long, Integer>();
+		int[] stack = new int[program.maxStackDepth];
+		int top = -1, constant = 0, slot = 0, nrOfNodes = 0;
+
+		if (length > MAX_NR_OF_NODES)
+			throw new IllegalArgumentException("postfix program too large");
+
+		for (byte opcode : program.opcodes) {
+			Map<Long, Integer> nodes;
+			long key;
+			int leftOperand = -1, rightOperand = -1;
+
+			if (opcode == Opcodes.PUSH_CONSTANT) {
+				nodes = constantNodes;
+				key = Double.doubleToRawLongBits(program.constants[constant++]);
+			}
+			else if (opcode == Opcodes.LOAD_VARIABLE) {
+				nodes = operationNodes;
+				leftOperand = program.slots[slot++];
+				key = key(opcode, leftOperand, rightOperand);
+			}
+			else {
+				nodes = operationNodes;
+				if (Opcodes.isBinaryOperator(opcode))
+					rightOperand = stack[top--];
+				leftOperand = stack[top--];
+				key = key(opcode, leftOperand, rightOperand);
+			}
+
+			Integer node = nodes.get(key);
+			if (node == null) {
+				node = nrOfNodes++;
+				opcodes[node] = opcode;
+				leftOperands[node] = leftOperand;
+				rightOperands[node] = rightOperand;
+				constants[node] = opcode == Opcodes.PUSH_CONSTANT ? Double.longBitsToDouble(key) : 0.0;
+				nodes.put(key, node);
+			}
+
+			stack[++top] = node;
+		}
+
+		// the root of the expression is the last node created, as it depends on all other nodes
+		return new DagProgram(Arrays.copyOf(opcodes, nrOfNodes), Arrays.copyOf(leftOperands, nrOfNodes),
+							  Arrays.copyOf(rightOperands, nrOfNodes), Arrays.copyOf(constants, nrOfNodes), program);
+	}
+
+}
@@ -0,0 +1,160 @@
+package compiler;
+
+/**
+ * Class that holds a mathematical expression compiled into a directed acyclic graph of subexpressions.
+ * Structurally identical subexpressions are represented by a single node, so every distinct subexpression is evaluated
+ * only once per evaluation. The nodes are stored in evaluation order and each of them writes its value in its own slot
+ * of a scratch array, from where the nodes that use it read it. A DagProgram is immutable and can be shared between
+ * threads, as long as every thread evaluates it on its own scratch array.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class DagProgram implements CompiledFunction {
+
+	/**
+	 * The opcodes of the nodes, in evaluation order.
+	 */
+	final byte[] opcodes;
+
+	/**
+	 * The index of the left operand of every node, the variable slot of every LOAD_VARIABLE node, or -1 if the node has
+	 * no operands.
+	 */
+	final int[] leftOperands;
+
+	/**
+	 * The index of the right operand of every node, or -1 if the node has no right operand.
+	 */
+	final int[] rightOperands;
+
+	/**
+	 * The value of every PUSH_CONSTANT node, unused for the other nodes.
+	 */
+	final double[] constants;
+
+	/**
+	 * The program the DagProgram was compiled from, which is evaluated again when an error is raised.
+	 */
+	private final PostfixProgram program;
+
+	/**
+	 * Constructor for a DagProgram. The arrays are taken over by the new DagProgram and must not be modified afterwards.
+	 * 
+	 * @param  opcodes        the opcodes of the nodes, in evaluation order
+	 * @param  leftOperands   the index of the left operand of every node
+	 * @param  rightOperands  the index of the right operand of every node
+	 * @param  constants      the value of every PUSH_CONSTANT node
+	 * @param  program        the program the DagProgram was compiled from
+	 */
+	DagProgram(byte[] opcodes, int[] leftOperands, int[] rightOperands, double[] constants, PostfixProgram program) {
+		this.opcodes = opcodes;
+		this.leftOperands = leftOperands;
+		this.rightOperands = rightOperands;
+		this.constants = constants;
+		this.program = program;
+	}
+
+	/**
+	 * Gets the number of distinct subexpressions, which is the number of nodes of this DagProgram.
+	 * 
+	 * @return  the number of nodes
+	 */
+	public int size() {
+		return opcodes.length;
+	}
+
+	/**
+	 * Allocates a scratch array large enough to evaluate this DagProgram.
+	 * 
+	 * @return  a new scratch array that can be reused for any number of evaluations
+	 */
+	public double[] newValues() {
+		return new double[opcodes.length];
+	}
+
+	/**
+	 * Evaluates this DagProgram on a newly allocated scratch array.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	@Override
+	public double evaluate(double[] variables) {
+		return evaluate(variables, newValues());
+	}
+
+	/**
+	 * Evaluates this DagProgram on the given scratch array. When an error is raised, the program it was compiled from
+	 * is evaluated again in the order of the binary tree representation, so the reported error is always the one the
+	 * binary tree representation reports.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * @param  values             a scratch array of at least size() values, owned by the calling thread
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public double evaluate(double[] variables, double[] values) {
+		try {
+			return evaluateNodes(variables, values);
+		}
+		catch (RuntimeException e) {
+			return program.evaluateInTreeOrder(variables);
+		}
+	}
+
+	/**
+	 * Evaluates the nodes of this DagProgram in evaluation order on the given scratch array.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * @param  values             a scratch array of at least size() values, owned by the calling thread
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	private double evaluateNodes(double[] variables, double[] values) {
+		byte[] opcodes = this.opcodes;
+		int[] leftOperands = this.leftOperands;
+		int[] rightOperands = this.rightOperands;
+
+		for (int i = 0; i < opcodes.length; i++) {
+			byte opcode = opcodes[i];
+
+			switch (opcode) {
+				case Opcodes.PUSH_CONSTANT:
+					values[i] = constants[i];
+					break;
+
+				case Opcodes.LOAD_VARIABLE:
+					values[i] = variables[leftOperands[i]];
+					break;
+
+				case Opcodes.PLUS:
+					values[i] = values[leftOperands[i]] + values[rightOperands[i]];
+					break;
+
+				case Opcodes.MINUS:
+					values[i] = values[leftOperands[i]] - values[rightOperands[i]];
+					break;
+
+				case Opcodes.MULTIPLY:
+					values[i] = values[leftOperands[i]] * values[rightOperands[i]];
+					break;
+
+				case Opcodes.DIVIDE:
+				case Opcodes.MODULO:
+				case Opcodes.POWER:
+					values[i] = Operations.apply(opcode, values[leftOperands[i]], values[rightOperands[i]]);
+					break;
+
+				default:
+					values[i] = Operations.apply(opcode, values[leftOperands[i]]);
+			}
+		}
+
+		return values[opcodes.length - 1];
+	}
+
+}
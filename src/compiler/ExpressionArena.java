@@ -0,0 +1,387 @@
+package compiler;
+
+import java.util.Arrays;
+
+/**
+ * Class that holds any number of mathematical expressions in a compact struct-of-arrays encoding, instead of one object
+ * per node and per token.
+ * Every node is identified by its index and described by an entry of two parallel arrays, the opcode of the node and
+ * an int that depends on its kind, while the values of the constants are kept in a third array of literals. Nodes are
+ * appended in postfix order, like the instructions of a PostfixProgram, so the right operand of a binary operator and
+ * the operand of a mathematical function is always the node right before it, and only the left operand of a binary
+ * operator has to be stored. The int of a constant is the index of its literal and the int of a variable is its slot.
+ * Parentheses take no node at all.
+ * A node takes 5 bytes and a constant 8 more, compared to the tens of bytes taken by a BinaryTreeNode and its token.
+ * Every expression is identified by the index of its root node. Appending is not thread-safe, but once built, an arena
+ * can be evaluated by any number of threads at the same time.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class ExpressionArena implements ExpressionStorage {
+
+	/**
+	 * The initial number of nodes and literals an arena can hold before growing.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The value stored in the int of a node that does not use it.
+	 */
+	public static final int NO_CHILD = -1;
+
+	/**
+	 * The opcode of every node.
+	 */
+	private byte[] opcodes;
+
+	/**
+	 * The index of the left operand of every binary operator, the index of the literal of every constant and the slot
+	 * of every variable.
+	 */
+	private int[] children;
+
+	/**
+	 * The values of the constants.
+	 */
+	private double[] literals;
+
+	private int nrOfNodes;
+	private int nrOfLiterals;
+
+	/**
+	 * Constructor for an empty ExpressionArena.
+	 */
+	public ExpressionArena() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructor for an empty ExpressionArena that can hold a given number of nodes before growing.
+	 * 
+	 * @param  capacity  the number of nodes the arena can hold before growing
+	 */
+	public ExpressionArena(int capacity) {
+		this.opcodes = new byte[Math.max(capacity, 1)];
+		this.children = new int[Math.max(capacity, 1)];
+		this.literals = new double[Math.max(capacity / 2, 1)];
+		this.nrOfNodes = 0;
+		this.nrOfLiterals = 0;
+	}
+
+	/**
+	 * Appends a node, growing the arrays of nodes when they are full.
+	 * 
+	 * @param  opcode  the opcode of the node
+	 * @param  child   the int of the node
+	 * 
+	 * @return         the index of the new node
+	 */
+	private int addNode(byte opcode, int child) {
+		if (nrOfNodes == opcodes.length) {
+			int capacity = nrOfNodes + (nrOfNodes >> 1) + 1;
+			opcodes = Arrays.copyOf(opcodes, capacity);
+			children = Arrays.copyOf(children, capacity);
+		}
+
+		opcodes[nrOfNodes] = opcode;
+		children[nrOfNodes] = child;
+		return nrOfNodes++;
+	}
+
+	/**
+	 * Appends a constant.
+	 * 
+	 * @param  value  the value of the constant
+	 * 
+	 * @return        the index of the new node
+	 */
+	@Override
+	public int addConstant(double value) {
+		if (nrOfLiterals == literals.length)
+			literals = Arrays.copyOf(literals, nrOfLiterals + (nrOfLiterals >> 1) + 1);
+
+		literals[nrOfLiterals] = value;
+		return addNode(Opcodes.PUSH_CONSTANT, nrOfLiterals++);
+	}
+
+	/**
+	 * Appends a variable.
+	 * 
+	 * @param  slot                       the slot of the variable
+	 * 
+	 * @return                            the index of the new node
+	 * @throws  IllegalArgumentException  when the slot is negative
+	 */
+	@Override
+	public int addVariable(int slot) {
+		if (slot < 0)
+			throw new IllegalArgumentException("negative variable slot");
+
+		return addNode(Opcodes.LOAD_VARIABLE, slot);
+	}
+
+	/**
+	 * Appends a mathematical function applied on the last appended node.
+	 * 
+	 * @param  opcode                     the opcode of the mathematical function
+	 * 
+	 * @return                            the index of the new node
+	 * @throws  IllegalArgumentException  when the opcode is not a mathematical function or the arena is empty
+	 */
+	@Override
+	public int addFunction(byte opcode) {
+		if (!Opcodes.isMathematicalFunction(opcode) || nrOfNodes == 0)
+			throw new IllegalArgumentException("invalid mathematical function");
+
+		return addNode(opcode, NO_CHILD);
+	}
+
+	/**
+	 * Appends a binary operator whose right operand is the last appended node.
+	 * 
+	 * @param  opcode                     the opcode of the binary operator
+	 * @param  left                       the index of the left operand, whose subexpression has to end right before
+	 *                                    the right operand
+	 * 
+	 * @return                            the index of the new node
+	 * @throws  IllegalArgumentException  when the opcode is not a binary operator or the operands are not adjacent
+	 */
+	@Override
+	public int addBinaryOperator(byte opcode, int left) {
+		if (!Opcodes.isBinaryOperator(opcode) || nrOfNodes < 2 || left != start(nrOfNodes - 1) - 1)
+			throw new IllegalArgumentException("invalid binary operator");
+
+		return addNode(opcode, left);
+	}
+
+	/**
+	 * Gets the number of nodes held by this ExpressionArena.
+	 * 
+	 * @return  the number of nodes
+	 */
+	@Override
+	public int getNrOfNodes() {
+		return nrOfNodes;
+	}
+
+	/**
+	 * Gets the number of constants held by this ExpressionArena.
+	 * 
+	 * @return  the number of literals
+	 */
+	public int getNrOfLiterals() {
+		return nrOfLiterals;
+	}
+
+	/**
+	 * Gets the opcode of a node.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the opcode of the node
+	 */
+	@Override
+	public byte getOpcode(int node) {
+		return opcodes[node];
+	}
+
+	/**
+	 * Gets the left operand of a binary operator or the operand of a mathematical function.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the index of the left operand or NO_CHILD if the node is a constant or a variable
+	 */
+	@Override
+	public int getLeftChild(int node) {
+		byte opcode = opcodes[node];
+
+		if (Opcodes.isBinaryOperator(opcode))
+			return children[node];
+		else if (Opcodes.isMathematicalFunction(opcode))
+			return node - 1;
+
+		return NO_CHILD;
+	}
+
+	/**
+	 * Gets the right operand of a binary operator.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the index of the right operand or NO_CHILD if the node is not a binary operator
+	 */
+	public int getRightChild(int node) {
+		return Opcodes.isBinaryOperator(opcodes[node]) ? node - 1 : NO_CHILD;
+	}
+
+	/**
+	 * Gets the value of a constant.
+	 * 
+	 * @param  node  the index of a constant node
+	 * 
+	 * @return       the value of the constant
+	 */
+	@Override
+	public double getValue(int node) {
+		return literals[children[node]];
+	}
+
+	/**
+	 * Gets the slot of a variable.
+	 * 
+	 * @param  node  the index of a variable node
+	 * 
+	 * @return       the slot of the variable
+	 */
+	@Override
+	public int getSlot(int node) {
+		return children[node];
+	}
+
+	/**
+	 * Gets the first node of the subexpression of a root, which is a constant or a variable.
+	 * 
+	 * @param  root  the index of the root node of the subexpression
+	 * 
+	 * @return       the index of the first node of the subexpression
+	 */
+	public int start(int root) {
+		int node = root;
+
+		while (opcodes[node] != Opcodes.PUSH_CONSTANT && opcodes[node] != Opcodes.LOAD_VARIABLE)
+			node = Opcodes.isBinaryOperator(opcodes[node]) ? children[node] : node - 1;
+
+		return node;
+	}
+
+	/**
+	 * Removes the last appended nodes, and the literals of the removed constants.
+	 * 
+	 * @param  nrOfNodes  the number of nodes that are kept
+	 */
+	@Override
+	public void truncate(int nrOfNodes) {
+		for (int node = nrOfNodes; node < this.nrOfNodes; node++) {
+			if (opcodes[node] == Opcodes.PUSH_CONSTANT)
+				nrOfLiterals--;
+		}
+
+		this.nrOfNodes = Math.min(nrOfNodes, this.nrOfNodes);
+	}
+
+	/**
+	 * Shrinks the arrays of this ExpressionArena to the nodes and literals it holds, once no more expressions are
+	 * going to be appended.
+	 */
+	public void trimToSize() {
+		opcodes = Arrays.copyOf(opcodes, nrOfNodes);
+		children = Arrays.copyOf(children, nrOfNodes);
+		literals = Arrays.copyOf(literals, nrOfLiterals);
+	}
+
+	/**
+	 * Estimates the number of bytes taken by the arrays of this ExpressionArena.
+	 * 
+	 * @return  the estimated footprint in bytes
+	 */
+	public long getFootprint() {
+		return (long) opcodes.length + 4L * children.length + 8L * literals.length;
+	}
+
+	/**
+	 * Copies the subexpression of a root into a PostfixProgram, whose instructions are its nodes in the same order.
+	 * 
+	 * @param  root  the index of the root node of the subexpression
+	 * 
+	 * @return       the compiled program of the subexpression
+	 */
+	public PostfixProgram compile(int root) {
+		int start = start(root), nrOfConstants = 0, nrOfSlots = 0;
+
+		for (int node = start; node <= root; node++) {
+			if (opcodes[node] == Opcodes.PUSH_CONSTANT)
+				nrOfConstants++;
+			else if (opcodes[node] == Opcodes.LOAD_VARIABLE)
+				nrOfSlots++;
+		}
+
+		double[] constants = new double[nrOfConstants];
+		int[] slots = new int[nrOfSlots];
+		nrOfConstants = nrOfSlots = 0;
+
+		for (int node = start; node <= root; node++) {
+			if (opcodes[node] == Opcodes.PUSH_CONSTANT)
+				constants[nrOfConstants++] = literals[children[node]];
+			else if (opcodes[node] == Opcodes.LOAD_VARIABLE)
+				slots[nrOfSlots++] = children[node];
+		}
+
+		return new PostfixProgram(Arrays.copyOfRange(opcodes, start, root + 1), constants, slots);
+	}
+
+	/**
+	 * Evaluates the subexpression of a root. Every evaluation allocates its own stacks, so any number of threads can
+	 * evaluate the same arena at the same time.
+	 * The nodes are first evaluated in the order they are stored, which is a single pass over the arrays. Every node is
+	 * evaluated exactly once whatever the order, so an error is raised in that order if and only if it is raised in the
+	 * order of the binary tree representation, but it may not be the same error. When an error is raised, the
+	 * subexpression is evaluated again in the order of the binary tree representation, so the reported error is always
+	 * the one the binary tree representation reports.
+	 * 
+	 * @param  root               the index of the root node of the subexpression
+	 * @param  variables          the values of the variables used in the subexpression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	@Override
+	public double evaluate(int root, double[] variables) {
+		try {
+			return evaluateInPostfixOrder(root, variables);
+		}
+		catch (RuntimeException e) {
+			return TreeOrder.evaluate(this, root, variables);
+		}
+	}
+
+	/**
+	 * Evaluates the subexpression of a root in a single pass over its nodes, in the order they are stored.
+	 * 
+	 * @param  root               the index of the root node of the subexpression
+	 * @param  variables          the values of the variables used in the subexpression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	private double evaluateInPostfixOrder(int root, double[] variables) {
+		byte[] opcodes = this.opcodes;
+		int[] children = this.children;
+		double[] literals = this.literals;
+		double[] stack = new double[INITIAL_CAPACITY / 4];
+		int top = -1;
+
+		for (int node = start(root); node <= root; node++) {
+			byte opcode = opcodes[node];
+
+			if (opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE) {
+				if (++top == stack.length)
+					stack = Arrays.copyOf(stack, 2 * top);
+
+				if (opcode == Opcodes.PUSH_CONSTANT)
+					stack[top] = literals[children[node]];
+				else
+					stack[top] = variables[children[node]];
+			}
+			else if (Opcodes.isBinaryOperator(opcode)) {
+				top--;
+				stack[top] = Operations.apply(opcode, stack[top], stack[top + 1]);
+			}
+			else
+				stack[top] = Operations.apply(opcode, stack[top]);
+		}
+
+		return stack[0];
+	}
+
+}
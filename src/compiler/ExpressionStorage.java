@@ -0,0 +1,116 @@
+package compiler;
+
+/**
+ * Interface for a storage of mathematical expressions encoded as nodes appended in postfix order, in which the right
+ * operand of a binary operator and the operand of a mathematical function is always the node right before it.
+ * Every node is identified by its index and every mathematical expression by the index of its root node. Appending is
+ * not thread-safe, but once built, a storage can be evaluated by any number of threads at the same time.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public interface ExpressionStorage {
+
+	/**
+	 * Appends a constant.
+	 * 
+	 * @param  value  the value of the constant
+	 * 
+	 * @return        the index of the new node
+	 */
+	int addConstant(double value);
+
+	/**
+	 * Appends a variable.
+	 * 
+	 * @param  slot                       the slot of the variable
+	 * 
+	 * @return                            the index of the new node
+	 * @throws  IllegalArgumentException  when the slot is negative
+	 */
+	int addVariable(int slot);
+
+	/**
+	 * Appends a mathematical function applied on the last appended node.
+	 * 
+	 * @param  opcode                     the opcode of the mathematical function
+	 * 
+	 * @return                            the index of the new node
+	 * @throws  IllegalArgumentException  when the opcode is not a mathematical function or the storage is empty
+	 */
+	int addFunction(byte opcode);
+
+	/**
+	 * Appends a binary operator whose right operand is the last appended node.
+	 * 
+	 * @param  opcode                     the opcode of the binary operator
+	 * @param  left                       the index of the left operand, whose subexpression has to end right before
+	 *                                    the right operand
+	 * 
+	 * @return                            the index of the new node
+	 * @throws  IllegalArgumentException  when the opcode is not a binary operator or the operands are not adjacent
+	 */
+	int addBinaryOperator(byte opcode, int left);
+
+	/**
+	 * Gets the number of nodes held by the storage.
+	 * 
+	 * @return  the number of nodes
+	 */
+	int getNrOfNodes();
+
+	/**
+	 * Removes the last appended nodes, and the literals of the removed constants.
+	 * 
+	 * @param  nrOfNodes  the number of nodes that are kept
+	 */
+	void truncate(int nrOfNodes);
+
+	/**
+	 * Gets the opcode of a node.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the opcode of the node
+	 */
+	byte getOpcode(int node);
+
+	/**
+	 * Gets the left operand of a binary operator or the operand of a mathematical function.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the index of the left operand or -1 if the node is a constant or a variable
+	 */
+	int getLeftChild(int node);
+
+	/**
+	 * Gets the value of a constant.
+	 * 
+	 * @param  node  the index of a constant node
+	 * 
+	 * @return       the value of the constant
+	 */
+	double getValue(int node);
+
+	/**
+	 * Gets the slot of a variable.
+	 * 
+	 * @param  node  the index of a variable node
+	 * 
+	 * @return       the slot of the variable
+	 */
+	int getSlot(int node);
+
+	/**
+	 * Evaluates the subexpression of a root, raising the same first error as the evaluation of its binary tree
+	 * representation.
+	 * 
+	 * @param  root               the index of the root node of the subexpression
+	 * @param  variables          the values of the variables used in the subexpression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	double evaluate(int root, double[] variables);
+
+}
@@ -0,0 +1,49 @@
+package compiler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * Class that allocates the chunks of an OffHeapArena as native memory segments with the foreign memory API, all in the
+ * same resource scope. Closing the scope frees the native memory of every chunk at once, without waiting for the
+ * garbage collector, and makes any later access to the chunks raise an IllegalStateException.
+ * This class must only be loaded when the jdk.incubator.foreign module is present, which OffHeapArena checks first.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+final class NativeMemory {
+
+	/**
+	 * The resource scope of all the allocated segments, shared so the chunks can be read by any number of threads.
+	 */
+	private final ResourceScope scope;
+
+	/**
+	 * Constructor for a NativeMemory with a new open scope.
+	 */
+	NativeMemory() {
+		this.scope = ResourceScope.newSharedScope();
+	}
+
+	/**
+	 * Allocates a native memory segment and gives a buffer over it in the native byte order.
+	 * 
+	 * @param  capacity  the number of bytes of the segment
+	 * 
+	 * @return           the buffer over the new segment
+	 */
+	ByteBuffer allocate(int capacity) {
+		return MemorySegment.allocateNative(capacity, Double.BYTES, scope).asByteBuffer().order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Closes the scope, freeing the native memory of all the allocated segments.
+	 */
+	void close() {
+		scope.close();
+	}
+
+}
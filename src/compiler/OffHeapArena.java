@@ -0,0 +1,405 @@
+package compiler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Class that holds any number of mathematical expressions in the same encoding as an ExpressionArena, but outside of
+ * the Java heap, in direct buffers. The garbage collector only sees a few buffer objects, however many expressions the
+ * arena holds, so it never scans or copies the nodes.
+ * The nodes and the literals are split into chunks of a fixed number of entries, each one a direct buffer allocated
+ * when the previous one is full, so the arena grows without ever copying what it holds. An arena holds at most
+ * 2^31 - 1 nodes; larger repositories of expressions are split into several arenas.
+ * An arena has an explicit lifecycle: it is open from its creation until it is closed, and closing it makes any later
+ * use of the arena raise an IllegalStateException. When the jdk.incubator.foreign module is present, the chunks are
+ * native memory segments of a single resource scope, which closing the arena closes, so their memory is freed at once.
+ * Otherwise the chunks are direct buffers, whose memory is only freed once the garbage collector reclaims them after
+ * the arena is closed, and counts towards the limit on direct memory until then. Appending is not thread-safe, but
+ * once built, an arena can be evaluated by any number of threads at the same time. It must only be closed once no
+ * thread uses it anymore.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class OffHeapArena implements ExpressionStorage, AutoCloseable {
+
+	/**
+	 * The default number of nodes and literals of a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+	/**
+	 * The initial capacity of the stack of an evaluation.
+	 */
+	private static final int INITIAL_STACK_CAPACITY = 16;
+
+	/**
+	 * Whether the jdk.incubator.foreign module was resolved when the virtual machine started.
+	 */
+	private static final boolean FOREIGN_API_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.foreign").isPresent();
+
+	/**
+	 * The number of bits of the index of a node or literal that select its entry in a chunk, and the mask of these bits.
+	 */
+	private final int chunkShift;
+	private final int chunkMask;
+
+	/**
+	 * The chunks of the opcodes, of the ints and of the literals of the nodes, as described for ExpressionArena.
+	 */
+	private ByteBuffer[] opcodeChunks;
+	private ByteBuffer[] childChunks;
+	private ByteBuffer[] literalChunks;
+
+	private int nrOfNodes;
+	private int nrOfLiterals;
+
+	private volatile boolean isClosed;
+
+	/**
+	 * The native memory in which the chunks are allocated, or null when the chunks are direct buffers.
+	 */
+	private final NativeMemory nativeMemory;
+
+	/**
+	 * Constructor for an empty OffHeapArena with chunks of the default size.
+	 */
+	public OffHeapArena() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor for an empty OffHeapArena.
+	 * 
+	 * @param  chunkSize                  the number of nodes and literals of a chunk, a power of two
+	 * 
+	 * @throws  IllegalArgumentException  when the chunk size is not a power of two
+	 */
+	public OffHeapArena(int chunkSize) {
+		if (chunkSize <= 0 || Integer.bitCount(chunkSize) != 1)
+			throw new IllegalArgumentException("chunk size is not a power of two");
+
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+		this.chunkMask = chunkSize - 1;
+		this.opcodeChunks = new ByteBuffer[0];
+		this.childChunks = new ByteBuffer[0];
+		this.literalChunks = new ByteBuffer[0];
+		this.nrOfNodes = 0;
+		this.nrOfLiterals = 0;
+		this.isClosed = false;
+		this.nativeMemory = FOREIGN_API_AVAILABLE ? new NativeMemory() : null;
+	}
+
+	/**
+	 * Checks if the chunks of the arenas are native memory segments, freed as soon as an arena is closed, which requires
+	 * the virtual machine to be started with the jdk.incubator.foreign module added, for example through the
+	 * --add-modules jdk.incubator.foreign option.
+	 * 
+	 * @return  true if the jdk.incubator.foreign module is present, false otherwise
+	 */
+	public static boolean isForeignApiAvailable() {
+		return FOREIGN_API_AVAILABLE;
+	}
+
+	/**
+	 * Allocates a chunk in the native byte order, as a native memory segment when the foreign memory API is available
+	 * and as a direct buffer otherwise.
+	 * 
+	 * @param  capacity  the number of bytes of the chunk
+	 * 
+	 * @return           the buffer of the new chunk
+	 */
+	private ByteBuffer allocate(int capacity) {
+		if (nativeMemory != null)
+			return nativeMemory.allocate(capacity);
+
+		return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Checks that this OffHeapArena was not closed.
+	 * 
+	 * @throws  IllegalStateException  when the arena was closed
+	 */
+	private void checkOpen() {
+		if (isClosed)
+			throw new IllegalStateException("arena is closed");
+	}
+
+	/**
+	 * Appends a node, allocating a new chunk of nodes when the last one is full.
+	 * 
+	 * @param  opcode  the opcode of the node
+	 * @param  child   the int of the node
+	 * 
+	 * @return         the index of the new node
+	 */
+	private int addNode(byte opcode, int child) {
+		checkOpen();
+		if (nrOfNodes == Integer.MAX_VALUE)
+			throw new IllegalStateException("arena is full");
+
+		int chunk = nrOfNodes >>> chunkShift, entry = nrOfNodes & chunkMask;
+		if (chunk == opcodeChunks.length) {
+			opcodeChunks = Arrays.copyOf(opcodeChunks, chunk + 1);
+			childChunks = Arrays.copyOf(childChunks, chunk + 1);
+			opcodeChunks[chunk] = allocate(chunkMask + 1);
+			childChunks[chunk] = allocate(4 * (chunkMask + 1));
+		}
+
+		opcodeChunks[chunk].put(entry, opcode);
+		childChunks[chunk].putInt(4 * entry, child);
+		return nrOfNodes++;
+	}
+
+	@Override
+	public int addConstant(double value) {
+		checkOpen();
+
+		int chunk = nrOfLiterals >>> chunkShift;
+		if (chunk == literalChunks.length) {
+			literalChunks = Arrays.copyOf(literalChunks, chunk + 1);
+			literalChunks[chunk] = allocate(8 * (chunkMask + 1));
+		}
+
+		literalChunks[chunk].putDouble(8 * (nrOfLiterals & chunkMask), value);
+		int node = addNode(Opcodes.PUSH_CONSTANT, nrOfLiterals);
+		nrOfLiterals++;
+		return node;
+	}
+
+	@Override
+	public int addVariable(int slot) {
+		checkOpen();
+		if (slot < 0)
+			throw new IllegalArgumentException("negative variable slot");
+
+		return addNode(Opcodes.LOAD_VARIABLE, slot);
+	}
+
+	@Override
+	public int addFunction(byte opcode) {
+		checkOpen();
+		if (!Opcodes.isMathematicalFunction(opcode) || nrOfNodes == 0)
+			throw new IllegalArgumentException("invalid mathematical function");
+
+		return addNode(opcode, ExpressionArena.NO_CHILD);
+	}
+
+	@Override
+	public int addBinaryOperator(byte opcode, int left) {
+		checkOpen();
+		if (!Opcodes.isBinaryOperator(opcode) || nrOfNodes < 2 || left != start(nrOfNodes - 1) - 1)
+			throw new IllegalArgumentException("invalid binary operator");
+
+		return addNode(opcode, left);
+	}
+
+	@Override
+	public int getNrOfNodes() {
+		return nrOfNodes;
+	}
+
+	/**
+	 * Gets the number of constants held by this OffHeapArena.
+	 * 
+	 * @return  the number of literals
+	 */
+	public int getNrOfLiterals() {
+		return nrOfLiterals;
+	}
+
+	@Override
+	public void truncate(int nrOfNodes) {
+		checkOpen();
+		for (int node = nrOfNodes; node < this.nrOfNodes; node++) {
+			if (opcode(node) == Opcodes.PUSH_CONSTANT)
+				nrOfLiterals--;
+		}
+
+		this.nrOfNodes = Math.min(nrOfNodes, this.nrOfNodes);
+	}
+
+	@Override
+	public byte getOpcode(int node) {
+		checkOpen();
+		return opcode(node);
+	}
+
+	/**
+	 * Gets the opcode of a node, without checking that this OffHeapArena is open.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the opcode of the node
+	 */
+	private byte opcode(int node) {
+		return opcodeChunks[node >>> chunkShift].get(node & chunkMask);
+	}
+
+	/**
+	 * Gets the int of a node.
+	 * 
+	 * @param  node  the index of the node
+	 * 
+	 * @return       the int of the node
+	 */
+	private int getChild(int node) {
+		return childChunks[node >>> chunkShift].getInt(4 * (node & chunkMask));
+	}
+
+	/**
+	 * Gets the value of a literal.
+	 * 
+	 * @param  literal  the index of the literal
+	 * 
+	 * @return          the value of the literal
+	 */
+	private double getLiteral(int literal) {
+		return literalChunks[literal >>> chunkShift].getDouble(8 * (literal & chunkMask));
+	}
+
+	@Override
+	public int getLeftChild(int node) {
+		byte opcode = getOpcode(node);
+
+		if (Opcodes.isBinaryOperator(opcode))
+			return getChild(node);
+		else if (Opcodes.isMathematicalFunction(opcode))
+			return node - 1;
+
+		return ExpressionArena.NO_CHILD;
+	}
+
+	@Override
+	public double getValue(int node) {
+		checkOpen();
+		return getLiteral(getChild(node));
+	}
+
+	@Override
+	public int getSlot(int node) {
+		checkOpen();
+		return getChild(node);
+	}
+
+	/**
+	 * Gets the first node of the subexpression of a root, which is a constant or a variable.
+	 * 
+	 * @param  root  the index of the root node of the subexpression
+	 * 
+	 * @return       the index of the first node of the subexpression
+	 */
+	public int start(int root) {
+		checkOpen();
+		int node = root;
+		byte opcode;
+
+		while ((opcode = opcode(node)) != Opcodes.PUSH_CONSTANT && opcode != Opcodes.LOAD_VARIABLE)
+			node = Opcodes.isBinaryOperator(opcode) ? getChild(node) : node - 1;
+
+		return node;
+	}
+
+	/**
+	 * Gets the number of bytes of native memory allocated by this OffHeapArena.
+	 * 
+	 * @return  the footprint in bytes
+	 */
+	public long getFootprint() {
+		return (long) (chunkMask + 1) * (5L * opcodeChunks.length + 8L * literalChunks.length);
+	}
+
+	/**
+	 * Checks if this OffHeapArena was closed.
+	 * 
+	 * @return  true if the arena was closed, false otherwise
+	 */
+	public boolean isClosed() {
+		return isClosed;
+	}
+
+	/**
+	 * Closes this OffHeapArena, freeing the native memory of its chunks when they are native memory segments. Direct
+	 * buffers are only dropped, and their memory is freed later, once the garbage collector reclaims them. Closing an
+	 * arena that is already closed has no effect.
+	 */
+	@Override
+	public void close() {
+		if (isClosed)
+			return;
+
+		isClosed = true;
+		if (nativeMemory != null)
+			nativeMemory.close();
+
+		opcodeChunks = new ByteBuffer[0];
+		childChunks = new ByteBuffer[0];
+		literalChunks = new ByteBuffer[0];
+		nrOfNodes = 0;
+		nrOfLiterals = 0;
+	}
+
+	/**
+	 * Evaluates the subexpression of a root straight from the native memory of this OffHeapArena, in a single pass over
+	 * its nodes. When an error is raised, the subexpression is evaluated again in the order of the binary tree
+	 * representation, so the reported error is always the one the binary tree representation reports.
+	 * 
+	 * @param  root                    the index of the root node of the subexpression
+	 * @param  variables               the values of the variables used in the subexpression, indexed by slot
+	 * 
+	 * @return                         the value resulted from the evaluation
+	 * @throws  RuntimeException       when an error occurs during the evaluation process
+	 * @throws  IllegalStateException  when the arena was closed
+	 */
+	@Override
+	public double evaluate(int root, double[] variables) {
+		checkOpen();
+		try {
+			return evaluateInPostfixOrder(root, variables);
+		}
+		catch (RuntimeException e) {
+			return TreeOrder.evaluate(this, root, variables);
+		}
+	}
+
+	/**
+	 * Evaluates the subexpression of a root in a single pass over its nodes, in the order they are stored.
+	 * 
+	 * @param  root               the index of the root node of the subexpression
+	 * @param  variables          the values of the variables used in the subexpression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	private double evaluateInPostfixOrder(int root, double[] variables) {
+		ByteBuffer[] opcodeChunks = this.opcodeChunks, childChunks = this.childChunks;
+		double[] stack = new double[INITIAL_STACK_CAPACITY];
+		int top = -1;
+
+		for (int node = start(root); node <= root; node++) {
+			int chunk = node >>> chunkShift, entry = node & chunkMask;
+			byte opcode = opcodeChunks[chunk].get(entry);
+
+			if (opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE) {
+				if (++top == stack.length)
+					stack = Arrays.copyOf(stack, 2 * top);
+
+				int child = childChunks[chunk].getInt(4 * entry);
+				if (opcode == Opcodes.PUSH_CONSTANT)
+					stack[top] = getLiteral(child);
+				else
+					stack[top] = variables[child];
+			}
+			else if (Opcodes.isBinaryOperator(opcode)) {
+				top--;
+				stack[top] = Operations.apply(opcode, stack[top], stack[top + 1]);
+			}
+			else
+				stack[top] = Operations.apply(opcode, stack[top]);
+		}
+
+		return stack[0];
+	}
+
+}
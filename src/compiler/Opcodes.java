@@ -0,0 +1,149 @@
+package compiler;
+
+/**
+ * Class that defines the instruction set of a compiled mathematical expression.
+ * Every instruction of a postfix program consists of one of the opcodes defined here.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class Opcodes {
+
+	/**
+	 * Opcode that pushes the next value of the constant pool on the stack.
+	 */
+	public static final byte PUSH_CONSTANT = 0;
+
+	/**
+	 * Opcode for the addition of the two values found on top of the stack.
+	 */
+	public static final byte PLUS = 1;
+
+	/**
+	 * Opcode for the subtraction of the two values found on top of the stack.
+	 */
+	public static final byte MINUS = 2;
+
+	/**
+	 * Opcode for the multiplication of the two values found on top of the stack.
+	 */
+	public static final byte MULTIPLY = 3;
+
+	/**
+	 * Opcode for the division of the two values found on top of the stack.
+	 */
+	public static final byte DIVIDE = 4;
+
+	/**
+	 * Opcode for the modulo of the two values found on top of the stack.
+	 */
+	public static final byte MODULO = 5;
+
+	/**
+	 * Opcode for the exponentiation of the two values found on top of the stack.
+	 */
+	public static final byte POWER = 6;
+
+	/**
+	 * Opcode for the absolute value of the value found on top of the stack.
+	 */
+	public static final byte ABSOLUTE_VALUE = 7;
+
+	/**
+	 * Opcode for the arccosine of the value found on top of the stack.
+	 */
+	public static final byte ARCCOSINE = 8;
+
+	/**
+	 * Opcode for the arcsine of the value found on top of the stack.
+	 */
+	public static final byte ARCSINE = 9;
+
+	/**
+	 * Opcode for the arctangent of the value found on top of the stack.
+	 */
+	public static final byte ARCTANGENT = 10;
+
+	/**
+	 * Opcode for the ceiling of the value found on top of the stack.
+	 */
+	public static final byte CEILING = 11;
+
+	/**
+	 * Opcode for the cosine of the value found on top of the stack.
+	 */
+	public static final byte COSINE = 12;
+
+	/**
+	 * Opcode for the floor of the value found on top of the stack.
+	 */
+	public static final byte FLOOR = 13;
+
+	/**
+	 * Opcode for the natural logarithm of the value found on top of the stack.
+	 */
+	public static final byte LOGARITHM = 14;
+
+	/**
+	 * Opcode for the base 10 logarithm of the value found on top of the stack.
+	 */
+	public static final byte LOGARITHM_BASE_TEN = 15;
+
+	/**
+	 * Opcode for the base 2 logarithm of the value found on top of the stack.
+	 */
+	public static final byte LOGARITHM_BASE_TWO = 16;
+
+	/**
+	 * Opcode for the rounding of the value found on top of the stack.
+	 */
+	public static final byte ROUND = 17;
+
+	/**
+	 * Opcode for the sine of the value found on top of the stack.
+	 */
+	public static final byte SINE = 18;
+
+	/**
+	 * Opcode for the square root of the value found on top of the stack.
+	 */
+	public static final byte SQUARE_ROOT = 19;
+
+	/**
+	 * Opcode for the tangent of the value found on top of the stack.
+	 */
+	public static final byte TANGENT = 20;
+
+	/**
+	 * Opcode that pushes on the stack the value of the variable whose slot is next in the slot pool.
+	 */
+	public static final byte LOAD_VARIABLE = 21;
+
+	/**
+	 * Private constructor, this class only holds constants.
+	 */
+	private Opcodes() {
+	}
+
+	/**
+	 * Returns whether or not the opcode is a binary operator that replaces the two values on top of the stack with one value.
+	 * 
+	 * @param  opcode  the opcode to check
+	 * 
+	 * @return         true if opcode is a binary operator, false otherwise
+	 */
+	public static boolean isBinaryOperator(byte opcode) {
+		return opcode >= PLUS && opcode <= POWER;
+	}
+
+	/**
+	 * Returns whether or not the opcode is a mathematical function that replaces the value on top of the stack.
+	 * 
+	 * @param  opcode  the opcode to check
+	 * 
+	 * @return         true if opcode is a mathematical function, false otherwise
+	 */
+	public static boolean isMathematicalFunction(byte opcode) {
+		return opcode >= ABSOLUTE_VALUE && opcode <= TANGENT;
+	}
+
+}
@@ -0,0 +1,260 @@
+package compiler;
+
+import exceptions.EvaluationException;
+
+/**
+ * Class that implements the mathematical operations of a compiled mathematical expression on primitive double values.
+ * The operations follow the same rules as the EvaluatorVisitor, including the errors raised for invalid operands.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class Operations {
+
+	/**
+	 * Natural logarithm of 10, used as divisor when computing the base 10 logarithm.
+	 */
+	private static final double LOG_10 = Math.log(10);
+
+	/**
+	 * Natural logarithm of 2, used as divisor when computing the base 2 logarithm.
+	 */
+	private static final double LOG_2 = Math.log(2);
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private Operations() {
+	}
+
+	/**
+	 * Checks if the value is zero in the same way Double.equals(0.0) does, so negative zero is not considered zero.
+	 * 
+	 * @param  value  the value to check
+	 * 
+	 * @return        true if value is positive zero, false otherwise
+	 */
+	public static boolean isZero(double value) {
+		return Double.doubleToRawLongBits(value) == 0L;
+	}
+
+	/**
+	 * Reads the value bound to a variable, checking that a value was bound to its slot so that an array too short for
+	 * the variables of a mathematical expression is told apart from any other indexing error.
+	 * 
+	 * @param  variables          the values of the variables, indexed by slot
+	 * @param  slot               the slot of the variable
+	 * 
+	 * @return                    the value of the variable
+	 * @throws  RuntimeException  when no value is bound to the slot
+	 */
+	public static double variable(double[] variables, int slot) {
+		if (slot >= variables.length)
+			throw new RuntimeException(EvaluationException.UNBOUND_VARIABLE_MESSAGE);
+
+		return variables[slot];
+	}
+
+	/**
+	 * Applies a binary operator on the given operands.
+	 * 
+	 * @param  opcode  the opcode of the binary operator
+	 * @param  left    the left operand
+	 * @param  right   the right operand
+	 * 
+	 * @return         the result of the operation
+	 */
+	public static double apply(byte opcode, double left, double right) {
+		switch (opcode) {
+			case Opcodes.PLUS:
+				return left + right;
+
+			case Opcodes.MINUS:
+				return left - right;
+
+			case Opcodes.MULTIPLY:
+				return left * right;
+
+			case Opcodes.DIVIDE:
+				return divide(left, right);
+
+			case Opcodes.MODULO:
+				return modulo(left, right);
+
+			case Opcodes.POWER:
+				return power(left, right);
+
+			default:
+				throw new IllegalArgumentException("unknown binary operator opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Applies a mathematical function on the given operand.
+	 * 
+	 * @param  opcode   the opcode of the mathematical function
+	 * @param  operand  the operand
+	 * 
+	 * @return          the result of the mathematical function
+	 */
+	public static double apply(byte opcode, double operand) {
+		switch (opcode) {
+			case Opcodes.ABSOLUTE_VALUE:
+				return Math.abs(operand);
+
+			case Opcodes.ARCCOSINE:
+				return Math.acos(operand);
+
+			case Opcodes.ARCSINE:
+				return Math.asin(operand);
+
+			case Opcodes.ARCTANGENT:
+				return Math.atan(operand);
+
+			case Opcodes.CEILING:
+				return Math.ceil(operand);
+
+			case Opcodes.COSINE:
+				return Math.cos(operand);
+
+			case Opcodes.FLOOR:
+				return Math.floor(operand);
+
+			case Opcodes.LOGARITHM:
+				return logarithm(operand);
+
+			case Opcodes.LOGARITHM_BASE_TEN:
+				return logarithmBaseTen(operand);
+
+			case Opcodes.LOGARITHM_BASE_TWO:
+				return logarithmBaseTwo(operand);
+
+			case Opcodes.ROUND:
+				return round(operand);
+
+			case Opcodes.SINE:
+				return Math.sin(operand);
+
+			case Opcodes.SQUARE_ROOT:
+				return squareRoot(operand);
+
+			case Opcodes.TANGENT:
+				return Math.tan(operand);
+
+			default:
+				throw new IllegalArgumentException("unknown mathematical function opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Divides the left operand by the right operand.
+	 * 
+	 * @param  left   the dividend
+	 * @param  right  the divisor
+	 * 
+	 * @return        the result of the division
+	 */
+	public static double divide(double left, double right) {
+		if (isZero(right))
+			throw new RuntimeException(EvaluationException.ZERO_DIV_MESSAGE);
+
+		return left / right;
+	}
+
+	/**
+	 * Computes the remainder of the division of the left operand by the right operand.
+	 * 
+	 * @param  left   the dividend
+	 * @param  right  the divisor
+	 * 
+	 * @return        the remainder of the division
+	 */
+	public static double modulo(double left, double right) {
+		if (isZero(right))
+			throw new RuntimeException(EvaluationException.ZERO_MOD_MESSAGE);
+
+		return left % right;
+	}
+
+	/**
+	 * Raises the left operand to the power of the right operand.
+	 * 
+	 * @param  left   the base
+	 * @param  right  the exponent
+	 * 
+	 * @return        the result of the exponentiation
+	 */
+	public static double power(double left, double right) {
+		if (isZero(left) && right < 0.0)
+			throw new RuntimeException(EvaluationException.ZERO_TO_NEGATIVE_POW_MESSAGE);
+
+		return Math.pow(left, right);
+	}
+
+	/**
+	 * Computes the natural logarithm of the operand.
+	 * 
+	 * @param  operand  the operand
+	 * 
+	 * @return          the natural logarithm of the operand
+	 */
+	public static double logarithm(double operand) {
+		if (isZero(operand) || operand < 0.0)
+			throw new RuntimeException(EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE);
+
+		return Math.log(operand);
+	}
+
+	/**
+	 * Computes the base 10 logarithm of the operand.
+	 * 
+	 * @param  operand  the operand
+	 * 
+	 * @return          the base 10 logarithm of the operand
+	 */
+	public static double logarithmBaseTen(double operand) {
+		if (isZero(operand) || operand < 0.0)
+			throw new RuntimeException(EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE);
+
+		return Math.log(operand) / LOG_10;
+	}
+
+	/**
+	 * Computes the base 2 logarithm of the operand.
+	 * 
+	 * @param  operand  the operand
+	 * 
+	 * @return          the base 2 logarithm of the operand
+	 */
+	public static double logarithmBaseTwo(double operand) {
+		if (isZero(operand) || operand < 0.0)
+			throw new RuntimeException(EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE);
+
+		return Math.log(operand) / LOG_2;
+	}
+
+	/**
+	 * Rounds the operand to the closest integer value.
+	 * 
+	 * @param  operand  the operand
+	 * 
+	 * @return          the rounded value
+	 */
+	public static double round(double operand) {
+		return (double) Math.round(operand);
+	}
+
+	/**
+	 * Computes the square root of the operand.
+	 * 
+	 * @param  operand  the operand
+	 * 
+	 * @return          the square root of the operand
+	 */
+	public static double squareRoot(double operand) {
+		if (operand < 0.0)
+			throw new RuntimeException(EvaluationException.NEGATIVE_SQRT_MESSAGE);
+
+		return Math.sqrt(operand);
+	}
+
+}
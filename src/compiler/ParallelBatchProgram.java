@@ -0,0 +1,133 @@
+package compiler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that evaluates a BatchProgram over many rows of variable values on all the workers of a ForkJoinPool.
+ * The rows are split into tasks of a few thousand rows, small enough for the part of every column read by a task to
+ * stay in the processor cache and numerous enough for the workers to balance their load by stealing tasks. Every
+ * worker evaluates its tasks on its own scratch columns, which it reuses across tasks and evaluations, and writes the
+ * values straight into its own range of the output array, so no locking takes place. A ParallelBatchProgram can be
+ * shared between threads.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class ParallelBatchProgram {
+
+	/**
+	 * Default number of rows evaluated by a task, a multiple of the number of rows evaluated together by every
+	 * instruction of a BatchProgram.
+	 */
+	public static final int DEFAULT_TASK_SIZE = 16 * BatchProgram.CHUNK_SIZE;
+
+	/**
+	 * The program evaluated by the tasks.
+	 */
+	private final BatchProgram program;
+
+	/**
+	 * The pool whose workers evaluate the tasks.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The number of rows evaluated by a task.
+	 */
+	private final int taskSize;
+
+	/**
+	 * The scratch columns of every thread that evaluated a task.
+	 */
+	private final ThreadLocal<double[][]> scratches;
+
+	/**
+	 * Constructor for a ParallelBatchProgram that runs on the common pool with the default task size.
+	 * 
+	 * @param  program  the program that has to be evaluated over many rows
+	 */
+	public ParallelBatchProgram(BatchProgram program) {
+		this(program, ForkJoinPool.commonPool(), DEFAULT_TASK_SIZE);
+	}
+
+	/**
+	 * Constructor for a ParallelBatchProgram.
+	 * 
+	 * @param  program   the program that has to be evaluated over many rows
+	 * @param  pool      the pool whose workers evaluate the tasks
+	 * @param  taskSize  the number of rows evaluated by a task
+	 * 
+	 * @throws  IllegalArgumentException  when the task size is not positive
+	 */
+	public ParallelBatchProgram(BatchProgram program, ForkJoinPool pool, int taskSize) {
+		if (taskSize <= 0)
+			throw new IllegalArgumentException("task size must be positive");
+
+		this.program = program;
+		this.pool = pool;
+		this.taskSize = taskSize;
+		this.scratches = ThreadLocal.withInitial(program::newScratch);
+	}
+
+	/**
+	 * Evaluates the program for every row of the given columns and waits for all the tasks to finish.
+	 * 
+	 * @param  columns            the values of the variables, one column per slot with at least output.length rows
+	 * @param  output             the array in which the value of every row is written
+	 * 
+	 * @throws  RuntimeException  when an error occurs during the evaluation of any row
+	 */
+	public void evaluate(double[][] columns, double[] output) {
+		try {
+			pool.invoke(new EvaluationTask(columns, output, 0, output.length));
+		}
+		catch (RuntimeException e) {
+			throw ParallelProgram.originalError(e);
+		}
+	}
+
+	/**
+	 * Task that evaluates a range of rows, splitting it in two halves evaluated in parallel while it is larger than the
+	 * task size.
+	 */
+	private final class EvaluationTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] columns;
+		private final double[] output;
+		private final int from, to;
+
+		/**
+		 * Constructor for an EvaluationTask.
+		 * 
+		 * @param  columns  the values of the variables, one column per slot
+		 * @param  output   the array in which the value of every row is written
+		 * @param  from     the first row that has to be evaluated
+		 * @param  to       the row after the last one that has to be evaluated
+		 */
+		EvaluationTask(double[][] columns, double[] output, int from, int to) {
+			this.columns = columns;
+			this.output = output;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= taskSize) {
+				program.evaluate(columns, output, from, to, scratches.get());
+				return;
+			}
+
+			// split on a chunk boundary, so no task evaluates a partial chunk except the last one
+			int middle = from + ((to - from) / 2 / BatchProgram.CHUNK_SIZE) * BatchProgram.CHUNK_SIZE;
+			if (middle == from)
+				middle = from + (to - from) / 2;
+
+			invokeAll(new EvaluationTask(columns, output, from, middle), new EvaluationTask(columns, output, middle, to));
+		}
+
+	}
+
+}
@@ -0,0 +1,299 @@
+package compiler;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class used for compiling a PostfixProgram into a ParallelProgram.
+ * The cost of every subexpression is estimated from the cost of its instructions. Subexpressions whose cost does not
+ * exceed the threshold become sequential PostfixPrograms, while the costlier ones are split along the left-leaning
+ * chains of binary operators produced by the parser for sums and products of many terms, whose operands can be
+ * evaluated independently.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class ParallelCompiler {
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private ParallelCompiler() {
+	}
+
+	/**
+	 * Estimates the cost of an instruction, in units of roughly the time of an addition.
+	 * 
+	 * @param  opcode  the opcode of the instruction
+	 * 
+	 * @return         the estimated cost of the instruction
+	 */
+	static int instructionCost(byte opcode) {
+		switch (opcode) {
+			case Opcodes.PUSH_CONSTANT:
+			case Opcodes.LOAD_VARIABLE:
+			case Opcodes.PLUS:
+			case Opcodes.MINUS:
+			case Opcodes.MULTIPLY:
+			case Opcodes.ABSOLUTE_VALUE:
+			case Opcodes.CEILING:
+			case Opcodes.FLOOR:
+				return 1;
+
+			case Opcodes.DIVIDE:
+			case Opcodes.MODULO:
+			case Opcodes.ROUND:
+			case Opcodes.SQUARE_ROOT:
+				return 4;
+
+			default:
+				return 20;
+		}
+	}
+
+	/**
+	 * Compiles the given PostfixProgram into a ParallelProgram that runs on the common pool with the default threshold.
+	 * 
+	 * @param  program  the program that has to be compiled
+	 * 
+	 * @return          the compiled program
+	 */
+	public static ParallelProgram compile(PostfixProgram program) {
+		return compile(program, ForkJoinPool.commonPool(), ParallelProgram.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Compiles the given PostfixProgram into a ParallelProgram.
+	 * 
+	 * @param  program    the program that has to be compiled
+	 * @param  pool       the pool whose workers evaluate the parallel tasks
+	 * @param  threshold  the estimated cost above which the operands of a subexpression are evaluated in parallel
+	 * 
+	 * @return            the compiled program
+	 */
+	public static ParallelProgram compile(PostfixProgram program, ForkJoinPool pool, long threshold) {
+		return new ParallelProgram(new Builder(program, threshold).build(program.opcodes.length - 1), pool, program);
+	}
+
+	/**
+	 * Class that builds the nodes of a ParallelProgram from the instructions of a PostfixProgram.
+	 * Every subexpression is identified by the index of its last instruction, its root.
+	 */
+	private static final class Builder {
+
+		/**
+		 * The maximum number of nested parallel nodes. Deeper subexpressions are evaluated sequentially, since splitting
+		 * them further brings no more parallelism and the nested nodes are evaluated recursively.
+		 */
+		private static final int MAX_NESTING_DEPTH = 64;
+
+		/**
+		 * The program that has to be compiled.
+		 */
+		private final PostfixProgram program;
+
+		/**
+		 * The estimated cost above which the operands of a subexpression are evaluated in parallel.
+		 */
+		private final long threshold;
+
+		/**
+		 * The index of the first instruction of the subexpression of every root.
+		 */
+		private final int[] starts;
+
+		/**
+		 * The estimated cost of the instructions before every instruction.
+		 */
+		private final long[] costsBefore;
+
+		/**
+		 * The number of constants loaded by the instructions before every instruction.
+		 */
+		private final int[] constantsBefore;
+
+		/**
+		 * The number of variables loaded by the instructions before every instruction.
+		 */
+		private final int[] slotsBefore;
+
+		/**
+		 * Constructor for a Builder.
+		 * 
+		 * @param  program    the program that has to be compiled
+		 * @param  threshold  the estimated cost above which the operands of a subexpression are evaluated in parallel
+		 */
+		Builder(PostfixProgram program, long threshold) {
+			int length = program.opcodes.length;
+			this.program = program;
+			this.threshold = threshold;
+			this.starts = new int[length];
+			this.costsBefore = new long[length + 1];
+			this.constantsBefore = new int[length + 1];
+			this.slotsBefore = new int[length + 1];
+
+			for (int i = 0; i < length; i++) {
+				byte opcode = program.opcodes[i];
+
+				if (opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE)
+					starts[i] = i;
+				else if (Opcodes.isBinaryOperator(opcode))
+					starts[i] = starts[starts[i - 1] - 1];
+				else
+					starts[i] = starts[i - 1];
+
+				costsBefore[i + 1] = costsBefore[i] + instructionCost(opcode);
+				constantsBefore[i + 1] = constantsBefore[i] + (opcode == Opcodes.PUSH_CONSTANT ? 1 : 0);
+				slotsBefore[i + 1] = slotsBefore[i] + (opcode == Opcodes.LOAD_VARIABLE ? 1 : 0);
+			}
+		}
+
+		/**
+		 * Gets the estimated cost of the subexpression of a root.
+		 * 
+		 * @param  root  the index of the last instruction of the subexpression
+		 * 
+		 * @return       the estimated cost of the subexpression
+		 */
+		private long cost(int root) {
+			return costsBefore[root + 1] - costsBefore[starts[root]];
+		}
+
+		/**
+		 * Checks if the subexpression of a root has to be evaluated sequentially.
+		 * 
+		 * @param  root   the index of the last instruction of the subexpression
+		 * @param  depth  the number of parallel nodes the subexpression is nested in
+		 * 
+		 * @return        true if the subexpression is too cheap, too deeply nested or a single operand, false otherwise
+		 */
+		private boolean isSequential(int root, int depth) {
+			byte opcode = program.opcodes[root];
+			return cost(root) <= threshold || depth >= MAX_NESTING_DEPTH ||
+				   opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE;
+		}
+
+		/**
+		 * Gets the operands of the chain of binary operators of a root, by walking down the left operands for as long as
+		 * they are costly binary operations. The binary operator applied on every operand but the first one is the
+		 * instruction right after the operand.
+		 * 
+		 * @param  root  the index of the last instruction of the chain, a binary operator
+		 * 
+		 * @return       the roots of the operands, in evaluation order
+		 */
+		private int[] chainOperandRoots(int root) {
+			int nrOfOperands = 1, chainRoot = root;
+			while (Opcodes.isBinaryOperator(program.opcodes[chainRoot]) && cost(chainRoot) > threshold) {
+				nrOfOperands++;
+				chainRoot = starts[chainRoot - 1] - 1;
+			}
+
+			int[] operandRoots = new int[nrOfOperands];
+			chainRoot = root;
+			for (int i = nrOfOperands - 1; i > 0; i--) {
+				operandRoots[i] = chainRoot - 1;
+				chainRoot = starts[chainRoot - 1] - 1;
+			}
+
+			operandRoots[0] = chainRoot;
+			return operandRoots;
+		}
+
+		/**
+		 * Builds the node of the subexpression of a root. The subexpressions are walked with explicit stacks, every node
+		 * being built after the nodes of its operands, so mathematical expressions of any nesting depth can be compiled.
+		 * A mathematical function is only evaluated as a parallel node when its operand has parallel parts.
+		 * 
+		 * @param  root  the index of the last instruction of the subexpression
+		 * 
+		 * @return       the node of the subexpression
+		 */
+		ParallelProgram.Node build(int root) {
+			ParallelProgram.Node[] nodes = new ParallelProgram.Node[program.opcodes.length];
+			int[] rootStack = new int[MAX_NESTING_DEPTH], depthStack = new int[MAX_NESTING_DEPTH];
+			int top = 0;
+			rootStack[0] = root;
+
+			// a root is pushed again as its complement once its operands are pushed, to be built after them
+			while (top >= 0) {
+				int entry = rootStack[top], depth = depthStack[top];
+
+				if (entry < 0) {
+					int operationRoot = ~entry;
+					byte opcode = program.opcodes[operationRoot];
+					long cost = cost(operationRoot);
+					top--;
+
+					if (!Opcodes.isBinaryOperator(opcode)) {
+						ParallelProgram.Node operand = nodes[operationRoot - 1];
+						if (operand instanceof ParallelProgram.SequentialNode)
+							nodes[operationRoot] = sequential(operationRoot);
+						else
+							nodes[operationRoot] = new ParallelProgram.FunctionNode(opcode, operand, cost);
+
+						continue;
+					}
+
+					int[] operandRoots = chainOperandRoots(operationRoot);
+					ParallelProgram.Node[] operands = new ParallelProgram.Node[operandRoots.length];
+					byte[] chainOpcodes = new byte[operandRoots.length - 1];
+
+					for (int i = 0; i < operands.length; i++)
+						operands[i] = nodes[operandRoots[i]];
+					for (int i = 0; i < chainOpcodes.length; i++)
+						chainOpcodes[i] = program.opcodes[operandRoots[i + 1] + 1];
+
+					nodes[operationRoot] = new ParallelProgram.ChainNode(operands, chainOpcodes, cost, threshold);
+					continue;
+				}
+
+				if (isSequential(entry, depth)) {
+					nodes[entry] = sequential(entry);
+					top--;
+					continue;
+				}
+
+				rootStack[top] = ~entry;
+				int[] operandRoots = { entry - 1 };
+				if (Opcodes.isBinaryOperator(program.opcodes[entry]))
+					operandRoots = chainOperandRoots(entry);
+
+				if (top + operandRoots.length >= rootStack.length) {
+					rootStack = Arrays.copyOf(rootStack, 2 * (top + operandRoots.length));
+					depthStack = Arrays.copyOf(depthStack, rootStack.length);
+				}
+
+				for (int operandRoot : operandRoots) {
+					rootStack[++top] = operandRoot;
+					depthStack[top] = depth + 1;
+				}
+			}
+
+			return nodes[root];
+		}
+
+		/**
+		 * Builds the node of a subexpression evaluated sequentially, which runs its range of instructions of the program.
+		 * 
+		 * @param  root  the index of the last instruction of the subexpression
+		 * 
+		 * @return       the node of the subexpression
+		 */
+		private ParallelProgram.Node sequential(int root) {
+			int start = starts[root], depth = 0, maxDepth = 0;
+
+			for (int i = start; i <= root; i++) {
+				byte opcode = program.opcodes[i];
+
+				if (opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE)
+					maxDepth = Math.max(maxDepth, ++depth);
+				else if (Opcodes.isBinaryOperator(opcode))
+					depth--;
+			}
+
+			return new ParallelProgram.SequentialNode(program, start, root + 1, constantsBefore[start], slotsBefore[start], maxDepth, cost(root));
+		}
+
+	}
+
+}
@@ -0,0 +1,379 @@
+package compiler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class that holds a mathematical expression compiled for evaluating its large independent subexpressions in parallel.
+ * The subexpressions whose estimated cost is below a threshold are compiled into PostfixPrograms and evaluated
+ * sequentially. Above the threshold, the operands of every chain of binary operators, such as the terms of a long sum,
+ * are evaluated in parallel as tasks of a ForkJoinPool and then combined in their original order, so the result is
+ * exactly the one of the sequential evaluation. The errors are also the same, as the error of the first operand or
+ * operation in evaluation order is reported. A ParallelProgram is immutable and can be shared between threads.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class ParallelProgram implements CompiledFunction {
+
+	/**
+	 * Default estimated cost above which the operands of a subexpression are evaluated in parallel. The cost unit is
+	 * roughly the time of an addition, so forking a task costs about as much as a few hundred cost units.
+	 */
+	public static final long DEFAULT_THRESHOLD = 10000;
+
+	/**
+	 * The node of the whole mathematical expression.
+	 */
+	private final Node root;
+
+	/**
+	 * The pool whose workers evaluate the parallel tasks.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The program the ParallelProgram was compiled from, which is evaluated again when an error is raised.
+	 */
+	private final PostfixProgram program;
+
+	/**
+	 * Constructor for a ParallelProgram.
+	 * 
+	 * @param  root     the node of the whole mathematical expression
+	 * @param  pool     the pool whose workers evaluate the parallel tasks
+	 * @param  program  the program the ParallelProgram was compiled from
+	 */
+	ParallelProgram(Node root, ForkJoinPool pool, PostfixProgram program) {
+		this.root = root;
+		this.pool = pool;
+		this.program = program;
+	}
+
+	/**
+	 * Gets the estimated cost of a sequential evaluation of the mathematical expression.
+	 * 
+	 * @return  the estimated cost
+	 */
+	public long getCost() {
+		return root.cost;
+	}
+
+	/**
+	 * Checks if any part of the mathematical expression is evaluated in parallel.
+	 * 
+	 * @return  true if the mathematical expression is costly enough to be evaluated in parallel, false otherwise
+	 */
+	public boolean isParallel() {
+		return !(root instanceof SequentialNode);
+	}
+
+	/**
+	 * Evaluates this ParallelProgram, on the workers of its pool when any part of it is evaluated in parallel.
+	 * When an error is raised, the program it was compiled from is evaluated again in the order of the binary tree
+	 * representation, so the reported error is always the one the binary tree representation reports.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	@Override
+	public double evaluate(double[] variables) {
+		try {
+			if (!isParallel())
+				return root.evaluate(variables, root.newStack());
+
+			return pool.invoke(new RootTask(variables));
+		}
+		catch (RuntimeException e) {
+			return program.evaluateInTreeOrder(variables);
+		}
+	}
+
+	/**
+	 * Gets the error thrown by a task, which the pool wraps once for every task it passes through.
+	 * 
+	 * @param  error  the error caught from the pool
+	 * 
+	 * @return        the error originally thrown by the task
+	 */
+	static RuntimeException originalError(RuntimeException error) {
+		while (error.getCause() instanceof RuntimeException)
+			error = (RuntimeException) error.getCause();
+
+		return error;
+	}
+
+	/**
+	 * Task that evaluates the whole mathematical expression on a worker of the pool.
+	 */
+	private final class RootTask extends RecursiveTask<Double> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] variables;
+
+		/**
+		 * Constructor for a RootTask.
+		 * 
+		 * @param  variables  the values of the variables used in the mathematical expression, indexed by slot
+		 */
+		RootTask(double[] variables) {
+			this.variables = variables;
+		}
+
+		@Override
+		protected Double compute() {
+			return root.evaluate(variables, null);
+		}
+
+	}
+
+	/**
+	 * Abstract class for a node of a ParallelProgram, which evaluates a subexpression.
+	 */
+	abstract static class Node {
+
+		/**
+		 * The estimated cost of a sequential evaluation of the subexpression.
+		 */
+		final long cost;
+
+		/**
+		 * Constructor for a Node.
+		 * 
+		 * @param  cost  the estimated cost of a sequential evaluation of the subexpression
+		 */
+		Node(long cost) {
+			this.cost = cost;
+		}
+
+		/**
+		 * Allocates a stack large enough to evaluate the subexpression, if it is evaluated sequentially.
+		 * 
+		 * @return  a new stack or null if the subexpression does not need one
+		 */
+		double[] newStack() {
+			return null;
+		}
+
+		/**
+		 * Evaluates the subexpression.
+		 * 
+		 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+		 * @param  stack              a stack allocated by newStack() or a larger one, owned by the calling thread
+		 * 
+		 * @return                    the value resulted from the evaluation
+		 * @throws  RuntimeException  when an error occurs during the evaluation process
+		 */
+		abstract double evaluate(double[] variables, double[] stack);
+
+	}
+
+	/**
+	 * Node of a subexpression cheap enough to be evaluated sequentially, by running its range of instructions of the
+	 * compiled program.
+	 */
+	static final class SequentialNode extends Node {
+
+		private final PostfixProgram program;
+		private final int from, to, constant, slot, maxStackDepth;
+
+		/**
+		 * Constructor for a SequentialNode.
+		 * 
+		 * @param  program        the program of the whole mathematical expression
+		 * @param  from           the index of the first instruction of the subexpression
+		 * @param  to             the index after the last instruction of the subexpression
+		 * @param  constant       the index in the constant pool of the first constant of the subexpression
+		 * @param  slot           the index in the slot pool of the first variable of the subexpression
+		 * @param  maxStackDepth  the stack depth needed to evaluate the subexpression
+		 * @param  cost           the estimated cost of the subexpression
+		 */
+		SequentialNode(PostfixProgram program, int from, int to, int constant, int slot, int maxStackDepth, long cost) {
+			super(cost);
+			this.program = program;
+			this.from = from;
+			this.to = to;
+			this.constant = constant;
+			this.slot = slot;
+			this.maxStackDepth = maxStackDepth;
+		}
+
+		@Override
+		double[] newStack() {
+			return new double[maxStackDepth];
+		}
+
+		@Override
+		double evaluate(double[] variables, double[] stack) {
+			return program.evaluate(variables, stack, from, to, constant, slot);
+		}
+
+	}
+
+	/**
+	 * Node of a mathematical function applied on a subexpression that contains parallel parts.
+	 */
+	static final class FunctionNode extends Node {
+
+		private final byte opcode;
+		private final Node operand;
+
+		/**
+		 * Constructor for a FunctionNode.
+		 * 
+		 * @param  opcode   the opcode of the mathematical function
+		 * @param  operand  the node of the operand
+		 * @param  cost     the estimated cost of the subexpression
+		 */
+		FunctionNode(byte opcode, Node operand, long cost) {
+			super(cost);
+			this.opcode = opcode;
+			this.operand = operand;
+		}
+
+		@Override
+		double evaluate(double[] variables, double[] stack) {
+			return Operations.apply(opcode, operand.evaluate(variables, operand.newStack()));
+		}
+
+	}
+
+	/**
+	 * Node of a chain of binary operators applied from left to right, like t0 + t1 - t2 * t3 parsed as
+	 * ((t0 + t1) - t2) * t3. The operands are evaluated in parallel and then combined in their original order.
+	 */
+	static final class ChainNode extends Node {
+
+		private final Node[] operands;
+		private final byte[] opcodes;
+
+		/**
+		 * The cost of the operands before every operand, used for splitting the operands into tasks of equal cost.
+		 */
+		private final long[] costsBefore;
+
+		/**
+		 * The largest stack needed by a sequential operand.
+		 */
+		private final int maxStackDepth;
+
+		private final long threshold;
+
+		/**
+		 * Constructor for a ChainNode.
+		 * 
+		 * @param  operands   the nodes of the operands, in evaluation order
+		 * @param  opcodes    the opcodes of the binary operators, the operator at index i being applied on the
+		 *                    operand at index i + 1
+		 * @param  cost       the estimated cost of the subexpression
+		 * @param  threshold  the estimated cost above which the operands are split into parallel tasks
+		 */
+		ChainNode(Node[] operands, byte[] opcodes, long cost, long threshold) {
+			super(cost);
+			this.operands = operands;
+			this.opcodes = opcodes;
+			this.threshold = threshold;
+			this.costsBefore = new long[operands.length + 1];
+
+			int maxStackDepth = 0;
+			for (int i = 0; i < operands.length; i++) {
+				costsBefore[i + 1] = costsBefore[i] + operands[i].cost;
+
+				double[] stack = operands[i].newStack();
+				if (stack != null)
+					maxStackDepth = Math.max(maxStackDepth, stack.length);
+			}
+
+			this.maxStackDepth = maxStackDepth;
+		}
+
+		@Override
+		double evaluate(double[] variables, double[] stack) {
+			double[] values = new double[operands.length];
+			RuntimeException[] errors = new RuntimeException[operands.length];
+			new OperandsTask(variables, values, errors, 0, operands.length).invoke();
+
+			if (errors[0] != null)
+				throw errors[0];
+
+			double value = values[0];
+			for (int i = 1; i < operands.length; i++) {
+				if (errors[i] != null)
+					throw errors[i];
+
+				value = Operations.apply(opcodes[i - 1], value, values[i]);
+			}
+
+			return value;
+		}
+
+		/**
+		 * Task that evaluates a range of operands of the chain, splitting it in two halves of equal cost evaluated in
+		 * parallel while its cost is above the threshold. The error of every operand is kept instead of being thrown,
+		 * so the chain can report the first one in evaluation order.
+		 */
+		private final class OperandsTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final double[] variables;
+			private final double[] values;
+			private final RuntimeException[] errors;
+			private final int from, to;
+
+			/**
+			 * Constructor for an OperandsTask.
+			 * 
+			 * @param  variables  the values of the variables used in the mathematical expression, indexed by slot
+			 * @param  values     the array in which the value of every operand is written
+			 * @param  errors     the array in which the error of every operand is written
+			 * @param  from       the first operand that has to be evaluated
+			 * @param  to         the operand after the last one that has to be evaluated
+			 */
+			OperandsTask(double[] variables, double[] values, RuntimeException[] errors, int from, int to) {
+				this.variables = variables;
+				this.values = values;
+				this.errors = errors;
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			protected void compute() {
+				if (to - from == 1 || costsBefore[to] - costsBefore[from] <= threshold) {
+					double[] stack = new double[maxStackDepth];
+					for (int i = from; i < to; i++) {
+						try {
+							values[i] = operands[i].evaluate(variables, stack);
+						}
+						catch (RuntimeException e) {
+							errors[i] = ParallelProgram.originalError(e);
+						}
+					}
+
+					return;
+				}
+
+				// split at the last operand that starts before half of the cost of the range
+				long half = costsBefore[from] + (costsBefore[to] - costsBefore[from]) / 2;
+				int middle = from + 1, last = to - 1;
+				while (middle < last) {
+					int candidate = (middle + last + 1) >>> 1;
+					if (costsBefore[candidate] <= half)
+						middle = candidate;
+					else
+						last = candidate - 1;
+				}
+
+				invokeAll(new OperandsTask(variables, values, errors, from, middle),
+						  new OperandsTask(variables, values, errors, middle, to));
+			}
+
+		}
+
+	}
+
+}
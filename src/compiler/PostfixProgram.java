@@ -0,0 +1,326 @@
+package compiler;
+
+import java.util.Arrays;
+
+/**
+ * Class that holds a mathematical expression compiled into a flat sequence of postfix instructions.
+ * The instructions are run by a small interpreter on a stack of primitive double values, so no boxing and no tree
+ * walking take place during the evaluation. A PostfixProgram is immutable and can be shared between threads, as long
+ * as every thread evaluates it on its own stack.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public final class PostfixProgram implements CompiledFunction {
+
+	/**
+	 * The opcodes of the instructions, in postfix order.
+	 */
+	final byte[] opcodes;
+
+	/**
+	 * The constant pool, holding the values pushed by the PUSH_CONSTANT instructions in the order of their appearance.
+	 */
+	final double[] constants;
+
+	/**
+	 * The slot pool, holding the variable slots read by the LOAD_VARIABLE instructions in the order of their appearance.
+	 */
+	final int[] slots;
+
+	/**
+	 * The maximum number of values found on the stack at the same time during the evaluation.
+	 */
+	final int maxStackDepth;
+
+	/**
+	 * Constructor for a PostfixProgram that uses no variables. The given arrays are copied, so they can be reused by
+	 * the caller.
+	 * 
+	 * @param  opcodes    the opcodes of the instructions, in postfix order
+	 * @param  constants  the constant pool used by the PUSH_CONSTANT instructions
+	 * 
+	 * @throws  IllegalArgumentException  when the instructions do not form a valid postfix program
+	 */
+	public PostfixProgram(byte[] opcodes, double[] constants) {
+		this(opcodes, constants, new int[0]);
+	}
+
+	/**
+	 * Constructor for a PostfixProgram. The given arrays are copied, so they can be reused by the caller.
+	 * 
+	 * @param  opcodes    the opcodes of the instructions, in postfix order
+	 * @param  constants  the constant pool used by the PUSH_CONSTANT instructions
+	 * @param  slots      the slot pool used by the LOAD_VARIABLE instructions
+	 * 
+	 * @throws  IllegalArgumentException  when the instructions do not form a valid postfix program
+	 */
+	public PostfixProgram(byte[] opcodes, double[] constants, int[] slots) {
+		this.opcodes = Arrays.copyOf(opcodes, opcodes.length);
+		this.constants = Arrays.copyOf(constants, constants.length);
+		this.slots = Arrays.copyOf(slots, slots.length);
+		this.maxStackDepth = computeMaxStackDepth(this.opcodes, this.constants.length, this.slots);
+	}
+
+	/**
+	 * Checks that the instructions form a valid postfix program and computes the stack depth needed to run them.
+	 * 
+	 * @param  opcodes          the opcodes of the instructions
+	 * @param  constantsLength  the number of values in the constant pool
+	 * @param  slots            the slot pool
+	 * 
+	 * @return                  the maximum number of values found on the stack at the same time
+	 * @throws  IllegalArgumentException  when the instructions do not form a valid postfix program
+	 */
+	private static int computeMaxStackDepth(byte[] opcodes, int constantsLength, int[] slots) {
+		int depth = 0, maxDepth = 0, nrOfConstants = 0, nrOfSlots = 0;
+
+		for (byte opcode : opcodes) {
+			if (opcode == Opcodes.PUSH_CONSTANT) {
+				depth++;
+				nrOfConstants++;
+			}
+			else if (opcode == Opcodes.LOAD_VARIABLE) {
+				depth++;
+				nrOfSlots++;
+			}
+			else if (Opcodes.isBinaryOperator(opcode))
+				depth--;
+			else if (!Opcodes.isMathematicalFunction(opcode))
+				throw new IllegalArgumentException("unknown opcode " + opcode);
+
+			if (depth < 1)
+				throw new IllegalArgumentException("stack underflow in postfix program");
+
+			maxDepth = Math.max(maxDepth, depth);
+		}
+
+		if (depth != 1 || nrOfConstants != constantsLength || nrOfSlots != slots.length)
+			throw new IllegalArgumentException("postfix program does not produce exactly one value");
+
+		for (int slot : slots) {
+			if (slot < 0)
+				throw new IllegalArgumentException("negative variable slot in postfix program");
+		}
+
+		return maxDepth;
+	}
+
+	/**
+	 * Gets the number of instructions in this PostfixProgram.
+	 * 
+	 * @return  the number of instructions
+	 */
+	public int size() {
+		return opcodes.length;
+	}
+
+	/**
+	 * Gets the maximum number of values found on the stack at the same time during the evaluation.
+	 * 
+	 * @return  the stack depth needed to evaluate this PostfixProgram
+	 */
+	public int getMaxStackDepth() {
+		return maxStackDepth;
+	}
+
+	/**
+	 * Allocates a stack large enough to evaluate this PostfixProgram.
+	 * 
+	 * @return  a new stack that can be reused for any number of evaluations
+	 */
+	public double[] newStack() {
+		return new double[maxStackDepth];
+	}
+
+	/**
+	 * Evaluates this PostfixProgram on a newly allocated stack.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	@Override
+	public double evaluate(double[] variables) {
+		return evaluate(variables, newStack());
+	}
+
+	/**
+	 * Evaluates this PostfixProgram on the given stack.
+	 * The instructions are run in postfix order, in which the dividend of a division or a modulo comes before its
+	 * divisor. When an error is raised, the program is evaluated again in the order of the binary tree representation,
+	 * so the reported error is always the one the binary tree representation reports.
+	 * 
+	 * @param  variables                  the values of the variables used in the mathematical expression, indexed by
+	 *                                    slot
+	 * @param  stack                      a stack of at least getMaxStackDepth() values, owned by the calling thread
+	 * 
+	 * @return                            the value resulted from the evaluation
+	 * @throws  IllegalArgumentException  when the stack is smaller than getMaxStackDepth()
+	 * @throws  RuntimeException          when an error occurs during the evaluation process
+	 */
+	public double evaluate(double[] variables, double[] stack) {
+		if (stack.length < maxStackDepth)
+			throw new IllegalArgumentException("stack smaller than the maximum stack depth");
+
+		try {
+			return evaluate(variables, stack, 0, opcodes.length, 0, 0);
+		}
+		catch (RuntimeException e) {
+			return evaluateInTreeOrder(variables);
+		}
+	}
+
+	/**
+	 * Evaluates this PostfixProgram in the order of the binary tree representation it was compiled from, in which the
+	 * divisor of a division or a modulo is evaluated before the dividend. It is much slower than a single pass over the
+	 * instructions, so the compiled forms of a mathematical expression only fall back to it when their evaluation
+	 * raises an error, to report the same first error as the binary tree representation.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	double evaluateInTreeOrder(double[] variables) {
+		ExpressionArena arena = new ExpressionArena(opcodes.length);
+		int[] roots = new int[maxStackDepth];
+		int top = -1, constant = 0, slot = 0;
+
+		for (byte opcode : opcodes) {
+			if (opcode == Opcodes.PUSH_CONSTANT)
+				roots[++top] = arena.addConstant(constants[constant++]);
+			else if (opcode == Opcodes.LOAD_VARIABLE)
+				roots[++top] = arena.addVariable(slots[slot++]);
+			else if (Opcodes.isBinaryOperator(opcode)) {
+				top--;
+				roots[top] = arena.addBinaryOperator(opcode, roots[top]);
+			}
+			else
+				roots[top] = arena.addFunction(opcode);
+		}
+
+		return TreeOrder.evaluate(arena, roots[0], variables);
+	}
+
+	/**
+	 * Evaluates a range of instructions of this PostfixProgram that forms a whole subexpression on the given stack.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * @param  stack              a stack large enough for the subexpression, owned by the calling thread
+	 * @param  from               the index of the first instruction of the subexpression
+	 * @param  to                 the index after the last instruction of the subexpression
+	 * @param  constant           the index in the constant pool of the first constant of the subexpression
+	 * @param  slot               the index in the slot pool of the first variable of the subexpression
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	double evaluate(double[] variables, double[] stack, int from, int to, int constant, int slot) {
+		byte[] opcodes = this.opcodes;
+		double[] constants = this.constants;
+		int[] slots = this.slots;
+		int top = -1;
+
+		for (int i = from; i < to; i++) {
+			switch (opcodes[i]) {
+				case Opcodes.PUSH_CONSTANT:
+					stack[++top] = constants[constant++];
+					break;
+
+				case Opcodes.LOAD_VARIABLE:
+					stack[++top] = variables[slots[slot++]];
+					break;
+
+				case Opcodes.PLUS:
+					top--;
+					stack[top] = stack[top] + stack[top + 1];
+					break;
+
+				case Opcodes.MINUS:
+					top--;
+					stack[top] = stack[top] - stack[top + 1];
+					break;
+
+				case Opcodes.MULTIPLY:
+					top--;
+					stack[top] = stack[top] * stack[top + 1];
+					break;
+
+				case Opcodes.DIVIDE:
+					top--;
+					stack[top] = Operations.divide(stack[top], stack[top + 1]);
+					break;
+
+				case Opcodes.MODULO:
+					top--;
+					stack[top] = Operations.modulo(stack[top], stack[top + 1]);
+					break;
+
+				case Opcodes.POWER:
+					top--;
+					stack[top] = Operations.power(stack[top], stack[top + 1]);
+					break;
+
+				case Opcodes.ABSOLUTE_VALUE:
+					stack[top] = Math.abs(stack[top]);
+					break;
+
+				case Opcodes.ARCCOSINE:
+					stack[top] = Math.acos(stack[top]);
+					break;
+
+				case Opcodes.ARCSINE:
+					stack[top] = Math.asin(stack[top]);
+					break;
+
+				case Opcodes.ARCTANGENT:
+					stack[top] = Math.atan(stack[top]);
+					break;
+
+				case Opcodes.CEILING:
+					stack[top] = Math.ceil(stack[top]);
+					break;
+
+				case Opcodes.COSINE:
+					stack[top] = Math.cos(stack[top]);
+					break;
+
+				case Opcodes.FLOOR:
+					stack[top] = Math.floor(stack[top]);
+					break;
+
+				case Opcodes.LOGARITHM:
+					stack[top] = Operations.logarithm(stack[top]);
+					break;
+
+				case Opcodes.LOGARITHM_BASE_TEN:
+					stack[top] = Operations.logarithmBaseTen(stack[top]);
+					break;
+
+				case Opcodes.LOGARITHM_BASE_TWO:
+					stack[top] = Operations.logarithmBaseTwo(stack[top]);
+					break;
+
+				case Opcodes.ROUND:
+					stack[top] = Operations.round(stack[top]);
+					break;
+
+				case Opcodes.SINE:
+					stack[top] = Math.sin(stack[top]);
+					break;
+
+				case Opcodes.SQUARE_ROOT:
+					stack[top] = Operations.squareRoot(stack[top]);
+					break;
+
+				case Opcodes.TANGENT:
+					stack[top] = Math.tan(stack[top]);
+					break;
+			}
+		}
+
+		return stack[0];
+	}
+
+}
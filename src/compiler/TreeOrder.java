@@ -0,0 +1,118 @@
+package compiler;
+
+import exceptions.EvaluationException;
+
+import java.util.Arrays;
+
+/**
+ * Class used for evaluating the mathematical expressions of an ExpressionStorage in the order of their binary tree
+ * representation, with explicit stacks instead of recursion. It is slower than a single pass over the nodes in postfix
+ * order, but it raises the same first error as the binary tree representation, so the storages fall back to it when
+ * their fast evaluation raises an error.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+final class TreeOrder {
+
+	/**
+	 * The initial capacity of the stacks of an evaluation.
+	 */
+	private static final int INITIAL_STACK_CAPACITY = 64;
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private TreeOrder() {
+	}
+
+	/**
+	 * Evaluates the subexpression of a root by walking its nodes with explicit stacks, in the same order as the
+	 * evaluation of the binary tree representation, so the first error raised is the same. In particular, the divisor
+	 * of a division or a modulo is evaluated before the dividend.
+	 * 
+	 * @param  storage            the storage that holds the subexpression
+	 * @param  root               the index of the root node of the subexpression
+	 * @param  variables          the values of the variables used in the subexpression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	static double evaluate(ExpressionStorage storage, int root, double[] variables) {
+		int[] nodeStack = new int[INITIAL_STACK_CAPACITY], stateStack = new int[INITIAL_STACK_CAPACITY];
+		double[] valueStack = new double[INITIAL_STACK_CAPACITY];
+
+		int nodeTop = 0, valueTop = 0;
+		nodeStack[0] = root;
+		stateStack[0] = 0;
+
+		while (nodeTop >= 0) {
+			int node = nodeStack[nodeTop], child;
+			byte opcode = storage.getOpcode(node);
+
+			if (opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE) {
+				if (valueTop == valueStack.length)
+					valueStack = Arrays.copyOf(valueStack, 2 * valueTop);
+
+				if (opcode == Opcodes.PUSH_CONSTANT)
+					valueStack[valueTop++] = storage.getValue(node);
+				else
+					valueStack[valueTop++] = Operations.variable(variables, storage.getSlot(node));
+
+				nodeTop--;
+				continue;
+			}
+			else if (!Opcodes.isBinaryOperator(opcode)) {
+				if (stateStack[nodeTop]++ == 0)
+					child = node - 1;
+				else {
+					valueStack[valueTop - 1] = Operations.apply(opcode, valueStack[valueTop - 1]);
+					nodeTop--;
+					continue;
+				}
+			}
+			else if (opcode == Opcodes.DIVIDE || opcode == Opcodes.MODULO) {
+				// the divisor is evaluated first, so its errors are reported before the errors of the dividend
+				int state = stateStack[nodeTop]++;
+				if (state == 0)
+					child = node - 1;
+				else if (state == 1) {
+					if (Operations.isZero(valueStack[valueTop - 1]))
+						throw new RuntimeException(opcode == Opcodes.DIVIDE ? EvaluationException.ZERO_DIV_MESSAGE :
+																			  EvaluationException.ZERO_MOD_MESSAGE);
+
+					child = storage.getLeftChild(node);
+				}
+				else {
+					valueTop--;
+					valueStack[valueTop - 1] = Operations.apply(opcode, valueStack[valueTop], valueStack[valueTop - 1]);
+					nodeTop--;
+					continue;
+				}
+			}
+			else {
+				int state = stateStack[nodeTop]++;
+				if (state == 0)
+					child = storage.getLeftChild(node);
+				else if (state == 1)
+					child = node - 1;
+				else {
+					valueTop--;
+					valueStack[valueTop - 1] = Operations.apply(opcode, valueStack[valueTop - 1], valueStack[valueTop]);
+					nodeTop--;
+					continue;
+				}
+			}
+
+			if (++nodeTop == nodeStack.length) {
+				nodeStack = Arrays.copyOf(nodeStack, 2 * nodeTop);
+				stateStack = Arrays.copyOf(stateStack, 2 * nodeTop);
+			}
+
+			nodeStack[nodeTop] = child;
+			stateStack[nodeTop] = 0;
+		}
+
+		return valueStack[0];
+	}
+
+}
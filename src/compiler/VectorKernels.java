@@ -0,0 +1,186 @@
+package compiler;
+
+import exceptions.EvaluationException;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class that implements the column operations of a BatchProgram with the Vector API, processing as many rows per
+ * instruction as the widest vector registers of the processor can hold. Every column is processed in whole vectors,
+ * followed by a scalar loop over the rows that do not fill a vector. All operations give exactly the same results as
+ * their scalar counterparts.
+ * This class must only be loaded when the jdk.incubator.vector module is present, which BatchProgram checks first.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+final class VectorKernels {
+
+	/**
+	 * The widest vector shape supported by the processor.
+	 */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Private constructor, this class only holds static methods.
+	 */
+	private VectorKernels() {
+	}
+
+	/**
+	 * Fills a column with a constant value.
+	 * 
+	 * @param  column  the column
+	 * @param  length  the number of rows
+	 * @param  value   the constant value
+	 */
+	static void fill(double[] column, int length, double value) {
+		DoubleVector vector = DoubleVector.broadcast(SPECIES, value);
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			vector.intoArray(column, i);
+
+		for (; i < length; i++)
+			column[i] = value;
+	}
+
+	/**
+	 * Adds the right column to the left column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	static void plus(double[] left, double[] right, int length) {
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, left, i).add(DoubleVector.fromArray(SPECIES, right, i)).intoArray(left, i);
+
+		for (; i < length; i++)
+			left[i] += right[i];
+	}
+
+	/**
+	 * Subtracts the right column from the left column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	static void minus(double[] left, double[] right, int length) {
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, left, i).sub(DoubleVector.fromArray(SPECIES, right, i)).intoArray(left, i);
+
+		for (; i < length; i++)
+			left[i] -= right[i];
+	}
+
+	/**
+	 * Multiplies the left column by the right column.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	static void multiply(double[] left, double[] right, int length) {
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, left, i).mul(DoubleVector.fromArray(SPECIES, right, i)).intoArray(left, i);
+
+		for (; i < length; i++)
+			left[i] *= right[i];
+	}
+
+	/**
+	 * Divides the left column by the right column, after checking all the divisors.
+	 * 
+	 * @param  left    the left operands, replaced by the results
+	 * @param  right   the right operands
+	 * @param  length  the number of rows
+	 */
+	static void divide(double[] left, double[] right, int length) {
+		checkNonZero(right, length, EvaluationException.ZERO_DIV_MESSAGE);
+
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, left, i).div(DoubleVector.fromArray(SPECIES, right, i)).intoArray(left, i);
+
+		for (; i < length; i++)
+			left[i] /= right[i];
+	}
+
+	/**
+	 * Replaces a column by its absolute values.
+	 * 
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	static void absoluteValue(double[] column, int length) {
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, column, i).lanewise(VectorOperators.ABS).intoArray(column, i);
+
+		for (; i < length; i++)
+			column[i] = Math.abs(column[i]);
+	}
+
+	/**
+	 * Replaces a column by its square roots, after checking all the operands.
+	 * 
+	 * @param  column  the operands, replaced by the results
+	 * @param  length  the number of rows
+	 */
+	static void squareRoot(double[] column, int length) {
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			if (DoubleVector.fromArray(SPECIES, column, i).compare(VectorOperators.LT, 0.0).anyTrue())
+				throw new RuntimeException(EvaluationException.NEGATIVE_SQRT_MESSAGE);
+		}
+
+		for (; i < length; i++) {
+			if (column[i] < 0.0)
+				throw new RuntimeException(EvaluationException.NEGATIVE_SQRT_MESSAGE);
+		}
+
+		i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, column, i).lanewise(VectorOperators.SQRT).intoArray(column, i);
+
+		for (; i < length; i++)
+			column[i] = Math.sqrt(column[i]);
+	}
+
+	/**
+	 * Checks that a column holds no divisor that is zero according to Operations.isZero.
+	 * The divisors are compared by their raw bits, so negative zero is not considered zero, like in the scalar code.
+	 * 
+	 * @param  column   the divisors
+	 * @param  length   the number of rows
+	 * @param  message  the message of the error raised for a zero divisor
+	 */
+	static void checkNonZero(double[] column, int length, String message) {
+		int i = 0;
+
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			LongVector bits = DoubleVector.fromArray(SPECIES, column, i).reinterpretAsLongs();
+			if (bits.compare(VectorOperators.EQ, 0L).anyTrue())
+				throw new RuntimeException(message);
+		}
+
+		for (; i < length; i++) {
+			if (Operations.isZero(column[i]))
+				throw new RuntimeException(message);
+		}
+	}
+
+}
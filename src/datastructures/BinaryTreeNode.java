@@ -61,19 +61,25 @@ public class BinaryTreeNode<T> {
 	}
 
 	/**
-	 * Finds the node that contains the given information in the tree defined by this node and its children.
+	 * Finds the node that contains information equal to the given one in the tree defined by this node and its
+	 * children. As equal information, like a shared token, may be stored in several nodes, the first one in
+	 * breadth-first order is returned.
 	 * 
-	 * @param  data  the information to search for
+	 * @param  data    the information to search for
 	 * 
-	 * @return       the node that contains the given information or null if not found
+	 * @return         the node that contains the given information or null if not found
+	 * @deprecated     the tokens of a mathematical expression are shared between the nodes that hold them, so the node
+	 *                 found is not necessarily the one that was meant; walk the tree through the children of its nodes
+	 *                 instead, as a TreeVisitor does
 	 */
+	@Deprecated
 	public BinaryTreeNode<T> findNode(T data) {
 		Queue<BinaryTreeNode<T>> nodes = new Queue<BinaryTreeNode<T>>();
 		nodes.push(this);
 
 		while (!nodes.isEmpty()) {
 			BinaryTreeNode<T> node = nodes.pop();
-			if (node.data == data)
+			if (node.data == null ? data == null : node.data.equals(data))
 				return node;
 
 			if (node.leftChild != null)
@@ -0,0 +1,71 @@
+package datastructures;
+
+import java.util.ArrayList;
+
+/**
+ * Class that offers the functionality of a generic stack data structure.
+ * 
+ * @param  <T>  the data type stored in the stack
+ * 
+ * @author      Valentin Gabriel Mitrea
+ */
+public class Stack<T> {
+
+	private ArrayList<T> elements;
+
+	/**
+	 * Constructor for a stack that can grow or shrink dynamically.
+	 */
+	public Stack() {
+		this.elements = new ArrayList<T>();
+	}
+
+	/**
+	 * Adds one element on top of the stack.
+	 * 
+	 * @param  element  element to be added
+	 */
+	public void push(T element) {
+		elements.add(element);
+	}
+
+	/**
+	 * Gets the element on top of the stack without removing it.
+	 * 
+	 * @return  the element on top of the stack or null if stack is empty
+	 */
+	public T peek() {
+		return elements.isEmpty() ? null : elements.get(elements.size() - 1);
+	}
+
+	/**
+	 * Removes the element on top of the stack.
+	 * 
+	 * @return  the removed element
+	 */
+	public T pop() {
+		return elements.remove(elements.size() - 1);
+	}
+
+	/**
+	 * Returns the size of the stack.
+	 * 
+	 * @return  number of elements currently in the stack
+	 */
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Checks if stack is empty.
+	 * 
+	 * @return  true if stack is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		if (elements.size() == 0)
+			return true;
+
+		return false;
+	}
+
+}
@@ -0,0 +1,217 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that assigns integer slots to the names of the variables used in mathematical expressions.
+ * The slots are given in the order in which the variables are declared, starting from 0, so the values of all the
+ * variables can be bound through a double array indexed by slot. A VariableTable can be shared by several
+ * mathematical expressions, but it is not safe to declare variables from several threads at the same time.
+ * The names are indexed by a hash table of slots that can also be searched with a range of characters of a
+ * mathematical expression, so looking up a variable that was already declared does not allocate its name again.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class VariableTable {
+
+	/**
+	 * Initial number of buckets of the hash table, always a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The names of the declared variables, indexed by slot.
+	 */
+	private List<String> names;
+
+	/**
+	 * Hash table with open addressing, every bucket holding the slot of a variable plus one or 0 when empty.
+	 */
+	private int[] buckets;
+
+	/**
+	 * Constructor for an empty variable table.
+	 */
+	public VariableTable() {
+		this.names = new ArrayList<String>();
+		this.buckets = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Computes the hash code of a range of characters, equal to the hash code of the String holding them.
+	 * 
+	 * @param  characters  the characters
+	 * @param  start       the index of the first character
+	 * @param  end         the index after the last character
+	 * 
+	 * @return             the hash code
+	 */
+	private static int hash(CharSequence characters, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + characters.charAt(i);
+
+		return hash;
+	}
+
+	/**
+	 * Checks if a name is made of the same characters as a range of characters.
+	 * 
+	 * @param  name        the name
+	 * @param  characters  the characters
+	 * @param  start       the index of the first character
+	 * @param  end         the index after the last character
+	 * 
+	 * @return             true if the name and the range hold the same characters, false otherwise
+	 */
+	private static boolean equals(String name, CharSequence characters, int start, int end) {
+		if (name.length() != end - start)
+			return false;
+
+		for (int i = start; i < end; i++) {
+			if (name.charAt(i - start) != characters.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Finds the bucket of a variable, which holds its slot if it was declared or is the empty bucket where its slot has
+	 * to be stored otherwise.
+	 * 
+	 * @param  characters  the characters that hold the name of the variable
+	 * @param  start       the index of the first character of the name
+	 * @param  end         the index after the last character of the name
+	 * 
+	 * @return             the index of the bucket
+	 */
+	private int findBucket(CharSequence characters, int start, int end) {
+		int mask = buckets.length - 1;
+		int bucket = hash(characters, start, end) & mask;
+
+		while (buckets[bucket] != 0) {
+			if (equals(names.get(buckets[bucket] - 1), characters, start, end))
+				return bucket;
+
+			bucket = (bucket + 1) & mask;
+		}
+
+		return bucket;
+	}
+
+	/**
+	 * Gets the slot of a variable, declaring the variable if it was not declared yet.
+	 * 
+	 * @param  name  the name of the variable
+	 * 
+	 * @return       the slot of the variable
+	 */
+	public int declare(String name) {
+		return declare(name, 0, name.length());
+	}
+
+	/**
+	 * Gets the slot of a variable whose name is a range of characters, declaring the variable if it was not declared
+	 * yet. The name is only copied into a new String when the variable is declared.
+	 * 
+	 * @param  characters  the characters that hold the name of the variable
+	 * @param  start       the index of the first character of the name
+	 * @param  end         the index after the last character of the name
+	 * 
+	 * @return             the slot of the variable
+	 */
+	public int declare(CharSequence characters, int start, int end) {
+		int bucket = findBucket(characters, start, end);
+		if (buckets[bucket] != 0)
+			return buckets[bucket] - 1;
+
+		int slot = names.size();
+		names.add(characters.subSequence(start, end).toString());
+		buckets[bucket] = slot + 1;
+
+		// keep the hash table at most half full
+		if (2 * names.size() > buckets.length) {
+			buckets = new int[2 * buckets.length];
+			for (int i = 0; i < names.size(); i++) {
+				String name = names.get(i);
+				buckets[findBucket(name, 0, name.length())] = i + 1;
+			}
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Removes the variables declared last, so that a table shared by several mathematical expressions does not keep the
+	 * variables of a mathematical expression whose parsing failed.
+	 * 
+	 * @param  size  the number of variables that are kept
+	 */
+	public void truncate(int size) {
+		if (size >= names.size())
+			return;
+
+		names.subList(size, names.size()).clear();
+		Arrays.fill(buckets, 0);
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			buckets[findBucket(name, 0, name.length())] = i + 1;
+		}
+	}
+
+	/**
+	 * Gets the slot of a variable.
+	 * 
+	 * @param  name  the name of the variable
+	 * 
+	 * @return       the slot of the variable or -1 if the variable was not declared
+	 */
+	public int slotOf(String name) {
+		return buckets[findBucket(name, 0, name.length())] - 1;
+	}
+
+	/**
+	 * Gets the name of the variable that was given a slot.
+	 * 
+	 * @param  slot  the slot of the variable
+	 * 
+	 * @return       the name of the variable
+	 */
+	public String nameOf(int slot) {
+		return names.get(slot);
+	}
+
+	/**
+	 * Returns the number of variables declared so far.
+	 * 
+	 * @return  number of variables in the table
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Allocates an array that can hold the values of all the variables declared so far, indexed by slot.
+	 * 
+	 * @return  a new array of variable values, all set to 0
+	 */
+	public double[] newBindings() {
+		return new double[names.size()];
+	}
+
+	/**
+	 * Allocates the columns that can hold the values of all the variables declared so far for many rows, indexed by
+	 * slot, as needed for the batch evaluation of mathematical expressions.
+	 * 
+	 * @param  nrOfRows  the number of rows of every column
+	 * 
+	 * @return           new columns of variable values, all set to 0
+	 */
+	public double[][] newColumns(int nrOfRows) {
+		return new double[names.size()][nrOfRows];
+	}
+
+}
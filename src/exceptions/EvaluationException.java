@@ -33,6 +33,11 @@ public class EvaluationException extends Exception {
 	 */
 	public static final String ZERO_OR_NEGATIVE_LOG_MESSAGE = "zero or negative value passed to logarithm";
 
+	/**
+	 * String constant for the variable without value error message.
+	 */
+	public static final String UNBOUND_VARIABLE_MESSAGE = "no value bound to variable";
+
 	/**
 	 * Constructor for an evaluation error of a mathematical expression.
 	 * 
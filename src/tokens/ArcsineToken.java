@@ -1,5 +1,6 @@
 package tokens;
 
+import visitors.DoubleVisitor;
 import visitors.Visitor;
 
 /**
@@ -9,6 +10,17 @@ import visitors.Visitor;
  */
 public class ArcsineToken extends Token {
 
+	/**
+	 * The only instance of this token, which holds no state and is shared by all the mathematical expressions.
+	 */
+	public static final ArcsineToken INSTANCE = new ArcsineToken();
+
+	/**
+	 * Private constructor, the token is only used through its shared instance.
+	 */
+	private ArcsineToken() {
+	}
+
 	@Override
 	public int priority() {
 		return 1;
@@ -29,6 +41,11 @@ public class ArcsineToken extends Token {
 		return visitor.visit(this);
 	}
 
+	@Override
+	public double accept(DoubleVisitor visitor) {
+		return visitor.visit(this);
+	}
+
 	@Override
 	public String toString() {
 		return "asin";
@@ -1,5 +1,6 @@
 package tokens;
 
+import visitors.DoubleVisitor;
 import visitors.Visitor;
 
 /**
@@ -9,24 +10,24 @@ import visitors.Visitor;
  */
 public class ConstantToken extends Token {
 
-	private Double value;
+	private final double value;
 
 	/**
 	 * Number constant for the approximate value of PI.
 	 */
-	public static final Double PI = 3.141592;
+	public static final double PI = 3.141592;
 
 	/**
 	 * Number constant for the approximate value of e.
 	 */
-	public static final Double e = 2.718281;
+	public static final double e = 2.718281;
 
 	/**
 	 * Constructor for a ConstantToken that encapsulates a mathematical constant.
 	 * 
 	 * @param  value  the double value of the mathematical constant to encapsulate in this ConstantToken
 	 */
-	public ConstantToken(Double value) {
+	public ConstantToken(double value) {
 		this.value = value;
 	}
 
@@ -50,12 +51,17 @@ public class ConstantToken extends Token {
 		return visitor.visit(this);
 	}
 
+	@Override
+	public double accept(DoubleVisitor visitor) {
+		return visitor.visit(this);
+	}
+
 	/**
 	 * Gets the value of the mathematical constant encapsulated in this ConstantToken.
 	 * 
 	 * @return  the value of the mathematical constant encapsulated in this ConstantToken
 	 */
-	public Double getValue() {
+	public double getValue() {
 		return value;
 	}
 
@@ -1,5 +1,6 @@
 package tokens;
 
+import visitors.DoubleVisitor;
 import visitors.Visitor;
 
 /**
@@ -9,14 +10,14 @@ import visitors.Visitor;
  */
 public class NumberToken extends Token {
 
-	private Double value;
+	private final double value;
 
 	/**
 	 * Constructor for a NumberToken that encapsulates a double value.
 	 * 
 	 * @param  value  the double value to encapsulate in this NumberToken
 	 */
-	public NumberToken(Double value) {
+	public NumberToken(double value) {
 		this.value = value;
 	}
 
@@ -40,12 +41,17 @@ public class NumberToken extends Token {
 		return visitor.visit(this);
 	}
 
+	@Override
+	public double accept(DoubleVisitor visitor) {
+		return visitor.visit(this);
+	}
+
 	/**
 	 * Gets the value of the number encapsulated in this NumberToken.
 	 * 
 	 * @return  the value of the number encapsulated in this NumberToken
 	 */
-	public Double getValue() {
+	public double getValue() {
 		return value;
 	}
 
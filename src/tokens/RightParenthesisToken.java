@@ -1,5 +1,6 @@
 package tokens;
 
+import visitors.DoubleVisitor;
 import visitors.Visitor;
 
 /**
@@ -9,6 +10,17 @@ import visitors.Visitor;
  */
 public class RightParenthesisToken extends Token {
 
+	/**
+	 * The only instance of this token, which holds no state and is shared by all the mathematical expressions.
+	 */
+	public static final RightParenthesisToken INSTANCE = new RightParenthesisToken();
+
+	/**
+	 * Private constructor, the token is only used through its shared instance.
+	 */
+	private RightParenthesisToken() {
+	}
+
 	@Override
 	public int priority() {
 		return 0;
@@ -24,11 +36,21 @@ public class RightParenthesisToken extends Token {
 		return false;
 	}
 
+	@Override
+	public boolean isRightParenthesis() {
+		return true;
+	}
+
 	@Override
 	public <T> T accept(Visitor<T> visitor) {
 		return visitor.visit(this);
 	}
 
+	@Override
+	public double accept(DoubleVisitor visitor) {
+		return visitor.visit(this);
+	}
+
 	@Override
 	public String toString() {
 		return ")";
@@ -1,5 +1,6 @@
 package tokens;
 
+import visitors.DoubleVisitor;
 import visitors.Visitor;
 
 /**
@@ -30,6 +31,24 @@ public abstract class Token {
 	 */
 	public abstract boolean isMathematicalFunction();
 
+	/**
+	 * Returns whether or not the token is a left parenthesis.
+	 * 
+	 * @return  true if token is a left parenthesis, false otherwise
+	 */
+	public boolean isLeftParenthesis() {
+		return false;
+	}
+
+	/**
+	 * Returns whether or not the token is a right parenthesis.
+	 * 
+	 * @return  true if token is a right parenthesis, false otherwise
+	 */
+	public boolean isRightParenthesis() {
+		return false;
+	}
+
 	/**
 	 * Utility method necessary as part of the Visitor design pattern.
 	 * 
@@ -40,4 +59,14 @@ public abstract class Token {
 	 */
 	public abstract <T> T accept(Visitor<T> visitor);
 
+	/**
+	 * Utility method necessary as part of the Visitor design pattern, specialized for visitors that return primitive
+	 * double values, so no boxing takes place during the visit.
+	 * 
+	 * @param  visitor  the visitor that needs to be accepted
+	 * 
+	 * @return          the result of the visit
+	 */
+	public abstract double accept(DoubleVisitor visitor);
+
 }
@@ -0,0 +1,77 @@
+package tokens;
+
+import visitors.DoubleVisitor;
+import visitors.Visitor;
+
+/**
+ * Class that defines a variable token in the mathematical expression.
+ * The variable is resolved to a slot when the mathematical expression is parsed, and its value is read from that slot
+ * of the variable values given to the evaluation.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class VariableToken extends Token {
+
+	private final String name;
+	private final int slot;
+
+	/**
+	 * Constructor for a VariableToken.
+	 * 
+	 * @param  name  the name of the variable
+	 * @param  slot  the slot that holds the value of the variable
+	 */
+	public VariableToken(String name, int slot) {
+		this.name = name;
+		this.slot = slot;
+	}
+
+	@Override
+	public int priority() {
+		return 0;
+	}
+
+	@Override
+	public boolean isBinaryOperator() {
+		return false;
+	}
+
+	@Override
+	public boolean isMathematicalFunction() {
+		return false;
+	}
+
+	@Override
+	public <T> T accept(Visitor<T> visitor) {
+		return visitor.visit(this);
+	}
+
+	@Override
+	public double accept(DoubleVisitor visitor) {
+		return visitor.visit(this);
+	}
+
+	/**
+	 * Gets the name of the variable.
+	 * 
+	 * @return  the name of the variable
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the slot that holds the value of the variable.
+	 * 
+	 * @return  the slot of the variable
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,232 @@
+package visitors;
+
+import compiler.CompiledFunction;
+import compiler.Operations;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.EvaluationException;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class for a concrete visitor that compiles a mathematical expression into a tree of closures.
+ * Every closure captures the closures compiled for the children of its node, so evaluating the result involves no
+ * boxing, no visitor dispatch and no tree walking. The closures hold no mutable state and can be shared between threads.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ClosureCompilerVisitor extends TreeVisitor<CompiledFunction> {
+
+	/**
+	 * The largest depth of a binary tree that should be compiled into closures. Both the compilation and the evaluation
+	 * of the closures recurse once per level of the binary tree, so this depth stays well below the depth at which the
+	 * default thread stack overflows.
+	 */
+	public static final int MAX_DEPTH = 256;
+
+	/**
+	 * Constructor for a ClosureCompilerVisitor.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 */
+	public ClosureCompilerVisitor(BinaryTreeNode<Token> expressionTree) {
+		super(expressionTree);
+	}
+
+	@Override
+	public CompiledFunction visit(AbsoluteValueToken absoluteValue) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.abs(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(ArccosineToken arccosine) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.acos(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(ArcsineToken arcsine) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.asin(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(ArctangentToken arctangent) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.atan(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(CeilingToken ceiling) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.ceil(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(ConstantToken constant) {
+		double value = constant.getValue();
+		return variables -> value;
+	}
+
+	@Override
+	public CompiledFunction visit(CosineToken cosine) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.cos(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(DivideToken divide) {
+		CompiledFunction left = visitLeftChild();
+		CompiledFunction right = visitRightChild();
+
+		// the divisor is evaluated first, so its errors are reported before the errors of the dividend
+		return variables -> {
+			double divisor = right.evaluate(variables);
+			if (Operations.isZero(divisor))
+				throw new RuntimeException(EvaluationException.ZERO_DIV_MESSAGE);
+
+			return left.evaluate(variables) / divisor;
+		};
+	}
+
+	@Override
+	public CompiledFunction visit(FloorToken floor) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.floor(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(LeftParenthesisToken leftParenthesis) {
+		return visitRightChild();
+	}
+
+	@Override
+	public CompiledFunction visit(LogarithmBaseTenToken logarithmBaseTen) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Operations.logarithmBaseTen(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(LogarithmBaseTwoToken logarithmBaseTwo) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Operations.logarithmBaseTwo(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(LogarithmToken logarithm) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Operations.logarithm(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(MinusToken minus) {
+		CompiledFunction left = visitLeftChild();
+		CompiledFunction right = visitRightChild();
+		return variables -> left.evaluate(variables) - right.evaluate(variables);
+	}
+
+	@Override
+	public CompiledFunction visit(ModuloToken modulo) {
+		CompiledFunction left = visitLeftChild();
+		CompiledFunction right = visitRightChild();
+
+		// the divisor is evaluated first, so its errors are reported before the errors of the dividend
+		return variables -> {
+			double divisor = right.evaluate(variables);
+			if (Operations.isZero(divisor))
+				throw new RuntimeException(EvaluationException.ZERO_MOD_MESSAGE);
+
+			return left.evaluate(variables) % divisor;
+		};
+	}
+
+	@Override
+	public CompiledFunction visit(MultiplyToken multiply) {
+		CompiledFunction left = visitLeftChild();
+		CompiledFunction right = visitRightChild();
+		return variables -> left.evaluate(variables) * right.evaluate(variables);
+	}
+
+	@Override
+	public CompiledFunction visit(NumberToken number) {
+		double value = number.getValue();
+		return variables -> value;
+	}
+
+	@Override
+	public CompiledFunction visit(PlusToken plus) {
+		CompiledFunction left = visitLeftChild();
+		CompiledFunction right = visitRightChild();
+		return variables -> left.evaluate(variables) + right.evaluate(variables);
+	}
+
+	@Override
+	public CompiledFunction visit(PowerToken power) {
+		CompiledFunction left = visitLeftChild();
+		CompiledFunction right = visitRightChild();
+		return variables -> Operations.power(left.evaluate(variables), right.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(RightParenthesisToken rightParenthesis) {
+		return visitLeftChild();
+	}
+
+	@Override
+	public CompiledFunction visit(RoundToken round) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Operations.round(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(SineToken sine) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.sin(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(SquareRootToken squareRoot) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Operations.squareRoot(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(TangentToken tangent) {
+		CompiledFunction operand = visitLeftChild();
+		return variables -> Math.tan(operand.evaluate(variables));
+	}
+
+	@Override
+	public CompiledFunction visit(VariableToken variable) {
+		int slot = variable.getSlot();
+		return variables -> Operations.variable(variables, slot);
+	}
+
+}
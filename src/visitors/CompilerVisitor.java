@@ -0,0 +1,312 @@
+package visitors;
+
+import compiler.Opcodes;
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+import datastructures.Stack;
+
+import java.util.Arrays;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class for a concrete visitor that compiles a mathematical expression into a PostfixProgram.
+ * The binary tree is walked in postfix order with explicit stacks, so operands are emitted before their operator and
+ * trees of any depth can be compiled. Every visit only emits the instruction of its own token, while parentheses
+ * produce no instruction at all.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class CompilerVisitor implements Visitor<Void> {
+
+	/**
+	 * A binary tree representation of the mathematical expression being compiled.
+	 */
+	private final BinaryTreeNode<Token> expressionTree;
+
+	/**
+	 * The opcodes emitted so far.
+	 */
+	private byte[] opcodes;
+
+	/**
+	 * The constant pool built so far.
+	 */
+	private double[] constants;
+
+	/**
+	 * The slots of the variables loaded by the LOAD_VARIABLE instructions emitted so far.
+	 */
+	private int[] slots;
+
+	/**
+	 * The number of opcodes emitted so far.
+	 */
+	private int nrOfOpcodes;
+
+	/**
+	 * The number of constants emitted so far.
+	 */
+	private int nrOfConstants;
+
+	/**
+	 * The number of variable slots emitted so far.
+	 */
+	private int nrOfSlots;
+
+	/**
+	 * Constructor for a CompilerVisitor.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 */
+	public CompilerVisitor(BinaryTreeNode<Token> expressionTree) {
+		this.expressionTree = expressionTree;
+		this.opcodes = new byte[16];
+		this.constants = new double[8];
+		this.slots = new int[8];
+		this.nrOfOpcodes = 0;
+		this.nrOfConstants = 0;
+		this.nrOfSlots = 0;
+	}
+
+	/**
+	 * Appends an instruction to the program being compiled.
+	 * 
+	 * @param  opcode  the opcode of the instruction
+	 */
+	private void emit(byte opcode) {
+		if (nrOfOpcodes == opcodes.length)
+			opcodes = Arrays.copyOf(opcodes, 2 * opcodes.length);
+
+		opcodes[nrOfOpcodes++] = opcode;
+	}
+
+	/**
+	 * Appends a PUSH_CONSTANT instruction and its value to the program being compiled.
+	 * 
+	 * @param  value  the value pushed on the stack by the instruction
+	 */
+	private void emitConstant(double value) {
+		if (nrOfConstants == constants.length)
+			constants = Arrays.copyOf(constants, 2 * constants.length);
+
+		constants[nrOfConstants++] = value;
+		emit(Opcodes.PUSH_CONSTANT);
+	}
+
+	/**
+	 * Appends a LOAD_VARIABLE instruction and its slot to the program being compiled.
+	 * 
+	 * @param  slot  the slot of the variable loaded on the stack by the instruction
+	 */
+	private void emitVariable(int slot) {
+		if (nrOfSlots == slots.length)
+			slots = Arrays.copyOf(slots, 2 * slots.length);
+
+		slots[nrOfSlots++] = slot;
+		emit(Opcodes.LOAD_VARIABLE);
+	}
+
+	/**
+	 * Compiles the mathematical expression, visiting its nodes in postfix order.
+	 * 
+	 * @return  the compiled program
+	 */
+	public PostfixProgram compile() {
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		Stack<BinaryTreeNode<Token>> postfixNodes = new Stack<BinaryTreeNode<Token>>();
+		nodes.push(expressionTree);
+
+		// the nodes are popped parent first and right child before left child, so they end up reversed in postfix order
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			postfixNodes.push(node);
+
+			if (node.getLeftChild() != null)
+				nodes.push(node.getLeftChild());
+			if (node.getRightChild() != null)
+				nodes.push(node.getRightChild());
+		}
+
+		while (!postfixNodes.isEmpty())
+			postfixNodes.pop().getData().accept(this);
+
+		return new PostfixProgram(Arrays.copyOf(opcodes, nrOfOpcodes), Arrays.copyOf(constants, nrOfConstants),
+								  Arrays.copyOf(slots, nrOfSlots));
+	}
+
+	@Override
+	public Void visit(AbsoluteValueToken absoluteValue) {
+		emit(Opcodes.ABSOLUTE_VALUE);
+		return null;
+	}
+
+	@Override
+	public Void visit(ArccosineToken arccosine) {
+		emit(Opcodes.ARCCOSINE);
+		return null;
+	}
+
+	@Override
+	public Void visit(ArcsineToken arcsine) {
+		emit(Opcodes.ARCSINE);
+		return null;
+	}
+
+	@Override
+	public Void visit(ArctangentToken arctangent) {
+		emit(Opcodes.ARCTANGENT);
+		return null;
+	}
+
+	@Override
+	public Void visit(CeilingToken ceiling) {
+		emit(Opcodes.CEILING);
+		return null;
+	}
+
+	@Override
+	public Void visit(ConstantToken constant) {
+		emitConstant(constant.getValue());
+		return null;
+	}
+
+	@Override
+	public Void visit(CosineToken cosine) {
+		emit(Opcodes.COSINE);
+		return null;
+	}
+
+	@Override
+	public Void visit(DivideToken divide) {
+		emit(Opcodes.DIVIDE);
+		return null;
+	}
+
+	@Override
+	public Void visit(FloorToken floor) {
+		emit(Opcodes.FLOOR);
+		return null;
+	}
+
+	@Override
+	public Void visit(LeftParenthesisToken leftParenthesis) {
+		return null;
+	}
+
+	@Override
+	public Void visit(LogarithmBaseTenToken logarithmBaseTen) {
+		emit(Opcodes.LOGARITHM_BASE_TEN);
+		return null;
+	}
+
+	@Override
+	public Void visit(LogarithmBaseTwoToken logarithmBaseTwo) {
+		emit(Opcodes.LOGARITHM_BASE_TWO);
+		return null;
+	}
+
+	@Override
+	public Void visit(LogarithmToken logarithm) {
+		emit(Opcodes.LOGARITHM);
+		return null;
+	}
+
+	@Override
+	public Void visit(MinusToken minus) {
+		emit(Opcodes.MINUS);
+		return null;
+	}
+
+	@Override
+	public Void visit(ModuloToken modulo) {
+		emit(Opcodes.MODULO);
+		return null;
+	}
+
+	@Override
+	public Void visit(MultiplyToken multiply) {
+		emit(Opcodes.MULTIPLY);
+		return null;
+	}
+
+	@Override
+	public Void visit(NumberToken number) {
+		emitConstant(number.getValue());
+		return null;
+	}
+
+	@Override
+	public Void visit(PlusToken plus) {
+		emit(Opcodes.PLUS);
+		return null;
+	}
+
+	@Override
+	public Void visit(PowerToken power) {
+		emit(Opcodes.POWER);
+		return null;
+	}
+
+	@Override
+	public Void visit(RightParenthesisToken rightParenthesis) {
+		return null;
+	}
+
+	@Override
+	public Void visit(RoundToken round) {
+		emit(Opcodes.ROUND);
+		return null;
+	}
+
+	@Override
+	public Void visit(SineToken sine) {
+		emit(Opcodes.SINE);
+		return null;
+	}
+
+	@Override
+	public Void visit(SquareRootToken squareRoot) {
+		emit(Opcodes.SQUARE_ROOT);
+		return null;
+	}
+
+	@Override
+	public Void visit(TangentToken tangent) {
+		emit(Opcodes.TANGENT);
+		return null;
+	}
+
+	@Override
+	public Void visit(VariableToken variable) {
+		emitVariable(variable.getSlot());
+		return null;
+	}
+
+}
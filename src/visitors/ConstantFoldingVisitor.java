@@ -0,0 +1,229 @@
+package visitors;
+
+import datastructures.BinaryTreeNode;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class for a concrete visitor that folds the constant subexpressions of a mathematical expression.
+ * The visit builds a new binary tree, in which every subexpression that only involves numbers and mathematical
+ * constants is replaced by a single NumberToken holding its value. Subexpressions whose evaluation fails, such as a
+ * division by zero, are left as they are, so the error is still raised when the mathematical expression is evaluated.
+ * Besides visiting the tokens recursively, it can fold the whole mathematical expression with explicit stacks, which is
+ * how binary trees of any depth are folded.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ConstantFoldingVisitor extends TreeVisitor<BinaryTreeNode<Token>> {
+
+	/**
+	 * A binary tree representation of the mathematical expression being visited.
+	 */
+	private final BinaryTreeNode<Token> expressionTree;
+
+	/**
+	 * Constructor for a ConstantFoldingVisitor.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 */
+	public ConstantFoldingVisitor(BinaryTreeNode<Token> expressionTree) {
+		super(expressionTree);
+		this.expressionTree = expressionTree;
+	}
+
+	/**
+	 * Folds the whole mathematical expression without any recursion, giving the same result as visiting its root.
+	 * 
+	 * @return  a new binary tree representation of the folded mathematical expression
+	 */
+	public BinaryTreeNode<Token> foldConstants() {
+		return visitIteratively(expressionTree);
+	}
+
+	/**
+	 * Checks if the node is a number or a mathematical constant.
+	 * 
+	 * @param  node  the node to check
+	 * 
+	 * @return       true if node holds a constant value, false otherwise
+	 */
+	private static boolean isConstant(BinaryTreeNode<Token> node) {
+		return node.isLeaf() && (node.getData() instanceof NumberToken || node.getData() instanceof ConstantToken);
+	}
+
+	/**
+	 * Replaces the given node by a NumberToken when all its children hold constant values and its evaluation succeeds.
+	 * 
+	 * @param  node  the node whose children were already folded
+	 * 
+	 * @return       the folded node or the given node if it cannot be folded
+	 */
+	private static BinaryTreeNode<Token> fold(BinaryTreeNode<Token> node) {
+		if (!isConstant(node.getLeftChild()) || (node.getRightChild() != null && !isConstant(node.getRightChild())))
+			return node;
+
+		try {
+			return new BinaryTreeNode<Token>(new NumberToken(new DoubleEvaluatorVisitor(node).evaluate()));
+		}
+		catch (RuntimeException e) {
+			// the argument of a mathematical function lost its parentheses when it was folded
+			if (node.getRightChild() == null)
+				return new BinaryTreeNode<Token>(node.getData(), parenthesize(node.getLeftChild()), null);
+
+			return node;
+		}
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(AbsoluteValueToken absoluteValue) {
+		return fold(new BinaryTreeNode<Token>(absoluteValue, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ArccosineToken arccosine) {
+		return fold(new BinaryTreeNode<Token>(arccosine, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ArcsineToken arcsine) {
+		return fold(new BinaryTreeNode<Token>(arcsine, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ArctangentToken arctangent) {
+		return fold(new BinaryTreeNode<Token>(arctangent, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(CeilingToken ceiling) {
+		return fold(new BinaryTreeNode<Token>(ceiling, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ConstantToken constant) {
+		return new BinaryTreeNode<Token>(constant);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(CosineToken cosine) {
+		return fold(new BinaryTreeNode<Token>(cosine, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(DivideToken divide) {
+		return fold(new BinaryTreeNode<Token>(divide, visitLeftChild(), visitRightChild()));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(FloorToken floor) {
+		return fold(new BinaryTreeNode<Token>(floor, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LeftParenthesisToken leftParenthesis) {
+		BinaryTreeNode<Token> rhs = visitRightChild();
+		return isConstant(rhs) ? rhs : new BinaryTreeNode<Token>(leftParenthesis, null, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LogarithmBaseTenToken logarithmBaseTen) {
+		return fold(new BinaryTreeNode<Token>(logarithmBaseTen, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LogarithmBaseTwoToken logarithmBaseTwo) {
+		return fold(new BinaryTreeNode<Token>(logarithmBaseTwo, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LogarithmToken logarithm) {
+		return fold(new BinaryTreeNode<Token>(logarithm, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(MinusToken minus) {
+		return fold(new BinaryTreeNode<Token>(minus, visitLeftChild(), visitRightChild()));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ModuloToken modulo) {
+		return fold(new BinaryTreeNode<Token>(modulo, visitLeftChild(), visitRightChild()));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(MultiplyToken multiply) {
+		return fold(new BinaryTreeNode<Token>(multiply, visitLeftChild(), visitRightChild()));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(NumberToken number) {
+		return new BinaryTreeNode<Token>(number);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(PlusToken plus) {
+		return fold(new BinaryTreeNode<Token>(plus, visitLeftChild(), visitRightChild()));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(PowerToken power) {
+		return fold(new BinaryTreeNode<Token>(power, visitLeftChild(), visitRightChild()));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(RightParenthesisToken rightParenthesis) {
+		BinaryTreeNode<Token> lhs = visitLeftChild();
+		return isConstant(lhs) ? lhs : new BinaryTreeNode<Token>(rightParenthesis, lhs, null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(RoundToken round) {
+		return fold(new BinaryTreeNode<Token>(round, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(SineToken sine) {
+		return fold(new BinaryTreeNode<Token>(sine, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(SquareRootToken squareRoot) {
+		return fold(new BinaryTreeNode<Token>(squareRoot, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(TangentToken tangent) {
+		return fold(new BinaryTreeNode<Token>(tangent, visitLeftChild(), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(VariableToken variable) {
+		return new BinaryTreeNode<Token>(variable);
+	}
+
+}
@@ -0,0 +1,436 @@
+package visitors;
+
+import compiler.CompiledFunction;
+import compiler.Opcodes;
+import compiler.Operations;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.EvaluationException;
+
+import java.util.Arrays;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class for a concrete visitor that evaluates a mathematical expression on primitive double values.
+ * It walks the binary tree representation node by node like a TreeVisitor, but neither the visit nor the evaluation
+ * allocates any object, so one DoubleEvaluatorVisitor can evaluate its mathematical expression any number of times
+ * without producing garbage.
+ * The visit recurses through the binary tree only down to a limited depth. Deeper subtrees, like the left spine of a
+ * generated sum of many thousands of terms, are evaluated iteratively, with explicit stacks that grow with the tree on
+ * the heap instead of the thread stack, so trees of any depth can be evaluated.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class DoubleEvaluatorVisitor implements DoubleVisitor {
+
+	/**
+	 * The depth down to which the binary tree is visited recursively, well below the depth at which the default thread
+	 * stack overflows.
+	 */
+	public static final int MAX_RECURSION_DEPTH = 256;
+
+	/**
+	 * Visitor that gives the opcode of every token evaluated iteratively.
+	 */
+	private static final OpcodeVisitor OPCODE_VISITOR = new OpcodeVisitor();
+
+	/**
+	 * Initial capacity of the explicit stacks used for the iterative evaluation.
+	 */
+	private static final int INITIAL_STACK_CAPACITY = 64;
+
+	/**
+	 * A binary tree representation of the mathematical expression being visited.
+	 */
+	private final BinaryTreeNode<Token> expressionTree;
+
+	/**
+	 * The node of the binary tree whose token is currently being visited.
+	 */
+	private BinaryTreeNode<Token> currentNode;
+
+	/**
+	 * The values of the variables used in the mathematical expression, indexed by slot.
+	 */
+	private double[] variables;
+
+	/**
+	 * The number of nodes currently being visited recursively.
+	 */
+	private int depth;
+
+	/**
+	 * The explicit stack of the nodes being evaluated iteratively, allocated on the first iterative evaluation and kept
+	 * for the next ones.
+	 */
+	private BinaryTreeNode<Token>[] nodeStack;
+
+	/**
+	 * The number of children already evaluated of every node on the node stack.
+	 */
+	private int[] stateStack;
+
+	/**
+	 * The explicit stack of the values of the evaluated children, waiting for the operation of their parent node.
+	 */
+	private double[] valueStack;
+
+	/**
+	 * Constructor for a DoubleEvaluatorVisitor.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 */
+	public DoubleEvaluatorVisitor(BinaryTreeNode<Token> expressionTree) {
+		this.expressionTree = expressionTree;
+		this.currentNode = expressionTree;
+		this.variables = CompiledFunction.NO_VARIABLES;
+	}
+
+	/**
+	 * Evaluates the whole mathematical expression, which must not use any variables.
+	 * 
+	 * @return                    the value resulted from the evaluation of the mathematical expression
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public double evaluate() {
+		return evaluate(CompiledFunction.NO_VARIABLES);
+	}
+
+	/**
+	 * Evaluates the whole mathematical expression for the given values of its variables.
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation of the mathematical expression
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public double evaluate(double[] variables) {
+		this.currentNode = expressionTree;
+		this.variables = variables;
+		this.depth = 0;
+		return expressionTree.getData().accept(this);
+	}
+
+	/**
+	 * Evaluates the whole mathematical expression for the given values of its variables without any recursion, giving
+	 * the same value or error as evaluate(double[]).
+	 * 
+	 * @param  variables          the values of the variables used in the mathematical expression, indexed by slot
+	 * 
+	 * @return                    the value resulted from the evaluation of the mathematical expression
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	public double evaluateIteratively(double[] variables) {
+		this.currentNode = expressionTree;
+		this.variables = variables;
+		this.depth = 0;
+		return evaluateIteratively(expressionTree);
+	}
+
+	/**
+	 * Visits the token stored in the given node, making it the current node for the duration of the visit.
+	 * 
+	 * @param  node  the node whose token has to be visited
+	 * 
+	 * @return       the result of the visit
+	 */
+	private double visitNode(BinaryTreeNode<Token> node) {
+		if (depth == MAX_RECURSION_DEPTH)
+			return evaluateIteratively(node);
+
+		BinaryTreeNode<Token> parentNode = currentNode;
+		currentNode = node;
+		depth++;
+		double result = node.getData().accept(this);
+		depth--;
+		currentNode = parentNode;
+		return result;
+	}
+
+	/**
+	 * Allocates an array of nodes, which cannot be created directly with the type of its elements.
+	 * 
+	 * @param  length  the length of the array
+	 * 
+	 * @return         a new array of nodes, all null
+	 */
+	@SuppressWarnings("unchecked")
+	private static BinaryTreeNode<Token>[] newNodeArray(int length) {
+		return (BinaryTreeNode<Token>[]) new BinaryTreeNode<?>[length];
+	}
+
+	/**
+	 * Evaluates the subtree of the given node with explicit stacks, in the same order as the recursive visit, so the
+	 * first error raised is the same.
+	 * 
+	 * @param  node               the root node of the subtree that has to be evaluated
+	 * 
+	 * @return                    the value resulted from the evaluation of the subtree
+	 * @throws  RuntimeException  when an error occurs during the evaluation process
+	 */
+	private double evaluateIteratively(BinaryTreeNode<Token> node) {
+		if (nodeStack == null) {
+			nodeStack = newNodeArray(INITIAL_STACK_CAPACITY);
+			stateStack = new int[INITIAL_STACK_CAPACITY];
+			valueStack = new double[INITIAL_STACK_CAPACITY];
+		}
+
+		int nodeTop = 0, valueTop = 0;
+		nodeStack[0] = node;
+		stateStack[0] = 0;
+
+		while (nodeTop >= 0) {
+			node = nodeStack[nodeTop];
+			byte opcode = node.getData().accept(OPCODE_VISITOR);
+			BinaryTreeNode<Token> child;
+
+			if (opcode == Opcodes.PUSH_CONSTANT || opcode == Opcodes.LOAD_VARIABLE) {
+				if (valueTop == valueStack.length)
+					valueStack = Arrays.copyOf(valueStack, 2 * valueTop);
+
+				valueStack[valueTop++] = node.getData().accept(this);
+				nodeTop--;
+				continue;
+			}
+			else if (opcode == OpcodeVisitor.NO_OPCODE) {
+				// a parenthesis has the value of its only child, which takes its place on the stack
+				nodeStack[nodeTop] = node.getLeftChild() != null ? node.getLeftChild() : node.getRightChild();
+				continue;
+			}
+			else if (!Opcodes.isBinaryOperator(opcode)) {
+				if (stateStack[nodeTop]++ == 0)
+					child = node.getLeftChild();
+				else {
+					valueStack[valueTop - 1] = Operations.apply(opcode, valueStack[valueTop - 1]);
+					nodeTop--;
+					continue;
+				}
+			}
+			else if (opcode == Opcodes.DIVIDE || opcode == Opcodes.MODULO) {
+				// the divisor is evaluated first, so its errors are reported before the errors of the dividend
+				int state = stateStack[nodeTop]++;
+				if (state == 0)
+					child = node.getRightChild();
+				else if (state == 1) {
+					if (Operations.isZero(valueStack[valueTop - 1]))
+						throw new RuntimeException(opcode == Opcodes.DIVIDE ? EvaluationException.ZERO_DIV_MESSAGE :
+																			  EvaluationException.ZERO_MOD_MESSAGE);
+
+					child = node.getLeftChild();
+				}
+				else {
+					valueTop--;
+					valueStack[valueTop - 1] = Operations.apply(opcode, valueStack[valueTop], valueStack[valueTop - 1]);
+					nodeTop--;
+					continue;
+				}
+			}
+			else {
+				int state = stateStack[nodeTop]++;
+				if (state == 0)
+					child = node.getLeftChild();
+				else if (state == 1)
+					child = node.getRightChild();
+				else {
+					valueTop--;
+					valueStack[valueTop - 1] = Operations.apply(opcode, valueStack[valueTop - 1], valueStack[valueTop]);
+					nodeTop--;
+					continue;
+				}
+			}
+
+			if (++nodeTop == nodeStack.length) {
+				nodeStack = Arrays.copyOf(nodeStack, 2 * nodeTop);
+				stateStack = Arrays.copyOf(stateStack, 2 * nodeTop);
+			}
+
+			nodeStack[nodeTop] = child;
+			stateStack[nodeTop] = 0;
+		}
+
+		return valueStack[0];
+	}
+
+	/**
+	 * Visits the left child of the current node.
+	 * 
+	 * @return  the result of the visit
+	 */
+	private double visitLeftChild() {
+		return visitNode(currentNode.getLeftChild());
+	}
+
+	/**
+	 * Visits the right child of the current node.
+	 * 
+	 * @return  the result of the visit
+	 */
+	private double visitRightChild() {
+		return visitNode(currentNode.getRightChild());
+	}
+
+	@Override
+	public double visit(AbsoluteValueToken absoluteValue) {
+		return Math.abs(visitLeftChild());
+	}
+
+	@Override
+	public double visit(ArccosineToken arccosine) {
+		return Math.acos(visitLeftChild());
+	}
+
+	@Override
+	public double visit(ArcsineToken arcsine) {
+		return Math.asin(visitLeftChild());
+	}
+
+	@Override
+	public double visit(ArctangentToken arctangent) {
+		return Math.atan(visitLeftChild());
+	}
+
+	@Override
+	public double visit(CeilingToken ceiling) {
+		return Math.ceil(visitLeftChild());
+	}
+
+	@Override
+	public double visit(ConstantToken constant) {
+		return constant.getValue();
+	}
+
+	@Override
+	public double visit(CosineToken cosine) {
+		return Math.cos(visitLeftChild());
+	}
+
+	@Override
+	public double visit(DivideToken divide) {
+		// the divisor is evaluated first, so its errors are reported before the errors of the dividend
+		double result = visitRightChild();
+
+		if (Operations.isZero(result))
+			throw new RuntimeException(EvaluationException.ZERO_DIV_MESSAGE);
+
+		return visitLeftChild() / result;
+	}
+
+	@Override
+	public double visit(FloorToken floor) {
+		return Math.floor(visitLeftChild());
+	}
+
+	@Override
+	public double visit(LeftParenthesisToken leftParenthesis) {
+		return visitRightChild();
+	}
+
+	@Override
+	public double visit(LogarithmBaseTenToken logarithmBaseTen) {
+		return Operations.logarithmBaseTen(visitLeftChild());
+	}
+
+	@Override
+	public double visit(LogarithmBaseTwoToken logarithmBaseTwo) {
+		return Operations.logarithmBaseTwo(visitLeftChild());
+	}
+
+	@Override
+	public double visit(LogarithmToken logarithm) {
+		return Operations.logarithm(visitLeftChild());
+	}
+
+	@Override
+	public double visit(MinusToken minus) {
+		return visitLeftChild() - visitRightChild();
+	}
+
+	@Override
+	public double visit(ModuloToken modulo) {
+		// the divisor is evaluated first, so its errors are reported before the errors of the dividend
+		double result = visitRightChild();
+
+		if (Operations.isZero(result))
+			throw new RuntimeException(EvaluationException.ZERO_MOD_MESSAGE);
+
+		return visitLeftChild() % result;
+	}
+
+	@Override
+	public double visit(MultiplyToken multiply) {
+		return visitLeftChild() * visitRightChild();
+	}
+
+	@Override
+	public double visit(NumberToken number) {
+		return number.getValue();
+	}
+
+	@Override
+	public double visit(PlusToken plus) {
+		return visitLeftChild() + visitRightChild();
+	}
+
+	@Override
+	public double visit(PowerToken power) {
+		return Operations.power(visitLeftChild(), visitRightChild());
+	}
+
+	@Override
+	public double visit(RightParenthesisToken rightParenthesis) {
+		return visitLeftChild();
+	}
+
+	@Override
+	public double visit(RoundToken round) {
+		return Operations.round(visitLeftChild());
+	}
+
+	@Override
+	public double visit(SineToken sine) {
+		return Math.sin(visitLeftChild());
+	}
+
+	@Override
+	public double visit(SquareRootToken squareRoot) {
+		return Operations.squareRoot(visitLeftChild());
+	}
+
+	@Override
+	public double visit(TangentToken tangent) {
+		return Math.tan(visitLeftChild());
+	}
+
+	@Override
+	public double visit(VariableToken variable) {
+		return Operations.variable(variables, variable.getSlot());
+	}
+
+}
@@ -1,5 +1,8 @@
 package visitors;
 
+import compiler.CompiledFunction;
+import compiler.Operations;
+
 import datastructures.BinaryTreeNode;
 
 import exceptions.EvaluationException;
@@ -29,56 +32,63 @@ import tokens.SineToken;
 import tokens.SquareRootToken;
 import tokens.TangentToken;
 import tokens.Token;
+import tokens.VariableToken;
 
 /**
  * Class for a concrete visitor that evaluates a mathematical expression.
  * 
  * @author  Valentin Gabriel Mitrea
  */
-public class EvaluatorVisitor implements Visitor<Double> {
+public class EvaluatorVisitor extends TreeVisitor<Double> {
 
 	/**
-	 * A binary tree representation of the mathematical expression being visited.
+	 * The values of the variables used in the mathematical expression, indexed by slot.
 	 */
-	private BinaryTreeNode<Token> expressionTree;
+	private double[] variables;
 
 	/**
-	 * Constructor for an EvaluatorVisitor.
+	 * Constructor for an EvaluatorVisitor of a mathematical expression that uses no variables.
 	 * 
 	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
 	 */
 	public EvaluatorVisitor(BinaryTreeNode<Token> expressionTree) {
-		this.expressionTree = expressionTree;
+		this(expressionTree, CompiledFunction.NO_VARIABLES);
+	}
+
+	/**
+	 * Constructor for an EvaluatorVisitor.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 * @param  variables       the values of the variables used in the mathematical expression, indexed by slot
+	 */
+	public EvaluatorVisitor(BinaryTreeNode<Token> expressionTree, double[] variables) {
+		super(expressionTree);
+		this.variables = variables;
 	}
 
 	@Override
 	public Double visit(AbsoluteValueToken absoluteValue) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(absoluteValue);
-		return Math.abs(expressionNode.getLeftChild().getData().accept(this));
+		return Math.abs(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(ArccosineToken arccosine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(arccosine);
-		return Math.acos(expressionNode.getLeftChild().getData().accept(this));
+		return Math.acos(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(ArcsineToken arcsine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(arcsine);
-		return Math.asin(expressionNode.getLeftChild().getData().accept(this));
+		return Math.asin(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(ArctangentToken arctangent) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(arctangent);
-		return Math.atan(expressionNode.getLeftChild().getData().accept(this));
+		return Math.atan(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(CeilingToken ceiling) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(ceiling);
-		return Math.ceil(expressionNode.getLeftChild().getData().accept(this));
+		return Math.ceil(visitLeftChild());
 	}
 
 	@Override
@@ -88,37 +98,32 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(CosineToken cosine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(cosine);
-		return Math.cos(expressionNode.getLeftChild().getData().accept(this));
+		return Math.cos(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(DivideToken divide) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(divide);
-		Double result = expressionNode.getRightChild().getData().accept(this);
+		Double result = visitRightChild();
 
 		if (result.equals(0.0))
 			throw new RuntimeException(EvaluationException.ZERO_DIV_MESSAGE);
 
-		return expressionNode.getLeftChild().getData().accept(this) / result;
+		return visitLeftChild() / result;
 	}
 
 	@Override
 	public Double visit(FloorToken floor) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(floor);
-		return Math.floor(expressionNode.getLeftChild().getData().accept(this));
+		return Math.floor(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(LeftParenthesisToken leftParenthesis) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(leftParenthesis);
-		return expressionNode.getRightChild().getData().accept(this);
+		return visitRightChild();
 	}
 
 	@Override
 	public Double visit(LogarithmBaseTenToken logarithmBaseTen) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(logarithmBaseTen);
-		Double result = expressionNode.getLeftChild().getData().accept(this);
+		Double result = visitLeftChild();
 
 		if (result.equals(0.0) || result < 0.0)
 			throw new RuntimeException(EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE);
@@ -128,8 +133,7 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(LogarithmBaseTwoToken logarithmBaseTwo) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(logarithmBaseTwo);
-		Double result = expressionNode.getLeftChild().getData().accept(this);
+		Double result = visitLeftChild();
 
 		if (result.equals(0.0) || result < 0.0)
 			throw new RuntimeException(EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE);
@@ -139,8 +143,7 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(LogarithmToken logarithm) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(logarithm);
-		Double result = expressionNode.getLeftChild().getData().accept(this);
+		Double result = visitLeftChild();
 
 		if (result.equals(0.0) || result < 0.0)
 			throw new RuntimeException(EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE);
@@ -150,27 +153,22 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(MinusToken minus) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(minus);
-		return expressionNode.getLeftChild().getData().accept(this) -
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() - visitRightChild();
 	}
 
 	@Override
 	public Double visit(ModuloToken modulo) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(modulo);
-		Double result = expressionNode.getRightChild().getData().accept(this);
+		Double result = visitRightChild();
 
 		if (result.equals(0.0))
 			throw new RuntimeException(EvaluationException.ZERO_MOD_MESSAGE);
 
-		return expressionNode.getLeftChild().getData().accept(this) % result;
+		return visitLeftChild() % result;
 	}
 
 	@Override
 	public Double visit(MultiplyToken multiply) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(multiply);
-		return expressionNode.getLeftChild().getData().accept(this) *
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() * visitRightChild();
 	}
 
 	@Override
@@ -180,16 +178,13 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(PlusToken plus) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(plus);
-		return expressionNode.getLeftChild().getData().accept(this) +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + visitRightChild();
 	}
 
 	@Override
 	public Double visit(PowerToken power) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(power);
-		Double resultLeft = expressionNode.getLeftChild().getData().accept(this);
-		Double resultRight = expressionNode.getRightChild().getData().accept(this);
+		Double resultLeft = visitLeftChild();
+		Double resultRight = visitRightChild();
 
 		if (resultLeft.equals(0.0) && resultRight < 0.0)
 			throw new RuntimeException(EvaluationException.ZERO_TO_NEGATIVE_POW_MESSAGE);
@@ -199,26 +194,22 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(RightParenthesisToken rightParenthesis) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(rightParenthesis);
-		return expressionNode.getLeftChild().getData().accept(this);
+		return visitLeftChild();
 	}
 
 	@Override
 	public Double visit(RoundToken round) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(round);
-		return Long.valueOf(Math.round(expressionNode.getLeftChild().getData().accept(this))).doubleValue();
+		return Long.valueOf(Math.round(visitLeftChild())).doubleValue();
 	}
 
 	@Override
 	public Double visit(SineToken sine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(sine);
-		return Math.sin(expressionNode.getLeftChild().getData().accept(this));
+		return Math.sin(visitLeftChild());
 	}
 
 	@Override
 	public Double visit(SquareRootToken squareRoot) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(squareRoot);
-		Double result = expressionNode.getLeftChild().getData().accept(this);
+		Double result = visitLeftChild();
 
 		if (result < 0.0)
 			throw new RuntimeException(EvaluationException.NEGATIVE_SQRT_MESSAGE);
@@ -228,8 +219,12 @@ public class EvaluatorVisitor implements Visitor<Double> {
 
 	@Override
 	public Double visit(TangentToken tangent) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(tangent);
-		return Math.tan(expressionNode.getLeftChild().getData().accept(this));
+		return Math.tan(visitLeftChild());
+	}
+
+	@Override
+	public Double visit(VariableToken variable) {
+		return Operations.variable(variables, variable.getSlot());
 	}
 
 }
@@ -0,0 +1,171 @@
+package visitors;
+
+import compiler.Opcodes;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class for a concrete visitor that maps every token to the opcode of the instruction it is compiled into.
+ * The visit of a token does not visit its children, so it lets code that walks the binary tree with an explicit stack
+ * instead of recursion find out what to do with every node.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class OpcodeVisitor implements Visitor<Byte> {
+
+	/**
+	 * Value returned for the parentheses, which are not compiled into any instruction.
+	 */
+	public static final byte NO_OPCODE = -1;
+
+	@Override
+	public Byte visit(AbsoluteValueToken absoluteValue) {
+		return Opcodes.ABSOLUTE_VALUE;
+	}
+
+	@Override
+	public Byte visit(ArccosineToken arccosine) {
+		return Opcodes.ARCCOSINE;
+	}
+
+	@Override
+	public Byte visit(ArcsineToken arcsine) {
+		return Opcodes.ARCSINE;
+	}
+
+	@Override
+	public Byte visit(ArctangentToken arctangent) {
+		return Opcodes.ARCTANGENT;
+	}
+
+	@Override
+	public Byte visit(CeilingToken ceiling) {
+		return Opcodes.CEILING;
+	}
+
+	@Override
+	public Byte visit(ConstantToken constant) {
+		return Opcodes.PUSH_CONSTANT;
+	}
+
+	@Override
+	public Byte visit(CosineToken cosine) {
+		return Opcodes.COSINE;
+	}
+
+	@Override
+	public Byte visit(DivideToken divide) {
+		return Opcodes.DIVIDE;
+	}
+
+	@Override
+	public Byte visit(FloorToken floor) {
+		return Opcodes.FLOOR;
+	}
+
+	@Override
+	public Byte visit(LeftParenthesisToken leftParenthesis) {
+		return NO_OPCODE;
+	}
+
+	@Override
+	public Byte visit(LogarithmBaseTenToken logarithmBaseTen) {
+		return Opcodes.LOGARITHM_BASE_TEN;
+	}
+
+	@Override
+	public Byte visit(LogarithmBaseTwoToken logarithmBaseTwo) {
+		return Opcodes.LOGARITHM_BASE_TWO;
+	}
+
+	@Override
+	public Byte visit(LogarithmToken logarithm) {
+		return Opcodes.LOGARITHM;
+	}
+
+	@Override
+	public Byte visit(MinusToken minus) {
+		return Opcodes.MINUS;
+	}
+
+	@Override
+	public Byte visit(ModuloToken modulo) {
+		return Opcodes.MODULO;
+	}
+
+	@Override
+	public Byte visit(MultiplyToken multiply) {
+		return Opcodes.MULTIPLY;
+	}
+
+	@Override
+	public Byte visit(NumberToken number) {
+		return Opcodes.PUSH_CONSTANT;
+	}
+
+	@Override
+	public Byte visit(PlusToken plus) {
+		return Opcodes.PLUS;
+	}
+
+	@Override
+	public Byte visit(PowerToken power) {
+		return Opcodes.POWER;
+	}
+
+	@Override
+	public Byte visit(RightParenthesisToken rightParenthesis) {
+		return NO_OPCODE;
+	}
+
+	@Override
+	public Byte visit(RoundToken round) {
+		return Opcodes.ROUND;
+	}
+
+	@Override
+	public Byte visit(SineToken sine) {
+		return Opcodes.SINE;
+	}
+
+	@Override
+	public Byte visit(SquareRootToken squareRoot) {
+		return Opcodes.SQUARE_ROOT;
+	}
+
+	@Override
+	public Byte visit(TangentToken tangent) {
+		return Opcodes.TANGENT;
+	}
+
+	@Override
+	public Byte visit(VariableToken variable) {
+		return Opcodes.LOAD_VARIABLE;
+	}
+
+}
@@ -1,6 +1,7 @@
 package visitors;
 
 import datastructures.BinaryTreeNode;
+import datastructures.Stack;
 
 import tokens.AbsoluteValueToken;
 import tokens.ArccosineToken;
@@ -27,19 +28,22 @@ import tokens.SineToken;
 import tokens.SquareRootToken;
 import tokens.TangentToken;
 import tokens.Token;
+import tokens.VariableToken;
 
 /**
  * Class for a concrete visitor that prints a mathematical expression.
  * It is used for debugging purposes to check if the expression was correctly parsed.
+ * Besides visiting the tokens recursively, it can print the whole mathematical expression with an explicit stack,
+ * which is how binary trees of any depth are printed.
  * 
  * @author  Valentin Gabriel Mitrea
  */
-public class PrintVisitor implements Visitor<String> {
+public class PrintVisitor extends TreeVisitor<String> {
 
 	/**
 	 * A binary tree representation of the mathematical expression being visited.
 	 */
-	private BinaryTreeNode<Token> expressionTree;
+	private final BinaryTreeNode<Token> expressionTree;
 
 	/**
 	 * Constructor for a PrintVisitor.
@@ -47,37 +51,74 @@ public class PrintVisitor implements Visitor<String> {
 	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
 	 */
 	public PrintVisitor(BinaryTreeNode<Token> expressionTree) {
+		super(expressionTree);
 		this.expressionTree = expressionTree;
 	}
 
+	/**
+	 * Prints the whole mathematical expression without any recursion, giving the same result as visiting its root.
+	 * 
+	 * @return  the printed mathematical expression
+	 */
+	public String print() {
+		StringBuilder expression = new StringBuilder();
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		nodes.push(expressionTree);
+
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			Token token = node.getData();
+
+			// the children are pushed after the nodes printed after them, the token itself as a childless node
+			if (node.getLeftChild() == null && node.getRightChild() == null) {
+				if (expression.length() > 0)
+					expression.append(' ');
+
+				expression.append(token.toString());
+			}
+			else if (node.getLeftChild() == null) {
+				nodes.push(node.getRightChild());
+				nodes.push(new BinaryTreeNode<Token>(token));
+			}
+			else if (node.getRightChild() == null && !token.isRightParenthesis()) {
+				nodes.push(node.getLeftChild());
+				nodes.push(new BinaryTreeNode<Token>(token));
+			}
+			else {
+				if (node.getRightChild() != null)
+					nodes.push(node.getRightChild());
+
+				nodes.push(new BinaryTreeNode<Token>(token));
+				nodes.push(node.getLeftChild());
+			}
+		}
+
+		return expression.toString();
+	}
+
 	@Override
 	public String visit(AbsoluteValueToken absoluteValue) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(absoluteValue);
-		return absoluteValue.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return absoluteValue.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(ArccosineToken arccosine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(arccosine);
-		return arccosine.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return arccosine.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(ArcsineToken arcsine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(arcsine);
-		return arcsine.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return arcsine.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(ArctangentToken arctangent) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(arctangent);
-		return arctangent.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return arctangent.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(CeilingToken ceiling) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(ceiling);
-		return ceiling.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return ceiling.toString() + " " + visitLeftChild();
 	}
 
 	@Override
@@ -87,66 +128,52 @@ public class PrintVisitor implements Visitor<String> {
 
 	@Override
 	public String visit(CosineToken cosine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(cosine);
-		return cosine.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return cosine.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(DivideToken divide) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(divide);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + divide.toString() + " " +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + " " + divide.toString() + " " + visitRightChild();
 	}
 
 	@Override
 	public String visit(FloorToken floor) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(floor);
-		return floor.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return floor.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(LeftParenthesisToken leftParenthesis) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(leftParenthesis);
-		return leftParenthesis.toString() + " " + expressionNode.getRightChild().getData().accept(this);
+		return leftParenthesis.toString() + " " + visitRightChild();
 	}
 
 	@Override
 	public String visit(LogarithmBaseTenToken logarithmBaseTen) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(logarithmBaseTen);
-		return logarithmBaseTen.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return logarithmBaseTen.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(LogarithmBaseTwoToken logarithmBaseTwo) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(logarithmBaseTwo);
-		return logarithmBaseTwo.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return logarithmBaseTwo.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(LogarithmToken logarithm) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(logarithm);
-		return logarithm.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return logarithm.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(MinusToken minus) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(minus);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + minus.toString() + " " +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + " " + minus.toString() + " " + visitRightChild();
 	}
 
 	@Override
 	public String visit(ModuloToken modulo) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(modulo);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + modulo.toString() + " " +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + " " + modulo.toString() + " " + visitRightChild();
 	}
 
 	@Override
 	public String visit(MultiplyToken multiply) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(multiply);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + multiply.toString() + " " +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + " " + multiply.toString() + " " + visitRightChild();
 	}
 
 	@Override
@@ -156,46 +183,42 @@ public class PrintVisitor implements Visitor<String> {
 
 	@Override
 	public String visit(PlusToken plus) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(plus);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + plus.toString() + " " +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + " " + plus.toString() + " " + visitRightChild();
 	}
 
 	@Override
 	public String visit(PowerToken power) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(power);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + power.toString() + " " +
-			   expressionNode.getRightChild().getData().accept(this);
+		return visitLeftChild() + " " + power.toString() + " " + visitRightChild();
 	}
 
 	@Override
 	public String visit(RightParenthesisToken rightParenthesis) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(rightParenthesis);
-		return expressionNode.getLeftChild().getData().accept(this) + " " + rightParenthesis.toString();
+		return visitLeftChild() + " " + rightParenthesis.toString();
 	}
 
 	@Override
 	public String visit(RoundToken round) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(round);
-		return round.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return round.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(SineToken sine) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(sine);
-		return sine.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return sine.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(SquareRootToken squareRoot) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(squareRoot);
-		return squareRoot.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return squareRoot.toString() + " " + visitLeftChild();
 	}
 
 	@Override
 	public String visit(TangentToken tangent) {
-		BinaryTreeNode<Token> expressionNode = expressionTree.findNode(tangent);
-		return tangent.toString() + " " + expressionNode.getLeftChild().getData().accept(this);
+		return tangent.toString() + " " + visitLeftChild();
+	}
+
+	@Override
+	public String visit(VariableToken variable) {
+		return variable.toString();
 	}
 
 }
@@ -0,0 +1,354 @@
+package visitors;
+
+import datastructures.BinaryTreeNode;
+
+import tokens.AbsoluteValueToken;
+import tokens.ArccosineToken;
+import tokens.ArcsineToken;
+import tokens.ArctangentToken;
+import tokens.CeilingToken;
+import tokens.ConstantToken;
+import tokens.CosineToken;
+import tokens.DivideToken;
+import tokens.FloorToken;
+import tokens.LeftParenthesisToken;
+import tokens.LogarithmBaseTenToken;
+import tokens.LogarithmBaseTwoToken;
+import tokens.LogarithmToken;
+import tokens.MinusToken;
+import tokens.ModuloToken;
+import tokens.MultiplyToken;
+import tokens.NumberToken;
+import tokens.PlusToken;
+import tokens.PowerToken;
+import tokens.RightParenthesisToken;
+import tokens.RoundToken;
+import tokens.SineToken;
+import tokens.SquareRootToken;
+import tokens.TangentToken;
+import tokens.Token;
+import tokens.VariableToken;
+
+/**
+ * Class for a concrete visitor that simplifies a mathematical expression through algebraic rewrite rules.
+ * The visit builds a new binary tree, rewritten bottom-up. By default only the rules that keep the result of the
+ * evaluation bit-identical are applied: x * 1, 1 * x, x - 0, x + -0 and x ^ 1 become x, divisions by a power of two
+ * become multiplications by its exact reciprocal, nested abs, floor, ceil and round functions collapse, and redundant
+ * parentheses around a single number or around another parenthesized subexpression are dropped.
+ * The inexact rules, which may change the last bit of the result or the sign of a zero result, have to be enabled
+ * explicitly: x + 0 and 0 + x become x, x - -0 becomes x, while x ^ 2 and x ^ 3 become repeated multiplications when
+ * x is a single number, constant or variable. Larger bases are left as powers on purpose: a binary tree cannot hold the
+ * value of a subexpression for reuse, so the multiplication would evaluate the base two or three times.
+ * Besides visiting the tokens recursively, it can simplify the whole mathematical expression with explicit stacks,
+ * which is how binary trees of any depth are simplified.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class SimplificationVisitor extends TreeVisitor<BinaryTreeNode<Token>> {
+
+	/**
+	 * A binary tree representation of the mathematical expression being visited.
+	 */
+	private final BinaryTreeNode<Token> expressionTree;
+
+	/**
+	 * Whether or not the rewrite rules that do not keep the result bit-identical are applied.
+	 */
+	private final boolean allowInexactRewrites;
+
+	/**
+	 * Constructor for a SimplificationVisitor.
+	 * 
+	 * @param  expressionTree        the root node of the mathematical expression that has to be visited
+	 * @param  allowInexactRewrites  true to also apply the rewrite rules that do not keep the result bit-identical
+	 */
+	public SimplificationVisitor(BinaryTreeNode<Token> expressionTree, boolean allowInexactRewrites) {
+		super(expressionTree);
+		this.expressionTree = expressionTree;
+		this.allowInexactRewrites = allowInexactRewrites;
+	}
+
+	/**
+	 * Simplifies the whole mathematical expression without any recursion, giving the same result as visiting its root.
+	 * 
+	 * @return  a new binary tree representation of the simplified mathematical expression
+	 */
+	public BinaryTreeNode<Token> simplify() {
+		return visitIteratively(expressionTree);
+	}
+
+	/**
+	 * Checks if the node is a NumberToken holding exactly the given value, telling apart positive and negative zero.
+	 * 
+	 * @param  node   the node to check
+	 * @param  value  the value to look for
+	 * 
+	 * @return        true if node holds the given value, false otherwise
+	 */
+	private static boolean isNumber(BinaryTreeNode<Token> node, double value) {
+		return node.isLeaf() && node.getData() instanceof NumberToken &&
+			   Double.doubleToRawLongBits(((NumberToken) node.getData()).getValue()) == Double.doubleToRawLongBits(value);
+	}
+
+	/**
+	 * Checks if dividing by the given value gives exactly the same result as multiplying by its reciprocal, which is
+	 * the case for powers of two whose reciprocal is a normal double value.
+	 * 
+	 * @param  divisor  the value to check
+	 * 
+	 * @return          true if the reciprocal of divisor is exact, false otherwise
+	 */
+	private static boolean hasExactReciprocal(double divisor) {
+		double reciprocal = 1.0 / divisor;
+
+		return Math.abs(divisor) >= Double.MIN_NORMAL && Math.abs(reciprocal) >= Double.MIN_NORMAL &&
+			   !Double.isInfinite(divisor) && !Double.isInfinite(reciprocal) &&
+			   (Double.doubleToRawLongBits(divisor) & 0x000FFFFFFFFFFFFFL) == 0L;
+	}
+
+	/**
+	 * Creates a new leaf node holding the same token as the given leaf node.
+	 * 
+	 * @param  leaf  the leaf node to copy
+	 * 
+	 * @return       the new leaf node
+	 */
+	private static BinaryTreeNode<Token> copyLeaf(BinaryTreeNode<Token> leaf) {
+		return new BinaryTreeNode<Token>(leaf.getData());
+	}
+
+	/**
+	 * Skips the parentheses that enclose the given subexpression.
+	 * 
+	 * @param  node  the node of the subexpression
+	 * 
+	 * @return       the first node of the subexpression that is not a parenthesis
+	 */
+	private static BinaryTreeNode<Token> skipParentheses(BinaryTreeNode<Token> node) {
+		while (node.getData() instanceof LeftParenthesisToken)
+			node = node.getRightChild().getLeftChild();
+
+		return node;
+	}
+
+	/**
+	 * Collapses an abs, floor, ceil or round function applied on the result of a function that already produces a value
+	 * the outer function leaves unchanged, such as floor ( ceil ( x ) ) or abs ( abs ( x ) ).
+	 * 
+	 * @param  node  the node of the outer function, whose children were already simplified
+	 * 
+	 * @return       the node of the inner function or the given node if it cannot be collapsed
+	 */
+	private static BinaryTreeNode<Token> collapse(BinaryTreeNode<Token> node) {
+		BinaryTreeNode<Token> inner = skipParentheses(node.getLeftChild());
+		Token outerToken = node.getData(), innerToken = inner.getData();
+
+		// round is not collapsed over floor and ceil, since it clamps values beyond the range of a long
+		boolean collapsible;
+		if (outerToken instanceof AbsoluteValueToken)
+			collapsible = innerToken instanceof AbsoluteValueToken;
+		else if (outerToken instanceof RoundToken)
+			collapsible = innerToken instanceof RoundToken;
+		else
+			collapsible = innerToken instanceof FloorToken || innerToken instanceof CeilingToken ||
+						  innerToken instanceof RoundToken;
+
+		return collapsible ? inner : node;
+	}
+
+	/**
+	 * Builds the node of a multiplication, dropping the operands equal to 1.
+	 * 
+	 * @param  multiply  the MultiplyToken of the node
+	 * @param  lhs       the simplified left operand
+	 * @param  rhs       the simplified right operand
+	 * 
+	 * @return           the simplified node
+	 */
+	private static BinaryTreeNode<Token> simplifyMultiplication(MultiplyToken multiply, BinaryTreeNode<Token> lhs,
+																BinaryTreeNode<Token> rhs) {
+		if (isNumber(rhs, 1.0))
+			return lhs;
+		if (isNumber(lhs, 1.0))
+			return rhs;
+
+		return new BinaryTreeNode<Token>(multiply, lhs, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(AbsoluteValueToken absoluteValue) {
+		return collapse(new BinaryTreeNode<Token>(absoluteValue, parenthesize(visitLeftChild()), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ArccosineToken arccosine) {
+		return new BinaryTreeNode<Token>(arccosine, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ArcsineToken arcsine) {
+		return new BinaryTreeNode<Token>(arcsine, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ArctangentToken arctangent) {
+		return new BinaryTreeNode<Token>(arctangent, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(CeilingToken ceiling) {
+		return collapse(new BinaryTreeNode<Token>(ceiling, parenthesize(visitLeftChild()), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ConstantToken constant) {
+		return new BinaryTreeNode<Token>(constant);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(CosineToken cosine) {
+		return new BinaryTreeNode<Token>(cosine, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(DivideToken divide) {
+		BinaryTreeNode<Token> lhs = visitLeftChild();
+		BinaryTreeNode<Token> rhs = visitRightChild();
+
+		// division by a power of two is exactly the same as multiplication by its reciprocal
+		if (rhs.isLeaf() && rhs.getData() instanceof NumberToken) {
+			double divisor = ((NumberToken) rhs.getData()).getValue();
+			if (hasExactReciprocal(divisor))
+				return simplifyMultiplication(MultiplyToken.INSTANCE, lhs, new BinaryTreeNode<Token>(new NumberToken(1.0 / divisor)));
+		}
+
+		return new BinaryTreeNode<Token>(divide, lhs, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(FloorToken floor) {
+		return collapse(new BinaryTreeNode<Token>(floor, parenthesize(visitLeftChild()), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LeftParenthesisToken leftParenthesis) {
+		BinaryTreeNode<Token> rhs = visitRightChild();
+		if (rhs.isLeaf() || rhs.getData() instanceof LeftParenthesisToken)
+			return rhs;
+
+		return new BinaryTreeNode<Token>(leftParenthesis, null, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LogarithmBaseTenToken logarithmBaseTen) {
+		return new BinaryTreeNode<Token>(logarithmBaseTen, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LogarithmBaseTwoToken logarithmBaseTwo) {
+		return new BinaryTreeNode<Token>(logarithmBaseTwo, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(LogarithmToken logarithm) {
+		return new BinaryTreeNode<Token>(logarithm, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(MinusToken minus) {
+		BinaryTreeNode<Token> lhs = visitLeftChild();
+		BinaryTreeNode<Token> rhs = visitRightChild();
+
+		// x - 0 is always x, while x - -0 is +0 instead of -0 when x is -0
+		if (isNumber(rhs, 0.0) || (allowInexactRewrites && isNumber(rhs, -0.0)))
+			return lhs;
+
+		return new BinaryTreeNode<Token>(minus, lhs, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(ModuloToken modulo) {
+		return new BinaryTreeNode<Token>(modulo, visitLeftChild(), visitRightChild());
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(MultiplyToken multiply) {
+		return simplifyMultiplication(multiply, visitLeftChild(), visitRightChild());
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(NumberToken number) {
+		return new BinaryTreeNode<Token>(number);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(PlusToken plus) {
+		BinaryTreeNode<Token> lhs = visitLeftChild();
+		BinaryTreeNode<Token> rhs = visitRightChild();
+
+		// x + -0 is always x, while x + 0 is +0 instead of -0 when x is -0
+		if (isNumber(rhs, -0.0) || (allowInexactRewrites && isNumber(rhs, 0.0)))
+			return lhs;
+		if (isNumber(lhs, -0.0) || (allowInexactRewrites && isNumber(lhs, 0.0)))
+			return rhs;
+
+		return new BinaryTreeNode<Token>(plus, lhs, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(PowerToken power) {
+		BinaryTreeNode<Token> lhs = visitLeftChild();
+		BinaryTreeNode<Token> rhs = visitRightChild();
+
+		if (isNumber(rhs, 1.0))
+			return lhs;
+
+		// Math.pow is not guaranteed to round x ^ 2 and x ^ 3 exactly like the repeated multiplication does, and only
+		// leaves are repeated since copying a larger base would evaluate it more than once
+		if (allowInexactRewrites && lhs.isLeaf() && (isNumber(rhs, 2.0) || isNumber(rhs, 3.0))) {
+			BinaryTreeNode<Token> product = new BinaryTreeNode<Token>(MultiplyToken.INSTANCE, copyLeaf(lhs), copyLeaf(lhs));
+			if (isNumber(rhs, 3.0))
+				product = new BinaryTreeNode<Token>(MultiplyToken.INSTANCE, product, copyLeaf(lhs));
+
+			// the parentheses keep the printed expression equivalent when the power was the exponent of another power
+			return parenthesize(product);
+		}
+
+		return new BinaryTreeNode<Token>(power, lhs, rhs);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(RightParenthesisToken rightParenthesis) {
+		BinaryTreeNode<Token> lhs = visitLeftChild();
+		if (lhs.isLeaf() || lhs.getData() instanceof LeftParenthesisToken)
+			return lhs;
+
+		return new BinaryTreeNode<Token>(rightParenthesis, lhs, null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(RoundToken round) {
+		return collapse(new BinaryTreeNode<Token>(round, parenthesize(visitLeftChild()), null));
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(SineToken sine) {
+		return new BinaryTreeNode<Token>(sine, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(SquareRootToken squareRoot) {
+		return new BinaryTreeNode<Token>(squareRoot, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(TangentToken tangent) {
+		return new BinaryTreeNode<Token>(tangent, parenthesize(visitLeftChild()), null);
+	}
+
+	@Override
+	public BinaryTreeNode<Token> visit(VariableToken variable) {
+		return new BinaryTreeNode<Token>(variable);
+	}
+
+}
@@ -0,0 +1,149 @@
+package visitors;
+
+import datastructures.BinaryTreeNode;
+import datastructures.Stack;
+
+import tokens.LeftParenthesisToken;
+import tokens.RightParenthesisToken;
+import tokens.Token;
+
+/**
+ * Abstract class for a visitor that walks a binary tree representation of a mathematical expression node by node.
+ * It keeps track of the node currently being visited, so a visit method can reach the children of its token
+ * directly instead of searching the whole tree for the node that holds the token.
+ * The whole binary tree can also be visited without any recursion, in postfix order with explicit stacks, in which case
+ * the children of the current node are visited before it and their results are given back by the visit methods.
+ * 
+ * @param  <T>  the data type returned by the visitor
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public abstract class TreeVisitor<T> implements Visitor<T> {
+
+	/**
+	 * The node of the binary tree whose token is currently being visited.
+	 */
+	private BinaryTreeNode<Token> currentNode;
+
+	/**
+	 * Whether or not the children of the current node were already visited, during a visit without any recursion.
+	 */
+	private boolean childrenVisited;
+
+	/**
+	 * The result of the visit of the left child of the current node, when the children were already visited.
+	 */
+	private T leftResult;
+
+	/**
+	 * The result of the visit of the right child of the current node, when the children were already visited.
+	 */
+	private T rightResult;
+
+	/**
+	 * Constructor for a TreeVisitor.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 */
+	protected TreeVisitor(BinaryTreeNode<Token> expressionTree) {
+		this.currentNode = expressionTree;
+	}
+
+	/**
+	 * Visits the token stored in the given node, making it the current node for the duration of the visit.
+	 * 
+	 * @param  node  the node whose token has to be visited
+	 * 
+	 * @return       the result of the visit
+	 */
+	protected T visitNode(BinaryTreeNode<Token> node) {
+		BinaryTreeNode<Token> parentNode = currentNode;
+		currentNode = node;
+		T result = node.getData().accept(this);
+		currentNode = parentNode;
+		return result;
+	}
+
+	/**
+	 * Visits the whole binary tree without any recursion, giving the same result as visiting its root. The nodes are
+	 * visited in postfix order, with the results of the visited children kept on an explicit stack until their parent
+	 * node is visited, so binary trees of any depth can be visited.
+	 * 
+	 * @param  expressionTree  the root node of the mathematical expression that has to be visited
+	 * 
+	 * @return                 the result of the visit
+	 */
+	protected T visitIteratively(BinaryTreeNode<Token> expressionTree) {
+		Stack<BinaryTreeNode<Token>> nodes = new Stack<BinaryTreeNode<Token>>();
+		Stack<BinaryTreeNode<Token>> postfixNodes = new Stack<BinaryTreeNode<Token>>();
+		Stack<T> results = new Stack<T>();
+		nodes.push(expressionTree);
+
+		// the nodes are popped parent first and right child before left child, so they end up reversed in postfix order
+		while (!nodes.isEmpty()) {
+			BinaryTreeNode<Token> node = nodes.pop();
+			postfixNodes.push(node);
+
+			if (node.getLeftChild() != null)
+				nodes.push(node.getLeftChild());
+			if (node.getRightChild() != null)
+				nodes.push(node.getRightChild());
+		}
+
+		BinaryTreeNode<Token> parentNode = currentNode;
+		childrenVisited = true;
+
+		try {
+			while (!postfixNodes.isEmpty()) {
+				BinaryTreeNode<Token> node = postfixNodes.pop();
+				rightResult = node.getRightChild() != null ? results.pop() : null;
+				leftResult = node.getLeftChild() != null ? results.pop() : null;
+				currentNode = node;
+				results.push(node.getData().accept(this));
+			}
+		}
+		finally {
+			childrenVisited = false;
+			leftResult = null;
+			rightResult = null;
+			currentNode = parentNode;
+		}
+
+		return results.pop();
+	}
+
+	/**
+	 * Visits the left child of the current node, or gives back the result of its visit if it was already visited.
+	 * 
+	 * @return  the result of the visit
+	 */
+	protected T visitLeftChild() {
+		return childrenVisited ? leftResult : visitNode(currentNode.getLeftChild());
+	}
+
+	/**
+	 * Visits the right child of the current node, or gives back the result of its visit if it was already visited.
+	 * 
+	 * @return  the result of the visit
+	 */
+	protected T visitRightChild() {
+		return childrenVisited ? rightResult : visitNode(currentNode.getRightChild());
+	}
+
+	/**
+	 * Encloses the given subexpression in parentheses, unless it already is a parenthesized subexpression.
+	 * Visitors that build new binary trees use it to keep the arguments of mathematical functions parenthesized.
+	 * 
+	 * @param  node  the node of the subexpression
+	 * 
+	 * @return       the node of the parenthesized subexpression
+	 */
+	protected static BinaryTreeNode<Token> parenthesize(BinaryTreeNode<Token> node) {
+		if (node.getData() instanceof LeftParenthesisToken)
+			return node;
+
+		BinaryTreeNode<Token> rhs = new BinaryTreeNode<Token>(RightParenthesisToken.INSTANCE, node, null);
+		return new BinaryTreeNode<Token>(LeftParenthesisToken.INSTANCE, null, rhs);
+	}
+
+}
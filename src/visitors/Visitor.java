@@ -24,6 +24,7 @@ import tokens.RoundToken;
 import tokens.SineToken;
 import tokens.SquareRootToken;
 import tokens.TangentToken;
+import tokens.VariableToken;
 
 /**
  * Interface necessary as part of the Visitor design pattern.
@@ -250,4 +251,13 @@ public interface Visitor<T> {
 	 */
 	T visit(TangentToken tangent);
 
+	/**
+	 * Defines what happens when visiting a VariableToken.
+	 * 
+	 * @param  variable  the VariableToken being visited
+	 * 
+	 * @return           the result of the visit
+	 */
+	T visit(VariableToken variable);
+
 }
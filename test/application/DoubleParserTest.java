@@ -0,0 +1,169 @@
+package application;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.math.BigDecimal;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for the DoubleParser class.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class DoubleParserTest {
+
+	/**
+	 * Seed of the random literals, fixed so every run tests the same literals.
+	 */
+	private static final long SEED = 42;
+
+	@BeforeClass
+	public static void beforeClass() {
+	}
+
+	@AfterClass
+	public static void afterClass() {
+	}
+
+	@Before
+	public void before() {
+	}
+
+	@After
+	public void after() {
+	}
+
+	/**
+	 * Checks that DoubleParser converts a literal to exactly the same double value as Double.parseDouble, or rejects
+	 * it like Double.parseDouble.
+	 * 
+	 * @param  number  the literal
+	 */
+	private static void assertParsedLikeJava(String number) {
+		double expected;
+		try {
+			expected = Double.parseDouble(number);
+		}
+		catch (NumberFormatException e) {
+			try {
+				DoubleParser.parse(number, 0, number.length());
+				fail("NumberFormatException should be thrown for " + number + "!");
+			}
+			catch (NumberFormatException f) {
+			}
+
+			return;
+		}
+
+		double value = DoubleParser.parse(number, 0, number.length());
+		assertThat(number, Double.doubleToRawLongBits(value), is(Double.doubleToRawLongBits(expected)));
+	}
+
+	/**
+	 * Exhaustive test over small mantissas.
+	 * Every mantissa below 1000 should be converted correctly with every power of ten around the range of double
+	 * values, from the subnormal values to the overflowing ones.
+	 */
+	@Test
+	public void test1() {
+		for (int mantissa = 0; mantissa < 1000; mantissa++) {
+			for (int exponent = -345; exponent <= 310; exponent++)
+				assertParsedLikeJava(mantissa + "e" + exponent);
+		}
+	}
+
+	/**
+	 * Randomized test over the shortest representations of random double values, in plain and scientific notation.
+	 */
+	@Test
+	public void test2() {
+		Random random = new Random(SEED);
+
+		for (int i = 0; i < 100000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			if (Double.isNaN(value))
+				continue;
+
+			assertParsedLikeJava(Double.toString(value));
+			assertParsedLikeJava(String.format("%.17e", value));
+			assertParsedLikeJava(String.format("%.3f", value));
+		}
+	}
+
+	/**
+	 * Randomized test over literals halfway between two adjacent double values and just around them, whose rounding
+	 * depends on digits far beyond the 19 that fit in a long.
+	 */
+	@Test
+	public void test3() {
+		Random random = new Random(SEED);
+
+		for (int i = 0; i < 20000; i++) {
+			double value = Math.abs(Double.longBitsToDouble(random.nextLong()));
+			double next = Math.nextUp(value);
+			if (Double.isNaN(value) || Double.isInfinite(next))
+				continue;
+
+			BigDecimal halfway = new BigDecimal(value).add(new BigDecimal(next)).divide(BigDecimal.valueOf(2));
+
+			assertParsedLikeJava(halfway.toString());
+			assertParsedLikeJava(halfway.add(halfway.ulp()).toString());
+			assertParsedLikeJava(halfway.subtract(halfway.ulp()).toString());
+		}
+	}
+
+	/**
+	 * Randomized test over long literals with up to 40 digits, a decimal point anywhere and a random exponent.
+	 */
+	@Test
+	public void test4() {
+		Random random = new Random(SEED);
+
+		for (int i = 0; i < 100000; i++) {
+			StringBuilder number = new StringBuilder(random.nextBoolean() ? "-" : "");
+			int nrOfDigits = 1 + random.nextInt(40);
+			for (int j = 0; j < nrOfDigits; j++)
+				number.append((char) ('0' + random.nextInt(10)));
+
+			number.insert(number.length() - random.nextInt(nrOfDigits + 1), '.');
+			number.append('e').append(random.nextInt(700) - 350);
+
+			assertParsedLikeJava(number.toString());
+		}
+	}
+
+	/**
+	 * Test for the special forms accepted or rejected by Double.parseDouble.
+	 */
+	@Test
+	public void test5() {
+		String[] numbers = {
+			"0", "-0", "+0.0e-999", "1.", ".5", "-.5e1", "2.5f", "3D", "0x1p3", "-0x1.8p-1", "NaN", "-Infinity",
+			" 7 ", "9007199254740993", "4.9e-324", "2.4703282292062328e-324", "1.7976931348623157e308",
+			"1.7976931348623159e308", "1e400", "", "+", ".", "e5", "1e", "1e+", "1.2.3", "1ff", "--1", "1_0"
+		};
+
+		for (String number : numbers)
+			assertParsedLikeJava(number);
+	}
+
+	/**
+	 * Test for a literal that is only part of the given characters.
+	 */
+	@Test
+	public void test6() {
+		StringBuilder expression = new StringBuilder("x*123.456e-7+y");
+
+		assertThat(DoubleParser.parse(expression, 2, 12), is(123.456e-7));
+	}
+
+}
@@ -0,0 +1,410 @@
+package application;
+
+import compiler.CompiledFunction;
+import compiler.ExpressionArena;
+import compiler.OffHeapArena;
+
+import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import tokens.Token;
+
+/**
+ * Tests for the ExpressionArchive and ExpressionArchiveWriter classes.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ExpressionArchiveTest {
+
+	/**
+	 * Valid expressions written to the archives, with numbers, mathematical constants, variables, every operator and
+	 * every mathematical function.
+	 */
+	private static final String[] EXPRESSIONS = {
+		"10",
+		"-PI",
+		"x_1 * ( y + x_1 ) ^ 2 - sin ( y )",
+		"10 + 20 - 2 ^ 2 ^ 3 % e",
+		"( 2 ^ ( 1 + 2 ) - ( 2 + 2 ) ^ ( 4 / 2 ) * abs ( -2.0 ) ) + 10 % 4 - sin ( PI / 2 ) * ( 4 / ( 1 + 1.5 ) )",
+		"log10 ( 1000 ) + log2 ( 8 ) - sqrt ( 2 ) * ceil ( -e ) / floor ( PI ) + acos ( 0.5 ) * asin ( -0.5 )",
+		"log ( x_1 ) - cos ( tan ( 1 ) ) + atan ( y ) * round ( 0.1 )",
+		"( ( ( 5 ) ) )"
+	};
+
+	private Path file;
+
+	@BeforeClass
+	public static void beforeClass() {
+	}
+
+	@AfterClass
+	public static void afterClass() {
+	}
+
+	@Before
+	public void before() throws IOException {
+		file = Files.createTempFile("expressions", ".archive");
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Writes an archive of the given mathematical expressions, all parsed with the same table of variables.
+	 * 
+	 * @param  expressions       the mathematical expressions to write
+	 * @param  variables         the table in which the variables of the mathematical expressions are declared
+	 * 
+	 * @throws  SyntaxException  when a syntax error is discovered in one of the mathematical expressions
+	 * @throws  IOException      when the archive cannot be written
+	 */
+	private void write(String[] expressions, VariableTable variables) throws SyntaxException, IOException {
+		ExpressionArchiveWriter writer = new ExpressionArchiveWriter();
+		for (String expression : expressions)
+			writer.add(ExpressionParser.parse(expression, variables));
+
+		writer.write(file);
+	}
+
+	/**
+	 * Round trip test.
+	 * Every decoded expression should be printed exactly as its parsed text.
+	 */
+	@Test
+	public void test1() {
+		try {
+			write(EXPRESSIONS, new VariableTable());
+			ExpressionArchive archive = ExpressionArchive.open(file);
+
+			assertThat(archive.getVersion(), is(1));
+			assertThat(archive.getNrOfExpressions(), is(EXPRESSIONS.length));
+
+			for (int i = 0; i < EXPRESSIONS.length; i++) {
+				assertThat(ExpressionParser.toString(archive.getExpressionTree(i)),
+						   is(ExpressionParser.toString(ExpressionParser.parse(EXPRESSIONS[i]))));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation test.
+	 * The decoded expressions should keep the slots of their variables, and evaluate to the same values as their
+	 * parsed text, whether they are decoded as binary trees, compiled or loaded into an arena.
+	 */
+	@Test
+	public void test2() {
+		try (OffHeapArena offHeapArena = new OffHeapArena(8)) {
+			VariableTable variables = new VariableTable();
+			write(EXPRESSIONS, variables);
+			ExpressionArchive archive = ExpressionArchive.open(file);
+			ExpressionArena arena = new ExpressionArena();
+
+			double[] bindings = variables.newBindings();
+			bindings[variables.slotOf("x_1")] = 3.0;
+			bindings[variables.slotOf("y")] = 0.25;
+
+			for (int i = 0; i < EXPRESSIONS.length; i++) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(EXPRESSIONS[i], variables);
+				Double value = ExpressionEvaluator.evaluate(expressionTree, bindings);
+
+				assertThat(EXPRESSIONS[i], ExpressionEvaluator.evaluate(archive.getExpressionTree(i), bindings), is(value));
+				assertThat(EXPRESSIONS[i], ExpressionEvaluator.evaluate(archive.compile(i), bindings), is(value));
+				assertThat(EXPRESSIONS[i], ExpressionEvaluator.evaluate(arena, archive.load(i, arena), bindings), is(value));
+				assertThat(EXPRESSIONS[i], offHeapArena.evaluate(archive.load(i, offHeapArena), bindings), is(value.doubleValue()));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Lazy decoding test.
+	 * Any expression of a large archive should be decoded on its own, and an index outside of the archive should be
+	 * rejected.
+	 */
+	@Test
+	public void test3() {
+		try {
+			ExpressionArchiveWriter writer = new ExpressionArchiveWriter();
+			for (int i = 0; i < 100000; i++)
+				writer.add(ExpressionParser.parse("x + " + i));
+
+			assertThat(writer.getNrOfExpressions(), is(100000));
+			writer.write(file);
+			ExpressionArchive archive = ExpressionArchive.open(file);
+
+			assertThat(ExpressionParser.toString(archive.getExpressionTree(99999)), is("x + 99999.0"));
+			assertThat(ExpressionParser.toString(archive.getExpressionTree(0)), is("x + 0.0"));
+
+			try {
+				archive.getExpressionTree(100000);
+				fail("IndexOutOfBoundsException should be thrown!");
+			}
+			catch (IndexOutOfBoundsException e) {
+				assertThat(e.getMessage(), is("no expression 100000 in the archive"));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Deep nesting test.
+	 * Deeply nested expressions should be written and decoded without overflowing the thread stack.
+	 */
+	@Test
+	public void test4() {
+		try {
+			StringBuilder expression = new StringBuilder();
+			for (int i = 0; i < 100000; i++)
+				expression.append(i % 2 == 0 ? "abs ( 1 - " : "( ");
+
+			expression.append("2.5");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" )");
+
+			write(new String[] { expression.toString() }, new VariableTable());
+			ExpressionArchive archive = ExpressionArchive.open(file);
+
+			assertThat(ExpressionParser.toString(archive.getExpressionTree(0)),
+					   is(ExpressionParser.toString(ExpressionParser.parse(expression.toString()))));
+
+			ExpressionArena arena = new ExpressionArena();
+			assertThat(arena.evaluate(archive.load(0, arena), CompiledFunction.NO_VARIABLES),
+					   is(ExpressionEvaluator.evaluate(ExpressionParser.parse(expression.toString())).doubleValue()));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Invalid archive test.
+	 * Files that are not archives, archives of a newer version and truncated archives should be rejected when opened.
+	 */
+	@Test
+	public void test5() {
+		try {
+			write(EXPRESSIONS, new VariableTable());
+			byte[] bytes = Files.readAllBytes(file);
+
+			String[][] errors = {
+				{ "magic", "not an expression archive" },
+				{ "version", "unsupported expression archive version 2" },
+				{ "length", "truncated expression archive" }
+			};
+
+			for (String[] error : errors) {
+				ByteBuffer invalidBytes = ByteBuffer.wrap(bytes.clone());
+				if (error[0].equals("magic"))
+					invalidBytes.putInt(0, 0x7F454C46);
+				else if (error[0].equals("version"))
+					invalidBytes.putShort(4, (short) 2);
+				else
+					invalidBytes = ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice();
+
+				try {
+					new ExpressionArchive(invalidBytes);
+					fail("IOException should be thrown!");
+				}
+				catch (IOException e) {
+					assertThat(e.getMessage(), is(error[1]));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Corrupt expression test.
+	 * A corrupt expression should be rejected when it is decoded, leaving the arena it is loaded into unchanged, while
+	 * the other expressions of the archive are still decoded.
+	 */
+	@Test
+	public void test6() {
+		try {
+			write(new String[] { "1 + 2", "3 * 4" }, new VariableTable());
+			ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+
+			// the tag of the binary operator of the first expression is replaced with an unknown tag
+			int end = bytes.getInt(ExpressionArchive.HEADER_SIZE + 4);
+			bytes.put(end - 1, (byte) 100);
+			ExpressionArchive archive = new ExpressionArchive(bytes);
+
+			try {
+				archive.getExpressionTree(0);
+				fail("IllegalStateException should be thrown!");
+			}
+			catch (IllegalStateException e) {
+				assertThat(e.getMessage(), is("expression 0 of the archive is corrupt"));
+			}
+
+			ExpressionArena arena = new ExpressionArena();
+			try {
+				archive.load(0, arena);
+				fail("IllegalStateException should be thrown!");
+			}
+			catch (IllegalStateException e) {
+				assertThat(arena.getNrOfNodes(), is(0));
+				assertThat(arena.getNrOfLiterals(), is(0));
+			}
+
+			assertThat(ExpressionParser.toString(archive.getExpressionTree(1)), is("3.0 * 4.0"));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Variable table test.
+	 * The archive should give the slot of every variable of its expressions, and expressions that give another slot to
+	 * a variable should be rejected without changing the archive.
+	 */
+	@Test
+	public void test7() {
+		try {
+			VariableTable variables = new VariableTable();
+			variables.declare("unused");
+			write(new String[] { "x + y", "sqrt ( z ) - x" }, variables);
+			ExpressionArchive archive = ExpressionArchive.open(file);
+
+			assertThat(archive.getNrOfSlots(), is(4));
+			assertThat(archive.newBindings().length, is(4));
+			assertThat(archive.nameOf(0) == null, is(true));
+			for (String name : new String[] { "x", "y", "z" }) {
+				assertThat(archive.slotOf(name), is(variables.slotOf(name)));
+				assertThat(archive.nameOf(variables.slotOf(name)), is(name));
+			}
+
+			assertThat(archive.slotOf("unused"), is(-1));
+
+			VariableTable otherVariables = new VariableTable();
+			ExpressionArchiveWriter writer = new ExpressionArchiveWriter();
+			writer.add(ExpressionParser.parse("a * b", otherVariables));
+			try {
+				writer.add(ExpressionParser.parse("c + b"));
+				fail("IllegalArgumentException should be thrown!");
+			}
+			catch (IllegalArgumentException e) {
+				assertThat(e.getMessage(), is("variable slot 0 is already named a"));
+			}
+
+			writer.add(ExpressionParser.parse("b + a", otherVariables));
+			writer.write(file);
+			archive = ExpressionArchive.open(file);
+
+			assertThat(archive.getNrOfExpressions(), is(2));
+			assertThat(archive.getNrOfSlots(), is(2));
+			assertThat(ExpressionParser.toString(archive.getExpressionTree(1)), is("b + a"));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Corrupt payload test.
+	 * A number cut short by the end of its expression or a variable whose name index is outside of the name table
+	 * should be reported as a corrupt expression.
+	 */
+	@Test
+	public void test8() {
+		try {
+			write(new String[] { "1.5", "x" }, new VariableTable());
+			byte[] bytes = Files.readAllBytes(file);
+
+			// the end of the first expression is moved into the middle of its number
+			ByteBuffer truncatedBytes = ByteBuffer.wrap(bytes.clone());
+			int start = truncatedBytes.getInt(ExpressionArchive.HEADER_SIZE);
+			truncatedBytes.putInt(ExpressionArchive.HEADER_SIZE + 4, start + 5);
+
+			// the name index of the variable of the second expression is replaced with one past the name table
+			ByteBuffer invalidNameBytes = ByteBuffer.wrap(bytes.clone());
+			int end = invalidNameBytes.getInt(ExpressionArchive.HEADER_SIZE + 8);
+			invalidNameBytes.putInt(end - 4, 1);
+
+			ByteBuffer[] buffers = { truncatedBytes, invalidNameBytes };
+			for (int i = 0; i < buffers.length; i++) {
+				ExpressionArchive archive = new ExpressionArchive(buffers[i]);
+
+				try {
+					archive.getExpressionTree(i);
+					fail("IllegalStateException should be thrown!");
+				}
+				catch (IllegalStateException e) {
+					assertThat(e.getMessage(), is("expression " + i + " of the archive is corrupt"));
+				}
+			}
+
+			try {
+				new ExpressionArchive(truncatedBytes).load(0, new ExpressionArena());
+				fail("IllegalStateException should be thrown!");
+			}
+			catch (IllegalStateException e) {
+				assertThat(e.getMessage(), is("expression 0 of the archive is corrupt"));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (IOException e) {
+			fail("IOException should not be thrown!");
+		}
+	}
+
+}
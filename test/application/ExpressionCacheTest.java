@@ -0,0 +1,260 @@
+package application;
+
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tokens.Token;
+
+/**
+ * Tests for the ExpressionCache class.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ExpressionCacheTest {
+
+	@BeforeClass
+	public static void beforeClass() {
+	}
+
+	@AfterClass
+	public static void afterClass() {
+	}
+
+	@Before
+	public void before() {
+	}
+
+	@After
+	public void after() {
+	}
+
+	/**
+	 * Basic test for an expression requested twice, which is parsed only once.
+	 */
+	@Test
+	public void test1() {
+		try {
+			ExpressionCache<BinaryTreeNode<Token>> cache =
+				new ExpressionCache<BinaryTreeNode<Token>>(100, expressionTree -> expressionTree);
+			BinaryTreeNode<Token> expressionTree = cache.get("1 + 2 * 3");
+
+			assertThat(ExpressionParser.toString(expressionTree), is("1.0 + 2.0 * 3.0"));
+			assertThat(cache.get("1 + 2 * 3"), is(sameInstance(expressionTree)));
+			assertThat(cache.getNrOfMisses(), is(1L));
+			assertThat(cache.getNrOfHits(), is(1L));
+			assertThat(cache.getNrOfEvictions(), is(0L));
+			assertThat(cache.size(), is(1L));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for a cache of compiled programs.
+	 */
+	@Test
+	public void test2() {
+		try {
+			ExpressionCache<PostfixProgram> cache = new ExpressionCache<PostfixProgram>(100, ExpressionEvaluator::compile);
+
+			assertThat(ExpressionEvaluator.evaluate(cache.get("x * x + y"), new double[] { 3.0, 1.0 }), is(10.0));
+			assertThat(ExpressionEvaluator.evaluate(cache.get("x * x + y"), new double[] { 4.0, 2.0 }), is(18.0));
+			assertThat(cache.getNrOfMisses(), is(1L));
+			assertThat(cache.getNrOfHits(), is(1L));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the eviction of the least recently used expression.
+	 */
+	@Test
+	public void test3() {
+		try {
+			ExpressionCache<BinaryTreeNode<Token>> cache =
+				new ExpressionCache<BinaryTreeNode<Token>>(1, expressionTree -> expressionTree);
+
+			cache.get("1 + 1");
+			cache.get("2 + 2");
+			assertThat(cache.size(), is(1L));
+			assertThat(cache.getNrOfEvictions(), is(1L));
+
+			cache.get("2 + 2");
+			cache.get("1 + 1");
+			assertThat(cache.getNrOfMisses(), is(3L));
+			assertThat(cache.getNrOfHits(), is(1L));
+			assertThat(cache.getNrOfEvictions(), is(2L));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the bounds of a cache of many expressions, by number of entries and by weight.
+	 */
+	@Test
+	public void test4() {
+		try {
+			ExpressionCache<BinaryTreeNode<Token>> cache =
+				new ExpressionCache<BinaryTreeNode<Token>>(1000, expressionTree -> expressionTree);
+
+			for (int i = 0; i < 1000; i++)
+				cache.get("x + " + i);
+
+			assertThat(cache.size(), lessThanOrEqualTo(1000L));
+			assertThat(cache.size() + cache.getNrOfEvictions(), is(1000L));
+
+			for (int i = 0; i < 5000; i++)
+				cache.get("x + " + i);
+
+			assertThat(cache.size(), lessThanOrEqualTo(1000L));
+			assertThat(cache.getNrOfHits() + cache.getNrOfMisses(), is(6000L));
+
+			ExpressionCache<BinaryTreeNode<Token>> weightedCache = new ExpressionCache<BinaryTreeNode<Token>>(
+				2000, (expression, expressionTree) -> expression.length(), 0, TimeUnit.SECONDS,
+				expressionTree -> expressionTree);
+			long totalWeight = 0;
+
+			for (int i = 0; i < 1000; i++) {
+				String expression = "x * " + i + " + y";
+				weightedCache.get(expression);
+				totalWeight += expression.length();
+			}
+
+			assertThat(weightedCache.getWeight(), lessThanOrEqualTo(2000L));
+			assertThat(weightedCache.size() + weightedCache.getNrOfEvictions(), is(1000L));
+			assertThat(weightedCache.getWeight() < totalWeight, is(true));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the expiration of the entries after their time to live.
+	 */
+	@Test
+	public void test5() {
+		try {
+			long[] time = { 0 };
+			ExpressionCache<BinaryTreeNode<Token>> cache = new ExpressionCache<BinaryTreeNode<Token>>(
+				100, (expression, expressionTree) -> 1, 1000, expressionTree -> expressionTree, () -> time[0]);
+
+			BinaryTreeNode<Token> expressionTree = cache.get("sin ( x )");
+			time[0] = 999;
+			assertThat(cache.get("sin ( x )"), is(sameInstance(expressionTree)));
+
+			time[0] = 1000;
+			assertThat(cache.get("sin ( x )") == expressionTree, is(false));
+			assertThat(cache.getNrOfMisses(), is(2L));
+			assertThat(cache.getNrOfHits(), is(1L));
+			assertThat(cache.getNrOfEvictions(), is(1L));
+			assertThat(cache.getWeight(), is(1L));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for an expression with a syntax error, which is not cached.
+	 */
+	@Test
+	public void test6() {
+		ExpressionCache<BinaryTreeNode<Token>> cache =
+			new ExpressionCache<BinaryTreeNode<Token>>(100, expressionTree -> expressionTree);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.get("1 + ( 2");
+				fail("SyntaxException should be thrown!");
+			}
+			catch (SyntaxException e) {
+			}
+		}
+
+		assertThat(cache.getNrOfMisses(), is(2L));
+		assertThat(cache.size(), is(0L));
+		assertThat(cache.getWeight(), is(0L));
+	}
+
+	/**
+	 * Test for concurrent requests of an expression not cached yet, which is parsed only once.
+	 */
+	@Test
+	public void test7() {
+		int nrOfThreads = 8;
+		AtomicInteger nrOfCompilations = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExpressionCache<PostfixProgram> cache = new ExpressionCache<PostfixProgram>(100, expressionTree -> {
+			nrOfCompilations.incrementAndGet();
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return ExpressionEvaluator.compile(expressionTree);
+		});
+
+		PostfixProgram[] programs = new PostfixProgram[nrOfThreads];
+		Thread[] threads = new Thread[nrOfThreads];
+
+		for (int i = 0; i < nrOfThreads; i++) {
+			int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+					programs[index] = cache.get("2 ^ x - 1");
+				}
+				catch (InterruptedException | SyntaxException e) {
+				}
+			});
+			threads[i].start();
+		}
+
+		start.countDown();
+		try {
+			for (Thread thread : threads)
+				thread.join();
+		}
+		catch (InterruptedException e) {
+			fail("InterruptedException should not be thrown!");
+		}
+
+		assertThat(nrOfCompilations.get(), is(1));
+		assertThat(cache.getNrOfMisses(), is(1L));
+		assertThat(cache.getNrOfHits(), is((long) nrOfThreads - 1));
+		for (PostfixProgram program : programs)
+			assertThat(program, is(sameInstance(programs[0])));
+	}
+
+}
@@ -1,23 +1,48 @@
 package application;
 
+import compiler.BatchProgram;
+import compiler.CompiledFunction;
+import compiler.DagProgram;
+import compiler.ExpressionArena;
+import compiler.OffHeapArena;
+import compiler.Opcodes;
+import compiler.ParallelBatchProgram;
+import compiler.ParallelCompiler;
+import compiler.ParallelProgram;
+import compiler.PostfixProgram;
+
 import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
 
 import exceptions.EvaluationException;
 import exceptions.SyntaxException;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import tokens.AbsoluteValueToken;
+import tokens.FloorToken;
 import tokens.Token;
 
+import visitors.DoubleEvaluatorVisitor;
+import visitors.EvaluatorVisitor;
+
 /**
  * Tests for the ExpressionEvaluator class.
  * 
@@ -25,6 +50,38 @@ import tokens.Token;
  */
 public class ExpressionEvaluatorTest {
 
+	/**
+	 * Valid expressions used to compare the different ways of evaluating an expression.
+	 */
+	private static final String[] EXPRESSIONS = {
+		"10",
+		"PI",
+		"10 + 20",
+		"5 ^ 2",
+		"log ( e )",
+		"10 + 20 * 30",
+		"10 + 20 - 2 ^ 2 ^ 3",
+		"10 + round ( 1.7 - 1 )",
+		"10 * ( 10 + 20 - 5.5 ) - 50",
+		"( 2 ^ ( 1 + 2 ) - ( 2 + 2 ) ^ ( 4 / 2 ) * abs ( -2.0 ) ) + 10 % 4 - sin ( PI / 2 ) * ( 4 / ( 1 + 1.5 ) )",
+		"16 * atan ( 1 / 5 ) - 4 * atan ( 1 / 239 )",
+		"log10 ( 1000 ) + log2 ( 8 ) - sqrt ( 2 ) * ceil ( -e ) / floor ( PI ) + acos ( 0.5 ) * asin ( -0.5 ) - cos ( tan ( 1 ) )",
+		"-5 / -0 + 2 ^ -0.5 % 0.3"
+	};
+
+	/**
+	 * Invalid expressions used to compare the different ways of evaluating an expression, each paired with the
+	 * message of the evaluation error it raises.
+	 */
+	private static final String[][] INVALID_EXPRESSIONS = {
+		{ "5 / 0", EvaluationException.ZERO_DIV_MESSAGE },
+		{ "10 + 20 % ( 30 - 30 )", EvaluationException.ZERO_MOD_MESSAGE },
+		{ "4 * 0 ^ -1", EvaluationException.ZERO_TO_NEGATIVE_POW_MESSAGE },
+		{ "sqrt ( -5 )", EvaluationException.NEGATIVE_SQRT_MESSAGE },
+		{ "10.0 + 20 * log2 ( 30 - 40 )", EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE },
+		{ "log10 ( 0 )", EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE }
+	};
+
 	@BeforeClass
 	public static void beforeClass() {
 	}
@@ -416,4 +473,1121 @@ public class ExpressionEvaluatorTest {
 		}
 	}
 
+	/**
+	 * Performance test for a long expression.
+	 * Evaluation has to visit every node of the expression tree only once.
+	 */
+	@Test(timeout = 1000)
+	public void test21() {
+		try {
+			String expression = "1";
+			for (int i = 0; i < 12; i++)
+				expression = "( " + expression + " ) + ( " + expression + " )";
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+
+			assertThat(ExpressionEvaluator.evaluate(expressionTree), is(closeTo(4096.0, 0.000001)));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for compiled programs, which have to give exactly the same results as the evaluation of the binary tree.
+	 */
+	@Test
+	public void test22() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				PostfixProgram program = ExpressionEvaluator.compile(expressionTree);
+
+				assertThat(expression, ExpressionEvaluator.evaluate(program), is(ExpressionEvaluator.evaluate(expressionTree)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for compiled programs.
+	 * The expressions should be correctly parsed and compiled without finding any errors.
+	 */
+	@Test
+	public void test23() {
+		for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+			try {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(invalidExpression[0]);
+				ExpressionEvaluator.evaluate(ExpressionEvaluator.compile(expressionTree));
+
+				fail("EvaluationException should be thrown!");
+			}
+			catch (SyntaxException e) {
+				fail("SyntaxException should not be thrown!");
+			}
+			catch (EvaluationException e) {
+				assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + invalidExpression[1] + "!"));
+			}
+		}
+	}
+
+	/**
+	 * Test for functions compiled into bytecode, which have to give exactly the same results as the evaluation of the
+	 * binary tree.
+	 */
+	@Test
+	public void test24() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				CompiledFunction function = ExpressionEvaluator.compileToBytecode(expressionTree);
+
+				assertThat(expression, function, is(not(instanceOf(PostfixProgram.class))));
+				assertThat(expression, ExpressionEvaluator.evaluate(function), is(ExpressionEvaluator.evaluate(expressionTree)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for functions compiled into bytecode.
+	 * The expressions should be correctly parsed and compiled without finding any errors.
+	 */
+	@Test
+	public void test25() {
+		for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+			try {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(invalidExpression[0]);
+				ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToBytecode(expressionTree));
+
+				fail("EvaluationException should be thrown!");
+			}
+			catch (SyntaxException e) {
+				fail("SyntaxException should not be thrown!");
+			}
+			catch (EvaluationException e) {
+				assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + invalidExpression[1] + "!"));
+			}
+		}
+	}
+
+	/**
+	 * Test for an expression too large to be compiled into bytecode, which has to be left to the interpreter.
+	 */
+	@Test
+	public void test26() {
+		try {
+			String expression = "1";
+			for (int i = 0; i < 11; i++)
+				expression = "( " + expression + " ) + ( " + expression + " )";
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+			CompiledFunction function = ExpressionEvaluator.compileToBytecode(expressionTree);
+
+			assertThat(function, is(instanceOf(PostfixProgram.class)));
+			assertThat(ExpressionEvaluator.evaluate(function), is(closeTo(2048.0, 0.000001)));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for functions compiled into closures, which have to give exactly the same results as the evaluation of the
+	 * binary tree.
+	 */
+	@Test
+	public void test27() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				CompiledFunction function = ExpressionEvaluator.compileToClosures(expressionTree);
+
+				assertThat(expression, ExpressionEvaluator.evaluate(function), is(ExpressionEvaluator.evaluate(expressionTree)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for functions compiled into closures.
+	 * The expressions should be correctly parsed and compiled without finding any errors.
+	 */
+	@Test
+	public void test28() {
+		for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+			try {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(invalidExpression[0]);
+				ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToClosures(expressionTree));
+
+				fail("EvaluationException should be thrown!");
+			}
+			catch (SyntaxException e) {
+				fail("SyntaxException should not be thrown!");
+			}
+			catch (EvaluationException e) {
+				assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + invalidExpression[1] + "!"));
+			}
+		}
+	}
+
+	/**
+	 * Test for the visitor that returns boxed values, which has to give exactly the same results as the evaluation on
+	 * primitive double values.
+	 */
+	@Test
+	public void test29() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				EvaluatorVisitor visitor = new EvaluatorVisitor(expressionTree);
+
+				assertThat(expression, expressionTree.getData().accept(visitor), is(ExpressionEvaluator.evaluate(expressionTree)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Allocation test for the evaluation on primitive double values, which must not allocate any object.
+	 */
+	@Test
+	public void test30() {
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		assumeTrue(allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled());
+
+		try {
+			String expression = EXPRESSIONS[9];
+			DoubleEvaluatorVisitor visitor = new DoubleEvaluatorVisitor(ExpressionParser.parse(expression));
+			long threadId = Thread.currentThread().getId();
+			double checksum = 0.0;
+
+			for (int i = 0; i < 10000; i++)
+				checksum += visitor.evaluate();
+
+			long allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < 100000; i++)
+				checksum += visitor.evaluate();
+			allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+
+			assertThat(checksum, is(closeTo(-23.6 * 110000, 0.001)));
+			// a single boxed value per evaluation would already amount to 1600000 bytes
+			assertThat(allocatedBytes, is(lessThan(10000L)));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for programs without common subexpressions, which have to give exactly the same results as the evaluation
+	 * of the binary tree.
+	 */
+	@Test
+	public void test31() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				DagProgram program = ExpressionEvaluator.compileToDag(expressionTree);
+
+				assertThat(expression, ExpressionEvaluator.evaluate(program), is(ExpressionEvaluator.evaluate(expressionTree)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for programs without common subexpressions.
+	 * The expressions should be correctly parsed and compiled without finding any errors.
+	 */
+	@Test
+	public void test32() {
+		for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+			try {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(invalidExpression[0]);
+				ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToDag(expressionTree));
+
+				fail("EvaluationException should be thrown!");
+			}
+			catch (SyntaxException e) {
+				fail("SyntaxException should not be thrown!");
+			}
+			catch (EvaluationException e) {
+				assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + invalidExpression[1] + "!"));
+			}
+		}
+	}
+
+	/**
+	 * Test for the elimination of common subexpressions, which have to be evaluated only once.
+	 */
+	@Test
+	public void test33() {
+		try {
+			String expression = "sqrt ( 3 ^ 2 + 4 ^ 2 ) * 2 + ( sqrt ( 3 ^ 2 + 4 ^ 2 ) - 0 * 2 )";
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+			DagProgram program = ExpressionEvaluator.compileToDag(expressionTree);
+
+			// 3, 2, 3 ^ 2, 4, 4 ^ 2, +, sqrt, *, 0, 0 * 2, -, +
+			assertThat(program.size(), is(12));
+			assertThat(ExpressionEvaluator.evaluate(program), is(closeTo(15.0, 0.000001)));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Variables test.
+	 * All the ways of evaluating an expression should read the same bound values and agree on the result.
+	 */
+	@Test
+	public void test34() {
+		try {
+			String expression = "x * ( y + x ) ^ 2 - sin ( y ) / x + x * ( y + x ) ^ 2";
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression, variables);
+			double[] bindings = variables.newBindings();
+			bindings[variables.slotOf("x")] = 1.5;
+			bindings[variables.slotOf("y")] = -0.25;
+
+			Double result = ExpressionEvaluator.evaluate(expressionTree, bindings);
+			assertThat(result, is(closeTo(2 * 1.5 * 1.25 * 1.25 - Math.sin(-0.25) / 1.5, 0.000001)));
+			assertThat(expressionTree.getData().accept(new EvaluatorVisitor(expressionTree, bindings)), is(result));
+			assertThat(ExpressionEvaluator.evaluate(ExpressionEvaluator.compile(expressionTree), bindings), is(result));
+			assertThat(ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToDag(expressionTree), bindings), is(result));
+			assertThat(ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToClosures(expressionTree), bindings), is(result));
+			assertThat(ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToBytecode(expressionTree), bindings), is(result));
+
+			// the repeated subexpression reads the same variables, so it is shared
+			assertThat(ExpressionEvaluator.compileToDag(expressionTree).size(), is(10));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for unbound variables.
+	 * The expression should be correctly parsed and compiled without finding any errors.
+	 */
+	@Test
+	public void test35() {
+		try {
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse("1 + x");
+			ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToBytecode(expressionTree));
+
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.UNBOUND_VARIABLE_MESSAGE + "!"));
+		}
+	}
+
+	/**
+	 * Batch evaluation test.
+	 * Evaluating an expression over columns of variable values should give the same value for every row as evaluating
+	 * it one row at a time, including the rows of the last, incomplete chunk.
+	 */
+	@Test
+	public void test36() {
+		try {
+			String expression = "x * ( y + 2.5 ) - sqrt ( abs ( x - y ) ) / ( 1 + y * y ) + round ( x ) % 3 - 2 ^ sin ( y )";
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression, variables);
+			BatchProgram program = ExpressionEvaluator.compileToBatch(expressionTree);
+
+			int nrOfRows = 3 * BatchProgram.CHUNK_SIZE + 17;
+			double[][] columns = variables.newColumns(nrOfRows);
+			for (int i = 0; i < nrOfRows; i++) {
+				columns[variables.slotOf("x")][i] = i * 0.37 - 100.0;
+				columns[variables.slotOf("y")][i] = 50.0 - i * 0.11;
+			}
+
+			double[] output = new double[nrOfRows];
+			ExpressionEvaluator.evaluate(program, columns, output);
+
+			for (int i = 0; i < nrOfRows; i++) {
+				double[] bindings = { columns[0][i], columns[1][i] };
+				assertThat(output[i], is(ExpressionEvaluator.evaluate(expressionTree, bindings)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Batch evaluation test for expressions without variables, whose value is the same for every row.
+	 */
+	@Test
+	public void test37() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				double[] output = new double[BatchProgram.CHUNK_SIZE + 1];
+				ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToBatch(expressionTree), new double[0][], output);
+
+				assertThat(expression, output[0], is(ExpressionEvaluator.evaluate(expressionTree)));
+				assertThat(expression, output[BatchProgram.CHUNK_SIZE], is(output[0]));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for batch evaluation.
+	 * A single invalid row should make the whole batch fail with the error of that row, and missing or short columns
+	 * should be reported as unbound variables.
+	 */
+	@Test
+	public void test38() {
+		try {
+			VariableTable variables = new VariableTable();
+			BatchProgram program = ExpressionEvaluator.compileToBatch(ExpressionParser.parse("1 / ( x - 3 )", variables));
+			double[][] columns = variables.newColumns(2 * BatchProgram.CHUNK_SIZE);
+			for (int i = 0; i < columns[0].length; i++)
+				columns[0][i] = i;
+
+			String[][] errors = {
+				{ "2048", EvaluationException.ZERO_DIV_MESSAGE },
+				{ "4096", EvaluationException.UNBOUND_VARIABLE_MESSAGE }
+			};
+
+			for (String[] error : errors) {
+				try {
+					ExpressionEvaluator.evaluate(program, columns, new double[Integer.parseInt(error[0])]);
+					fail("EvaluationException should be thrown!");
+				}
+				catch (EvaluationException e) {
+					assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + error[1] + "!"));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Vectorized batch evaluation test, skipped when the jdk.incubator.vector module is not present.
+	 * The Vector API should give exactly the same values and errors as the scalar column loops.
+	 */
+	@Test
+	public void test39() {
+		assumeTrue(BatchProgram.isVectorApiAvailable());
+
+		try {
+			String expression = "x * ( y + 2.5 ) - sqrt ( abs ( x - y ) ) / ( 1 + y * y ) + floor ( x ) % 3 - 2 ^ sin ( y ) / y";
+			VariableTable variables = new VariableTable();
+			PostfixProgram program = ExpressionEvaluator.compile(ExpressionParser.parse(expression, variables));
+
+			int nrOfRows = 2 * BatchProgram.CHUNK_SIZE + 13;
+			double[][] columns = variables.newColumns(nrOfRows);
+			for (int i = 0; i < nrOfRows; i++) {
+				columns[variables.slotOf("x")][i] = i * 0.37 - 100.0;
+				columns[variables.slotOf("y")][i] = i % 2 == 0 ? 50.0 - i * 0.11 : -0.0;
+			}
+
+			double[] scalarOutput = new double[nrOfRows];
+			double[] vectorOutput = new double[nrOfRows];
+			ExpressionEvaluator.evaluate(new BatchProgram(program, false), columns, scalarOutput);
+			ExpressionEvaluator.evaluate(new BatchProgram(program, true), columns, vectorOutput);
+
+			assertThat(new BatchProgram(program).isVectorized(), is(true));
+			for (int i = 0; i < nrOfRows; i++)
+				assertThat(Double.doubleToRawLongBits(vectorOutput[i]), is(Double.doubleToRawLongBits(scalarOutput[i])));
+
+			// a positive zero in the tail of the last chunk still has to be detected
+			columns[variables.slotOf("y")][nrOfRows - 2] = 0.0;
+			ExpressionEvaluator.evaluate(new BatchProgram(program, true), columns, vectorOutput);
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.ZERO_DIV_MESSAGE + "!"));
+		}
+	}
+
+	/**
+	 * Parallel batch evaluation test.
+	 * Evaluating an expression on several workers should give the same value for every row as evaluating it on a single
+	 * thread, and an invalid row in any task should make the whole evaluation fail with the error of that row.
+	 */
+	@Test
+	public void test40() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			String expression = "x * ( y + 2.5 ) - sqrt ( abs ( x - y ) ) / ( 1 + y * y ) + round ( x ) % 3 - 2 ^ sin ( y ) / x";
+			VariableTable variables = new VariableTable();
+			BatchProgram program = ExpressionEvaluator.compileToBatch(ExpressionParser.parse(expression, variables));
+			ParallelBatchProgram parallelProgram = new ParallelBatchProgram(program, pool, 2 * BatchProgram.CHUNK_SIZE);
+
+			int nrOfRows = 37 * BatchProgram.CHUNK_SIZE + 5;
+			double[][] columns = variables.newColumns(nrOfRows);
+			for (int i = 0; i < nrOfRows; i++) {
+				columns[variables.slotOf("x")][i] = i * 0.037 - 100.0;
+				columns[variables.slotOf("y")][i] = 50.0 - i * 0.011;
+			}
+
+			double[] output = new double[nrOfRows];
+			double[] parallelOutput = new double[nrOfRows];
+			ExpressionEvaluator.evaluate(program, columns, output);
+			ExpressionEvaluator.evaluate(parallelProgram, columns, parallelOutput);
+
+			for (int i = 0; i < nrOfRows; i++)
+				assertThat(parallelOutput[i], is(output[i]));
+
+			columns[variables.slotOf("x")][nrOfRows - 3] = 0.0;
+			ExpressionEvaluator.evaluate(parallelProgram, columns, parallelOutput);
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.ZERO_DIV_MESSAGE + "!"));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parallel evaluation test.
+	 * Forking every subexpression should give exactly the same values and errors as the sequential evaluation of the
+	 * compiled program.
+	 */
+	@Test
+	public void test41() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			for (String expression : EXPRESSIONS) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+				ParallelProgram program = ExpressionEvaluator.compileToParallel(expressionTree, pool, 1);
+
+				assertThat(expression, ExpressionEvaluator.evaluate(program), is(ExpressionEvaluator.evaluate(ExpressionEvaluator.compile(expressionTree))));
+			}
+
+			for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+				try {
+					BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(invalidExpression[0]);
+					ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToParallel(expressionTree, pool, 1));
+
+					fail("EvaluationException should be thrown!");
+				}
+				catch (EvaluationException e) {
+					assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + invalidExpression[1] + "!"));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parallel evaluation test for a long sum of terms.
+	 * The terms should be evaluated in parallel and summed in their original order, and the first invalid term in
+	 * evaluation order should be reported even when later terms are also invalid.
+	 */
+	@Test
+	public void test42() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			StringBuilder expression = new StringBuilder("x");
+			for (int i = 1; i < 1000; i++)
+				expression.append(i % 3 == 0 ? " - " : " + ").append("sin ( x * ").append(i).append(" ) / ( y + ").append(i).append(" )");
+
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression.toString(), variables);
+			PostfixProgram program = ExpressionEvaluator.compile(expressionTree);
+			ParallelProgram parallelProgram = ExpressionEvaluator.compileToParallel(expressionTree, pool, 100);
+			assertThat(parallelProgram.isParallel(), is(true));
+
+			double[] bindings = { 0.75, 0.5 };
+			assertThat(ExpressionEvaluator.evaluate(parallelProgram, bindings), is(ExpressionEvaluator.evaluate(program, bindings)));
+
+			// the division by zero happens in a term evaluated after the negative square root
+			expressionTree = ExpressionParser.parse("x + sqrt ( x - 1 ) * 2 + 3 - 1 / x", variables);
+			ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToParallel(expressionTree, pool, 1), new double[] { 0.0, 0.0 });
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.NEGATIVE_SQRT_MESSAGE + "!"));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Iterative evaluation test.
+	 * Evaluating with explicit stacks should give exactly the same values and errors as the recursive evaluation.
+	 */
+	@Test
+	public void test43() {
+		try {
+			for (String expression : EXPRESSIONS) {
+				DoubleEvaluatorVisitor visitor = new DoubleEvaluatorVisitor(ExpressionParser.parse(expression));
+
+				assertThat(expression, visitor.evaluateIteratively(CompiledFunction.NO_VARIABLES), is(visitor.evaluate()));
+			}
+
+			for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+				try {
+					new DoubleEvaluatorVisitor(ExpressionParser.parse(invalidExpression[0])).evaluateIteratively(CompiledFunction.NO_VARIABLES);
+
+					fail("RuntimeException should be thrown!");
+				}
+				catch (RuntimeException e) {
+					assertThat(e.getMessage(), is(invalidExpression[1]));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Deep tree test.
+	 * A generated sum of 50000 terms and 100000 nested function calls should be evaluated and printed without
+	 * overflowing the thread stack.
+	 */
+	@Test
+	public void test44() {
+		try {
+			StringBuilder expression = new StringBuilder("x");
+			for (int i = 1; i < 50000; i++)
+				expression.append(i % 2 == 0 ? " - " : " + ").append((double) (i % 7));
+
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression.toString(), variables);
+
+			assertThat(ExpressionEvaluator.evaluate(expressionTree, new double[] { 0.5 }), is(closeTo(3.5, 0.000001)));
+			assertThat(ExpressionParser.toString(expressionTree), is(expression.toString()));
+
+			BinaryTreeNode<Token> nestedTree = ExpressionParser.parse("-2.5");
+			for (int i = 0; i < 100000; i++)
+				nestedTree = new BinaryTreeNode<Token>(i % 2 == 0 ? AbsoluteValueToken.INSTANCE : FloorToken.INSTANCE, nestedTree, null);
+
+			StringBuilder nestedExpression = new StringBuilder();
+			for (int i = 100000 - 1; i >= 0; i--)
+				nestedExpression.append(i % 2 == 0 ? "abs " : "floor ");
+
+			nestedExpression.append("-2.5");
+
+			assertThat(ExpressionEvaluator.evaluate(nestedTree), is(closeTo(2.0, 0.000001)));
+			assertThat(ExpressionParser.toString(nestedTree), is(nestedExpression.toString()));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Arena test.
+	 * Expressions parsed into a single ExpressionArena should evaluate to exactly the same values and errors as their
+	 * binary tree representations, and compile to equivalent PostfixPrograms.
+	 */
+	@Test
+	public void test45() {
+		try {
+			ExpressionArena arena = new ExpressionArena(4);
+			VariableTable variables = new VariableTable();
+			int[] roots = new int[EXPRESSIONS.length];
+
+			for (int i = 0; i < EXPRESSIONS.length; i++)
+				roots[i] = ExpressionParser.parse(EXPRESSIONS[i], variables, arena);
+
+			int root = ExpressionParser.parse("x * ( y - 2 ) / sqrt ( x + y ) % 3", variables, arena);
+			arena.trimToSize();
+
+			for (int i = 0; i < EXPRESSIONS.length; i++) {
+				Double value = ExpressionEvaluator.evaluate(ExpressionParser.parse(EXPRESSIONS[i]));
+
+				assertThat(EXPRESSIONS[i], ExpressionEvaluator.evaluate(arena, roots[i], CompiledFunction.NO_VARIABLES), is(value));
+				assertThat(EXPRESSIONS[i], arena.compile(roots[i]).evaluate(), is(value.doubleValue()));
+			}
+
+			double[] bindings = variables.newBindings();
+			bindings[variables.slotOf("x")] = 7.0;
+			bindings[variables.slotOf("y")] = 9.0;
+			assertThat(ExpressionEvaluator.evaluate(arena, root, bindings), is(7.0 * (9.0 - 2) / Math.sqrt(7.0 + 9.0) % 3));
+
+			for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+				try {
+					arena.evaluate(ExpressionParser.parse(invalidExpression[0], variables, arena), CompiledFunction.NO_VARIABLES);
+
+					fail("RuntimeException should be thrown!");
+				}
+				catch (RuntimeException e) {
+					assertThat(e.getMessage(), is(invalidExpression[1]));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Arena structure test.
+	 * The nodes of an expression should be stored in postfix order without parentheses, a syntax error should leave the
+	 * arena unchanged and deeply nested expressions should be evaluated without overflowing the thread stack.
+	 */
+	@Test
+	public void test46() {
+		try {
+			ExpressionArena arena = new ExpressionArena();
+			int root = ExpressionParser.parse("( 1 + x ) * sin ( 2 )", new VariableTable(), arena);
+
+			assertThat(arena.getNrOfNodes(), is(6));
+			assertThat(arena.getNrOfLiterals(), is(2));
+			assertThat(root, is(5));
+			assertThat(arena.getLeftChild(root), is(2));
+			assertThat(arena.getRightChild(root), is(4));
+			assertThat(arena.getLeftChild(4), is(3));
+			assertThat(arena.getValue(3), is(2.0));
+			assertThat(arena.getSlot(1), is(0));
+			assertThat(arena.start(root), is(0));
+
+			try {
+				ExpressionParser.parse("1 + 2 * ( 3", new VariableTable(), arena);
+				fail("SyntaxException should be thrown!");
+			}
+			catch (SyntaxException e) {
+				assertThat(arena.getNrOfNodes(), is(6));
+				assertThat(arena.getNrOfLiterals(), is(2));
+			}
+
+			StringBuilder expression = new StringBuilder();
+			for (int i = 0; i < 100000; i++)
+				expression.append(i % 2 == 0 ? "abs ( 1 - " : "( ");
+
+			expression.append("2.5");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" )");
+
+			root = ExpressionParser.parse(expression.toString(), new VariableTable(), arena);
+			assertThat(ExpressionEvaluator.evaluate(arena, root, CompiledFunction.NO_VARIABLES),
+					   is(ExpressionEvaluator.evaluate(ExpressionParser.parse(expression.toString()))));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Off-heap arena test.
+	 * The expressions stored outside of the heap, across many small chunks, should evaluate to the same values and raise
+	 * the same errors as their binary tree representation, a syntax error should leave the arena unchanged, and a
+	 * closed arena should not be usable anymore.
+	 */
+	@Test
+	public void test47() {
+		OffHeapArena closedArena = null;
+
+		try (OffHeapArena arena = new OffHeapArena(4)) {
+			closedArena = arena;
+			VariableTable variables = new VariableTable();
+			int[] roots = new int[EXPRESSIONS.length];
+
+			for (int i = 0; i < EXPRESSIONS.length; i++)
+				roots[i] = ExpressionParser.parse(EXPRESSIONS[i], variables, arena);
+
+			int root = ExpressionParser.parse("x * ( y - 2 ) / sqrt ( x + y ) % 3", variables, arena);
+
+			for (int i = 0; i < EXPRESSIONS.length; i++) {
+				assertThat(EXPRESSIONS[i], ExpressionEvaluator.evaluate(arena, roots[i], CompiledFunction.NO_VARIABLES),
+						   is(ExpressionEvaluator.evaluate(ExpressionParser.parse(EXPRESSIONS[i]))));
+			}
+
+			double[] bindings = variables.newBindings();
+			bindings[variables.slotOf("x")] = 7.0;
+			bindings[variables.slotOf("y")] = 9.0;
+			assertThat(ExpressionEvaluator.evaluate(arena, root, bindings), is(7.0 * (9.0 - 2) / Math.sqrt(7.0 + 9.0) % 3));
+
+			int nrOfNodes = arena.getNrOfNodes(), nrOfLiterals = arena.getNrOfLiterals();
+			try {
+				ExpressionParser.parse("1 + 2 * ( 3", variables, arena);
+				fail("SyntaxException should be thrown!");
+			}
+			catch (SyntaxException e) {
+				assertThat(arena.getNrOfNodes(), is(nrOfNodes));
+				assertThat(arena.getNrOfLiterals(), is(nrOfLiterals));
+			}
+
+			for (String[] invalidExpression : INVALID_EXPRESSIONS) {
+				try {
+					arena.evaluate(ExpressionParser.parse(invalidExpression[0], variables, arena), CompiledFunction.NO_VARIABLES);
+
+					fail("RuntimeException should be thrown!");
+				}
+				catch (RuntimeException e) {
+					assertThat(e.getMessage(), is(invalidExpression[1]));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+
+		assertThat(closedArena.isClosed(), is(true));
+		assertThat(closedArena.getFootprint(), is(0L));
+
+		try {
+			closedArena.evaluate(0, CompiledFunction.NO_VARIABLES);
+			fail("IllegalStateException should be thrown!");
+		}
+		catch (IllegalStateException e) {
+			assertThat(e.getMessage(), is("arena is closed"));
+		}
+	}
+
+	/**
+	 * First error test across every way of evaluating an expression.
+	 * The divisor of a division or a modulo is evaluated before its dividend by the binary tree representation, so
+	 * every compiled form should report the error of the divisor first, as the binary tree representation does.
+	 */
+	@Test
+	public void test48() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		String[][] errors = {
+			{ "log ( 0 ) / 0", EvaluationException.ZERO_DIV_MESSAGE },
+			{ "sqrt ( -1 ) % ( 2 - 2 )", EvaluationException.ZERO_MOD_MESSAGE },
+			{ "1 + log ( 0 ) / sqrt ( -1 )", EvaluationException.NEGATIVE_SQRT_MESSAGE },
+			{ "log2 ( 0 ) * 2 / ( 3 % 0 )", EvaluationException.ZERO_MOD_MESSAGE }
+		};
+
+		try {
+			for (String[] error : errors) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(error[0]);
+				String message;
+
+				try {
+					ExpressionEvaluator.evaluate(expressionTree);
+					fail("EvaluationException should be thrown!");
+					return;
+				}
+				catch (EvaluationException e) {
+					message = e.getMessage();
+					assertThat(message, is(new EvaluationException(error[1]).getMessage()));
+				}
+
+				CompiledFunction[] functions = {
+					ExpressionEvaluator.compile(expressionTree),
+					ExpressionEvaluator.compileToDag(expressionTree),
+					ExpressionEvaluator.compileToClosures(expressionTree),
+					ExpressionEvaluator.compileToBytecode(expressionTree),
+					ExpressionEvaluator.compileToParallel(expressionTree, pool, 1),
+					ExpressionParser.compile(error[0])
+				};
+
+				for (CompiledFunction function : functions) {
+					try {
+						ExpressionEvaluator.evaluate(function);
+						fail("EvaluationException should be thrown!");
+					}
+					catch (EvaluationException e) {
+						assertThat(error[0], e.getMessage(), is(message));
+					}
+				}
+
+				try {
+					ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToBatch(expressionTree), new double[0][], new double[3]);
+					fail("EvaluationException should be thrown!");
+				}
+				catch (EvaluationException e) {
+					assertThat(error[0], e.getMessage(), is(message));
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Evaluation error test for unbound variables in every form of an expression.
+	 * A variable without a value should be reported as unbound only when it is reached before any other error, in the
+	 * same order as the evaluation of the binary tree representation.
+	 */
+	@Test
+	public void test49() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		String[][] errors = {
+			{ "1 + x", EvaluationException.UNBOUND_VARIABLE_MESSAGE },
+			{ "log ( 0 ) + sqrt ( x )", EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE },
+			{ "x / 0", EvaluationException.ZERO_DIV_MESSAGE },
+			{ "2 % ( y - 1 ) + log ( 0 )", EvaluationException.UNBOUND_VARIABLE_MESSAGE }
+		};
+
+		try (OffHeapArena offHeapArena = new OffHeapArena(4)) {
+			ExpressionArena arena = new ExpressionArena();
+
+			for (String[] error : errors) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(error[0]);
+				String message = new EvaluationException(error[1]).getMessage();
+
+				try {
+					ExpressionEvaluator.evaluate(expressionTree);
+					fail("EvaluationException should be thrown!");
+				}
+				catch (EvaluationException e) {
+					assertThat(error[0], e.getMessage(), is(message));
+				}
+
+				CompiledFunction[] functions = {
+					ExpressionEvaluator.compile(expressionTree),
+					ExpressionEvaluator.compileToDag(expressionTree),
+					ExpressionEvaluator.compileToClosures(expressionTree),
+					ExpressionEvaluator.compileToBytecode(expressionTree),
+					ExpressionEvaluator.compileToParallel(expressionTree, pool, 1),
+					ExpressionParser.compile(error[0])
+				};
+
+				for (CompiledFunction function : functions) {
+					try {
+						ExpressionEvaluator.evaluate(function);
+						fail("EvaluationException should be thrown!");
+					}
+					catch (EvaluationException e) {
+						assertThat(error[0], e.getMessage(), is(message));
+					}
+				}
+
+				int[] roots = {
+					ExpressionParser.parse(error[0], new VariableTable(), arena),
+					ExpressionParser.parse(error[0], new VariableTable(), offHeapArena)
+				};
+
+				for (int i = 0; i < roots.length; i++) {
+					try {
+						ExpressionEvaluator.evaluate(i == 0 ? arena : offHeapArena, roots[i], CompiledFunction.NO_VARIABLES);
+						fail("EvaluationException should be thrown!");
+					}
+					catch (EvaluationException e) {
+						assertThat(error[0], e.getMessage(), is(message));
+					}
+				}
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parallel compilation test for mathematical functions and deeply nested subexpressions.
+	 * A mathematical function whose operand is evaluated sequentially should be evaluated sequentially as well, and
+	 * deeply nested subexpressions should be compiled and evaluated without overflowing the thread stack.
+	 */
+	@Test
+	public void test50() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse("sqrt ( x + 1 )");
+			assertThat(ExpressionEvaluator.compileToParallel(expressionTree, pool, 5).isParallel(), is(false));
+			assertThat(ExpressionEvaluator.evaluate(ExpressionEvaluator.compileToParallel(expressionTree, pool, 5),
+													new double[] { 8.0 }), is(3.0));
+
+			// 0 - ( 1 - ( 2 - ... ) ) and abs ( abs ( ... ) ) as programs, nested deeper than the thread stack allows
+			int n = 200000;
+			byte[] opcodes = new byte[2 * n + 1];
+			double[] constants = new double[n + 1];
+			for (int i = 0; i <= n; i++) {
+				opcodes[i] = Opcodes.PUSH_CONSTANT;
+				constants[i] = i;
+			}
+
+			for (int i = n + 1; i < opcodes.length; i++)
+				opcodes[i] = Opcodes.MINUS;
+
+			PostfixProgram program = new PostfixProgram(opcodes, constants, new int[0]);
+			ParallelProgram parallelProgram = ParallelCompiler.compile(program, pool, 1);
+			assertThat(parallelProgram.isParallel(), is(true));
+			assertThat(ExpressionEvaluator.evaluate(parallelProgram), is(ExpressionEvaluator.evaluate(program)));
+
+			opcodes = new byte[n + 1];
+			opcodes[0] = Opcodes.PUSH_CONSTANT;
+			for (int i = 1; i <= n; i++)
+				opcodes[i] = Opcodes.ABSOLUTE_VALUE;
+
+			program = new PostfixProgram(opcodes, new double[] { -2.5 }, new int[0]);
+			assertThat(ExpressionEvaluator.evaluate(ParallelCompiler.compile(program, pool, 1)), is(2.5));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Deep tree compilation test.
+	 * A generated sum of 200000 terms should be compiled into every form, directly and through an ExpressionCache,
+	 * without overflowing the thread stack, and every form should give exactly the same value as the binary tree.
+	 */
+	@Test
+	public void test51() {
+		try {
+			StringBuilder expression = new StringBuilder("x");
+			for (int i = 1; i < 200000; i++)
+				expression.append(i % 2 == 0 ? " - " : " + ").append(i % 7);
+
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression.toString(), variables);
+			double[] bindings = { 0.5 };
+			Double value = ExpressionEvaluator.evaluate(expressionTree, bindings);
+
+			CompiledFunction[] functions = {
+				ExpressionEvaluator.compile(expressionTree),
+				ExpressionEvaluator.compileToDag(expressionTree),
+				ExpressionEvaluator.compileToClosures(expressionTree),
+				ExpressionEvaluator.compileToBytecode(expressionTree),
+				ExpressionEvaluator.compileToParallel(expressionTree),
+				ExpressionParser.compile(expression.toString()),
+				new ExpressionCache<CompiledExpression>(10, CompiledExpression::new).get(expression.toString()),
+				new ExpressionCache<PostfixProgram>(10, ExpressionEvaluator::compile).get(expression.toString())
+			};
+
+			for (CompiledFunction function : functions)
+				assertThat(ExpressionEvaluator.evaluate(function, bindings), is(value));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the classes of functions compiled into bytecode.
+	 * Every mathematical expression should get its own hidden class, whose evaluate method reports the error of the binary
+	 * tree by itself, so the function can be inlined where it is evaluated.
+	 */
+	@Test
+	public void test52() {
+		String treeError = null;
+
+		try {
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse("log ( x - 1 ) / ( x - 1 )", variables);
+			CompiledFunction function = ExpressionEvaluator.compileToBytecode(expressionTree);
+			CompiledFunction otherFunction = ExpressionEvaluator.compileToBytecode(ExpressionParser.parse("x * 2", variables));
+
+			assertThat(function.getClass().isHidden(), is(true));
+			assertThat(otherFunction.getClass().isHidden(), is(true));
+			assertThat(function.getClass() == otherFunction.getClass(), is(false));
+			assertThat(function.evaluate(new double[] { 3.0 }), is(Math.log(2.0) / 2.0));
+
+			try {
+				ExpressionEvaluator.evaluate(expressionTree, new double[] { 1.0 });
+				fail("EvaluationException should be thrown!");
+			}
+			catch (EvaluationException e) {
+				treeError = e.getMessage();
+			}
+
+			ExpressionEvaluator.evaluate(function, new double[] { 1.0 });
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.ZERO_DIV_MESSAGE + "!"));
+			assertThat(e.getMessage(), is(treeError));
+		}
+	}
+
 }
@@ -0,0 +1,341 @@
+package application;
+
+import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import tokens.Token;
+
+import visitors.ConstantFoldingVisitor;
+import visitors.PrintVisitor;
+import visitors.SimplificationVisitor;
+
+/**
+ * Tests for the ExpressionOptimizer class.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ExpressionOptimizerTest {
+
+	@BeforeClass
+	public static void beforeClass() {
+	}
+
+	@AfterClass
+	public static void afterClass() {
+	}
+
+	@Before
+	public void before() {
+	}
+
+	@After
+	public void after() {
+	}
+
+	/**
+	 * Basic test for expression with number, which cannot be folded.
+	 */
+	@Test
+	public void test1() {
+		try {
+			String expression = "10";
+			ExpressionOptimizer optimizer = new ExpressionOptimizer();
+			BinaryTreeNode<Token> expressionTree = optimizer.foldConstants(ExpressionParser.parse(expression));
+
+			assertThat(ExpressionParser.toString(expressionTree), is("10.0"));
+			assertThat(optimizer.getNrOfRemovedNodes(), is(0L));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Basic test for constant folding of a whole expression.
+	 */
+	@Test
+	public void test2() {
+		try {
+			String expression = "16 * atan ( 1 / 5 ) - 4 * atan ( 1 / 239 )";
+			ExpressionOptimizer optimizer = new ExpressionOptimizer();
+			BinaryTreeNode<Token> originalTree = ExpressionParser.parse(expression);
+			BinaryTreeNode<Token> expressionTree = optimizer.foldConstants(originalTree);
+
+			assertThat(expressionTree.isLeaf(), is(true));
+			assertThat(optimizer.getNrOfRemovedNodes(), is(16L));
+			assertThat(ExpressionEvaluator.evaluate(expressionTree), is(ExpressionEvaluator.evaluate(originalTree)));
+			assertThat(ExpressionParser.toString(originalTree), is("16.0 * atan ( 1.0 / 5.0 ) - 4.0 * atan ( 1.0 / 239.0 )"));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Intermediate test for constant folding of parenthesized subexpressions.
+	 */
+	@Test
+	public void test3() {
+		try {
+			String expression = "( 2 + 3 ) * ( PI - ( 1 / 0 ) ) + log ( e )";
+			ExpressionOptimizer optimizer = new ExpressionOptimizer();
+			BinaryTreeNode<Token> expressionTree = optimizer.foldConstants(ExpressionParser.parse(expression));
+
+			assertThat(ExpressionParser.toString(expressionTree), is("5.0 * ( PI - ( 1.0 / 0.0 ) ) + 0.999999695226903"));
+			assertThat(optimizer.getNrOfRemovedNodes(), is(7L));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Evaluation error test for division by zero, which must not be raised while folding.
+	 * The expression should be correctly parsed and optimized without finding any errors.
+	 */
+	@Test
+	public void test4() {
+		try {
+			String expression = "1 / 0";
+			ExpressionOptimizer optimizer = new ExpressionOptimizer();
+			BinaryTreeNode<Token> expressionTree = optimizer.foldConstants(ExpressionParser.parse(expression));
+
+			assertThat(optimizer.getNrOfRemovedNodes(), is(0L));
+			ExpressionEvaluator.evaluate(expressionTree);
+
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.ZERO_DIV_MESSAGE + "!"));
+		}
+	}
+
+	/**
+	 * Evaluation error test for zero logarithm, whose argument has to stay parenthesized when it cannot be folded.
+	 * The expression should be correctly parsed and optimized without finding any errors.
+	 */
+	@Test
+	public void test5() {
+		try {
+			String expression = "2 * log ( 3 - 3 )";
+			BinaryTreeNode<Token> expressionTree = new ExpressionOptimizer().foldConstants(ExpressionParser.parse(expression));
+
+			assertThat(ExpressionParser.toString(expressionTree), is("2.0 * log ( 0.0 )"));
+			ExpressionEvaluator.evaluate(expressionTree);
+
+			fail("EvaluationException should be thrown!");
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			assertThat(e.getMessage(), is("Evaluation error encountered in the mathematical expression: " + EvaluationException.ZERO_OR_NEGATIVE_LOG_MESSAGE + "!"));
+		}
+	}
+
+	/**
+	 * Test for the algebraic rewrites that keep the result bit-identical.
+	 */
+	@Test
+	public void test6() {
+		try {
+			String expression = "PI * 1 - ( e ) ^ 1 / 4 + abs ( abs ( -e ) ) + floor ( ( ceil ( PI - -0 ) ) ) + round ( round ( e ) )";
+			BinaryTreeNode<Token> expressionTree = new ExpressionOptimizer().simplify(ExpressionParser.parse(expression));
+
+			assertThat(ExpressionParser.toString(expressionTree), is("PI - e * 0.25 + abs ( -e ) + ceil ( PI - -0.0 ) + round ( e )"));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the algebraic rewrites that do not keep the result bit-identical, which have to be enabled explicitly.
+	 * Powers of a base larger than a single leaf are kept, so the base is still evaluated only once.
+	 */
+	@Test
+	public void test7() {
+		try {
+			String expression = "PI + 0 + e ^ 2 - 2 ^ PI ^ 3 / 3 + round ( floor ( 1.5 ) )";
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+
+			assertThat(ExpressionParser.toString(new ExpressionOptimizer().simplify(expressionTree)),
+					   is("PI + 0.0 + e ^ 2.0 - 2.0 ^ PI ^ 3.0 / 3.0 + round ( floor ( 1.5 ) )"));
+			assertThat(ExpressionParser.toString(new ExpressionOptimizer(true).simplify(expressionTree)),
+					   is("PI + ( e * e ) - 2.0 ^ ( PI * PI * PI ) / 3.0 + round ( floor ( 1.5 ) )"));
+
+			expressionTree = ExpressionParser.parse("( x + 1 ) ^ 2 + sqrt ( x ) ^ 3");
+			assertThat(ExpressionParser.toString(new ExpressionOptimizer(true).simplify(expressionTree)),
+					   is("( x + 1.0 ) ^ 2.0 + sqrt ( x ) ^ 3.0"));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for optimized expressions, which have to give exactly the same results as the original expressions.
+	 */
+	@Test
+	public void test8() {
+		try {
+			String[] expressions = {
+				"( 2 ^ ( 1 + 2 ) - ( 2 + 2 ) ^ ( 4 / 2 ) * abs ( -2.0 ) ) + 10 % 4 - sin ( PI / 2 ) * ( 4 / ( 1 + 1.5 ) )",
+				"PI * 1 - ( e ) ^ 1 / 4 + abs ( abs ( -e ) ) + floor ( ( ceil ( PI - -0 ) ) ) + round ( round ( e ) )",
+				"-0 + -0 - 0 + PI / 0.125 - e / 3 + round ( 1E300 ) - floor ( round ( 1E300 ) )"
+			};
+
+			for (String expression : expressions) {
+				BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+
+				assertThat(expression, ExpressionEvaluator.evaluate(new ExpressionOptimizer().simplify(expressionTree)),
+						   is(ExpressionEvaluator.evaluate(expressionTree)));
+				assertThat(expression, ExpressionEvaluator.evaluate(new ExpressionOptimizer().optimize(expressionTree)),
+						   is(ExpressionEvaluator.evaluate(expressionTree)));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the counting of nodes and removed nodes.
+	 * Deep binary trees should be counted without overflowing the thread stack, and the removed nodes counted by an
+	 * ExpressionOptimizer shared by several threads should not be lost.
+	 */
+	@Test
+	public void test9() {
+		try {
+			StringBuilder expression = new StringBuilder("x");
+			for (int i = 0; i < 200000; i++)
+				expression.append(" + x");
+
+			assertThat(ExpressionOptimizer.countNodes(ExpressionParser.parse(expression.toString())), is(400001));
+
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse("x * 1 + 0 * ( 2 + 3 )");
+			ExpressionOptimizer optimizer = new ExpressionOptimizer();
+			Thread[] threads = new Thread[4];
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread(() -> {
+					for (int j = 0; j < 1000; j++)
+						optimizer.foldConstants(expressionTree);
+				});
+				threads[i].start();
+			}
+
+			for (Thread thread : threads)
+				thread.join();
+
+			long nrOfRemovedNodes = ExpressionOptimizer.countNodes(expressionTree)
+					- ExpressionOptimizer.countNodes(new ExpressionOptimizer().foldConstants(expressionTree));
+			assertThat(optimizer.getNrOfRemovedNodes(), is(4000 * nrOfRemovedNodes));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (InterruptedException e) {
+			fail("InterruptedException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the folding of deep binary trees, like the left spine of a generated sum of many thousands of terms.
+	 * The folding should not overflow the thread stack and should give the same result as the recursive visit.
+	 */
+	@Test
+	public void test10() {
+		try {
+			StringBuilder expression = new StringBuilder("1");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" + 1");
+
+			ExpressionOptimizer optimizer = new ExpressionOptimizer();
+			BinaryTreeNode<Token> expressionTree = optimizer.foldConstants(ExpressionParser.parse(expression.toString()));
+			assertThat(ExpressionOptimizer.countNodes(expressionTree), is(1));
+			assertThat(ExpressionEvaluator.evaluate(expressionTree), is(100001.0));
+
+			expression = new StringBuilder("x");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" + ( 2 * 3 )");
+
+			VariableTable variables = new VariableTable();
+			expressionTree = optimizer.foldConstants(ExpressionParser.parse(expression.toString(), variables));
+			assertThat(ExpressionOptimizer.countNodes(expressionTree), is(200001));
+			assertThat(ExpressionEvaluator.evaluate(expressionTree, new double[] { 0.5 }), is(600000.5));
+
+			expressionTree = ExpressionParser.parse("sqrt ( 2 * 8 ) + x / ( 1 - 1 )", new VariableTable());
+			assertThat(new PrintVisitor(new ConstantFoldingVisitor(expressionTree).foldConstants()).print(),
+					   is(new PrintVisitor(expressionTree.getData().accept(new ConstantFoldingVisitor(expressionTree))).print()));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for the simplification and optimization of deep binary trees, like the left spine of a generated sum of many
+	 * thousands of terms. Neither should overflow the thread stack, and the simplification should give the same result
+	 * as the recursive visit.
+	 */
+	@Test
+	public void test11() {
+		try {
+			StringBuilder expression = new StringBuilder("x");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" + x * 1");
+
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression.toString(), variables);
+			BinaryTreeNode<Token> simplifiedTree = new ExpressionOptimizer().simplify(expressionTree);
+			assertThat(ExpressionOptimizer.countNodes(simplifiedTree), is(200001));
+			assertThat(ExpressionEvaluator.evaluate(simplifiedTree, new double[] { 0.5 }), is(50000.5));
+
+			expression = new StringBuilder("1");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" + 1 * x / 4");
+
+			expressionTree = ExpressionParser.parse(expression.toString(), variables);
+			BinaryTreeNode<Token> optimizedTree = new ExpressionOptimizer().optimize(expressionTree);
+			assertThat(ExpressionOptimizer.countNodes(optimizedTree), is(400001));
+			assertThat(ExpressionEvaluator.evaluate(optimizedTree, new double[] { 2.0 }),
+					   is(ExpressionEvaluator.evaluate(expressionTree, new double[] { 2.0 })));
+
+			expressionTree = ExpressionParser.parse("abs ( abs ( ( x ) ) ) ^ 1 - 0 + ( ( 2 ) ) / 8", variables);
+			assertThat(new PrintVisitor(new SimplificationVisitor(expressionTree, false).simplify()).print(),
+					   is(new PrintVisitor(expressionTree.getData().accept(new SimplificationVisitor(expressionTree, false))).print()));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+}
@@ -1,7 +1,11 @@
 package application;
 
+import compiler.ExpressionArena;
+
 import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
 
+import exceptions.EvaluationException;
 import exceptions.SyntaxException;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -14,6 +18,9 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tokens.NumberToken;
 import tokens.Token;
 
 /**
@@ -364,4 +371,322 @@ public class ExpressionParserTest {
 		}
 	}
 
+	/**
+	 * Variables test.
+	 * The variables should be given slots in the order of their first appearance.
+	 */
+	@Test
+	public void test21() {
+		try {
+			String expression = "x_1 * ( y + x_1 ) ^ 2 - sin ( y )";
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression, variables);
+
+			assertThat(ExpressionParser.toString(expressionTree), is("x_1 * ( y + x_1 ) ^ 2.0 - sin ( y )"));
+			assertThat(variables.size(), is(2));
+			assertThat(variables.slotOf("x_1"), is(0));
+			assertThat(variables.slotOf("y"), is(1));
+			assertThat(variables.slotOf("z"), is(-1));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Syntax error test for invalid variable names.
+	 */
+	@Test(expected = SyntaxException.class)
+	public void test22() throws SyntaxException {
+		String expression = "2 * 1x";
+		ExpressionParser.parse(expression);
+	}
+
+	/**
+	 * Deep nesting test.
+	 * Expressions nested far deeper than the thread stack could follow recursively should be parsed and printed back.
+	 */
+	@Test
+	public void test23() {
+		try {
+			StringBuilder expression = new StringBuilder();
+			for (int i = 0; i < 100000; i++)
+				expression.append(i % 2 == 0 ? "( " : "sqrt ( ");
+
+			expression.append("2.0 ^ x ^ 2.0");
+			for (int i = 0; i < 100000; i++)
+				expression.append(" ) * 3.0");
+
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression.toString());
+
+			assertThat(ExpressionParser.toString(expressionTree), is(expression.toString()));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Syntax error test for a deeply nested expression with a missing right parenthesis.
+	 */
+	@Test(expected = SyntaxException.class)
+	public void test24() throws SyntaxException {
+		StringBuilder expression = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+			expression.append("( ");
+
+		expression.append("1");
+		for (int i = 1; i < 100000; i++)
+			expression.append(" )");
+
+		ExpressionParser.parse(expression.toString());
+	}
+
+	/**
+	 * Number literal test.
+	 * Every form of decimal number accepted by Double.parseDouble should be converted to exactly the same value.
+	 */
+	@Test
+	public void test25() {
+		String[] numbers = {
+			"0", "-0", "007", "1e3", ".5", "1.", "-2.5E-3", "+4", "2.5f", "3d", "0x1p3", "NaN", "-Infinity",
+			"123456789012345678901234567890", "0.1", "9007199254740993", "4.9e-324", "1.7976931348623157e308", "1e400"
+		};
+
+		try {
+			for (String number : numbers) {
+				NumberToken token = (NumberToken) ExpressionParser.parse(number).getData();
+
+				assertThat(number, Double.doubleToRawLongBits(token.getValue()), is(Double.doubleToRawLongBits(Double.parseDouble(number))));
+			}
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Syntax error test for malformed number literals.
+	 */
+	@Test
+	public void test26() {
+		String[] tokens = { "1e", "1.2.3", "--5", ".", "+x", "1_000", "0x10", "2.5ff" };
+
+		for (String token : tokens) {
+			try {
+				ExpressionParser.parse("1 + " + token);
+				fail("SyntaxException should be thrown for " + token + "!");
+			}
+			catch (SyntaxException e) {
+				assertThat(e.getMessage(), is("Syntax error encountered in the mathematical expression!"));
+			}
+		}
+	}
+
+	/**
+	 * Compact syntax test.
+	 * Expressions written without whitespace should be parsed to the same trees as their space separated forms.
+	 */
+	@Test
+	public void test27() {
+		String[][] expressions = {
+			{ "2*(3+4)", "2 * ( 3 + 4 )" },
+			{ "(2^(1+2)-(2+2)^(4/2)*abs(-2.0))+10%4-sin(PI/2)*(4/(1+1.5))",
+			  "( 2 ^ ( 1 + 2 ) - ( 2 + 2 ) ^ ( 4 / 2 ) * abs ( -2.0 ) ) + 10 % 4 - sin ( PI / 2 ) * ( 4 / ( 1 + 1.5 ) )" },
+			{ "x_1*-e+log10(y)^-2.5e-3", "x_1 * -e + log10 ( y ) ^ -2.5e-3" },
+			{ "1e3-2*-PI", "1e3 - 2 * -PI" },
+			{ "sqrt( x ) /2", "sqrt ( x ) / 2" }
+		};
+
+		try {
+			for (String[] expression : expressions) {
+				String compactTree = ExpressionParser.toString(ExpressionParser.parse(expression[0]));
+
+				assertThat(expression[0], compactTree, is(ExpressionParser.toString(ExpressionParser.parse(expression[1]))));
+			}
+
+			assertThat(ExpressionParser.toString(ExpressionParser.parse("2-3")), is("2.0 - 3.0"));
+			assertThat(ExpressionParser.toString(ExpressionParser.parse("2*-3")), is("2.0 * -3.0"));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Syntax error test for compact expressions.
+	 */
+	@Test
+	public void test28() {
+		String[] expressions = { "2x", "2(3)", "sin(2)3", "3+-x", "1.2.3", "2*$3" };
+
+		for (String expression : expressions) {
+			try {
+				ExpressionParser.parse(expression);
+				fail("SyntaxException should be thrown for " + expression + "!");
+			}
+			catch (SyntaxException e) {
+				assertThat(e.getMessage(), is("Syntax error encountered in the mathematical expression!"));
+			}
+		}
+	}
+
+	/**
+	 * Basic test for an expression compiled into a CompiledExpression, which does not depend on its binary tree.
+	 */
+	@Test
+	public void test29() {
+		try {
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse("rate * ( 1 + rate ) ^ years");
+			CompiledExpression expression = new CompiledExpression(expressionTree);
+			expressionTree.setData(new NumberToken(0.0));
+			expressionTree.setLeftChild(null);
+			expressionTree.setRightChild(null);
+
+			double[] variables = expression.newBindings();
+			variables[expression.slotOf("rate")] = 0.5;
+			variables[expression.slotOf("years")] = 2.0;
+
+			assertThat(expression.toString(), is("rate * ( 1.0 + rate ) ^ years"));
+			assertThat(expression.getNrOfSlots(), is(2));
+			assertThat(expression.nameOf(0), is("rate"));
+			assertThat(expression.slotOf("months"), is(-1));
+			assertThat(expression.evaluate(variables), is(1.125));
+			assertThat(ExpressionEvaluator.evaluate(ExpressionParser.compile("2 ^ 10")), is(1024.0));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (EvaluationException e) {
+			fail("EvaluationException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for expressions compiled with a shared variable table, whose slots are not all used by every expression.
+	 */
+	@Test
+	public void test30() {
+		try {
+			VariableTable variables = new VariableTable();
+			ExpressionParser.compile("a + b", variables);
+			CompiledExpression expression = ExpressionParser.compile("c - a", variables);
+			double[] bindings = variables.newBindings();
+			bindings[variables.slotOf("a")] = 1.0;
+			bindings[variables.slotOf("c")] = 5.0;
+
+			assertThat(expression.getNrOfSlots(), is(3));
+			assertThat(expression.nameOf(1) == null, is(true));
+			assertThat(expression.slotOf("c"), is(2));
+			assertThat(expression.evaluate(bindings), is(4.0));
+			assertThat(expression.evaluate(bindings, expression.newStack()), is(4.0));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for a CompiledExpression evaluated by many threads at the same time, with different variable values and
+	 * evaluation errors.
+	 */
+	@Test
+	public void test31() {
+		try {
+			CompiledExpression expression = ExpressionParser.compile("( x * x - y ) / ( x - 3 )");
+			AtomicInteger nrOfMismatches = new AtomicInteger();
+			Thread[] threads = new Thread[16];
+
+			for (int i = 0; i < threads.length; i++) {
+				int offset = i;
+				threads[i] = new Thread(() -> {
+					double[] variables = expression.newBindings();
+					for (int j = 0; j < 10000; j++) {
+						double x = (j + offset) % 7, y = j;
+						variables[0] = x;
+						variables[1] = y;
+
+						try {
+							if (expression.evaluate(variables) != (x * x - y) / (x - 3))
+								nrOfMismatches.incrementAndGet();
+						}
+						catch (RuntimeException e) {
+							if (x != 3 || !e.getMessage().equals(EvaluationException.ZERO_DIV_MESSAGE))
+								nrOfMismatches.incrementAndGet();
+						}
+					}
+				});
+				threads[i].start();
+			}
+
+			for (Thread thread : threads)
+				thread.join();
+
+			assertThat(nrOfMismatches.get(), is(0));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+		catch (InterruptedException e) {
+			fail("InterruptedException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for CompiledExpressions shared through an ExpressionCache.
+	 */
+	@Test
+	public void test32() {
+		try {
+			ExpressionCache<CompiledExpression> cache = new ExpressionCache<CompiledExpression>(100, CompiledExpression::new);
+			CompiledExpression expression = cache.get("sqrt ( x )");
+
+			assertThat(cache.get("sqrt ( x )") == expression, is(true));
+			assertThat(expression.evaluate(new double[] { 16.0 }), is(4.0));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
+	/**
+	 * Test for a shared variable table, which should not keep the variables declared by an expression with a syntax
+	 * error, whether the expression is parsed into a binary tree or into an ExpressionArena.
+	 */
+	@Test
+	public void test33() {
+		try {
+			VariableTable variables = new VariableTable();
+			ExpressionParser.parse("a + b", variables);
+
+			String[] invalidExpressions = { "a + c * ( d", "e + f +" };
+			for (String invalidExpression : invalidExpressions) {
+				try {
+					ExpressionParser.parse(invalidExpression, variables);
+					fail("SyntaxException should be thrown!");
+				}
+				catch (SyntaxException e) {
+					assertThat(variables.size(), is(2));
+				}
+
+				try {
+					ExpressionParser.parse(invalidExpression, variables, new ExpressionArena());
+					fail("SyntaxException should be thrown!");
+				}
+				catch (SyntaxException e) {
+					assertThat(variables.size(), is(2));
+				}
+			}
+
+			for (String name : new String[] { "c", "d", "e", "f" })
+				assertThat(variables.slotOf(name), is(-1));
+
+			assertThat(variables.slotOf("b"), is(1));
+			assertThat(variables.declare("g"), is(2));
+		}
+		catch (SyntaxException e) {
+			fail("SyntaxException should not be thrown!");
+		}
+	}
+
 }
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import application.ExpressionArchive;
+import application.ExpressionArchiveWriter;
+import application.ExpressionParser;
+
+import compiler.ExpressionArena;
+
+import datastructures.VariableTable;
+
+import exceptions.SyntaxException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Benchmark that compares the time of restarting with many stored mathematical expressions, when their text is parsed
+ * again into an ExpressionArena and when they are loaded into it from an ExpressionArchive, as well as the time of
+ * opening the archive and decoding a single expression.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ArchiveBenchmark {
+
+	/**
+	 * Number of stored mathematical expressions.
+	 */
+	private static final int NR_OF_EXPRESSIONS = 200000;
+
+	/**
+	 * Number of measurements, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 5;
+
+	/**
+	 * Generates a random mathematical expression of a few dozen nodes.
+	 * 
+	 * @param  random  the source of randomness
+	 * 
+	 * @return         the mathematical expression
+	 */
+	private static String generate(Random random) {
+		StringBuilder expression = new StringBuilder("x");
+		for (int i = 0; i < 8; i++) {
+			expression.append(new String[] { " + ", " - ", " * " }[random.nextInt(3)]);
+			expression.append(random.nextBoolean() ? "sqrt ( y + " + random.nextInt(100) + " )" : random.nextInt(1000) + ".5");
+		}
+
+		return expression.toString();
+	}
+
+	public static void main(String[] args) throws SyntaxException, IOException {
+		Random random = new Random(1);
+		String[] expressions = new String[NR_OF_EXPRESSIONS];
+		for (int i = 0; i < NR_OF_EXPRESSIONS; i++)
+			expressions[i] = generate(random);
+
+		VariableTable variables = new VariableTable();
+		ExpressionArchiveWriter writer = new ExpressionArchiveWriter();
+		for (String expression : expressions)
+			writer.add(ExpressionParser.parse(expression, variables));
+
+		Path file = Files.createTempFile("expressions", ".archive");
+		long writeTime = System.nanoTime();
+		writer.write(file);
+		writeTime = System.nanoTime() - writeTime;
+
+		long parseTime = Long.MAX_VALUE, loadTime = Long.MAX_VALUE, firstTime = Long.MAX_VALUE;
+		int checksum = 0;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			ExpressionArena arena = new ExpressionArena();
+			VariableTable parsedVariables = new VariableTable();
+			for (String expression : expressions)
+				checksum += ExpressionParser.parse(expression, parsedVariables, arena);
+
+			parseTime = Math.min(parseTime, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			arena = new ExpressionArena();
+			ExpressionArchive archive = ExpressionArchive.open(file);
+			for (int i = 0; i < archive.getNrOfExpressions(); i++)
+				checksum -= archive.load(i, arena);
+
+			loadTime = Math.min(loadTime, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			checksum += ExpressionArchive.open(file).load(NR_OF_EXPRESSIONS / 2, new ExpressionArena());
+			firstTime = Math.min(firstTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-32s %10.1f ms   (%d bytes)%n", "writing the archive", writeTime / 1e6, Files.size(file));
+		System.out.printf("%-32s %10.1f ms%n", "parsing all expressions", parseTime / 1e6);
+		System.out.printf("%-32s %10.1f ms%n", "loading all expressions", loadTime / 1e6);
+		System.out.printf("%-32s %10.1f us   (checksum %d)%n", "opening and loading one", firstTime / 1e3, checksum);
+
+		Files.delete(file);
+	}
+
+}
@@ -0,0 +1,138 @@
+package benchmarks;
+
+import application.ExpressionEvaluator;
+import application.ExpressionParser;
+
+import compiler.BatchProgram;
+import compiler.CompiledFunction;
+import compiler.ParallelBatchProgram;
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import tokens.Token;
+
+/**
+ * Benchmark that compares the row by row evaluation of a mathematical expression over many rows of variable values
+ * with its columnar batch evaluation, with and without the Vector API and on all the workers of the common pool.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class BatchEvaluationBenchmark {
+
+	/**
+	 * Expression used for the benchmark when none is given on the command line.
+	 */
+	private static final String DEFAULT_EXPRESSION = "x * ( y + 2.5 ) - sqrt ( abs ( x - y ) ) / ( 1 + y * y )";
+
+	/**
+	 * Number of rows evaluated in every measurement.
+	 */
+	private static final int NR_OF_ROWS = 1 << 20;
+
+	/**
+	 * Number of measurements performed for every way of evaluating, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 40;
+
+	/**
+	 * Interface for one way of evaluating the benchmarked expression over all the rows.
+	 */
+	interface BatchEvaluation {
+
+		/**
+		 * Evaluates the benchmarked expression for every row.
+		 * 
+		 * @param  output                the array in which the value of every row is written
+		 * 
+		 * @throws  EvaluationException  when an error occurs during the evaluation process
+		 */
+		void evaluate(double[] output) throws EvaluationException;
+
+	}
+
+	/**
+	 * Measures one way of evaluating the benchmarked expression and prints the average time spent on a row.
+	 * 
+	 * @param  name                  the name printed for this way of evaluating
+	 * @param  evaluation            the way of evaluating
+	 * 
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	static void measure(String name, BatchEvaluation evaluation) throws EvaluationException {
+		double[] output = new double[NR_OF_ROWS];
+		double checksum = 0.0;
+		long bestTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			evaluation.evaluate(output);
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+
+			checksum += output[round];
+		}
+
+		System.out.printf("%-24s %10.2f ns/row   (checksum %s)%n", name, (double) bestTime / NR_OF_ROWS, checksum);
+	}
+
+	public static void main(String[] args) {
+		try {
+			String expression = args.length > 0 ? args[0] : DEFAULT_EXPRESSION;
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression, variables);
+
+			Random random = new Random(42);
+			double[][] columns = variables.newColumns(NR_OF_ROWS);
+			for (double[] column : columns) {
+				for (int i = 0; i < NR_OF_ROWS; i++)
+					column[i] = random.nextDouble() * 100.0 - 50.0;
+			}
+
+			PostfixProgram program = ExpressionEvaluator.compile(expressionTree);
+			CompiledFunction function = ExpressionEvaluator.compileToBytecode(expressionTree);
+			BatchProgram batchProgram = new BatchProgram(program, false);
+			double[] stack = program.newStack();
+			double[] bindings = variables.newBindings();
+
+			System.out.print("Expression:  " + ExpressionParser.toString(expressionTree) + "\n\n");
+
+			measure("PostfixProgram per row", output -> {
+				for (int i = 0; i < NR_OF_ROWS; i++) {
+					for (int slot = 0; slot < bindings.length; slot++)
+						bindings[slot] = columns[slot][i];
+					output[i] = program.evaluate(bindings, stack);
+				}
+			});
+			measure("Bytecode per row", output -> {
+				for (int i = 0; i < NR_OF_ROWS; i++) {
+					for (int slot = 0; slot < bindings.length; slot++)
+						bindings[slot] = columns[slot][i];
+					output[i] = function.evaluate(bindings);
+				}
+			});
+			measure("BatchProgram", output -> ExpressionEvaluator.evaluate(batchProgram, columns, output));
+
+			// the Vector API needs the virtual machine to be started with --add-modules jdk.incubator.vector
+			if (BatchProgram.isVectorApiAvailable()) {
+				BatchProgram vectorProgram = new BatchProgram(program, true);
+				measure("BatchProgram vectorized", output -> ExpressionEvaluator.evaluate(vectorProgram, columns, output));
+			}
+
+			ParallelBatchProgram parallelProgram = new ParallelBatchProgram(ExpressionEvaluator.compileToBatch(expressionTree));
+			measure("ParallelBatchProgram", output -> ExpressionEvaluator.evaluate(parallelProgram, columns, output));
+			System.out.println("\nParallelism of the common pool: " + ForkJoinPool.commonPool().getParallelism());
+		}
+		catch (SyntaxException | EvaluationException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+}
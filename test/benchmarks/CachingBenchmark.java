@@ -0,0 +1,100 @@
+package benchmarks;
+
+import application.ExpressionCache;
+import application.ExpressionParser;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.SyntaxException;
+
+import java.util.Random;
+
+import tokens.Token;
+
+/**
+ * Benchmark that compares parsing every requested expression with looking it up in an ExpressionCache, for a few
+ * thousand distinct expressions requested over and over.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class CachingBenchmark {
+
+	/**
+	 * Number of distinct expressions.
+	 */
+	private static final int NR_OF_EXPRESSIONS = 4000;
+
+	/**
+	 * Number of requested expressions in every measurement.
+	 */
+	private static final int NR_OF_REQUESTS = 200000;
+
+	/**
+	 * Number of measurements performed, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 10;
+
+	/**
+	 * Interface for one way of getting the binary tree of an expression.
+	 */
+	interface Lookup {
+
+		/**
+		 * Gets the binary tree of an expression.
+		 * 
+		 * @param  expression        the mathematical expression
+		 * 
+		 * @return                   the binary tree representation of the mathematical expression
+		 * @throws  SyntaxException  when a syntax error was discovered in the mathematical expression
+		 */
+		BinaryTreeNode<Token> get(String expression) throws SyntaxException;
+
+	}
+
+	/**
+	 * Measures one way of getting the binary trees of the requested expressions and prints the average time of a request.
+	 * 
+	 * @param  name              the name printed for this way of getting the binary trees
+	 * @param  requests          the requested expressions
+	 * @param  lookup            the way of getting the binary trees
+	 * @throws  SyntaxException  when a syntax error was discovered in a mathematical expression
+	 */
+	private static void measure(String name, String[] requests, Lookup lookup) throws SyntaxException {
+		long checksum = 0;
+		long bestTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (String request : requests)
+				checksum += lookup.get(request).hashCode() & 1;
+
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-40s %8.1f ns/request   (checksum %d)%n", name, (double) bestTime / requests.length, checksum);
+	}
+
+	public static void main(String[] args) throws SyntaxException {
+		Random random = new Random(1);
+		String[] expressions = new String[NR_OF_EXPRESSIONS];
+		for (int i = 0; i < NR_OF_EXPRESSIONS; i++)
+			expressions[i] = "sqrt ( x ^ 2 + y ^ 2 ) * " + i + " - sin ( x / " + (i + 1) + " ) + log ( abs ( y ) + 1 )";
+
+		String[] requests = new String[NR_OF_REQUESTS];
+		for (int i = 0; i < NR_OF_REQUESTS; i++)
+			requests[i] = expressions[random.nextInt(NR_OF_EXPRESSIONS)];
+
+		ExpressionCache<BinaryTreeNode<Token>> cache =
+			new ExpressionCache<BinaryTreeNode<Token>>(NR_OF_EXPRESSIONS, expressionTree -> expressionTree);
+		ExpressionCache<BinaryTreeNode<Token>> smallCache =
+			new ExpressionCache<BinaryTreeNode<Token>>(NR_OF_EXPRESSIONS / 2, expressionTree -> expressionTree);
+
+		measure("ExpressionParser.parse", requests, ExpressionParser::parse);
+		measure("ExpressionCache, all expressions", requests, cache::get);
+		measure("ExpressionCache, half of the expressions", requests, smallCache::get);
+		System.out.printf("hits %d, misses %d, evictions %d%n", smallCache.getNrOfHits(), smallCache.getNrOfMisses(),
+						  smallCache.getNrOfEvictions());
+	}
+
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import application.ExpressionEvaluator;
+import application.ExpressionParser;
+
+import compiler.CompiledFunction;
+import compiler.DagProgram;
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import tokens.Token;
+
+/**
+ * Benchmark that compares the evaluation of a PostfixProgram with the evaluation of a DagProgram, for a mathematical
+ * expression that repeats the same subexpressions many times.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class CommonSubexpressionBenchmark {
+
+	/**
+	 * Subexpression repeated in every term of the benchmarked expression.
+	 */
+	private static final String REPEATED_SUBEXPRESSION = "sqrt ( 3.5 ^ 2 + 4.5 ^ 2 ) * atan ( 3.5 / 4.5 )";
+
+	/**
+	 * Number of terms of the benchmarked expression when none is given on the command line.
+	 */
+	private static final int DEFAULT_NR_OF_TERMS = 16;
+
+	public static void main(String[] args) {
+		try {
+			int nrOfTerms = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NR_OF_TERMS;
+			StringBuilder expression = new StringBuilder("0");
+			for (int i = 1; i <= nrOfTerms; i++)
+				expression.append(" + ( ").append(REPEATED_SUBEXPRESSION).append(" ) / ").append(i);
+
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression.toString());
+			PostfixProgram program = ExpressionEvaluator.compile(expressionTree);
+			DagProgram dagProgram = ExpressionEvaluator.compileToDag(expressionTree);
+			double[] stack = program.newStack();
+			double[] values = dagProgram.newValues();
+
+			System.out.print("Terms:       " + nrOfTerms + " x ( " + REPEATED_SUBEXPRESSION + " )\n");
+			System.out.print("Size:        " + program.size() + " instructions, " + dagProgram.size() + " DAG nodes\n\n");
+
+			EvaluationBenchmark.measure("PostfixProgram", () -> program.evaluate(CompiledFunction.NO_VARIABLES, stack));
+			EvaluationBenchmark.measure("DagProgram", () -> dagProgram.evaluate(CompiledFunction.NO_VARIABLES, values));
+		}
+		catch (SyntaxException | EvaluationException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import application.DoubleParser;
+
+import java.util.Random;
+
+/**
+ * Benchmark that compares the throughput of DoubleParser and Double.parseDouble on several kinds of number literals.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class DoubleParsingBenchmark {
+
+	/**
+	 * Number of literals of every kind.
+	 */
+	private static final int NR_OF_NUMBERS = 100000;
+
+	/**
+	 * Number of measurements performed for every kind of literals, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 10;
+
+	/**
+	 * Interface for one way of converting a literal.
+	 */
+	interface Conversion {
+
+		/**
+		 * Converts a literal to a double value.
+		 * 
+		 * @param  number  the literal
+		 * 
+		 * @return         the double value of the literal
+		 */
+		double convert(String number);
+
+	}
+
+	/**
+	 * Measures one way of converting literals and prints the average time of a conversion and the throughput.
+	 * 
+	 * @param  name        the name printed for this way of converting
+	 * @param  numbers     the literals
+	 * @param  conversion  the way of converting
+	 */
+	private static void measure(String name, String[] numbers, Conversion conversion) {
+		long nrOfCharacters = 0;
+		for (String number : numbers)
+			nrOfCharacters += number.length();
+
+		double checksum = 0.0;
+		long bestTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (String number : numbers)
+				checksum += conversion.convert(number);
+
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-48s %8.1f ns/number %8.1f MB/s   (checksum %s)%n", name, (double) bestTime / numbers.length,
+						  nrOfCharacters * 1000.0 / bestTime, checksum);
+	}
+
+	/**
+	 * Measures both ways of converting one kind of literals.
+	 * 
+	 * @param  kind     the name of the kind of literals
+	 * @param  numbers  the literals
+	 */
+	private static void compare(String kind, String[] numbers) {
+		measure(kind + ", Double.parseDouble", numbers, Double::parseDouble);
+		measure(kind + ", DoubleParser", numbers, number -> DoubleParser.parse(number, 0, number.length()));
+	}
+
+	public static void main(String[] args) {
+		Random random = new Random(1);
+		String[] integers = new String[NR_OF_NUMBERS];
+		String[] decimals = new String[NR_OF_NUMBERS];
+		String[] shortest = new String[NR_OF_NUMBERS];
+
+		for (int i = 0; i < NR_OF_NUMBERS; i++) {
+			integers[i] = Integer.toString(random.nextInt(100000));
+			decimals[i] = random.nextInt(1000) + "." + random.nextInt(1000);
+			shortest[i] = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+		}
+
+		compare("integers", integers);
+		compare("short decimals", decimals);
+		compare("shortest representations", shortest);
+	}
+
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import application.ExpressionEvaluator;
+import application.ExpressionParser;
+
+import compiler.CompiledFunction;
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import tokens.Token;
+
+import visitors.DoubleEvaluatorVisitor;
+import visitors.EvaluatorVisitor;
+
+/**
+ * Benchmark that compares the throughput of the different ways of evaluating a mathematical expression.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class EvaluationBenchmark {
+
+	/**
+	 * Expression used for the benchmark when none is given on the command line.
+	 */
+	private static final String DEFAULT_EXPRESSION =
+		"( 2 ^ ( 1 + 2 ) - ( 2 + 2 ) ^ ( 4 / 2 ) * abs ( -2.0 ) ) + 10 % 4 - sin ( PI / 2 ) * ( 4 / ( 1 + 1.5 ) )";
+
+	/**
+	 * Number of evaluations performed in every measurement.
+	 */
+	static final int NR_OF_EVALUATIONS = 1000000;
+
+	/**
+	 * Number of measurements performed for every way of evaluating, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 5;
+
+	/**
+	 * Interface for one way of evaluating the benchmarked expression.
+	 */
+	interface Evaluation {
+
+		/**
+		 * Evaluates the benchmarked expression once.
+		 * 
+		 * @return                       the value resulted from the evaluation
+		 * @throws  EvaluationException  when an error occurs during the evaluation process
+		 */
+		double evaluate() throws EvaluationException;
+
+	}
+
+	/**
+	 * Measures one way of evaluating the benchmarked expression and prints the average time of an evaluation.
+	 * 
+	 * @param  name                  the name printed for this way of evaluating
+	 * @param  evaluation            the way of evaluating
+	 * 
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	static void measure(String name, Evaluation evaluation) throws EvaluationException {
+		double checksum = 0.0;
+		long bestTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (int i = 0; i < NR_OF_EVALUATIONS; i++)
+				checksum += evaluation.evaluate();
+
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-24s %10.1f ns/evaluation   (checksum %s)%n", name, (double) bestTime / NR_OF_EVALUATIONS, checksum);
+	}
+
+	public static void main(String[] args) {
+		try {
+			String expression = args.length > 0 ? args[0] : DEFAULT_EXPRESSION;
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(expression);
+			DoubleEvaluatorVisitor visitor = new DoubleEvaluatorVisitor(expressionTree);
+			PostfixProgram program = ExpressionEvaluator.compile(expressionTree);
+			double[] stack = program.newStack();
+			CompiledFunction closures = ExpressionEvaluator.compileToClosures(expressionTree);
+			CompiledFunction function = ExpressionEvaluator.compileToBytecode(expressionTree);
+
+			System.out.print("Expression:  " + ExpressionParser.toString(expressionTree) + "\n\n");
+
+			measure("EvaluatorVisitor", () -> expressionTree.getData().accept(new EvaluatorVisitor(expressionTree)));
+			measure("DoubleEvaluatorVisitor", visitor::evaluate);
+			measure("PostfixProgram", () -> program.evaluate(CompiledFunction.NO_VARIABLES, stack));
+			measure("Closures", closures::evaluate);
+			measure("Bytecode", function::evaluate);
+		}
+		catch (SyntaxException | EvaluationException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package benchmarks;
+
+import application.ExpressionParser;
+
+import compiler.ExpressionArena;
+import compiler.OffHeapArena;
+
+import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
+
+import exceptions.SyntaxException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import tokens.Token;
+
+import visitors.DoubleEvaluatorVisitor;
+
+/**
+ * Benchmark that compares the heap taken by many resident mathematical expressions and the time of evaluating all of
+ * them, when they are kept as binary trees, in an ExpressionArena and in an OffHeapArena, whose nodes take no heap.
+ * It is not part of the test suite and has to be run by hand, through its main function.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class FootprintBenchmark {
+
+	/**
+	 * Number of resident mathematical expressions.
+	 */
+	private static final int NR_OF_EXPRESSIONS = 200000;
+
+	/**
+	 * Number of measurements of the evaluation time, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 5;
+
+	/**
+	 * Gets the number of bytes used on the heap, after collecting the garbage.
+	 * 
+	 * @return  the number of used bytes
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Generates a random mathematical expression of a few dozen nodes.
+	 * 
+	 * @param  random  the source of randomness
+	 * 
+	 * @return         the mathematical expression
+	 */
+	private static String generate(Random random) {
+		StringBuilder expression = new StringBuilder("x");
+		for (int i = 0; i < 8; i++) {
+			expression.append(new String[] { " + ", " - ", " * " }[random.nextInt(3)]);
+			expression.append(random.nextBoolean() ? "sqrt ( y + " + random.nextInt(100) + " )" : random.nextInt(1000) + ".5");
+		}
+
+		return expression.toString();
+	}
+
+	public static void main(String[] args) throws SyntaxException {
+		Random random = new Random(1);
+		String[] expressions = new String[NR_OF_EXPRESSIONS];
+		for (int i = 0; i < NR_OF_EXPRESSIONS; i++)
+			expressions[i] = generate(random);
+
+		VariableTable variables = new VariableTable();
+		variables.declare("x");
+		variables.declare("y");
+		double[] bindings = { 1.5, 2.5 };
+
+		long baseline = usedHeap();
+		List<BinaryTreeNode<Token>> trees = new ArrayList<BinaryTreeNode<Token>>(NR_OF_EXPRESSIONS);
+		for (int i = 0; i < NR_OF_EXPRESSIONS; i++)
+			trees.add(ExpressionParser.parse(expressions[i], variables));
+
+		long treeBytes = usedHeap() - baseline;
+
+		baseline = usedHeap();
+		ExpressionArena arena = new ExpressionArena();
+		int[] roots = new int[NR_OF_EXPRESSIONS];
+		for (int i = 0; i < NR_OF_EXPRESSIONS; i++)
+			roots[i] = ExpressionParser.parse(expressions[i], variables, arena);
+
+		arena.trimToSize();
+		long arenaBytes = usedHeap() - baseline;
+
+		baseline = usedHeap();
+		OffHeapArena offHeapArena = new OffHeapArena();
+		int[] offHeapRoots = new int[NR_OF_EXPRESSIONS];
+		for (int i = 0; i < NR_OF_EXPRESSIONS; i++)
+			offHeapRoots[i] = ExpressionParser.parse(expressions[i], variables, offHeapArena);
+
+		long offHeapBytes = usedHeap() - baseline;
+
+		System.out.printf("%-24s %10.1f bytes/expression%n", "binary trees", (double) treeBytes / NR_OF_EXPRESSIONS);
+		System.out.printf("%-24s %10.1f bytes/expression   (%d nodes, %d literals)%n", "ExpressionArena",
+						  (double) arenaBytes / NR_OF_EXPRESSIONS, arena.getNrOfNodes(), arena.getNrOfLiterals());
+		System.out.printf("%-24s %10.1f bytes/expression   (%.1f bytes/expression off the heap)%n", "OffHeapArena",
+						  (double) offHeapBytes / NR_OF_EXPRESSIONS,
+						  (double) offHeapArena.getFootprint() / NR_OF_EXPRESSIONS);
+
+		double treeChecksum = 0.0, arenaChecksum = 0.0, offHeapChecksum = 0.0;
+		long treeTime = Long.MAX_VALUE, arenaTime = Long.MAX_VALUE, offHeapTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (BinaryTreeNode<Token> tree : trees)
+				treeChecksum += new DoubleEvaluatorVisitor(tree).evaluate(bindings);
+
+			treeTime = Math.min(treeTime, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			for (int root : roots)
+				arenaChecksum += arena.evaluate(root, bindings);
+
+			arenaTime = Math.min(arenaTime, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			for (int root : offHeapRoots)
+				offHeapChecksum += offHeapArena.evaluate(root, bindings);
+
+			offHeapTime = Math.min(offHeapTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-24s %10.1f ns/expression   (checksum %s)%n", "binary trees",
+						  (double) treeTime / NR_OF_EXPRESSIONS, treeChecksum);
+		System.out.printf("%-24s %10.1f ns/expression   (checksum %s)%n", "ExpressionArena",
+						  (double) arenaTime / NR_OF_EXPRESSIONS, arenaChecksum);
+		System.out.printf("%-24s %10.1f ns/expression   (checksum %s)%n", "OffHeapArena",
+						  (double) offHeapTime / NR_OF_EXPRESSIONS, offHeapChecksum);
+
+		offHeapArena.close();
+	}
+
+}
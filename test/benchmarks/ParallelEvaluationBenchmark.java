@@ -0,0 +1,133 @@
+package benchmarks;
+
+import application.ExpressionEvaluator;
+import application.ExpressionParser;
+
+import compiler.CompiledFunction;
+import compiler.ParallelProgram;
+import compiler.PostfixProgram;
+
+import datastructures.BinaryTreeNode;
+import datastructures.VariableTable;
+
+import exceptions.EvaluationException;
+import exceptions.SyntaxException;
+
+import java.util.concurrent.ForkJoinPool;
+
+import tokens.Token;
+
+/**
+ * Benchmark that measures how the latency of a single evaluation of a very large mathematical expression scales with
+ * the number of workers used by a ParallelProgram.
+ * It is not part of the test suite and has to be run by hand, through its main function. The number of terms of the
+ * generated sum and the threshold of the ParallelProgram can be given on the command line.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ParallelEvaluationBenchmark {
+
+	/**
+	 * Number of terms of the generated sum when none is given on the command line.
+	 */
+	private static final int DEFAULT_NR_OF_TERMS = 20000;
+
+	/**
+	 * Number of evaluations performed in every measurement.
+	 */
+	private static final int NR_OF_EVALUATIONS = 200;
+
+	/**
+	 * Number of measurements performed for every way of evaluating, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 5;
+
+	/**
+	 * Stack size of the thread that parses and compiles the generated expression, whose binary tree is as deep as the
+	 * number of terms.
+	 */
+	private static final long STACK_SIZE = 1L << 30;
+
+	/**
+	 * Measures one way of evaluating the benchmarked expression and prints the average latency of an evaluation.
+	 * 
+	 * @param  name                  the name printed for this way of evaluating
+	 * @param  function              the compiled function of the benchmarked expression
+	 * @param  variables             the values of the variables used in the benchmarked expression
+	 * 
+	 * @throws  EvaluationException  when an error occurs during the evaluation process
+	 */
+	private static void measure(String name, CompiledFunction function, double[] variables) throws EvaluationException {
+		double checksum = 0.0;
+		long bestTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (int i = 0; i < NR_OF_EVALUATIONS; i++)
+				checksum += ExpressionEvaluator.evaluate(function, variables);
+
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-24s %10.1f us/evaluation   (checksum %s)%n", name, bestTime / 1000.0 / NR_OF_EVALUATIONS, checksum);
+	}
+
+	/**
+	 * Generates the sum of the given number of terms, each of them calling two transcendental functions.
+	 * 
+	 * @param  nrOfTerms  the number of terms
+	 * 
+	 * @return            the generated mathematical expression
+	 */
+	private static String generateExpression(int nrOfTerms) {
+		StringBuilder expression = new StringBuilder("0");
+		for (int i = 1; i <= nrOfTerms; i++)
+			expression.append(" + sin ( x * ").append(i).append(" ) * cos ( y + ").append(i).append(" )");
+
+		return expression.toString();
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param  nrOfTerms  the number of terms of the generated sum
+	 * @param  threshold  the threshold of the ParallelPrograms
+	 */
+	private static void run(int nrOfTerms, long threshold) {
+		try {
+			VariableTable variables = new VariableTable();
+			BinaryTreeNode<Token> expressionTree = ExpressionParser.parse(generateExpression(nrOfTerms), variables);
+			PostfixProgram program = ExpressionEvaluator.compile(expressionTree);
+			double[] bindings = { 0.25, 0.5 };
+
+			System.out.print("Expression:  sum of " + nrOfTerms + " terms, " + program.size() + " instructions\n");
+			System.out.print("Threshold:   " + threshold + "\n\n");
+
+			measure("PostfixProgram", program, bindings);
+
+			int maxParallelism = Runtime.getRuntime().availableProcessors();
+			for (int parallelism = 1; ; parallelism = Math.min(2 * parallelism, maxParallelism)) {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				ParallelProgram parallelProgram = ExpressionEvaluator.compileToParallel(expressionTree, pool, threshold);
+				measure("ParallelProgram x" + parallelism, parallelProgram, bindings);
+				pool.shutdown();
+
+				if (parallelism == maxParallelism)
+					break;
+			}
+		}
+		catch (SyntaxException | EvaluationException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int nrOfTerms = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NR_OF_TERMS;
+		long threshold = args.length > 1 ? Long.parseLong(args[1]) : ParallelProgram.DEFAULT_THRESHOLD;
+
+		Thread thread = new Thread(null, () -> run(nrOfTerms, threshold), "benchmark", STACK_SIZE);
+		thread.start();
+		thread.join();
+	}
+
+}
@@ -0,0 +1,99 @@
+package benchmarks;
+
+import application.ExpressionParser;
+
+import exceptions.SyntaxException;
+
+/**
+ * Benchmark that measures how the time of parsing a mathematical expression scales with its length, for long flat
+ * sums and for deeply nested parentheses and mathematical functions.
+ * It is not part of the test suite and has to be run by hand, through its main function. The largest number of terms
+ * or nesting levels can be given on the command line.
+ * 
+ * @author  Valentin Gabriel Mitrea
+ */
+public class ParsingBenchmark {
+
+	/**
+	 * Largest number of terms or nesting levels when none is given on the command line.
+	 */
+	private static final int DEFAULT_MAX_SIZE = 100000;
+
+	/**
+	 * Number of measurements performed for every expression, the first ones serving as warm-up.
+	 */
+	private static final int NR_OF_ROUNDS = 5;
+
+	/**
+	 * Measures the parsing of one expression and prints the average time spent on every character.
+	 * 
+	 * @param  name                  the name printed for the expression
+	 * @param  expression            the expression that has to be parsed
+	 * 
+	 * @throws  SyntaxException      when a syntax error was discovered in the mathematical expression
+	 */
+	private static void measure(String name, String expression) throws SyntaxException {
+		int nrOfParses = Math.max(1, 1000000 / expression.length());
+		long bestTime = Long.MAX_VALUE;
+
+		for (int round = 0; round < NR_OF_ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			for (int i = 0; i < nrOfParses; i++)
+				ExpressionParser.parse(expression);
+
+			bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+		}
+
+		System.out.printf("%-24s %10d chars %10.2f ns/char%n", name, expression.length(), (double) bestTime / nrOfParses / expression.length());
+	}
+
+	/**
+	 * Generates the sum of the given number of terms.
+	 * 
+	 * @param  size  the number of terms
+	 * 
+	 * @return       the generated mathematical expression
+	 */
+	private static String generateSum(int size) {
+		StringBuilder expression = new StringBuilder("x");
+		for (int i = 1; i < size; i++)
+			expression.append(" + ").append(i).append(" * y");
+
+		return expression.toString();
+	}
+
+	/**
+	 * Generates an expression nested in the given number of parentheses and mathematical functions.
+	 * 
+	 * @param  size  the number of nesting levels
+	 * 
+	 * @return       the generated mathematical expression
+	 */
+	private static String generateNested(int size) {
+		StringBuilder expression = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			expression.append(i % 2 == 0 ? "( " : "sqrt ( ");
+
+		expression.append("x");
+		for (int i = 0; i < size; i++)
+			expression.append(" ) + 1");
+
+		return expression.toString();
+	}
+
+	public static void main(String[] args) {
+		try {
+			int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_SIZE;
+
+			for (int size = 10; size <= maxSize; size *= 10)
+				measure("sum of " + size, generateSum(size));
+
+			for (int size = 10; size <= maxSize; size *= 10)
+				measure("nested " + size, generateNested(size));
+		}
+		catch (SyntaxException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+
+}